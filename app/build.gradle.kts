@@ -14,9 +14,16 @@ android {
         versionName = "1.0"
 
         testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+
+        // A literal, unlike BuildConfig.DEBUG, so javac drops `if (AppLog.DEBUG)` blocks in release
+        buildConfigField("boolean", "DEBUG_LOGGING", "false")
     }
 
     buildTypes {
+        debug {
+            // -PdebugLogging=false compiles it out here too, so DebugLoggingBenchmark can time both builds
+            buildConfigField("boolean", "DEBUG_LOGGING", (project.findProperty("debugLogging") ?: "true").toString())
+        }
         release {
             isMinifyEnabled = false
             proguardFiles(
@@ -25,6 +32,10 @@ android {
             )
         }
     }
+    buildFeatures {
+        // BuildConfig gates the debug-only menu items and debug logging
+        buildConfig = true
+    }
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
@@ -0,0 +1,98 @@
+package com.example.expensetracker.database;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.expensetracker.models.Member;
+import com.example.expensetracker.models.Settlement;
+import com.example.expensetracker.utils.AppLog;
+import com.example.expensetracker.utils.DatabaseSink;
+import com.example.expensetracker.utils.WorkloadGenerator;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Seeds one WorkloadGenerator group of 500 members and 20,000 expenses into a database file of its
+ * own, then times the balance repair and 200 settlement confirmations. Those paths build log strings
+ * and run readback queries only when debug logging is compiled in. The median is logged under
+ * "DebugLoggingBenchmark"; compare a normal debug run with one built with -PdebugLogging=false:
+ *
+ *     ./gradlew connectedDebugAndroidTest -Pandroid.testInstrumentationRunnerArguments.class=com.example.expensetracker.database.DebugLoggingBenchmark
+ *     ./gradlew connectedDebugAndroidTest -PdebugLogging=false -Pandroid.testInstrumentationRunnerArguments.class=com.example.expensetracker.database.DebugLoggingBenchmark
+ */
+@RunWith(AndroidJUnit4.class)
+public class DebugLoggingBenchmark {
+    private static final String TAG = "DebugLoggingBenchmark";
+    private static final String DATABASE_NAME = "debug_logging_benchmark.db";
+    private static final int MEMBER_COUNT = 500;
+    private static final int EXPENSE_COUNT = 20_000;
+    private static final int SETTLEMENT_COUNT = 200;
+    private static final int WARMUP_RUNS = 1;
+    private static final int MEASURED_RUNS = 5;
+
+    private static Context appContext;
+    private static DatabaseHelper db;
+    private static int groupId;
+    private static List<Settlement> settlements;
+
+    @BeforeClass
+    public static void seed() {
+        appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        appContext.deleteDatabase(DATABASE_NAME);
+        db = new DatabaseHelper(appContext, DATABASE_NAME);
+        groupId = new WorkloadGenerator(24).members(MEMBER_COUNT).expenses(EXPENSE_COUNT).generate(new DatabaseSink(db))[0];
+
+        List<Member> members = db.getMembersForGroup(groupId);
+        settlements = new ArrayList<>(SETTLEMENT_COUNT);
+        for (int i = 0; i < SETTLEMENT_COUNT; i++) {
+            Member from = members.get(i % members.size());
+            Member to = members.get((i + 1) % members.size());
+            Settlement settlement = new Settlement(from.getMemberName(), to.getMemberName(), 100 + i);
+            settlement.setFromMemberId(from.getMemberId());
+            settlement.setToMemberId(to.getMemberId());
+            settlements.add(settlement);
+        }
+        db.addSettlements(settlements, groupId);
+    }
+
+    @AfterClass
+    public static void cleanUp() {
+        db.close();
+        appContext.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void timeBalanceAndSettlementPaths() {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            run();
+        }
+        double[] millis = new double[MEASURED_RUNS];
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            long start = System.nanoTime();
+            run();
+            millis[i] = (System.nanoTime() - start) / 1e6;
+        }
+        Arrays.sort(millis);
+        Log.i(TAG, String.format("debug logging compiled %s: median %.1f ms over %d runs",
+                AppLog.DEBUG ? "in " : "out", millis[MEASURED_RUNS / 2], MEASURED_RUNS));
+    }
+
+    // The repair path once, then every settlement confirmed; confirming again still rewrites balances
+    private static void run() {
+        db.recalculateAllBalancesForGroup(groupId);
+        for (Settlement settlement : settlements) {
+            db.updateSettlementStatus(groupId, settlement.getFromMember(), settlement.getToMember(),
+                    settlement.getAmountCents(), true);
+        }
+    }
+}
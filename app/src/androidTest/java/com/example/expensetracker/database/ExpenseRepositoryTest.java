@@ -0,0 +1,111 @@
+package com.example.expensetracker.database;
+
+import android.app.Instrumentation;
+import android.content.Context;
+
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.LifecycleRegistry;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.expensetracker.models.Group;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs an ExpenseRepository of its own over a separate database file, with both workers held busy
+ * so that submitted tasks pile up in the queue.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ExpenseRepositoryTest {
+    private static final String DATABASE_NAME = "expense_repository_test.db";
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private Instrumentation instrumentation;
+    private Context appContext;
+    private DatabaseHelper helper;
+    private ExpenseRepository repository;
+    private LifecycleRegistry lifecycle;
+    private final LifecycleOwner owner = () -> lifecycle;
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @Before
+    public void setUp() {
+        instrumentation = InstrumentationRegistry.getInstrumentation();
+        appContext = instrumentation.getTargetContext();
+        appContext.deleteDatabase(DATABASE_NAME);
+        helper = new DatabaseHelper(appContext, DATABASE_NAME);
+        repository = new ExpenseRepository(helper);
+        instrumentation.runOnMainSync(() -> {
+            lifecycle = new LifecycleRegistry(owner);
+            lifecycle.setCurrentState(Lifecycle.State.RESUMED);
+        });
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        helper.close();
+        appContext.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void writeCommitsWhenQueueIsFull() throws Exception {
+        CountDownLatch busy = new CountDownLatch(ExpenseRepository.THREAD_COUNT);
+        instrumentation.runOnMainSync(() -> {
+            for (int i = 0; i < ExpenseRepository.THREAD_COUNT; i++) {
+                repository.query(owner, db -> {
+                    busy.countDown();
+                    return release.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                }, result -> { });
+            }
+        });
+        assertTrue("workers never started", busy.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicLong groupId = new AtomicLong(-1);
+        CountDownLatch written = new CountDownLatch(1);
+        instrumentation.runOnMainSync(() -> {
+            // One query more than the queue holds; only the last one is turned away
+            for (int i = 0; i <= ExpenseRepository.QUEUE_CAPACITY; i++) {
+                repository.query(owner, db -> null, new ExpenseRepository.Callback<Object>() {
+                    @Override
+                    public void onResult(Object result) {
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        if (e instanceof RejectedExecutionException) {
+                            rejected.incrementAndGet();
+                        }
+                    }
+                });
+            }
+            repository.write(owner, db -> db.addGroup(new Group("Queued", "Written behind a full queue")),
+                    new ExpenseRepository.Callback<Long>() {
+                        @Override
+                        public void onResult(Long id) {
+                            groupId.set(id);
+                            written.countDown();
+                        }
+                    });
+        });
+        assertEquals(1, rejected.get());
+
+        release.countDown();
+        assertTrue("write never completed", written.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertNotNull(helper.getGroup((int) groupId.get()));
+    }
+}
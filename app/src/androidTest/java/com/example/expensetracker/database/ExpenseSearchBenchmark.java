@@ -0,0 +1,152 @@
+package com.example.expensetracker.database;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.expensetracker.models.Expense;
+import com.example.expensetracker.models.Group;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Seeds 100,000 expenses into a scratch group and times searchExpenses on the device.
+ * Fails if the median time of a search goes over 10 ms; every timing is logged under
+ * "ExpenseSearchBenchmark". The scratch group is deleted again afterwards.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ExpenseSearchBenchmark {
+    private static final String TAG = "ExpenseSearchBenchmark";
+    private static final int EXPENSE_COUNT = 100_000;
+    private static final int WARMUP_RUNS = 5;
+    private static final int MEASURED_RUNS = 31;
+    private static final double BUDGET_MILLIS = 10.0;
+    private static final int LIMIT = 50;
+
+    private static final String[] NAMES = { "Dinner", "Lunch", "Taxi", "Train", "Groceries", "Coffee", "Museum",
+            "Drinks", "Fuel", "Parking", "Cinema", "Flight", "Hotel", "Bakery", "Ferry" };
+    private static final String[] CATEGORIES = { "Food", "Transport", "Accommodation", "Entertainment",
+            "Shopping", "Utilities", "Other" };
+    private static final String[] LOCATIONS = { "Paris", "Lyon", "Berlin", "Rome", "Madrid", "Lisbon", "Prague",
+            "Vienna", "Amsterdam", "Brussels" };
+    private static final String[] MONTHS = { "January", "February", "March", "April", "May", "June", "July",
+            "August", "September", "October", "November", "December" };
+
+    // Selective searches, the kind a user types to find one expense
+    private static final String[] QUERIES = { "ritz", "hotel march", "museum pra", "taxi lisbon", "ferry aug" };
+
+    private static DatabaseHelper db;
+    private static int groupId;
+
+    @BeforeClass
+    public static void seed() {
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        db = DatabaseHelper.getInstance(appContext);
+
+        Group group = new Group();
+        group.setGroupName("Search benchmark");
+        group.setCreatedDate("2024-01-01");
+        groupId = (int) db.addGroup(group);
+
+        Random random = new Random(14);
+        List<Expense> expenses = new ArrayList<>(EXPENSE_COUNT);
+        for (int i = 0; i < EXPENSE_COUNT; i++) {
+            int month = random.nextInt(MONTHS.length);
+            Expense expense = new Expense();
+            expense.setGroupId(groupId);
+            // A handful of hotel stays at the Ritz among all the others
+            expense.setExpenseName(i % 20_000 == 0 ? "Hotel Ritz" : NAMES[random.nextInt(NAMES.length)] + " " + i);
+            expense.setAmountCents(100 + random.nextInt(20_000));
+            expense.setPayer("Alice");
+            expense.setParticipants("Alice, Bob");
+            expense.setDate(String.format("2024-%02d-%02d", month + 1, 1 + random.nextInt(28)));
+            expense.setDescription(MONTHS[month] + " trip, receipt " + i);
+            expense.setCategory(CATEGORIES[random.nextInt(CATEGORIES.length)]);
+            expense.setLocation(LOCATIONS[random.nextInt(LOCATIONS.length)]);
+            expenses.add(expense);
+        }
+        // The only expense with a location word in its name
+        expenses.get(EXPENSE_COUNT / 2).setExpenseName("Paris souvenirs");
+        db.addExpenses(expenses);
+    }
+
+    @AfterClass
+    public static void cleanUp() {
+        db.deleteGroup(groupId);
+    }
+
+    @Test
+    public void searchesStayUnderBudget() {
+        for (String query : QUERIES) {
+            double allGroupsMillis = medianMillis(DatabaseHelper.ALL_GROUPS, query);
+            double groupMillis = medianMillis(groupId, query);
+            Log.i(TAG, String.format("%-14s all groups %6.2f ms, one group %6.2f ms", query, allGroupsMillis,
+                    groupMillis));
+            assertTrue(query + " took " + allGroupsMillis + " ms", allGroupsMillis < BUDGET_MILLIS);
+            assertTrue(query + " in one group took " + groupMillis + " ms", groupMillis < BUDGET_MILLIS);
+        }
+    }
+
+    @Test
+    public void bestMatchComesFirst() {
+        List<Expense> results = db.searchExpenses(groupId, "ritz", LIMIT);
+        assertEquals(EXPENSE_COUNT / 20_000, results.size());
+        for (Expense expense : results) {
+            assertEquals("Hotel Ritz", expense.getExpenseName());
+        }
+
+        // A rare hit in the name outranks the thousands of expenses located in Paris
+        List<Expense> paris = db.searchExpenses(groupId, "paris", LIMIT);
+        assertEquals(LIMIT, paris.size());
+        assertEquals("Paris souvenirs", paris.get(0).getExpenseName());
+    }
+
+    @Test
+    public void indexFollowsEditsAndDeletes() {
+        Expense expense = new Expense();
+        expense.setGroupId(groupId);
+        expense.setExpenseName("Gondola");
+        expense.setAmountCents(8000);
+        expense.setPayer("Alice");
+        expense.setParticipants("Alice, Bob");
+        expense.setDate("2024-05-04");
+        expense.setLocation("Venice");
+        expense.setExpenseId((int) db.addExpense(expense));
+        assertEquals(expense.getExpenseId(),
+                db.searchExpenses(groupId, "gondola venice", LIMIT).get(0).getExpenseId());
+
+        expense.setExpenseName("Vaporetto");
+        db.updateExpense(expense);
+        assertTrue(db.searchExpenses(groupId, "gondola", LIMIT).isEmpty());
+        assertEquals(expense.getExpenseId(), db.searchExpenses(groupId, "vapo", LIMIT).get(0).getExpenseId());
+
+        db.deleteExpense(expense.getExpenseId());
+        assertTrue(db.searchExpenses(groupId, "vaporetto", LIMIT).isEmpty());
+    }
+
+    private static double medianMillis(int searchGroupId, String query) {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            db.searchExpenses(searchGroupId, query, LIMIT);
+        }
+        double[] millis = new double[MEASURED_RUNS];
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            long start = System.nanoTime();
+            db.searchExpenses(searchGroupId, query, LIMIT);
+            millis[i] = (System.nanoTime() - start) / 1e6;
+        }
+        Arrays.sort(millis);
+        return millis[MEASURED_RUNS / 2];
+    }
+}
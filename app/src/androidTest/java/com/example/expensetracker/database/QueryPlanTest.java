@@ -0,0 +1,210 @@
+package com.example.expensetracker.database;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.expensetracker.models.Expense;
+import com.example.expensetracker.models.ExpenseShare;
+import com.example.expensetracker.models.Group;
+import com.example.expensetracker.models.Member;
+import com.example.expensetracker.models.Settlement;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.example.expensetracker.database.DatabaseHelper.*;
+import static org.junit.Assert.*;
+
+/**
+ * Drives every DatabaseHelper operation, the exporters and the importer against a database file of
+ * its own, then runs EXPLAIN QUERY PLAN over each statement QueryProfiler recorded. Fails if any of
+ * them falls back to a full table scan instead of an index, unless it reads the whole table on purpose.
+ * Needs a debug build, where the profiler is on.
+ */
+@RunWith(AndroidJUnit4.class)
+public class QueryPlanTest {
+    private static final String DATABASE_NAME = "query_plan_test.db";
+
+    // Statements that read these tables in full by design
+    private static final Map<String, List<String>> ALLOWED_SCANS = new HashMap<>();
+
+    static {
+        // The home screen lists every group, so the groups table itself is read in full
+        ALLOWED_SCANS.put(GROUP_SUMMARY_QUERY, Arrays.asList("g", TABLE_GROUPS));
+        ALLOWED_SCANS.put(BackupExporter.COUNT_QUERY,
+                Arrays.asList(TABLE_GROUPS, TABLE_MEMBERS, TABLE_EXPENSES, TABLE_SETTLEMENTS));
+        for (String table : new String[] { TABLE_GROUPS, TABLE_MEMBERS, TABLE_EXPENSES, TABLE_EXPENSE_SHARES,
+                TABLE_SETTLEMENTS }) {
+            // clearAllData
+            ALLOWED_SCANS.put("DELETE FROM " + table, Arrays.asList(table));
+        }
+    }
+
+    private Context appContext;
+    private DatabaseHelper helper;
+
+    @Before
+    public void setUp() {
+        appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        appContext.deleteDatabase(DATABASE_NAME);
+        helper = new DatabaseHelper(appContext, DATABASE_NAME);
+        assertTrue("needs a debug build", helper.getQueryProfiler().isEnabled());
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+        appContext.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void issuedStatementsUseIndexes() throws Exception {
+        exerciseHelper();
+
+        SQLiteDatabase db = helper.getReadableDatabase();
+        int checked = 0;
+        for (QueryProfiler.Stats stats : helper.getQueryProfiler().snapshot()) {
+            // Inserts have nothing to look up
+            if (stats.sql.startsWith("INSERT")) {
+                continue;
+            }
+            List<String> allowed = ALLOWED_SCANS.get(stats.sql);
+            assertNoTableScan(db, stats.sql, allowed != null ? allowed : new ArrayList<>());
+            checked++;
+        }
+        assertTrue("only " + checked + " statements recorded", checked > 20);
+    }
+
+    // Every public operation at least once, on a group with a few members, expenses and settlements
+    private void exerciseHelper() throws Exception {
+        int groupId = (int) helper.addGroup(new Group("Trip", "Query plans"));
+        List<Member> members = new ArrayList<>();
+        for (String name : new String[] { "Alice", "Bob", "Carol" }) {
+            members.add(new Member(groupId, name, name.toLowerCase() + "@example.com"));
+        }
+        helper.addMembers(members);
+        Member dave = new Member(groupId, "Dave", "dave@example.com");
+        dave.setMemberId((int) helper.addMember(dave));
+
+        Expense dinner = expense(groupId, "Dinner", 9000, "Alice", members);
+        dinner.setExpenseId((int) helper.addExpense(dinner));
+        List<Expense> batch = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            batch.add(expense(groupId, "Taxi " + i, 1200 + i, "Bob", members));
+        }
+        helper.addExpenses(batch);
+
+        helper.getAllGroups();
+        Group group = helper.getGroup(groupId);
+        group.setDescription("Query plans, again");
+        helper.updateGroup(group);
+
+        helper.getExpensesForGroup(groupId);
+        List<Expense> page = helper.getExpensesPage(groupId, null, 0, 3);
+        Expense last = page.get(page.size() - 1);
+        helper.getExpensesPage(groupId, last.getDate(), last.getExpenseId(), 3);
+        helper.searchExpenses(ALL_GROUPS, "taxi", 10);
+        helper.searchExpenses(groupId, "dinner", 10);
+
+        Expense stored = helper.getExpenseById(dinner.getExpenseId());
+        stored.setAmountCents(9300);
+        stored.setShares(shares(9300, members));
+        helper.updateExpense(stored);
+        helper.getSharesForExpense(stored.getExpenseId());
+        helper.getExpensesForMember(groupId, members.get(1).getMemberId());
+        helper.deleteExpense(batch.get(0).getExpenseId());
+
+        Member carol = members.get(2);
+        carol.setMemberName("Caroline");
+        helper.updateMember(carol);
+        helper.deleteMember(dave.getMemberId());
+        helper.getMembersForGroup(groupId);
+
+        helper.recalculateAllBalancesForGroup(groupId);
+        helper.recalculateBalances(groupId);
+        helper.debugBalanceCalculation(groupId);
+
+        List<Settlement> settlements = helper.getOrCreateSettlements(groupId);
+        helper.addSettlement(new Settlement("Bob", "Alice", 100), groupId);
+        helper.getSettlementsForGroup(groupId);
+        if (!settlements.isEmpty()) {
+            Settlement first = settlements.get(0);
+            helper.updateSettlementStatus(groupId, first.getFromMember(), first.getToMember(),
+                    first.getAmountCents(), true);
+        }
+        helper.clearUnsettledSettlementsForGroup(groupId);
+
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        new BackupExporter(helper).export(csv, BackupExporter.Format.CSV, null);
+        new DatabaseSnapshot(helper).write(Channels.newChannel(new ByteArrayOutputStream()), true);
+        new BackupImporter(helper).importBackup(new ByteArrayInputStream(csv.toByteArray()), null);
+
+        helper.clearSettlementsForGroup(groupId);
+        helper.deleteGroup(groupId);
+        helper.clearAllData();
+    }
+
+    private static Expense expense(int groupId, String name, long amountCents, String payer, List<Member> members) {
+        Expense expense = new Expense(groupId, name, amountCents, payer, "", "2024-05-01");
+        expense.setCategory("Transport");
+        expense.setShares(shares(amountCents, members));
+        return expense;
+    }
+
+    private static List<ExpenseShare> shares(long amountCents, List<Member> members) {
+        List<ExpenseShare> shares = new ArrayList<>();
+        long left = amountCents;
+        for (int i = 0; i < members.size(); i++) {
+            long share = i == members.size() - 1 ? left : amountCents / members.size();
+            shares.add(new ExpenseShare(members.get(i).getMemberId(), members.get(i).getMemberName(), share));
+            left -= share;
+        }
+        return shares;
+    }
+
+    private static void assertNoTableScan(SQLiteDatabase db, String sql, List<String> allowedTables) {
+        List<String> plan = explain(db, sql);
+        for (String detail : plan) {
+            // "SCAN expenses" on current SQLite, "SCAN TABLE expenses AS e" on older releases
+            if (!detail.startsWith("SCAN ") || detail.contains("INDEX") || detail.contains("SUBQUERY")
+                    || detail.contains("(subquery")) {
+                continue;
+            }
+            String[] words = detail.split(" ");
+            String table = words[1].equals("TABLE") ? words[2] : words[1];
+            String alias = detail.contains(" AS ") ? detail.substring(detail.lastIndexOf(' ') + 1) : table;
+            boolean allowed = allowedTables.contains(table) || allowedTables.contains(alias);
+            assertTrue("Full table scan (" + detail + ") in: " + sql + "\nPlan: " + plan, allowed);
+        }
+    }
+
+    private static List<String> explain(SQLiteDatabase db, String sql) {
+        int placeholders = sql.length() - sql.replace("?", "").length();
+        String[] args = new String[placeholders];
+        Arrays.fill(args, "1");
+
+        List<String> plan = new ArrayList<>();
+        Cursor cursor = db.rawQuery("EXPLAIN QUERY PLAN " + sql, args);
+        int detailIndex = cursor.getColumnIndexOrThrow("detail");
+        while (cursor.moveToNext()) {
+            plan.add(cursor.getString(detailIndex));
+        }
+        cursor.close();
+        return plan;
+    }
+}
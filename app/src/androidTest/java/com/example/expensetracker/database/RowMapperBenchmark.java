@@ -0,0 +1,159 @@
+package com.example.expensetracker.database;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.expensetracker.models.Expense;
+import com.example.expensetracker.models.Group;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static com.example.expensetracker.database.DatabaseHelper.*;
+import static org.junit.Assert.*;
+
+/**
+ * Seeds 100,000 expenses into a scratch group and maps all of them twice per run: once the way
+ * getExpensesForGroup used to, with SELECT * and a column lookup per value, and once through
+ * GROUP_EXPENSES_QUERY and ExpenseRowMapper. Median throughput of both is logged under
+ * "RowMapperBenchmark". Fails if the mapper is not the faster of the two.
+ */
+@RunWith(AndroidJUnit4.class)
+public class RowMapperBenchmark {
+    private static final String TAG = "RowMapperBenchmark";
+    private static final int EXPENSE_COUNT = 100_000;
+    private static final int WARMUP_RUNS = 2;
+    private static final int MEASURED_RUNS = 7;
+
+    private static final String SELECT_ALL_QUERY = "SELECT * FROM " + TABLE_EXPENSES + " WHERE " + COLUMN_GROUP_ID
+            + "=? ORDER BY " + COLUMN_DATE + " DESC";
+
+    private static final String[] CATEGORIES = { "Food", "Transport", "Accommodation", "Entertainment",
+            "Shopping", "Utilities", "Other" };
+
+    private static DatabaseHelper db;
+    private static int groupId;
+
+    private interface Mapping {
+        List<Expense> run(SQLiteDatabase database);
+    }
+
+    @BeforeClass
+    public static void seed() {
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        db = DatabaseHelper.getInstance(appContext);
+
+        Group group = new Group();
+        group.setGroupName("Row mapper benchmark");
+        group.setCreatedDate("2024-01-01");
+        groupId = (int) db.addGroup(group);
+
+        Random random = new Random(19);
+        List<Expense> expenses = new ArrayList<>(EXPENSE_COUNT);
+        for (int i = 0; i < EXPENSE_COUNT; i++) {
+            Expense expense = new Expense();
+            expense.setGroupId(groupId);
+            expense.setExpenseName("Expense " + i);
+            expense.setAmountCents(100 + random.nextInt(20_000));
+            expense.setPayer("Alice");
+            expense.setParticipants("Alice, Bob");
+            expense.setDate(String.format("2024-%02d-%02d", 1 + random.nextInt(12), 1 + random.nextInt(28)));
+            expense.setDescription("Receipt " + i);
+            expense.setCategory(CATEGORIES[random.nextInt(CATEGORIES.length)]);
+            expense.setLocation("Paris");
+            expense.setLatitude(48.8566);
+            expense.setLongitude(2.3522);
+            expenses.add(expense);
+        }
+        db.addExpenses(expenses);
+    }
+
+    @AfterClass
+    public static void cleanUp() {
+        db.deleteGroup(groupId);
+    }
+
+    @Test
+    public void mapperOutrunsPerRowLookups() {
+        String[] args = { String.valueOf(groupId) };
+        Mapping lookups = database -> {
+            Cursor cursor = database.rawQuery(SELECT_ALL_QUERY, args);
+            List<Expense> expenses = new ArrayList<>(cursor.getCount());
+            while (cursor.moveToNext()) {
+                expenses.add(readExpenseByName(cursor));
+            }
+            cursor.close();
+            return expenses;
+        };
+        Mapping mapper = database -> {
+            Cursor cursor = database.rawQuery(GROUP_EXPENSES_QUERY, args);
+            List<Expense> expenses = new ExpenseRowMapper(cursor).mapAll(cursor);
+            cursor.close();
+            return expenses;
+        };
+
+        // Same rows either way, so the timings compare only the mapping
+        List<Expense> expected = lookups.run(db.getReadableDatabase());
+        List<Expense> actual = mapper.run(db.getReadableDatabase());
+        assertEquals(EXPENSE_COUNT, actual.size());
+        for (int i = 0; i < EXPENSE_COUNT; i += 997) {
+            assertEquals(expected.get(i).getExpenseId(), actual.get(i).getExpenseId());
+            assertEquals(expected.get(i).getAmountCents(), actual.get(i).getAmountCents());
+            assertEquals(expected.get(i).getCategory(), actual.get(i).getCategory());
+        }
+
+        double lookupMillis = medianMillis(lookups);
+        double mapperMillis = medianMillis(mapper);
+        Log.i(TAG, String.format("SELECT * with per-row lookups %7.1f ms, %6.0f rows/ms", lookupMillis,
+                EXPENSE_COUNT / lookupMillis));
+        Log.i(TAG, String.format("projection with ExpenseRowMapper %7.1f ms, %6.0f rows/ms", mapperMillis,
+                EXPENSE_COUNT / mapperMillis));
+        assertTrue("mapper took " + mapperMillis + " ms, lookups " + lookupMillis + " ms",
+                mapperMillis < lookupMillis);
+    }
+
+    // How rows were read before the mappers: every value looks its column up by name again
+    private static Expense readExpenseByName(Cursor cursor) {
+        Expense expense = new Expense();
+        expense.setExpenseId(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_EXPENSE_ID)));
+        expense.setGroupId(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_GROUP_ID)));
+        expense.setExpenseName(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_EXPENSE_NAME)));
+        expense.setAmountCents(cursor.getLong(cursor.getColumnIndexOrThrow(COLUMN_AMOUNT_CENTS)));
+        expense.setPayer(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_PAYER)));
+        expense.setParticipants(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_PARTICIPANTS)));
+        expense.setDate(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_DATE)));
+        expense.setDescription(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_DESCRIPTION)));
+        expense.setCategory(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_CATEGORY)));
+        expense.setLocation(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_LOCATION)));
+        expense.setLatitude(cursor.getDouble(cursor.getColumnIndexOrThrow(COLUMN_LATITUDE)));
+        expense.setLongitude(cursor.getDouble(cursor.getColumnIndexOrThrow(COLUMN_LONGITUDE)));
+        return expense;
+    }
+
+    private static double medianMillis(Mapping mapping) {
+        SQLiteDatabase database = db.getReadableDatabase();
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            mapping.run(database);
+        }
+        double[] millis = new double[MEASURED_RUNS];
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            long start = System.nanoTime();
+            mapping.run(database);
+            millis[i] = (System.nanoTime() - start) / 1e6;
+        }
+        Arrays.sort(millis);
+        return millis[MEASURED_RUNS / 2];
+    }
+}
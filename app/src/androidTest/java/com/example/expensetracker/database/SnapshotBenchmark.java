@@ -0,0 +1,169 @@
+package com.example.expensetracker.database;
+
+import android.content.Context;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.expensetracker.models.Expense;
+import com.example.expensetracker.models.ExpenseShare;
+import com.example.expensetracker.models.Group;
+import com.example.expensetracker.models.Member;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Seeds 20,000 expenses with their shares into a scratch group, then compares a snapshot round
+ * trip with a CSV export and import of the same database. Sizes and timings are logged under
+ * "SnapshotBenchmark". Fails if a snapshot is not smaller than the CSV or the restore loses data.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SnapshotBenchmark {
+    private static final String TAG = "SnapshotBenchmark";
+    private static final int EXPENSE_COUNT = 20_000;
+
+    private static final String[] MEMBERS = { "Alice", "Bob", "Carol", "Dave", "Erin" };
+    private static final String[] CATEGORIES = { "Food", "Transport", "Accommodation", "Entertainment",
+            "Shopping", "Utilities", "Other" };
+
+    private static DatabaseHelper db;
+    private static int groupId;
+
+    @BeforeClass
+    public static void seed() {
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        db = DatabaseHelper.getInstance(appContext);
+
+        Group group = new Group();
+        group.setGroupName("Snapshot benchmark");
+        group.setCreatedDate("2024-01-01");
+        groupId = (int) db.addGroup(group);
+
+        List<Member> members = new ArrayList<>();
+        for (String name : MEMBERS) {
+            members.add(new Member(groupId, name, name.toLowerCase() + "@example.com"));
+        }
+        db.addMembers(members);
+
+        Random random = new Random(18);
+        List<Expense> expenses = new ArrayList<>(EXPENSE_COUNT);
+        for (int i = 0; i < EXPENSE_COUNT; i++) {
+            int participants = 2 + random.nextInt(MEMBERS.length - 1);
+            long shareCents = 100 + random.nextInt(5_000);
+            List<ExpenseShare> shares = new ArrayList<>();
+            StringBuilder names = new StringBuilder();
+            for (int p = 0; p < participants; p++) {
+                Member member = members.get(p);
+                shares.add(new ExpenseShare(member.getMemberId(), member.getMemberName(), shareCents));
+                names.append(p == 0 ? "" : ", ").append(member.getMemberName());
+            }
+
+            Expense expense = new Expense();
+            expense.setGroupId(groupId);
+            expense.setExpenseName("Expense " + i);
+            expense.setAmountCents(shareCents * participants);
+            expense.setPayer(MEMBERS[random.nextInt(MEMBERS.length)]);
+            expense.setParticipants(names.toString());
+            expense.setDate(String.format("2024-%02d-%02d", 1 + random.nextInt(12), 1 + random.nextInt(28)));
+            expense.setCategory(CATEGORIES[random.nextInt(CATEGORIES.length)]);
+            expense.setShares(shares);
+            expenses.add(expense);
+        }
+        db.addExpenses(expenses);
+    }
+
+    @AfterClass
+    public static void cleanUp() {
+        db.deleteGroup(groupId);
+    }
+
+    @Test
+    public void snapshotRoundTripAgainstCsv() throws IOException {
+        long[] countsBefore = tableCounts();
+        long balancesBefore = balanceChecksum();
+
+        // The snapshot is taken first, so restoring it also drops the copies the CSV import adds
+        long start = System.nanoTime();
+        ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+        new DatabaseSnapshot(db).write(Channels.newChannel(snapshot), true);
+        double snapshotMillis = (System.nanoTime() - start) / 1e6;
+
+        ByteArrayOutputStream uncompressed = new ByteArrayOutputStream();
+        new DatabaseSnapshot(db).write(Channels.newChannel(uncompressed), false);
+
+        start = System.nanoTime();
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        new BackupExporter(db).export(csv, BackupExporter.Format.CSV, null);
+        double csvExportMillis = (System.nanoTime() - start) / 1e6;
+
+        start = System.nanoTime();
+        new BackupImporter(db).importBackup(new ByteArrayInputStream(csv.toByteArray()), null);
+        double csvImportMillis = (System.nanoTime() - start) / 1e6;
+
+        start = System.nanoTime();
+        new DatabaseSnapshot(db).restore(Channels.newChannel(new ByteArrayInputStream(snapshot.toByteArray())));
+        double restoreMillis = (System.nanoTime() - start) / 1e6;
+
+        Log.i(TAG, String.format("snapshot %d bytes (%d uncompressed), write %.1f ms, restore %.1f ms",
+                snapshot.size(), uncompressed.size(), snapshotMillis, restoreMillis));
+        Log.i(TAG, String.format("CSV      %d bytes, export %.1f ms, import %.1f ms",
+                csv.size(), csvExportMillis, csvImportMillis));
+
+        assertArrayEquals(countsBefore, tableCounts());
+        assertEquals(balancesBefore, balanceChecksum());
+        assertTrue("snapshot " + snapshot.size() + " bytes, CSV " + csv.size(), snapshot.size() < csv.size());
+        assertTrue("uncompressed snapshot " + uncompressed.size() + " bytes, CSV " + csv.size(),
+                uncompressed.size() < csv.size());
+    }
+
+    @Test
+    public void truncatedSnapshotLeavesDatabaseAlone() throws IOException {
+        ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+        new DatabaseSnapshot(db).write(Channels.newChannel(snapshot), true);
+        byte[] truncated = Arrays.copyOf(snapshot.toByteArray(), snapshot.size() / 2);
+        long[] countsBefore = tableCounts();
+
+        try {
+            new DatabaseSnapshot(db).restore(Channels.newChannel(new ByteArrayInputStream(truncated)));
+            fail("Restored a truncated snapshot");
+        } catch (IOException expected) {
+            // The live database is only replaced once the whole snapshot has been read
+        }
+        assertArrayEquals(countsBefore, tableCounts());
+    }
+
+    private static long[] tableCounts() {
+        SQLiteDatabase database = db.getReadableDatabase();
+        String[] tables = { DatabaseHelper.TABLE_GROUPS, DatabaseHelper.TABLE_MEMBERS, DatabaseHelper.TABLE_EXPENSES,
+                DatabaseHelper.TABLE_EXPENSE_SHARES, DatabaseHelper.TABLE_SETTLEMENTS };
+        long[] counts = new long[tables.length];
+        for (int i = 0; i < tables.length; i++) {
+            counts[i] = DatabaseUtils.queryNumEntries(database, tables[i]);
+        }
+        return counts;
+    }
+
+    // Changes if any balance moves to another member or changes at all
+    private static long balanceChecksum() {
+        return DatabaseUtils.longForQuery(db.getReadableDatabase(), "SELECT COALESCE(SUM("
+                + DatabaseHelper.COLUMN_BALANCE_CENTS + " * " + DatabaseHelper.COLUMN_MEMBER_ID + "), 0) FROM "
+                + DatabaseHelper.TABLE_MEMBERS, null);
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.expensetracker;
+
+import android.os.Bundle;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import androidx.appcompat.app.AppCompatActivity;
+
+import com.example.expensetracker.database.DatabaseHelper;
+import com.example.expensetracker.database.QueryProfiler;
+import com.google.android.material.button.MaterialButton;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+// Debug builds only (src/debug): what QueryProfiler has timed since the app started or the last reset
+public class QueryStatsActivity extends AppCompatActivity {
+    private ImageView btnBack;
+    private MaterialButton btnReset;
+    private TextView tvQueryStats;
+
+    private QueryProfiler profiler;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_query_stats);
+
+        profiler = DatabaseHelper.getInstance(this).getQueryProfiler();
+
+        initializeViews();
+        setupClickListeners();
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        loadStats();
+    }
+
+    private void initializeViews() {
+        btnBack = findViewById(R.id.btnBack);
+        btnReset = findViewById(R.id.btnReset);
+        tvQueryStats = findViewById(R.id.tvQueryStats);
+    }
+
+    private void setupClickListeners() {
+        btnBack.setOnClickListener(v -> finish());
+        btnReset.setOnClickListener(v -> {
+            profiler.reset();
+            loadStats();
+        });
+    }
+
+    private void loadStats() {
+        if (!profiler.isEnabled()) {
+            tvQueryStats.setText("Query timing is only recorded in debug builds.");
+            return;
+        }
+
+        StringBuilder text = new StringBuilder();
+        List<QueryProfiler.Stats> stats = profiler.snapshot();
+        text.append("Statements by total time (ms)\n\n");
+        if (stats.isEmpty()) {
+            text.append("Nothing recorded yet.\n");
+        }
+        for (QueryProfiler.Stats stat : stats) {
+            text.append(String.format(Locale.US, "%,d calls  total %s  p50 %s  p95 %s  p99 %s  max %s%n",
+                    stat.count, millis(stat.totalNanos), millis(stat.p50Nanos), millis(stat.p95Nanos),
+                    millis(stat.p99Nanos), millis(stat.maxNanos)));
+            text.append(stat.sql).append("\n\n");
+        }
+
+        List<QueryProfiler.SlowQuery> slowQueries = profiler.slowQueries();
+        text.append(String.format(Locale.US, "%nSlow calls, over %s ms, newest first%n%n",
+                millis(QueryProfiler.SLOW_QUERY_NANOS)));
+        if (slowQueries.isEmpty()) {
+            text.append("None.\n");
+        }
+        SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss.SSS", Locale.US);
+        for (QueryProfiler.SlowQuery slowQuery : slowQueries) {
+            text.append(timeFormat.format(new Date(slowQuery.timeMillis))).append("  ")
+                    .append(millis(slowQuery.nanos)).append(" ms  ")
+                    .append(slowQuery.threadName).append('\n')
+                    .append(slowQuery.sql).append(' ').append(slowQuery.argShape).append("\n\n");
+        }
+        tvQueryStats.setText(text);
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.US, "%.2f", nanos / 1_000_000.0);
+    }
+}
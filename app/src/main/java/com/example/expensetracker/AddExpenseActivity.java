@@ -19,11 +19,13 @@ import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
 
-import com.example.expensetracker.database.DatabaseHelper;
+import com.example.expensetracker.database.ExpenseRepository;
 import com.example.expensetracker.models.Expense;
+import com.example.expensetracker.models.ExpenseShare;
 import com.example.expensetracker.models.Member;
 import com.example.expensetracker.utils.NotificationHelper;
 import com.example.expensetracker.utils.LocationHelper;
+import com.example.expensetracker.utils.MoneyUtils;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.textfield.TextInputEditText;
 
@@ -44,7 +46,7 @@ public class AddExpenseActivity extends AppCompatActivity {
     private TextInputEditText etCategory;
     private MaterialButton btnSaveExpense;
     private ImageView btnBack;
-    private DatabaseHelper databaseHelper;
+    private ExpenseRepository repository;
     private NotificationHelper notificationHelper;
     private int groupId;
     private String groupName;
@@ -77,34 +79,16 @@ public class AddExpenseActivity extends AppCompatActivity {
         initializeViews();
         initializeDatabase();
         setupClickListeners();
-        loadGroupData();
-        setupDatePicker();
 
-        // Check if we're in edit mode
+        // Check if we're in edit mode; the expense is loaded once the members are
         Intent intent = getIntent();
         if (intent.getBooleanExtra("is_edit_mode", false)) {
             isEditMode = true;
             expenseId = intent.getIntExtra("expense_id", -1);
-            if (expenseId != -1) {
-                loadExpenseData();
-            }
-        }
-    }
-
-    @Override
-    protected void onPause() {
-        super.onPause();
-        if (databaseHelper != null) {
-            databaseHelper.close();
         }
-    }
 
-    @Override
-    protected void onDestroy() {
-        super.onDestroy();
-        if (databaseHelper != null) {
-            databaseHelper.close();
-        }
+        loadGroupData();
+        setupDatePicker();
     }
 
     private void initializeViews() {
@@ -146,7 +130,7 @@ public class AddExpenseActivity extends AppCompatActivity {
     }
 
     private void initializeDatabase() {
-        databaseHelper = new DatabaseHelper(this);
+        repository = ExpenseRepository.getInstance(this);
         notificationHelper = new NotificationHelper(this);
     }
 
@@ -201,7 +185,17 @@ public class AddExpenseActivity extends AppCompatActivity {
     }
 
     private void loadExpenseData() {
-        currentExpense = databaseHelper.getExpenseById(expenseId);
+        repository.query(this, db -> {
+            Expense expense = db.getExpenseById(expenseId);
+            if (expense != null) {
+                expense.setShares(db.getSharesForExpense(expenseId));
+            }
+            return expense;
+        }, this::showExpenseData);
+    }
+
+    private void showExpenseData(Expense expense) {
+        currentExpense = expense;
         if (currentExpense == null) {
             Toast.makeText(this, "Expense not found", Toast.LENGTH_SHORT).show();
             finish();
@@ -210,7 +204,7 @@ public class AddExpenseActivity extends AppCompatActivity {
 
         // Populate fields with expense data
         etExpenseName.setText(currentExpense.getExpenseName());
-        etAmount.setText(String.valueOf(currentExpense.getAmount()));
+        etAmount.setText(MoneyUtils.formatPlain(currentExpense.getAmountCents()));
         etDescription.setText(currentExpense.getDescription() != null ? currentExpense.getDescription() : "");
         etCategory.setText(currentExpense.getCategory() != null ? currentExpense.getCategory() : "");
 
@@ -236,13 +230,9 @@ public class AddExpenseActivity extends AppCompatActivity {
             }
         }
 
-        // Set participants and split type
-        // Handle both ", " and "," formats
-        String[] participants = currentExpense.getParticipants().contains(", ")
-                ? currentExpense.getParticipants().split(", ")
-                : currentExpense.getParticipants().split(",");
-        boolean isCustomSplit = currentExpense.getParticipantAmounts() != null &&
-                !currentExpense.getParticipantAmounts().isEmpty();
+        // Set participants and split type from the stored shares
+        List<ExpenseShare> shares = currentExpense.getShares();
+        boolean isCustomSplit = !ExpenseShare.isEqualSplit(shares);
 
         if (isCustomSplit) {
             radioCustom.setChecked(true);
@@ -253,30 +243,25 @@ public class AddExpenseActivity extends AppCompatActivity {
         }
 
         // Set participant checkboxes
-        for (CheckBox checkBox : participantCheckBoxes) {
-            String memberName = checkBox.getText().toString();
+        for (int i = 0; i < participantCheckBoxes.size(); i++) {
+            int memberId = members.get(i).getMemberId();
             boolean isParticipant = false;
-            for (String participant : participants) {
-                if (participant.trim().equals(memberName)) {
+            for (ExpenseShare share : shares) {
+                if (share.getMemberId() == memberId) {
                     isParticipant = true;
                     break;
                 }
             }
-            checkBox.setChecked(isParticipant);
+            participantCheckBoxes.get(i).setChecked(isParticipant);
         }
 
         // Setup custom amounts if custom split
         if (isCustomSplit) {
             setupCustomAmountFields();
-            String[] participantAmounts = currentExpense.getParticipantAmounts().contains(", ")
-                    ? currentExpense.getParticipantAmounts().split(", ")
-                    : currentExpense.getParticipantAmounts().split(",");
-            for (int i = 0; i < participants.length && i < participantAmounts.length; i++) {
-                String participant = participants[i].trim();
-                String amount = participantAmounts[i].trim();
-                TextInputEditText field = customAmountFields.get(participant);
+            for (ExpenseShare share : shares) {
+                TextInputEditText field = customAmountFields.get(share.getMemberName());
                 if (field != null) {
-                    field.setText(amount);
+                    field.setText(MoneyUtils.formatPlain(share.getShareCents()));
                 }
             }
         }
@@ -289,11 +274,18 @@ public class AddExpenseActivity extends AppCompatActivity {
 
         // Update split summary
         updateSplitSummary();
+        btnSaveExpense.setEnabled(true);
     }
 
     private void loadMembers() {
+        // Nothing to save until the payer, participants and (when editing) the expense are loaded
+        btnSaveExpense.setEnabled(false);
+        repository.query(this, db -> db.getMembersForGroup(groupId), this::showMembers);
+    }
+
+    private void showMembers(List<Member> groupMembers) {
         members.clear();
-        members.addAll(databaseHelper.getMembersForGroup(groupId));
+        members.addAll(groupMembers);
 
         if (members.isEmpty()) {
             Toast.makeText(this, "No members found. Please add members first.", Toast.LENGTH_LONG).show();
@@ -303,6 +295,12 @@ public class AddExpenseActivity extends AppCompatActivity {
 
         setupPayerSpinner();
         setupParticipantCheckBoxes();
+
+        if (isEditMode && expenseId != -1) {
+            loadExpenseData();
+        } else {
+            btnSaveExpense.setEnabled(true);
+        }
     }
 
     private void setupPayerSpinner() {
@@ -384,7 +382,7 @@ public class AddExpenseActivity extends AppCompatActivity {
         }
 
         try {
-            double totalAmount = Double.parseDouble(amountText);
+            long totalCents = MoneyUtils.parseCents(amountText);
             List<String> selectedParticipants = getSelectedParticipants();
 
             if (selectedParticipants.isEmpty()) {
@@ -396,24 +394,24 @@ public class AddExpenseActivity extends AppCompatActivity {
             summary.append("Split Summary:\n");
 
             if (radioEqual.isChecked()) {
-                double amountPerPerson = totalAmount / selectedParticipants.size();
-                summary.append(String.format("$%.2f each\n", amountPerPerson));
+                long[] shares = MoneyUtils.splitEvenly(totalCents, selectedParticipants.size());
+                summary.append(String.format("$%.2f each\n", MoneyUtils.fromCents(shares[0])));
                 summary.append("Participants: ").append(String.join(", ", selectedParticipants));
             } else {
                 // Custom split
-                double customTotal = 0;
+                long customTotal = 0;
                 for (String participant : selectedParticipants) {
                     TextInputEditText field = customAmountFields.get(participant);
                     if (field != null && !field.getText().toString().trim().isEmpty()) {
                         try {
-                            customTotal += Double.parseDouble(field.getText().toString().trim());
-                        } catch (NumberFormatException e) {
+                            customTotal += MoneyUtils.parseCents(field.getText().toString());
+                        } catch (NumberFormatException | ArithmeticException e) {
                             // Ignore invalid numbers
                         }
                     }
                 }
 
-                if (Math.abs(customTotal - totalAmount) > 0.01) {
+                if (customTotal != totalCents) {
                     summary.append("⚠️ Custom amounts don't match total!\n");
                 }
 
@@ -428,7 +426,7 @@ public class AddExpenseActivity extends AppCompatActivity {
             tvSplitSummary.setText(summary.toString());
             tvSplitSummary.setVisibility(View.VISIBLE);
 
-        } catch (NumberFormatException e) {
+        } catch (NumberFormatException | ArithmeticException e) {
             tvSplitSummary.setVisibility(View.GONE);
         }
     }
@@ -443,6 +441,17 @@ public class AddExpenseActivity extends AppCompatActivity {
         return selected;
     }
 
+    // Checkboxes are created in the same order as members, so indices line up
+    private List<Member> getSelectedMembers() {
+        List<Member> selected = new ArrayList<>();
+        for (int i = 0; i < participantCheckBoxes.size(); i++) {
+            if (participantCheckBoxes.get(i).isChecked()) {
+                selected.add(members.get(i));
+            }
+        }
+        return selected;
+    }
+
     private void setupDatePicker() {
         // Set default date to today
         SimpleDateFormat dateFormat = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
@@ -482,15 +491,15 @@ public class AddExpenseActivity extends AppCompatActivity {
             return;
         }
 
-        double amount;
+        long amountCents;
         try {
-            amount = Double.parseDouble(amountText);
-            if (amount <= 0) {
+            amountCents = MoneyUtils.parseCents(amountText);
+            if (amountCents <= 0) {
                 etAmount.setError("Amount must be greater than 0");
                 etAmount.requestFocus();
                 return;
             }
-        } catch (NumberFormatException e) {
+        } catch (NumberFormatException | ArithmeticException e) {
             etAmount.setError("Invalid amount");
             etAmount.requestFocus();
             return;
@@ -511,59 +520,58 @@ public class AddExpenseActivity extends AppCompatActivity {
         }
 
         // Validate custom amounts if custom split is selected
+        Map<String, Long> customCents = new HashMap<>();
         if (radioCustom.isChecked()) {
-            double customTotal = 0;
+            long customTotal = 0;
             for (String participant : selectedParticipants) {
                 TextInputEditText field = customAmountFields.get(participant);
                 if (field != null && !field.getText().toString().trim().isEmpty()) {
                     try {
-                        customTotal += Double.parseDouble(field.getText().toString().trim());
-                    } catch (NumberFormatException e) {
+                        long cents = MoneyUtils.parseCents(field.getText().toString());
+                        customCents.put(participant, cents);
+                        customTotal += cents;
+                    } catch (NumberFormatException | ArithmeticException e) {
                         Toast.makeText(this, "Invalid custom amount for " + participant, Toast.LENGTH_SHORT).show();
                         return;
                     }
                 }
             }
 
-            if (Math.abs(customTotal - amount) > 0.01) {
+            if (customTotal != amountCents) {
                 Toast.makeText(this, "Custom amounts must equal the total amount", Toast.LENGTH_SHORT).show();
                 return;
             }
         }
 
-        // Create participants string
+        // Create participants display label
         String participants = String.join(", ", selectedParticipants);
 
-        // Create participant amounts string
-        String participantAmounts = "";
-        if (radioEqual.isChecked()) {
-            // Equal split
-            double amountPerPerson = amount / selectedParticipants.size();
-            String[] amounts = new String[selectedParticipants.size()];
-            for (int i = 0; i < selectedParticipants.size(); i++) {
-                amounts[i] = String.valueOf(amountPerPerson);
-            }
-            participantAmounts = String.join(", ", amounts);
-        } else {
-            // Custom split
-            String[] amounts = new String[selectedParticipants.size()];
-            for (int i = 0; i < selectedParticipants.size(); i++) {
-                String participant = selectedParticipants.get(i);
-                TextInputEditText field = customAmountFields.get(participant);
-                String amountStr = field != null ? field.getText().toString().trim() : "0";
-                amounts[i] = amountStr;
+        // Create one share row per selected participant
+        List<Member> selectedMembers = getSelectedMembers();
+        long[] equalShares = MoneyUtils.splitEvenly(amountCents, selectedMembers.size());
+        List<ExpenseShare> shares = new ArrayList<>();
+        for (int i = 0; i < selectedMembers.size(); i++) {
+            Member member = selectedMembers.get(i);
+            long shareCents;
+            if (radioEqual.isChecked()) {
+                // Equal split, leftover cents go to the first participants
+                shareCents = equalShares[i];
+            } else {
+                // Custom split
+                Long custom = customCents.get(member.getMemberName());
+                shareCents = custom != null ? custom : 0;
             }
-            participantAmounts = String.join(", ", amounts);
+            shares.add(new ExpenseShare(member.getMemberId(), member.getMemberName(), shareCents));
         }
 
         // Create expense object
         Expense expense = new Expense();
         expense.setGroupId(groupId);
         expense.setExpenseName(expenseName);
-        expense.setAmount(amount);
+        expense.setAmountCents(amountCents);
         expense.setPayer(payer);
         expense.setParticipants(participants);
-        expense.setParticipantAmounts(participantAmounts);
+        expense.setShares(shares);
         expense.setDescription(description.isEmpty() ? null : description);
         expense.setCategory(category.isEmpty() ? "General" : category);
 
@@ -598,42 +606,50 @@ public class AddExpenseActivity extends AppCompatActivity {
     }
 
     private void saveExpenseToDatabase(Expense expense) {
-        try {
-            if (isEditMode && expenseId != -1) {
-                // Update existing expense
-                expense.setExpenseId(expenseId);
-                int result = databaseHelper.updateExpense(expense);
-                if (result > 0) {
-                    Toast.makeText(this, "Expense updated successfully", Toast.LENGTH_SHORT).show();
-
-                    // Return to group details
-                    Intent resultIntent = new Intent();
-                    resultIntent.putExtra("expense_updated", true);
-                    setResult(RESULT_OK, resultIntent);
-                    finish();
-                } else {
-                    Toast.makeText(this, "Failed to update expense", Toast.LENGTH_SHORT).show();
-                }
-            } else {
-                // Add new expense
-                long newExpenseId = databaseHelper.addExpense(expense);
-                if (newExpenseId != -1) {
-                    Toast.makeText(this, "Expense added successfully", Toast.LENGTH_SHORT).show();
-                    notificationHelper.showExpenseAddedNotification(groupName, expense.getExpenseName(),
-                            expense.getAmount());
-
-                    // Return to group details
-                    Intent resultIntent = new Intent();
-                    resultIntent.putExtra("expense_added", true);
-                    setResult(RESULT_OK, resultIntent);
-                    finish();
-                } else {
-                    Toast.makeText(this, "Failed to add expense", Toast.LENGTH_SHORT).show();
-                }
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-            Toast.makeText(this, "Error saving expense: " + e.getMessage(), Toast.LENGTH_LONG).show();
+        boolean updating = isEditMode && expenseId != -1;
+        if (updating) {
+            expense.setExpenseId(expenseId);
         }
+        repository.write(this, db -> updating ? db.updateExpense(expense) > 0 : db.addExpense(expense) != -1,
+                new ExpenseRepository.Callback<Boolean>() {
+                    @Override
+                    public void onResult(Boolean saved) {
+                        if (updating) {
+                            // Update existing expense
+                            if (saved) {
+                                Toast.makeText(AddExpenseActivity.this, "Expense updated successfully", Toast.LENGTH_SHORT).show();
+
+                                // Return to group details
+                                Intent resultIntent = new Intent();
+                                resultIntent.putExtra("expense_updated", true);
+                                setResult(RESULT_OK, resultIntent);
+                                finish();
+                            } else {
+                                Toast.makeText(AddExpenseActivity.this, "Failed to update expense", Toast.LENGTH_SHORT).show();
+                            }
+                        } else {
+                            // Add new expense
+                            if (saved) {
+                                Toast.makeText(AddExpenseActivity.this, "Expense added successfully", Toast.LENGTH_SHORT).show();
+                                notificationHelper.showExpenseAddedNotification(groupName, expense.getExpenseName(),
+                                        expense.getAmount());
+
+                                // Return to group details
+                                Intent resultIntent = new Intent();
+                                resultIntent.putExtra("expense_added", true);
+                                setResult(RESULT_OK, resultIntent);
+                                finish();
+                            } else {
+                                Toast.makeText(AddExpenseActivity.this, "Failed to add expense", Toast.LENGTH_SHORT).show();
+                            }
+                        }
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        e.printStackTrace();
+                        Toast.makeText(AddExpenseActivity.this, "Error saving expense: " + e.getMessage(), Toast.LENGTH_LONG).show();
+                    }
+                });
     }
 }
@@ -7,7 +7,7 @@ import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
 
-import com.example.expensetracker.database.DatabaseHelper;
+import com.example.expensetracker.database.ExpenseRepository;
 import com.example.expensetracker.models.Group;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.textfield.TextInputEditText;
@@ -18,7 +18,7 @@ public class EditGroupActivity extends AppCompatActivity {
     private MaterialButton btnSave;
     private MaterialButton btnCancel;
     
-    private DatabaseHelper databaseHelper;
+    private ExpenseRepository repository;
     private Group currentGroup;
     private int groupId;
 
@@ -41,7 +41,7 @@ public class EditGroupActivity extends AppCompatActivity {
     }
 
     private void initializeDatabase() {
-        databaseHelper = new DatabaseHelper(this);
+        repository = ExpenseRepository.getInstance(this);
     }
 
     private void loadGroupData() {
@@ -49,11 +49,16 @@ public class EditGroupActivity extends AppCompatActivity {
         groupId = intent.getIntExtra("group_id", -1);
         
         if (groupId != -1) {
-            currentGroup = databaseHelper.getGroup(groupId);
-            if (currentGroup != null) {
-                etGroupName.setText(currentGroup.getGroupName());
-                etGroupDescription.setText(currentGroup.getDescription());
-            }
+            // Saving before the group is loaded would create a new group instead of updating it
+            btnSave.setEnabled(false);
+            repository.query(this, db -> db.getGroup(groupId), group -> {
+                currentGroup = group;
+                if (currentGroup != null) {
+                    etGroupName.setText(currentGroup.getGroupName());
+                    etGroupDescription.setText(currentGroup.getDescription());
+                }
+                btnSave.setEnabled(true);
+            });
         }
     }
 
@@ -78,31 +83,34 @@ public class EditGroupActivity extends AppCompatActivity {
             newGroup.setGroupName(groupName);
             newGroup.setDescription(groupDescription.isEmpty() ? null : groupDescription);
             
-            long groupId = databaseHelper.addGroup(newGroup);
-            if (groupId != -1) {
-                Toast.makeText(this, "Group created successfully", Toast.LENGTH_SHORT).show();
-                Intent resultIntent = new Intent();
-                resultIntent.putExtra("group_created", true);
-                setResult(RESULT_OK, resultIntent);
-                finish();
-            } else {
-                Toast.makeText(this, "Failed to create group", Toast.LENGTH_SHORT).show();
-            }
+            repository.write(this, db -> db.addGroup(newGroup), groupId -> {
+                if (groupId != -1) {
+                    Toast.makeText(this, "Group created successfully", Toast.LENGTH_SHORT).show();
+                    Intent resultIntent = new Intent();
+                    resultIntent.putExtra("group_created", true);
+                    setResult(RESULT_OK, resultIntent);
+                    finish();
+                } else {
+                    Toast.makeText(this, "Failed to create group", Toast.LENGTH_SHORT).show();
+                }
+            });
         } else {
             // Update existing group
             currentGroup.setGroupName(groupName);
             currentGroup.setDescription(groupDescription.isEmpty() ? null : groupDescription);
             
-            boolean updated = databaseHelper.updateGroup(currentGroup);
-            if (updated) {
-                Toast.makeText(this, "Group updated successfully", Toast.LENGTH_SHORT).show();
-                Intent resultIntent = new Intent();
-                resultIntent.putExtra("group_updated", true);
-                setResult(RESULT_OK, resultIntent);
-                finish();
-            } else {
-                Toast.makeText(this, "Failed to update group", Toast.LENGTH_SHORT).show();
-            }
+            Group group = currentGroup;
+            repository.write(this, db -> db.updateGroup(group), updated -> {
+                if (updated) {
+                    Toast.makeText(this, "Group updated successfully", Toast.LENGTH_SHORT).show();
+                    Intent resultIntent = new Intent();
+                    resultIntent.putExtra("group_updated", true);
+                    setResult(RESULT_OK, resultIntent);
+                    finish();
+                } else {
+                    Toast.makeText(this, "Failed to update group", Toast.LENGTH_SHORT).show();
+                }
+            });
         }
     }
 
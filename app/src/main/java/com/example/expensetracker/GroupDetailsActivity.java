@@ -15,7 +15,7 @@ import androidx.fragment.app.FragmentActivity;
 import androidx.viewpager2.adapter.FragmentStateAdapter;
 import androidx.viewpager2.widget.ViewPager2;
 
-import com.example.expensetracker.database.DatabaseHelper;
+import com.example.expensetracker.database.ExpenseRepository;
 import com.example.expensetracker.fragments.BalancesFragment;
 import com.example.expensetracker.fragments.ExpensesFragment;
 import com.example.expensetracker.models.Group;
@@ -41,10 +41,11 @@ public class GroupDetailsActivity extends AppCompatActivity {
     private com.google.android.material.button.MaterialButton btnSendInvoice;
     private TabLayout tabLayout;
     private ViewPager2 viewPager;
-    private DatabaseHelper databaseHelper;
+    private ExpenseRepository repository;
     private SMSHelper smsHelper;
     private Group currentGroup;
     private int groupId;
+    private String groupName;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -54,7 +55,7 @@ public class GroupDetailsActivity extends AppCompatActivity {
         initializeViews();
         initializeDatabase();
         setupClickListeners();
-        loadGroupData();
+        readIntent();
         setupViewPager();
     }
 
@@ -65,22 +66,6 @@ public class GroupDetailsActivity extends AppCompatActivity {
         loadGroupData();
     }
 
-    @Override
-    protected void onPause() {
-        super.onPause();
-        if (databaseHelper != null) {
-            databaseHelper.close();
-        }
-    }
-
-    @Override
-    protected void onDestroy() {
-        super.onDestroy();
-        if (databaseHelper != null) {
-            databaseHelper.close();
-        }
-    }
-
     private void initializeViews() {
         tvGroupName = findViewById(R.id.tvGroupName);
         tvGroupDescription = findViewById(R.id.tvGroupDescription);
@@ -95,7 +80,7 @@ public class GroupDetailsActivity extends AppCompatActivity {
     }
 
     private void initializeDatabase() {
-        databaseHelper = new DatabaseHelper(this);
+        repository = ExpenseRepository.getInstance(this);
         smsHelper = new SMSHelper(this);
     }
 
@@ -107,7 +92,7 @@ public class GroupDetailsActivity extends AppCompatActivity {
         fabAddExpense.setOnClickListener(v -> {
             Intent intent = new Intent(this, AddExpenseActivity.class);
             intent.putExtra("group_id", groupId);
-            intent.putExtra("group_name", currentGroup.getGroupName());
+            intent.putExtra("group_name", groupName);
             startActivity(intent);
         });
         
@@ -118,42 +103,39 @@ public class GroupDetailsActivity extends AppCompatActivity {
         findViewById(R.id.btnManageMembers).setOnClickListener(v -> {
             Intent intent = new Intent(this, MemberManagementActivity.class);
             intent.putExtra("group_id", groupId);
-            intent.putExtra("group_name", currentGroup.getGroupName());
+            intent.putExtra("group_name", groupName);
             startActivity(intent);
         });
         
         findViewById(R.id.btnSettlement).setOnClickListener(v -> {
             Intent intent = new Intent(this, SettlementActivity.class);
             intent.putExtra("group_id", groupId);
-            intent.putExtra("group_name", currentGroup.getGroupName());
+            intent.putExtra("group_name", groupName);
             startActivity(intent);
         });
     }
 
-    private void loadGroupData() {
+    private void readIntent() {
         Intent intent = getIntent();
         groupId = intent.getIntExtra("group_id", -1);
-        String groupName = intent.getStringExtra("group_name");
-        String groupDescription = intent.getStringExtra("group_description");
+        groupName = intent.getStringExtra("group_name");
+    }
 
-        if (groupId != -1) {
-            currentGroup = databaseHelper.getGroup(groupId);
+    private void loadGroupData() {
+        if (groupId == -1) {
+            return;
+        }
+        repository.query(this, db -> db.getGroup(groupId), group -> {
+            currentGroup = group;
             if (currentGroup != null) {
+                groupName = currentGroup.getGroupName();
                 tvGroupName.setText(currentGroup.getGroupName());
                 tvGroupDescription.setText(currentGroup.getDescription());
-                
-                // Calculate total expenses
-                double totalExpenses = 0;
-                for (com.example.expensetracker.models.Expense expense : databaseHelper.getExpensesForGroup(groupId)) {
-                    totalExpenses += expense.getAmount();
-                }
-                tvTotalExpenses.setText(String.format("Total: $%.2f", totalExpenses));
-                
-                // Update member count
-                List<Member> members = databaseHelper.getMembersForGroup(groupId);
-                tvMemberCount.setText(members.size() + " members");
+                tvTotalExpenses.setText(String.format("Total: $%.2f", currentGroup.getTotalExpensesCents() / 100.0));
+                tvMemberCount.setText(currentGroup.getMemberCount() + " members, "
+                        + currentGroup.getExpenseCount() + " expenses");
             }
-        }
+        });
     }
 
     private void setupViewPager() {
@@ -213,17 +195,18 @@ public class GroupDetailsActivity extends AppCompatActivity {
         newMember.setMemberName(memberName);
         newMember.setEmail(email.isEmpty() ? null : email);
         newMember.setPhoneNumber(phoneNumber.isEmpty() ? null : phoneNumber);
-        newMember.setTotalOwed(0);
-        newMember.setTotalOwing(0);
-        newMember.setBalance(0);
+        newMember.setTotalOwedCents(0);
+        newMember.setTotalOwingCents(0);
+        newMember.setBalanceCents(0);
         
-        long memberId = databaseHelper.addMember(newMember);
-        if (memberId != -1) {
-            Toast.makeText(this, "Member added successfully", Toast.LENGTH_SHORT).show();
-            loadGroupData(); // Refresh the member count
-        } else {
-            Toast.makeText(this, "Failed to add member", Toast.LENGTH_SHORT).show();
-        }
+        repository.write(this, db -> db.addMember(newMember), memberId -> {
+            if (memberId != -1) {
+                Toast.makeText(this, "Member added successfully", Toast.LENGTH_SHORT).show();
+                loadGroupData(); // Refresh the member count
+            } else {
+                Toast.makeText(this, "Failed to add member", Toast.LENGTH_SHORT).show();
+            }
+        });
     }
 
     private static class ViewPagerAdapter extends FragmentStateAdapter {
@@ -265,21 +248,24 @@ public class GroupDetailsActivity extends AppCompatActivity {
             return;
         }
 
-        List<Member> members = databaseHelper.getMembersForGroup(groupId);
-        List<com.example.expensetracker.models.Expense> expenses = databaseHelper.getExpensesForGroup(groupId);
-        
-        if (members.isEmpty()) {
-            Toast.makeText(this, "No members found", Toast.LENGTH_SHORT).show();
-            return;
-        }
+        repository.query(this, db -> {
+            List<Member> members = db.getMembersForGroup(groupId);
+            // null means the group has members but no expenses to invoice yet
+            return members.isEmpty() || !db.getExpensesForGroup(groupId).isEmpty() ? members : null;
+        }, members -> {
+            if (members != null && members.isEmpty()) {
+                Toast.makeText(this, "No members found", Toast.LENGTH_SHORT).show();
+                return;
+            }
 
-        if (expenses.isEmpty()) {
-            Toast.makeText(this, "No expenses found to send invoices for", Toast.LENGTH_SHORT).show();
-            return;
-        }
+            if (members == null) {
+                Toast.makeText(this, "No expenses found to send invoices for", Toast.LENGTH_SHORT).show();
+                return;
+            }
 
-        // Show confirmation dialog with phone numbers
-        showSendInvoiceConfirmationDialog(members);
+            // Show confirmation dialog with phone numbers
+            showSendInvoiceConfirmationDialog(members);
+        });
     }
     
     private void showSendInvoiceConfirmationDialog(List<Member> members) {
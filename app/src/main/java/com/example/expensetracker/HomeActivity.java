@@ -21,9 +21,13 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.expensetracker.adapters.GroupAdapter;
+import com.example.expensetracker.database.ChangeNotifier;
 import com.example.expensetracker.database.DatabaseHelper;
+import com.example.expensetracker.database.ExpenseRepository;
 import com.example.expensetracker.models.Group;
+import com.example.expensetracker.utils.DatabaseSink;
 import com.example.expensetracker.utils.NotificationHelper;
+import com.example.expensetracker.utils.WorkloadGenerator;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
 import java.text.SimpleDateFormat;
@@ -33,13 +37,18 @@ import java.util.List;
 import java.util.Locale;
 
 public class HomeActivity extends AppCompatActivity implements GroupAdapter.OnGroupClickListener {
+    private static final String QUERY_STATS_ACTIVITY = "com.example.expensetracker.QueryStatsActivity";
+
     private RecyclerView recyclerViewGroups;
     private LinearLayout emptyStateLayout;
     private TextView tvTotalBalance;
     private TextView tvGroupCount;
     private FloatingActionButton fabAddGroup;
     private GroupAdapter groupAdapter;
-    private DatabaseHelper databaseHelper;
+    private ExpenseRepository repository;
+    private ChangeNotifier changeNotifier;
+    private ExpenseRepository.Task loadTask;
+    private long loadedVersion = -1;
     private SharedPreferences sharedPreferences;
     private List<Group> groups;
     private NotificationHelper notificationHelper;
@@ -61,7 +70,6 @@ public class HomeActivity extends AppCompatActivity implements GroupAdapter.OnGr
         initializeDatabase();
         setupRecyclerView();
         setupClickListeners();
-        loadGroups();
     }
 
     @Override
@@ -71,23 +79,6 @@ public class HomeActivity extends AppCompatActivity implements GroupAdapter.OnGr
         loadGroups();
     }
 
-    @Override
-    protected void onPause() {
-        super.onPause();
-        // Save any pending data
-        if (databaseHelper != null) {
-            databaseHelper.close();
-        }
-    }
-
-    @Override
-    protected void onDestroy() {
-        super.onDestroy();
-        if (databaseHelper != null) {
-            databaseHelper.close();
-        }
-    }
-
     private void initializeViews() {
         recyclerViewGroups = findViewById(R.id.recyclerViewGroups);
         emptyStateLayout = findViewById(R.id.emptyStateLayout);
@@ -106,13 +97,18 @@ public class HomeActivity extends AppCompatActivity implements GroupAdapter.OnGr
     }
 
     private void initializeDatabase() {
-        databaseHelper = new DatabaseHelper(this);
+        repository = ExpenseRepository.getInstance(this);
+        changeNotifier = repository.getChangeNotifier();
+        changeNotifier.observe(this, ChangeNotifier.ALL_GROUPS, this::loadGroups);
         notificationHelper = new NotificationHelper(this);
         
         // Create sample data if this is the first time
         if (sharedPreferences.getBoolean("first_time", true)) {
-            createSampleData();
             sharedPreferences.edit().putBoolean("first_time", false).apply();
+            repository.write(this, db -> {
+                createSampleData(db);
+                return null;
+            }, result -> loadGroups());
         }
     }
 
@@ -129,8 +125,23 @@ public class HomeActivity extends AppCompatActivity implements GroupAdapter.OnGr
     }
 
     private void loadGroups() {
+        // The cards show names, totals and member counts of every group
+        long version = changeNotifier.getVersion(ChangeNotifier.ALL_GROUPS, ChangeNotifier.Table.GROUPS,
+                ChangeNotifier.Table.EXPENSES, ChangeNotifier.Table.MEMBERS);
+        if (version == loadedVersion) {
+            return;
+        }
+        loadedVersion = version;
+        // A newer load replaces any that is still running
+        if (loadTask != null) {
+            loadTask.cancel();
+        }
+        loadTask = repository.query(this, db -> db.getAllGroups(), this::showGroups);
+    }
+
+    private void showGroups(List<Group> loadedGroups) {
         groups.clear();
-        groups.addAll(databaseHelper.getAllGroups());
+        groups.addAll(loadedGroups);
         groupAdapter.updateGroups(groups);
         
         // Update UI based on data
@@ -148,11 +159,11 @@ public class HomeActivity extends AppCompatActivity implements GroupAdapter.OnGr
     }
 
     private void updateTotalBalance() {
-        double totalBalance = 0;
+        long totalBalanceCents = 0;
         for (Group group : groups) {
-            totalBalance += group.getTotalExpenses();
+            totalBalanceCents += group.getTotalExpensesCents();
         }
-        tvTotalBalance.setText(String.format("Total Balance: $%.2f", totalBalance));
+        tvTotalBalance.setText(String.format("Total Balance: $%.2f", totalBalanceCents / 100.0));
     }
 
     private void showAddGroupDialog() {
@@ -195,42 +206,67 @@ public class HomeActivity extends AppCompatActivity implements GroupAdapter.OnGr
             groupDescription);
         newGroup.setCreatedDate(new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault()).format(new Date()));
         
-        long groupId = databaseHelper.addGroup(newGroup);
-        if (groupId != -1) {
-            Toast.makeText(this, "Group added successfully", Toast.LENGTH_SHORT).show();
-            notificationHelper.showGroupCreatedNotification(groupName);
-            loadGroups();
-        } else {
-            Toast.makeText(this, "Failed to add group", Toast.LENGTH_SHORT).show();
-        }
+        repository.write(this, db -> db.addGroup(newGroup), groupId -> {
+            if (groupId != -1) {
+                Toast.makeText(this, "Group added successfully", Toast.LENGTH_SHORT).show();
+                notificationHelper.showGroupCreatedNotification(groupName);
+            } else {
+                Toast.makeText(this, "Failed to add group", Toast.LENGTH_SHORT).show();
+            }
+        });
     }
 
-    private void createSampleData() {
+    // Runs on a database worker thread
+    private static void createSampleData(DatabaseHelper databaseHelper) {
         // Create a sample group
         Group sampleGroup = new Group();
         sampleGroup.setGroupName("Trip to Paris");
         sampleGroup.setDescription("Weekend trip with friends");
         sampleGroup.setCreatedDate(new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault()).format(new Date()));
-        databaseHelper.addGroup(sampleGroup);
+        int sampleGroupId = (int) databaseHelper.addGroup(sampleGroup);
         
         // Add some sample members
+        List<com.example.expensetracker.models.Member> sampleMembers = new ArrayList<>();
         com.example.expensetracker.models.Member member1 = new com.example.expensetracker.models.Member();
-        member1.setGroupId(1);
+        member1.setGroupId(sampleGroupId);
         member1.setMemberName("Alice");
         member1.setEmail("alice@example.com");
-        databaseHelper.addMember(member1);
+        sampleMembers.add(member1);
         
         com.example.expensetracker.models.Member member2 = new com.example.expensetracker.models.Member();
-        member2.setGroupId(1);
+        member2.setGroupId(sampleGroupId);
         member2.setMemberName("Bob");
         member2.setEmail("bob@example.com");
-        databaseHelper.addMember(member2);
+        sampleMembers.add(member2);
         
         com.example.expensetracker.models.Member member3 = new com.example.expensetracker.models.Member();
-        member3.setGroupId(1);
+        member3.setGroupId(sampleGroupId);
         member3.setMemberName("Charlie");
         member3.setEmail("charlie@example.com");
-        databaseHelper.addMember(member3);
+        sampleMembers.add(member3);
+        
+        databaseHelper.addMembers(sampleMembers);
+    }
+
+    // Debug builds only: fills the database with synthetic groups for load testing. The seed is
+    // fixed, so every run of a size creates the same data.
+    private void showGenerateWorkloadDialog() {
+        String[] sizes = { "Small: 3 groups, 10 members, 500 expenses each",
+                "Large: 5 groups, 50 members, 20,000 expenses each",
+                "Huge: 1 group, 1,000 members, 100,000 expenses" };
+        int[][] counts = { { 3, 10, 500 }, { 5, 50, 20_000 }, { 1, 1_000, 100_000 } };
+
+        new AlertDialog.Builder(this)
+                .setTitle("Generate Test Data")
+                .setItems(sizes, (dialog, which) -> {
+                    Toast.makeText(this, "Generating test data...", Toast.LENGTH_SHORT).show();
+                    WorkloadGenerator generator = new WorkloadGenerator(42).groups(counts[which][0])
+                            .members(counts[which][1]).expenses(counts[which][2]);
+                    repository.write(this, db -> generator.generate(new DatabaseSink(db)).length, created ->
+                            Toast.makeText(this, "Created " + created + " test groups", Toast.LENGTH_SHORT).show());
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
     }
 
     @Override
@@ -257,13 +293,13 @@ public class HomeActivity extends AppCompatActivity implements GroupAdapter.OnGr
                 .setTitle("Delete Group")
                 .setMessage("Are you sure you want to delete \"" + group.getGroupName() + "\"? This will also delete all expenses and members in this group.")
                 .setPositiveButton("Delete", (dialog, which) -> {
-                    boolean deleted = databaseHelper.deleteGroup(group.getGroupId());
-                    if (deleted) {
-                        Toast.makeText(this, "Group deleted successfully", Toast.LENGTH_SHORT).show();
-                        loadGroups();
-                    } else {
-                        Toast.makeText(this, "Failed to delete group", Toast.LENGTH_SHORT).show();
-                    }
+                    repository.write(this, db -> db.deleteGroup(group.getGroupId()), deleted -> {
+                        if (deleted) {
+                            Toast.makeText(this, "Group deleted successfully", Toast.LENGTH_SHORT).show();
+                        } else {
+                            Toast.makeText(this, "Failed to delete group", Toast.LENGTH_SHORT).show();
+                        }
+                    });
                 })
                 .setNegativeButton("Cancel", null)
                 .show();
@@ -281,6 +317,8 @@ public class HomeActivity extends AppCompatActivity implements GroupAdapter.OnGr
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.main_menu, menu);
+        menu.findItem(R.id.action_generate_workload).setVisible(BuildConfig.DEBUG);
+        menu.findItem(R.id.action_query_stats).setVisible(BuildConfig.DEBUG);
         return true;
     }
 
@@ -296,8 +334,15 @@ public class HomeActivity extends AppCompatActivity implements GroupAdapter.OnGr
             Intent intent = new Intent(this, SettingsActivity.class);
             startActivity(intent);
             return true;
+        } else if (id == R.id.action_generate_workload) {
+            showGenerateWorkloadDialog();
+            return true;
+        } else if (id == R.id.action_query_stats) {
+            // Only the debug source set has it, so it is named rather than referenced
+            startActivity(new Intent().setClassName(this, QUERY_STATS_ACTIVITY));
+            return true;
         }
         
         return super.onOptionsItemSelected(item);
     }
-}
\ No newline at end of file
+}
@@ -11,7 +11,8 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.expensetracker.adapters.MemberManagementAdapter;
-import com.example.expensetracker.database.DatabaseHelper;
+import com.example.expensetracker.database.ChangeNotifier;
+import com.example.expensetracker.database.ExpenseRepository;
 import com.example.expensetracker.models.Member;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
@@ -26,7 +27,10 @@ public class MemberManagementActivity extends AppCompatActivity implements Membe
     private FloatingActionButton fabAddMember;
     
     private MemberManagementAdapter memberAdapter;
-    private DatabaseHelper databaseHelper;
+    private ExpenseRepository repository;
+    private ChangeNotifier changeNotifier;
+    private ExpenseRepository.Task loadTask;
+    private long loadedVersion = -1;
     private List<Member> members;
     private int groupId;
     private String groupName;
@@ -41,7 +45,7 @@ public class MemberManagementActivity extends AppCompatActivity implements Membe
         loadGroupData();
         setupRecyclerView();
         setupClickListeners();
-        loadMembers();
+        changeNotifier.observe(this, groupId, this::loadMembers);
     }
 
     @Override
@@ -58,7 +62,8 @@ public class MemberManagementActivity extends AppCompatActivity implements Membe
     }
 
     private void initializeDatabase() {
-        databaseHelper = new DatabaseHelper(this);
+        repository = ExpenseRepository.getInstance(this);
+        changeNotifier = repository.getChangeNotifier();
     }
 
     private void loadGroupData() {
@@ -84,8 +89,20 @@ public class MemberManagementActivity extends AppCompatActivity implements Membe
     }
 
     private void loadMembers() {
+        long version = changeNotifier.getVersion(groupId, ChangeNotifier.Table.MEMBERS);
+        if (version == loadedVersion) {
+            return;
+        }
+        loadedVersion = version;
+        // A newer load replaces any that is still running
+        if (loadTask != null) {
+            loadTask.cancel();
+        }
+        loadTask = repository.query(this, db -> db.getMembersForGroup(groupId), this::showMembers);
+    }
+
+    private void showMembers(List<Member> groupMembers) {
         members.clear();
-        List<Member> groupMembers = databaseHelper.getMembersForGroup(groupId);
         if (groupMembers != null) {
             members.addAll(groupMembers);
         }
@@ -144,17 +161,17 @@ public class MemberManagementActivity extends AppCompatActivity implements Membe
         newMember.setMemberName(memberName);
         newMember.setEmail(email.isEmpty() ? null : email);
         newMember.setPhoneNumber(phoneNumber.isEmpty() ? null : phoneNumber);
-        newMember.setTotalOwed(0);
-        newMember.setTotalOwing(0);
-        newMember.setBalance(0);
+        newMember.setTotalOwedCents(0);
+        newMember.setTotalOwingCents(0);
+        newMember.setBalanceCents(0);
         
-        long memberId = databaseHelper.addMember(newMember);
-        if (memberId != -1) {
-            Toast.makeText(this, "Member added successfully", Toast.LENGTH_SHORT).show();
-            loadMembers();
-        } else {
-            Toast.makeText(this, "Failed to add member", Toast.LENGTH_SHORT).show();
-        }
+        repository.write(this, db -> db.addMember(newMember), memberId -> {
+            if (memberId != -1) {
+                Toast.makeText(this, "Member added successfully", Toast.LENGTH_SHORT).show();
+            } else {
+                Toast.makeText(this, "Failed to add member", Toast.LENGTH_SHORT).show();
+            }
+        });
     }
 
     @Override
@@ -220,13 +237,13 @@ public class MemberManagementActivity extends AppCompatActivity implements Membe
         member.setEmail(email.isEmpty() ? null : email);
         member.setPhoneNumber(phoneNumber.isEmpty() ? null : phoneNumber);
         
-        boolean updated = databaseHelper.updateMember(member);
-        if (updated) {
-            Toast.makeText(this, "Member updated successfully", Toast.LENGTH_SHORT).show();
-            loadMembers();
-        } else {
-            Toast.makeText(this, "Failed to update member", Toast.LENGTH_SHORT).show();
-        }
+        repository.write(this, db -> db.updateMember(member), updated -> {
+            if (updated) {
+                Toast.makeText(this, "Member updated successfully", Toast.LENGTH_SHORT).show();
+            } else {
+                Toast.makeText(this, "Failed to update member", Toast.LENGTH_SHORT).show();
+            }
+        });
     }
 
     private void showDeleteConfirmationDialog(Member member) {
@@ -234,13 +251,13 @@ public class MemberManagementActivity extends AppCompatActivity implements Membe
             .setTitle("Delete Member")
             .setMessage("Are you sure you want to delete " + member.getMemberName() + "?")
             .setPositiveButton("Delete", (dialog, which) -> {
-                boolean deleted = databaseHelper.deleteMember(member.getMemberId());
-                if (deleted) {
-                    Toast.makeText(this, "Member deleted successfully", Toast.LENGTH_SHORT).show();
-                    loadMembers();
-                } else {
-                    Toast.makeText(this, "Failed to delete member", Toast.LENGTH_SHORT).show();
-                }
+                repository.write(this, db -> db.deleteMember(member.getMemberId()), deleted -> {
+                    if (deleted) {
+                        Toast.makeText(this, "Member deleted successfully", Toast.LENGTH_SHORT).show();
+                    } else {
+                        Toast.makeText(this, "Failed to delete member", Toast.LENGTH_SHORT).show();
+                    }
+                });
             })
             .setNegativeButton("Cancel", null)
             .show();
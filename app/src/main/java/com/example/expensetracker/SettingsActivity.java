@@ -2,20 +2,39 @@ package com.example.expensetracker;
 
 import android.content.Intent;
 import android.content.SharedPreferences;
+import android.net.Uri;
 import android.os.Bundle;
+import android.os.ParcelFileDescriptor;
+import android.util.Log;
 import android.view.View;
 import android.widget.CompoundButton;
 import android.widget.Switch;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
 
+import com.example.expensetracker.database.BackupExporter;
+import com.example.expensetracker.database.BackupImporter;
+import com.example.expensetracker.database.DatabaseSnapshot;
+import com.example.expensetracker.database.ExpenseRepository;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.card.MaterialCardView;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
 public class SettingsActivity extends AppCompatActivity {
+    private static final String TAG = "SettingsActivity";
+
     private Toolbar toolbar;
     private Switch switchNotifications;
     private Switch switchLocationTracking;
@@ -37,6 +56,20 @@ public class SettingsActivity extends AppCompatActivity {
     private SharedPreferences sharedPreferences;
     private static final String PREFS_NAME = "expense_tracker_settings";
 
+    // The document picker fixes the MIME type when it is registered, so each format has its own
+    private final ActivityResultLauncher<String> exportJsonLauncher = registerForActivityResult(
+            new ActivityResultContracts.CreateDocument(BackupExporter.Format.JSON.mimeType),
+            uri -> exportData(uri, BackupExporter.Format.JSON));
+    private final ActivityResultLauncher<String> exportCsvLauncher = registerForActivityResult(
+            new ActivityResultContracts.CreateDocument(BackupExporter.Format.CSV.mimeType),
+            uri -> exportData(uri, BackupExporter.Format.CSV));
+    private final ActivityResultLauncher<String> exportSnapshotLauncher = registerForActivityResult(
+            new ActivityResultContracts.CreateDocument(DatabaseSnapshot.MIME_TYPE), this::exportSnapshot);
+    private final ActivityResultLauncher<String[]> importLauncher = registerForActivityResult(
+            new ActivityResultContracts.OpenDocument(), this::importData);
+    private final ActivityResultLauncher<String[]> restoreLauncher = registerForActivityResult(
+            new ActivityResultContracts.OpenDocument(), this::confirmRestoreSnapshot);
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -130,15 +163,9 @@ public class SettingsActivity extends AppCompatActivity {
         btnChangeSplit.setOnClickListener(v -> showSplitDialog());
         
         // Data management
-        btnExportData.setOnClickListener(v -> {
-            showToast("Export functionality coming soon!");
-            // TODO: Implement data export
-        });
+        btnExportData.setOnClickListener(v -> showExportDialog());
         
-        btnImportData.setOnClickListener(v -> {
-            showToast("Import functionality coming soon!");
-            // TODO: Implement data import
-        });
+        btnImportData.setOnClickListener(v -> showImportDialog());
         
         btnClearData.setOnClickListener(v -> showClearDataDialog());
         
@@ -183,6 +210,145 @@ public class SettingsActivity extends AppCompatActivity {
                 .show();
     }
 
+    private void showExportDialog() {
+        String[] formats = {"JSON", "CSV", "Snapshot (compact, for another device)"};
+        String fileName = "expenses-" + new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(new Date());
+
+        androidx.appcompat.app.AlertDialog.Builder builder = new androidx.appcompat.app.AlertDialog.Builder(this);
+        builder.setTitle("Export Format")
+                .setItems(formats, (dialog, which) -> {
+                    if (which == 0) {
+                        exportJsonLauncher.launch(fileName + "." + BackupExporter.Format.JSON.extension);
+                    } else if (which == 1) {
+                        exportCsvLauncher.launch(fileName + "." + BackupExporter.Format.CSV.extension);
+                    } else {
+                        exportSnapshotLauncher.launch(fileName + "." + DatabaseSnapshot.EXTENSION);
+                    }
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private void showImportDialog() {
+        String[] options = {"Add groups from a JSON or CSV file", "Restore a snapshot (replaces all data)"};
+
+        androidx.appcompat.app.AlertDialog.Builder builder = new androidx.appcompat.app.AlertDialog.Builder(this);
+        builder.setTitle("Import Data")
+                .setItems(options, (dialog, which) -> {
+                    if (which == 0) {
+                        importLauncher.launch(new String[] {
+                                BackupExporter.Format.JSON.mimeType, BackupExporter.Format.CSV.mimeType, "text/*" });
+                    } else {
+                        // Providers rarely know the snapshot's type, so any file can be picked
+                        restoreLauncher.launch(new String[] {"*/*"});
+                    }
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private void exportData(Uri uri, BackupExporter.Format format) {
+        if (uri == null) {
+            return; // Picker cancelled
+        }
+        runDataTask(btnExportData, "Exporting...", false, db -> {
+            try (OutputStream out = getContentResolver().openOutputStream(uri, "wt")) {
+                if (out == null) {
+                    throw new IOException("Cannot open " + uri);
+                }
+                return new BackupExporter(db).export(out, format, (rowsWritten, totalRows) ->
+                        runOnUiThread(() -> btnExportData.setText(
+                                "Exporting " + (rowsWritten * 100 / totalRows) + "%")));
+            }
+        }, "Exported", "Export failed");
+    }
+
+    private void exportSnapshot(Uri uri) {
+        if (uri == null) {
+            return; // Picker cancelled
+        }
+        runDataTask(btnExportData, "Exporting...", false, db -> {
+            ParcelFileDescriptor descriptor = getContentResolver().openFileDescriptor(uri, "wt");
+            if (descriptor == null) {
+                throw new IOException("Cannot open " + uri);
+            }
+            try (FileChannel channel = new ParcelFileDescriptor.AutoCloseOutputStream(descriptor).getChannel()) {
+                return new DatabaseSnapshot(db).write(channel, true);
+            }
+        }, "Exported", "Export failed");
+    }
+
+    private void importData(Uri uri) {
+        if (uri == null) {
+            return; // Picker cancelled
+        }
+        runDataTask(btnImportData, "Importing...", false, db -> {
+            try (InputStream in = getContentResolver().openInputStream(uri)) {
+                if (in == null) {
+                    throw new IOException("Cannot open " + uri);
+                }
+                return new BackupImporter(db).importBackup(in, rowsRead ->
+                        runOnUiThread(() -> btnImportData.setText("Importing " + rowsRead)));
+            }
+        }, "Imported", "Import failed");
+    }
+
+    private void confirmRestoreSnapshot(Uri uri) {
+        if (uri == null) {
+            return; // Picker cancelled
+        }
+        androidx.appcompat.app.AlertDialog.Builder builder = new androidx.appcompat.app.AlertDialog.Builder(this);
+        builder.setTitle("Restore Snapshot")
+                .setMessage("This will replace all groups, expenses, and members with the ones in the snapshot. This action cannot be undone.")
+                .setPositiveButton("Restore", (dialog, which) -> restoreSnapshot(uri))
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private void restoreSnapshot(Uri uri) {
+        // Exclusive, as the helper is closed while the restored file is moved in
+        runDataTask(btnImportData, "Restoring...", true, db -> {
+            ParcelFileDescriptor descriptor = getContentResolver().openFileDescriptor(uri, "r");
+            if (descriptor == null) {
+                throw new IOException("Cannot open " + uri);
+            }
+            try (FileChannel channel = new ParcelFileDescriptor.AutoCloseInputStream(descriptor).getChannel()) {
+                return new DatabaseSnapshot(db).restore(channel);
+            }
+        }, "Restored", "Restore failed");
+    }
+
+    // Runs a backup task as a repository write, so it still finishes if the user leaves this screen.
+    // The button stays disabled until then; the toast reports how many records were handled.
+    private void runDataTask(MaterialButton button, String progressText, boolean exclusive,
+            ExpenseRepository.Query<Integer> task, String doneMessage, String failMessage) {
+        CharSequence buttonText = button.getText();
+        button.setText(progressText);
+        button.setEnabled(false);
+        ExpenseRepository.Callback<Integer> callback = new ExpenseRepository.Callback<Integer>() {
+            @Override
+            public void onResult(Integer rows) {
+                button.setText(buttonText);
+                button.setEnabled(true);
+                showToast(doneMessage + " " + rows + " records");
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.e(TAG, failMessage, e);
+                button.setText(buttonText);
+                button.setEnabled(true);
+                showToast(failMessage + ": " + e.getMessage());
+            }
+        };
+        ExpenseRepository repository = ExpenseRepository.getInstance(this);
+        if (exclusive) {
+            repository.writeExclusive(this, task, callback);
+        } else {
+            repository.write(this, task, callback);
+        }
+    }
+
     private void showClearDataDialog() {
         androidx.appcompat.app.AlertDialog.Builder builder = new androidx.appcompat.app.AlertDialog.Builder(this);
         builder.setTitle("Clear All Data")
@@ -190,22 +356,23 @@ public class SettingsActivity extends AppCompatActivity {
                 .setPositiveButton("Clear All Data", (dialog, which) -> {
                     // Clear all data
                     clearAllData();
-                    showToast("All data has been cleared");
-                    // Return to home
-                    Intent intent = new Intent(this, HomeActivity.class);
-                    intent.setFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_NEW_TASK);
-                    startActivity(intent);
-                    finish();
                 })
                 .setNegativeButton("Cancel", null)
                 .show();
     }
 
     private void clearAllData() {
-        // Clear database
-        com.example.expensetracker.database.DatabaseHelper dbHelper = new com.example.expensetracker.database.DatabaseHelper(this);
-        dbHelper.clearAllData();
-        dbHelper.close();
+        // Clear database, then return to home once it is done
+        ExpenseRepository.getInstance(this).write(this, db -> {
+            db.clearAllData();
+            return null;
+        }, result -> {
+            showToast("All data has been cleared");
+            Intent intent = new Intent(this, HomeActivity.class);
+            intent.setFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_NEW_TASK);
+            startActivity(intent);
+            finish();
+        });
         
         // Clear settings (except currency and split)
         String currency = sharedPreferences.getString("currency", "USD ($)");
@@ -12,22 +12,29 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.expensetracker.adapters.SettlementAdapter;
+import com.example.expensetracker.database.ChangeNotifier;
 import com.example.expensetracker.database.DatabaseHelper;
-import com.example.expensetracker.models.Member;
+import com.example.expensetracker.database.ExpenseRepository;
 import com.example.expensetracker.models.Settlement;
+import com.example.expensetracker.utils.AppLog;
 import com.google.android.material.button.MaterialButton;
 
 import java.util.ArrayList;
 import java.util.List;
 
 public class SettlementActivity extends AppCompatActivity implements SettlementAdapter.OnSettlementClickListener {
+    private static final String TAG = "SettlementActivity";
+
     private RecyclerView recyclerViewSettlements;
     private LinearLayout emptyStateLayout;
     private MaterialButton btnBack;
     private MaterialButton btnRecalculate;
     
     private SettlementAdapter settlementAdapter;
-    private DatabaseHelper databaseHelper;
+    private ExpenseRepository repository;
+    private ChangeNotifier changeNotifier;
+    private ExpenseRepository.Task loadTask;
+    private long loadedVersion = -1;
     private List<Settlement> settlements;
     private int groupId;
     private String groupName;
@@ -42,6 +49,7 @@ public class SettlementActivity extends AppCompatActivity implements SettlementA
         loadGroupData();
         setupRecyclerView();
         setupClickListeners();
+        changeNotifier.observe(this, groupId, this::loadSettlements);
         loadSettlements();
     }
 
@@ -59,7 +67,8 @@ public class SettlementActivity extends AppCompatActivity implements SettlementA
     }
 
     private void initializeDatabase() {
-        databaseHelper = new DatabaseHelper(this);
+        repository = ExpenseRepository.getInstance(this);
+        changeNotifier = repository.getChangeNotifier();
     }
 
     private void loadGroupData() {
@@ -85,37 +94,25 @@ public class SettlementActivity extends AppCompatActivity implements SettlementA
     }
 
     private void loadSettlements() {
-        Log.d("SettlementActivity", "=== LOADING SETTLEMENTS ===");
-        settlements.clear();
-        
-        // Load existing settlements from database WITHOUT recalculation
-        List<Settlement> existingSettlements = databaseHelper.getSettlementsForGroup(groupId);
-        Log.d("SettlementActivity", "Found " + (existingSettlements != null ? existingSettlements.size() : 0) + " existing settlements in database");
-        
-        if (existingSettlements != null && !existingSettlements.isEmpty()) {
-            settlements.addAll(existingSettlements);
-            Log.d("SettlementActivity", "Loaded " + existingSettlements.size() + " existing settlements from database");
-            
-            // Check if we need to generate new unsettled settlements
-            boolean hasUnsettledSettlements = false;
-            for (Settlement settlement : existingSettlements) {
-                if (!settlement.isSettled()) {
-                    hasUnsettledSettlements = true;
-                    break;
-                }
-            }
-            
-            // Only generate new settlements if no unsettled ones exist
-            if (!hasUnsettledSettlements) {
-                Log.d("SettlementActivity", "No unsettled settlements found, generating new ones");
-                generateNewSettlements();
-            }
-        } else {
-            // If no existing settlements, calculate new ones
-            Log.d("SettlementActivity", "No existing settlements found, generating new ones");
-            generateNewSettlements();
+        // Suggestions are built from member balances, so a balance change matters as well
+        long version = changeNotifier.getVersion(groupId, ChangeNotifier.Table.SETTLEMENTS,
+                ChangeNotifier.Table.MEMBERS);
+        if (version == loadedVersion) {
+            return;
         }
-        
+        loadedVersion = version;
+        if (loadTask != null) {
+            loadTask.cancel();
+        }
+        AppLog.d(TAG, "Loading settlements");
+        // A write, since suggestions are saved when no settlement is still open
+        loadTask = repository.write(this, databaseHelper -> databaseHelper.getOrCreateSettlements(groupId),
+                this::showSettlements);
+    }
+
+    private void showSettlements(List<Settlement> loadedSettlements) {
+        settlements.clear();
+        settlements.addAll(loadedSettlements);
         settlementAdapter.updateSettlements(settlements);
         
         // Update UI based on data
@@ -128,108 +125,23 @@ public class SettlementActivity extends AppCompatActivity implements SettlementA
         }
     }
     
-    private void generateNewSettlements() {
-        Log.d("SettlementActivity", "=== GENERATING NEW SETTLEMENTS ===");
-        List<Member> members = databaseHelper.getMembersForGroup(groupId);
-        if (members != null && !members.isEmpty()) {
-            List<Settlement> settlementSuggestions = calculateSettlements(members);
-            Log.d("SettlementActivity", "Calculated " + settlementSuggestions.size() + " new settlements");
+    private void recalculateBalances() {
+        repository.write(this, databaseHelper -> {
+            // Debug: Show current state before recalculation
+            databaseHelper.debugBalanceCalculation(groupId);
             
-            // Save new settlements to database first
-            for (Settlement settlement : settlementSuggestions) {
-                long result = databaseHelper.addSettlement(settlement, groupId);
-                Log.d("SettlementActivity", "Saved settlement to DB: " + settlement.getFromMember() + " -> " + settlement.getToMember() + " $" + settlement.getAmount() + " (ID: " + result + ")");
-            }
+            // Recalculate balances but preserve settled settlements
+            databaseHelper.recalculateAllBalancesForGroup(groupId);
             
-            // Then add them to the current list
-            settlements.addAll(settlementSuggestions);
-            Log.d("SettlementActivity", "Added " + settlementSuggestions.size() + " settlements to list. Total settlements: " + settlements.size());
-        }
-        Log.d("SettlementActivity", "=== NEW SETTLEMENTS GENERATED ===");
-    }
-
-    private List<Settlement> calculateSettlements(List<Member> members) {
-        List<Settlement> settlements = new ArrayList<>();
-        
-        // Create working copies of balances to avoid modifying original data
-        List<Member> workingMembers = new ArrayList<>();
-        for (Member member : members) {
-            Member workingMember = new Member();
-            workingMember.setMemberId(member.getMemberId());
-            workingMember.setMemberName(member.getMemberName());
-            workingMember.setBalance(member.getBalance());
-            workingMembers.add(workingMember);
-        }
-        
-        // Separate members into debtors and creditors
-        List<Member> debtors = new ArrayList<>();
-        List<Member> creditors = new ArrayList<>();
-        
-        for (Member member : workingMembers) {
-            if (member.getBalance() > 0.01) { // Use small threshold to avoid floating point issues
-                debtors.add(member);
-            } else if (member.getBalance() < -0.01) {
-                creditors.add(member);
-            }
-        }
-        
-        // Sort debtors by balance (highest debt first)
-        debtors.sort((a, b) -> Double.compare(b.getBalance(), a.getBalance()));
-        
-        // Sort creditors by balance (highest credit first)
-        creditors.sort((a, b) -> Double.compare(Math.abs(a.getBalance()), Math.abs(b.getBalance())));
-        
-        // Create settlements using a more efficient algorithm
-        for (Member debtor : debtors) {
-            double remainingDebt = debtor.getBalance();
+            // Only remove unsettled settlements and regenerate them
+            databaseHelper.clearUnsettledSettlementsForGroup(groupId);
             
-            if (remainingDebt <= 0.01) continue;
-            
-            for (Member creditor : creditors) {
-                double remainingCredit = Math.abs(creditor.getBalance());
-                
-                if (remainingCredit <= 0.01 || remainingDebt <= 0.01) continue;
-                
-                double settlementAmount = Math.min(remainingDebt, remainingCredit);
-                
-                if (settlementAmount > 0.01) { // Only create settlement if amount is meaningful
-                    Settlement settlement = new Settlement();
-                    settlement.setFromMember(debtor.getMemberName());
-                    settlement.setToMember(creditor.getMemberName());
-                    settlement.setAmount(settlementAmount);
-                    settlement.setFromMemberId(debtor.getMemberId());
-                    settlement.setToMemberId(creditor.getMemberId());
-                    settlement.setSettled(false);
-                    
-                    settlements.add(settlement);
-                    
-                    // Update working balances
-                    remainingDebt -= settlementAmount;
-                    debtor.setBalance(remainingDebt);
-                    creditor.setBalance(creditor.getBalance() + settlementAmount);
-                }
-            }
-        }
-        
-        Log.d("SettlementActivity", "Generated " + settlements.size() + " settlements");
-        return settlements;
-    }
-
-    private void recalculateBalances() {
-        // Debug: Show current state before recalculation
-        databaseHelper.debugBalanceCalculation(groupId);
-        
-        // Recalculate balances but preserve settled settlements
-        databaseHelper.recalculateAllBalancesForGroup(groupId);
-        
-        // Only remove unsettled settlements and regenerate them
-        databaseHelper.clearUnsettledSettlementsForGroup(groupId);
-        
-        // Debug: Show state after recalculation
-        databaseHelper.debugBalanceCalculation(groupId);
-        
-        loadSettlements();
-        Toast.makeText(this, "Balances recalculated (preserving settled settlements)", Toast.LENGTH_LONG).show();
+            // Debug: Show state after recalculation
+            databaseHelper.debugBalanceCalculation(groupId);
+            return null;
+        }, result -> {
+            Toast.makeText(this, "Balances recalculated (preserving settled settlements)", Toast.LENGTH_LONG).show();
+        });
     }
 
     @Override
@@ -244,26 +156,27 @@ public class SettlementActivity extends AppCompatActivity implements SettlementA
                        settlement.getToMember() + " $" + String.format("%.2f", settlement.getAmount()) + 
                        "\n\nMark this settlement as completed?")
             .setPositiveButton("Mark as Settled", (dialog, which) -> {
-                Log.d("SettlementActivity", "Marking settlement as settled: " + settlement.getFromMember() + " -> " + settlement.getToMember() + " $" + settlement.getAmount());
+                if (AppLog.DEBUG && AppLog.isLoggable(Log.DEBUG)) {
+                    AppLog.d(TAG, "Marking settlement as settled: " + settlement.getFromMember() + " -> "
+                            + settlement.getToMember() + " $" + settlement.getAmount());
+                }
                 
                 // Update settlement status in database
-                boolean updated = databaseHelper.updateSettlementStatus(
+                repository.write(this, databaseHelper -> databaseHelper.updateSettlementStatus(
                     groupId, 
                     settlement.getFromMember(), 
                     settlement.getToMember(), 
-                    settlement.getAmount(), 
+                    settlement.getAmountCents(), 
                     true
-                );
-                
-                if (updated) {
-                    Log.d("SettlementActivity", "Settlement marked as completed successfully");
-                    Toast.makeText(this, "Settlement marked as completed. Member balances have been updated.", Toast.LENGTH_LONG).show();
-                    // Refresh settlements to show updated status
-                    loadSettlements();
-                } else {
-                    Log.e("SettlementActivity", "Failed to update settlement: " + settlement.getFromMember() + " -> " + settlement.getToMember() + " $" + settlement.getAmount());
-                    Toast.makeText(this, "Failed to update settlement. Check logs for details.", Toast.LENGTH_LONG).show();
-                }
+                ), updated -> {
+                    if (updated) {
+                        AppLog.d(TAG, "Settlement marked as completed successfully");
+                        Toast.makeText(this, "Settlement marked as completed. Member balances have been updated.", Toast.LENGTH_LONG).show();
+                    } else {
+                        AppLog.e(TAG, "Failed to update settlement: " + settlement.getFromMember() + " -> " + settlement.getToMember() + " $" + settlement.getAmount());
+                        Toast.makeText(this, "Failed to update settlement. Check logs for details.", Toast.LENGTH_LONG).show();
+                    }
+                });
             })
             .setNegativeButton("Cancel", null)
             .show();
@@ -8,16 +8,17 @@ import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.expensetracker.R;
 import com.example.expensetracker.models.Member;
 
 import java.text.DecimalFormat;
+import java.util.ArrayList;
 import java.util.List;
 
-public class BalanceAdapter extends RecyclerView.Adapter<BalanceAdapter.BalanceViewHolder> {
-    private List<Member> members;
+public class BalanceAdapter extends ListAdapter<Member, BalanceAdapter.BalanceViewHolder> {
     private Context context;
     private DecimalFormat currencyFormat;
     private OnMemberClickListener listener;
@@ -27,9 +28,11 @@ public class BalanceAdapter extends RecyclerView.Adapter<BalanceAdapter.BalanceV
     }
 
     public BalanceAdapter(Context context, List<Member> members) {
+        super(ItemDiffs.MEMBER);
         this.context = context;
-        this.members = members;
         this.currencyFormat = new DecimalFormat("$#,##0.00");
+        setHasStableIds(true);
+        updateMembers(members);
     }
 
     @NonNull
@@ -41,18 +44,17 @@ public class BalanceAdapter extends RecyclerView.Adapter<BalanceAdapter.BalanceV
 
     @Override
     public void onBindViewHolder(@NonNull BalanceViewHolder holder, int position) {
-        Member member = members.get(position);
+        Member member = getItem(position);
         holder.bind(member);
     }
 
     @Override
-    public int getItemCount() {
-        return members.size();
+    public long getItemId(int position) {
+        return getItem(position).getMemberId();
     }
 
     public void updateMembers(List<Member> newMembers) {
-        this.members = newMembers;
-        notifyDataSetChanged();
+        submitList(new ArrayList<>(newMembers));
     }
 
     public void setOnMemberClickListener(OnMemberClickListener listener) {
@@ -76,7 +78,7 @@ public class BalanceAdapter extends RecyclerView.Adapter<BalanceAdapter.BalanceV
                 if (listener != null) {
                     int position = getAdapterPosition();
                     if (position != RecyclerView.NO_POSITION) {
-                        listener.onMemberClick(members.get(position));
+                        listener.onMemberClick(getItem(position));
                     }
                 }
             });
@@ -7,16 +7,17 @@ import android.view.ViewGroup;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.expensetracker.R;
 import com.example.expensetracker.models.Expense;
 
 import java.text.DecimalFormat;
+import java.util.ArrayList;
 import java.util.List;
 
-public class ExpenseAdapter extends RecyclerView.Adapter<ExpenseAdapter.ExpenseViewHolder> {
-    private List<Expense> expenses;
+public class ExpenseAdapter extends ListAdapter<Expense, ExpenseAdapter.ExpenseViewHolder> {
     private Context context;
     private OnExpenseClickListener listener;
     private DecimalFormat currencyFormat;
@@ -26,9 +27,11 @@ public class ExpenseAdapter extends RecyclerView.Adapter<ExpenseAdapter.ExpenseV
     }
 
     public ExpenseAdapter(Context context, List<Expense> expenses) {
+        super(ItemDiffs.EXPENSE);
         this.context = context;
-        this.expenses = expenses;
         this.currencyFormat = new DecimalFormat("$#,##0.00");
+        setHasStableIds(true);
+        updateExpenses(expenses);
     }
 
     public void setOnExpenseClickListener(OnExpenseClickListener listener) {
@@ -44,18 +47,17 @@ public class ExpenseAdapter extends RecyclerView.Adapter<ExpenseAdapter.ExpenseV
 
     @Override
     public void onBindViewHolder(@NonNull ExpenseViewHolder holder, int position) {
-        Expense expense = expenses.get(position);
+        Expense expense = getItem(position);
         holder.bind(expense);
     }
 
     @Override
-    public int getItemCount() {
-        return expenses.size();
+    public long getItemId(int position) {
+        return getItem(position).getExpenseId();
     }
 
     public void updateExpenses(List<Expense> newExpenses) {
-        this.expenses = newExpenses;
-        notifyDataSetChanged();
+        submitList(new ArrayList<>(newExpenses));
     }
 
     class ExpenseViewHolder extends RecyclerView.ViewHolder {
@@ -79,7 +81,7 @@ public class ExpenseAdapter extends RecyclerView.Adapter<ExpenseAdapter.ExpenseV
                 if (listener != null) {
                     int position = getAdapterPosition();
                     if (position != RecyclerView.NO_POSITION) {
-                        listener.onExpenseClick(expenses.get(position));
+                        listener.onExpenseClick(getItem(position));
                     }
                 }
             });
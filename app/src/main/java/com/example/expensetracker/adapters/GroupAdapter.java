@@ -9,16 +9,17 @@ import android.widget.PopupMenu;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.expensetracker.R;
 import com.example.expensetracker.models.Group;
 
 import java.text.DecimalFormat;
+import java.util.ArrayList;
 import java.util.List;
 
-public class GroupAdapter extends RecyclerView.Adapter<GroupAdapter.GroupViewHolder> {
-    private List<Group> groups;
+public class GroupAdapter extends ListAdapter<Group, GroupAdapter.GroupViewHolder> {
     private Context context;
     private OnGroupClickListener listener;
     private DecimalFormat currencyFormat;
@@ -30,9 +31,11 @@ public class GroupAdapter extends RecyclerView.Adapter<GroupAdapter.GroupViewHol
     }
 
     public GroupAdapter(Context context, List<Group> groups) {
+        super(ItemDiffs.GROUP);
         this.context = context;
-        this.groups = groups;
         this.currencyFormat = new DecimalFormat("$#,##0.00");
+        setHasStableIds(true);
+        updateGroups(groups);
     }
 
     public void setOnGroupClickListener(OnGroupClickListener listener) {
@@ -48,18 +51,17 @@ public class GroupAdapter extends RecyclerView.Adapter<GroupAdapter.GroupViewHol
 
     @Override
     public void onBindViewHolder(@NonNull GroupViewHolder holder, int position) {
-        Group group = groups.get(position);
+        Group group = getItem(position);
         holder.bind(group);
     }
 
     @Override
-    public int getItemCount() {
-        return groups.size();
+    public long getItemId(int position) {
+        return getItem(position).getGroupId();
     }
 
     public void updateGroups(List<Group> newGroups) {
-        this.groups = newGroups;
-        notifyDataSetChanged();
+        submitList(new ArrayList<>(newGroups));
     }
 
     class GroupViewHolder extends RecyclerView.ViewHolder {
@@ -83,7 +85,7 @@ public class GroupAdapter extends RecyclerView.Adapter<GroupAdapter.GroupViewHol
                 if (listener != null) {
                     int position = getAdapterPosition();
                     if (position != RecyclerView.NO_POSITION) {
-                        listener.onGroupClick(groups.get(position));
+                        listener.onGroupClick(getItem(position));
                     }
                 }
             });
@@ -92,7 +94,7 @@ public class GroupAdapter extends RecyclerView.Adapter<GroupAdapter.GroupViewHol
                 if (listener != null) {
                     int position = getAdapterPosition();
                     if (position != RecyclerView.NO_POSITION) {
-                        showPopupMenu(v, groups.get(position));
+                        showPopupMenu(v, getItem(position));
                     }
                 }
             });
@@ -0,0 +1,73 @@
+package com.example.expensetracker.adapters;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+
+import com.example.expensetracker.models.Expense;
+import com.example.expensetracker.models.Group;
+import com.example.expensetracker.models.Member;
+
+import java.util.Objects;
+
+/**
+ * DiffUtil callbacks shared by the list adapters. Rows are matched by their database id and
+ * only rebound when a field that some row layout shows has changed.
+ *
+ * The adapters submit a copy of the list they are given: screens refill one list instance,
+ * and ListAdapter ignores a submitted list that is the same instance it already holds.
+ */
+final class ItemDiffs {
+
+    static final DiffUtil.ItemCallback<Expense> EXPENSE = new DiffUtil.ItemCallback<Expense>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Expense oldItem, @NonNull Expense newItem) {
+            return oldItem.getExpenseId() == newItem.getExpenseId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Expense oldItem, @NonNull Expense newItem) {
+            return oldItem.getAmountCents() == newItem.getAmountCents()
+                    && Objects.equals(oldItem.getExpenseName(), newItem.getExpenseName())
+                    && Objects.equals(oldItem.getPayer(), newItem.getPayer())
+                    && Objects.equals(oldItem.getDate(), newItem.getDate())
+                    && Objects.equals(oldItem.getCategory(), newItem.getCategory())
+                    && Objects.equals(oldItem.getParticipants(), newItem.getParticipants());
+        }
+    };
+
+    static final DiffUtil.ItemCallback<Member> MEMBER = new DiffUtil.ItemCallback<Member>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Member oldItem, @NonNull Member newItem) {
+            return oldItem.getMemberId() == newItem.getMemberId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Member oldItem, @NonNull Member newItem) {
+            return oldItem.getBalanceCents() == newItem.getBalanceCents()
+                    && oldItem.getTotalOwedCents() == newItem.getTotalOwedCents()
+                    && oldItem.getTotalOwingCents() == newItem.getTotalOwingCents()
+                    && Objects.equals(oldItem.getMemberName(), newItem.getMemberName())
+                    && Objects.equals(oldItem.getEmail(), newItem.getEmail())
+                    && Objects.equals(oldItem.getPhoneNumber(), newItem.getPhoneNumber());
+        }
+    };
+
+    static final DiffUtil.ItemCallback<Group> GROUP = new DiffUtil.ItemCallback<Group>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Group oldItem, @NonNull Group newItem) {
+            return oldItem.getGroupId() == newItem.getGroupId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Group oldItem, @NonNull Group newItem) {
+            return oldItem.getTotalExpensesCents() == newItem.getTotalExpensesCents()
+                    && oldItem.getMemberCount() == newItem.getMemberCount()
+                    && Objects.equals(oldItem.getGroupName(), newItem.getGroupName())
+                    && Objects.equals(oldItem.getDescription(), newItem.getDescription())
+                    && Objects.equals(oldItem.getCreatedDate(), newItem.getCreatedDate());
+        }
+    };
+
+    private ItemDiffs() {
+    }
+}
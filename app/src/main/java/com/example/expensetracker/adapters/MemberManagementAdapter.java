@@ -7,6 +7,7 @@ import android.view.ViewGroup;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.material.button.MaterialButton;
@@ -15,11 +16,11 @@ import com.example.expensetracker.R;
 import com.example.expensetracker.models.Member;
 
 import java.text.DecimalFormat;
+import java.util.ArrayList;
 import java.util.List;
 
-public class MemberManagementAdapter extends RecyclerView.Adapter<MemberManagementAdapter.MemberViewHolder> {
+public class MemberManagementAdapter extends ListAdapter<Member, MemberManagementAdapter.MemberViewHolder> {
     private Context context;
-    private List<Member> members;
     private OnMemberClickListener listener;
     private DecimalFormat currencyFormat;
 
@@ -30,10 +31,12 @@ public class MemberManagementAdapter extends RecyclerView.Adapter<MemberManageme
     }
 
     public MemberManagementAdapter(Context context, List<Member> members, OnMemberClickListener listener) {
+        super(ItemDiffs.MEMBER);
         this.context = context;
-        this.members = members;
         this.listener = listener;
         this.currencyFormat = new DecimalFormat("$#,##0.00");
+        setHasStableIds(true);
+        updateMembers(members);
     }
 
     @NonNull
@@ -45,18 +48,17 @@ public class MemberManagementAdapter extends RecyclerView.Adapter<MemberManageme
 
     @Override
     public void onBindViewHolder(@NonNull MemberViewHolder holder, int position) {
-        Member member = members.get(position);
+        Member member = getItem(position);
         holder.bind(member);
     }
 
     @Override
-    public int getItemCount() {
-        return members.size();
+    public long getItemId(int position) {
+        return getItem(position).getMemberId();
     }
 
     public void updateMembers(List<Member> newMembers) {
-        this.members = newMembers;
-        notifyDataSetChanged();
+        submitList(new ArrayList<>(newMembers));
     }
 
     class MemberViewHolder extends RecyclerView.ViewHolder {
@@ -84,7 +86,7 @@ public class MemberManagementAdapter extends RecyclerView.Adapter<MemberManageme
                 if (listener != null) {
                     int position = getAdapterPosition();
                     if (position != RecyclerView.NO_POSITION) {
-                        listener.onMemberClick(members.get(position));
+                        listener.onMemberClick(getItem(position));
                     }
                 }
             });
@@ -93,7 +95,7 @@ public class MemberManagementAdapter extends RecyclerView.Adapter<MemberManageme
                 if (listener != null) {
                     int position = getAdapterPosition();
                     if (position != RecyclerView.NO_POSITION) {
-                        listener.onMemberEdit(members.get(position));
+                        listener.onMemberEdit(getItem(position));
                     }
                 }
             });
@@ -102,7 +104,7 @@ public class MemberManagementAdapter extends RecyclerView.Adapter<MemberManageme
                 if (listener != null) {
                     int position = getAdapterPosition();
                     if (position != RecyclerView.NO_POSITION) {
-                        listener.onMemberDelete(members.get(position));
+                        listener.onMemberDelete(getItem(position));
                     }
                 }
             });
@@ -7,20 +7,23 @@ import android.view.ViewGroup;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.expensetracker.R;
 import com.example.expensetracker.models.Member;
 
+import java.util.ArrayList;
 import java.util.List;
 
-public class PhoneNumberAdapter extends RecyclerView.Adapter<PhoneNumberAdapter.PhoneNumberViewHolder> {
+public class PhoneNumberAdapter extends ListAdapter<Member, PhoneNumberAdapter.PhoneNumberViewHolder> {
     private Context context;
-    private List<Member> members;
 
     public PhoneNumberAdapter(Context context, List<Member> members) {
+        super(ItemDiffs.MEMBER);
         this.context = context;
-        this.members = members;
+        setHasStableIds(true);
+        updateMembers(members);
     }
 
     @NonNull
@@ -32,18 +35,17 @@ public class PhoneNumberAdapter extends RecyclerView.Adapter<PhoneNumberAdapter.
 
     @Override
     public void onBindViewHolder(@NonNull PhoneNumberViewHolder holder, int position) {
-        Member member = members.get(position);
+        Member member = getItem(position);
         holder.bind(member);
     }
 
     @Override
-    public int getItemCount() {
-        return members.size();
+    public long getItemId(int position) {
+        return getItem(position).getMemberId();
     }
 
     public void updateMembers(List<Member> members) {
-        this.members = members;
-        notifyDataSetChanged();
+        submitList(new ArrayList<>(members));
     }
 
     static class PhoneNumberViewHolder extends RecyclerView.ViewHolder {
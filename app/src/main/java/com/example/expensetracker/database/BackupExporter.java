@@ -0,0 +1,370 @@
+package com.example.expensetracker.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.JsonWriter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static com.example.expensetracker.database.DatabaseHelper.*;
+
+/**
+ * Writes every group, member, expense and settlement to a stream as JSON or CSV, with each
+ * expense's shares right after it.
+ *
+ * Rows are read in primary key order, CHUNK_SIZE at a time, and written straight out through a
+ * buffered writer, so memory use stays the same however big the database is. The export runs
+ * inside one read transaction and is a consistent snapshot even if the app writes meanwhile.
+ * Blocks, so call it from a worker thread.
+ */
+public class BackupExporter {
+
+    public enum Format {
+        JSON("application/json", "json"),
+        CSV("text/csv", "csv");
+
+        public final String mimeType;
+        public final String extension;
+
+        Format(String mimeType, String extension) {
+            this.mimeType = mimeType;
+            this.extension = extension;
+        }
+    }
+
+    public interface ProgressListener {
+        /** Called on the exporting thread after every chunk of rows. */
+        void onProgress(int rowsWritten, int totalRows);
+    }
+
+    static final String FORMAT_NAME = "expense-tracker-backup";
+    static final int FORMAT_VERSION = 1;
+
+    // JSON array key and CSV record type of the shares written under each expense
+    static final String SHARES = "shares";
+    static final String SHARE_RECORD = "share";
+    static final String[] SHARE_COLUMNS = { COLUMN_EXPENSE_ID, COLUMN_MEMBER_ID, COLUMN_MEMBER_NAME,
+            COLUMN_SHARE_CENTS };
+
+    static final int CHUNK_SIZE = 1000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** One table of the export. The first column is its integer primary key. */
+    static class Section {
+        final String table;
+        final String record;
+        final String[] columns;
+        final boolean hasShares;
+        final String chunkQuery;
+
+        Section(String table, String record, boolean hasShares, String... columns) {
+            this.table = table;
+            this.record = record;
+            this.columns = columns;
+            this.hasShares = hasShares;
+            this.chunkQuery = "SELECT " + String.join(", ", columns) + " FROM " + table
+                    + " WHERE " + columns[0] + " > ? ORDER BY " + columns[0] + " LIMIT " + CHUNK_SIZE;
+        }
+
+        int column(String name) {
+            return Arrays.asList(columns).indexOf(name);
+        }
+    }
+
+    // In dependency order, so an import can resolve every reference as it reads
+    static final Section[] SECTIONS = {
+            new Section(TABLE_GROUPS, "group", false,
+                    COLUMN_GROUP_ID, COLUMN_GROUP_NAME, COLUMN_GROUP_DESCRIPTION, COLUMN_CREATED_DATE),
+            new Section(TABLE_MEMBERS, "member", false,
+                    COLUMN_MEMBER_ID, COLUMN_GROUP_ID, COLUMN_MEMBER_NAME, COLUMN_EMAIL, COLUMN_PHONE_NUMBER,
+                    COLUMN_TOTAL_OWED_CENTS, COLUMN_TOTAL_OWING_CENTS, COLUMN_BALANCE_CENTS),
+            new Section(TABLE_EXPENSES, "expense", true,
+                    COLUMN_EXPENSE_ID, COLUMN_GROUP_ID, COLUMN_EXPENSE_NAME, COLUMN_AMOUNT_CENTS, COLUMN_PAYER,
+                    COLUMN_PARTICIPANTS, COLUMN_DATE, COLUMN_DESCRIPTION, COLUMN_CATEGORY, COLUMN_LOCATION,
+                    COLUMN_LATITUDE, COLUMN_LONGITUDE),
+            new Section(TABLE_SETTLEMENTS, "settlement", false,
+                    COLUMN_SETTLEMENT_ID, COLUMN_GROUP_ID, COLUMN_FROM_MEMBER, COLUMN_TO_MEMBER,
+                    COLUMN_FROM_MEMBER_ID, COLUMN_TO_MEMBER_ID, COLUMN_AMOUNT_CENTS, COLUMN_IS_SETTLED,
+                    COLUMN_SETTLEMENT_DATE)
+    };
+
+    // Shares of one chunk of expenses, in expense order to merge with the expense cursor.
+    // Shares of a deleted member are left out, as the balance queries ignore them too.
+    private static final String SHARES_CHUNK_QUERY = "SELECT s." + COLUMN_EXPENSE_ID + ", s." + COLUMN_MEMBER_ID
+            + ", m." + COLUMN_MEMBER_NAME + ", s." + COLUMN_SHARE_CENTS
+            + " FROM " + TABLE_EXPENSE_SHARES + " s JOIN " + TABLE_MEMBERS + " m"
+            + " ON m." + COLUMN_MEMBER_ID + " = s." + COLUMN_MEMBER_ID
+            + " WHERE s." + COLUMN_EXPENSE_ID + " > ? AND s." + COLUMN_EXPENSE_ID + " <= ?"
+            + " ORDER BY s." + COLUMN_EXPENSE_ID;
+
+    static final String COUNT_QUERY = "SELECT (SELECT COUNT(*) FROM " + TABLE_GROUPS + ")"
+            + " + (SELECT COUNT(*) FROM " + TABLE_MEMBERS + ")"
+            + " + (SELECT COUNT(*) FROM " + TABLE_EXPENSES + ")"
+            + " + (SELECT COUNT(*) FROM " + TABLE_SETTLEMENTS + ")";
+
+    private final DatabaseHelper databaseHelper;
+
+    public BackupExporter(DatabaseHelper databaseHelper) {
+        this.databaseHelper = databaseHelper;
+    }
+
+    /**
+     * Writes the whole database to out and returns the number of rows written, not counting
+     * shares. Flushes but does not close out.
+     */
+    public int export(OutputStream out, Format format, ProgressListener listener) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        Output output = format == Format.JSON ? new JsonOutput(writer) : new CsvOutput(writer);
+
+        SQLiteDatabase db = databaseHelper.openReadSnapshot();
+        try {
+            int totalRows = countRows(db);
+            int rowsWritten = 0;
+            output.begin();
+            for (Section section : SECTIONS) {
+                output.beginSection(section);
+                long lastKey = 0;
+                int chunkRows;
+                do {
+                    chunkRows = 0;
+                    try (Cursor rows = databaseHelper.rawQuery(db, section.chunkQuery,
+                            new String[]{ String.valueOf(lastKey) })) {
+                        if (!rows.moveToLast()) {
+                            break;
+                        }
+                        long chunkEnd = rows.getLong(0);
+                        rows.moveToPosition(-1);
+                        Cursor shares = section.hasShares ? databaseHelper.rawQuery(db, SHARES_CHUNK_QUERY,
+                                new String[]{ String.valueOf(lastKey), String.valueOf(chunkEnd) }) : null;
+                        try {
+                            boolean hasShare = shares != null && shares.moveToNext();
+                            while (rows.moveToNext()) {
+                                long key = rows.getLong(0);
+                                output.beginRow(section, rows);
+                                while (hasShare && shares.getLong(0) <= key) {
+                                    if (shares.getLong(0) == key) {
+                                        output.share(shares);
+                                    }
+                                    hasShare = shares.moveToNext();
+                                }
+                                output.endRow(section);
+                                chunkRows++;
+                            }
+                        } finally {
+                            if (shares != null) {
+                                shares.close();
+                            }
+                        }
+                        lastKey = chunkEnd;
+                    }
+                    rowsWritten += chunkRows;
+                    if (listener != null && chunkRows > 0) {
+                        listener.onProgress(rowsWritten, Math.max(totalRows, rowsWritten));
+                    }
+                } while (chunkRows == CHUNK_SIZE);
+                output.endSection(section);
+            }
+            output.end();
+            writer.flush();
+            return rowsWritten;
+        } finally {
+            closeReadSnapshot(db);
+        }
+    }
+
+    private int countRows(SQLiteDatabase db) {
+        try (Cursor cursor = databaseHelper.rawQuery(db, COUNT_QUERY, null)) {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        }
+    }
+
+    private interface Output {
+        void begin() throws IOException;
+
+        void beginSection(Section section) throws IOException;
+
+        void beginRow(Section section, Cursor row) throws IOException;
+
+        void share(Cursor share) throws IOException;
+
+        void endRow(Section section) throws IOException;
+
+        void endSection(Section section) throws IOException;
+
+        void end() throws IOException;
+    }
+
+    /**
+     * One object holding the format header and an array per table, keyed by the table name.
+     * Each expense object carries its shares as an array of member ids, names and cents.
+     */
+    private static class JsonOutput implements Output {
+        private final JsonWriter json;
+
+        JsonOutput(Writer writer) {
+            json = new JsonWriter(writer);
+        }
+
+        @Override
+        public void begin() throws IOException {
+            json.beginObject();
+            json.name("format").value(FORMAT_NAME);
+            json.name("version").value(FORMAT_VERSION);
+        }
+
+        @Override
+        public void beginSection(Section section) throws IOException {
+            json.name(section.table).beginArray();
+        }
+
+        @Override
+        public void beginRow(Section section, Cursor row) throws IOException {
+            json.beginObject();
+            for (int i = 0; i < section.columns.length; i++) {
+                json.name(section.columns[i]);
+                writeValue(row, i);
+            }
+            if (section.hasShares) {
+                json.name(SHARES).beginArray();
+            }
+        }
+
+        @Override
+        public void share(Cursor share) throws IOException {
+            json.beginObject();
+            json.name(COLUMN_MEMBER_ID).value(share.getLong(1));
+            json.name(COLUMN_MEMBER_NAME).value(share.getString(2));
+            json.name(COLUMN_SHARE_CENTS).value(share.getLong(3));
+            json.endObject();
+        }
+
+        @Override
+        public void endRow(Section section) throws IOException {
+            if (section.hasShares) {
+                json.endArray();
+            }
+            json.endObject();
+        }
+
+        @Override
+        public void endSection(Section section) throws IOException {
+            json.endArray();
+        }
+
+        @Override
+        public void end() throws IOException {
+            json.endObject();
+            json.flush();
+        }
+
+        private void writeValue(Cursor row, int column) throws IOException {
+            switch (row.getType(column)) {
+                case Cursor.FIELD_TYPE_NULL:
+                    json.nullValue();
+                    break;
+                case Cursor.FIELD_TYPE_INTEGER:
+                    json.value(row.getLong(column));
+                    break;
+                case Cursor.FIELD_TYPE_FLOAT:
+                    json.value(row.getDouble(column));
+                    break;
+                default:
+                    json.value(row.getString(column));
+                    break;
+            }
+        }
+    }
+
+    /**
+     * RFC 4180 CSV where the first field of every line says what the line is: group, member,
+     * expense, share or settlement. Comment lines starting with '#' at the top name the fields
+     * of each record type. NULL is written as an empty field and an empty string as "".
+     */
+    private static class CsvOutput implements Output {
+        private final Writer writer;
+
+        CsvOutput(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void begin() throws IOException {
+            writer.write("# " + FORMAT_NAME + " " + FORMAT_VERSION + "\r\n");
+            for (Section section : SECTIONS) {
+                writeHeader(section.record, section.columns);
+                if (section.hasShares) {
+                    writeHeader(SHARE_RECORD, SHARE_COLUMNS);
+                }
+            }
+        }
+
+        @Override
+        public void beginSection(Section section) {
+        }
+
+        @Override
+        public void beginRow(Section section, Cursor row) throws IOException {
+            writer.write(section.record);
+            for (int i = 0; i < section.columns.length; i++) {
+                writer.write(',');
+                if (!row.isNull(i)) {
+                    writeField(row.getString(i));
+                }
+            }
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void share(Cursor share) throws IOException {
+            writer.write(SHARE_RECORD);
+            for (int i = 0; i < SHARE_COLUMNS.length; i++) {
+                writer.write(',');
+                writeField(share.getString(i));
+            }
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void endRow(Section section) {
+        }
+
+        @Override
+        public void endSection(Section section) {
+        }
+
+        @Override
+        public void end() {
+        }
+
+        private void writeHeader(String record, String[] columns) throws IOException {
+            writer.write("#" + record);
+            for (String column : columns) {
+                writer.write(',');
+                writer.write(column);
+            }
+            writer.write("\r\n");
+        }
+
+        private void writeField(String value) throws IOException {
+            // An empty string is quoted so it reads back differently from NULL
+            boolean quote = value.isEmpty();
+            for (int i = 0; i < value.length() && !quote; i++) {
+                char c = value.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+}
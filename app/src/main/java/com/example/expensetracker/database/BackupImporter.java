@@ -0,0 +1,578 @@
+package com.example.expensetracker.database;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.example.expensetracker.database.BackupExporter.*;
+import static com.example.expensetracker.database.DatabaseHelper.*;
+
+/**
+ * Reads a JSON or CSV file written by BackupExporter and adds its groups, with their members,
+ * expenses and settlements, next to the ones already in the database.
+ *
+ * The file is parsed as a stream and every row goes straight into a compiled insert, so only the
+ * id and member name maps are held in memory. Rows are committed ROWS_PER_TRANSACTION at a time.
+ * The balance columns in the file are ignored: once every row is in, each imported group's balances
+ * are rebuilt from its shares and confirmed settlements, in the last transaction. Shares and
+ * settlements find their member by the file's member id. Files without member ids on their shares
+ * fall back to the name, which must then be unique within the group. Blocks, so call it from a
+ * worker thread.
+ */
+public class BackupImporter {
+
+    public interface ProgressListener {
+        /** Called on the importing thread every PROGRESS_STEP rows. */
+        void onProgress(int rowsRead);
+    }
+
+    private static final int ROWS_PER_TRANSACTION = 5000;
+    private static final int PROGRESS_STEP = 1000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long AMBIGUOUS = -1;
+
+    private final DatabaseHelper databaseHelper;
+
+    public BackupImporter(DatabaseHelper databaseHelper) {
+        this.databaseHelper = databaseHelper;
+    }
+
+    /**
+     * Imports the backup in, telling JSON from CSV by its first character, and returns the number
+     * of rows imported, not counting shares. If the file turns out to be unreadable halfway, the
+     * groups imported so far are deleted again before the exception is rethrown. Does not close in.
+     */
+    public int importBackup(InputStream in, ProgressListener listener) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_SIZE);
+        Loader loader = new Loader(databaseHelper.getWritableDatabase(), listener);
+        try {
+            if (peekFirstCharacter(reader) == '{') {
+                readJson(reader, loader);
+            } else {
+                readCsv(reader, loader);
+            }
+            loader.commit();
+        } catch (IOException | RuntimeException e) {
+            loader.rollBack();
+            throw e;
+        }
+
+        for (int groupId : loader.groupIds.values()) {
+            databaseHelper.getChangeNotifier().notifyChanged(groupId, ChangeNotifier.Table.values());
+        }
+        return loader.rows;
+    }
+
+    private static int peekFirstCharacter(BufferedReader reader) throws IOException {
+        int c;
+        do {
+            reader.mark(1);
+            c = reader.read();
+        } while (c != -1 && Character.isWhitespace(c));
+        reader.reset();
+        return c;
+    }
+
+    private static IOException notABackup() {
+        return new IOException("Not an expense tracker backup");
+    }
+
+    private static void checkVersion(int version) throws IOException {
+        if (version < 1 || version > FORMAT_VERSION) {
+            throw new IOException("Unsupported backup version " + version);
+        }
+    }
+
+    private static Section sectionFor(String tableOrRecord) {
+        for (Section section : SECTIONS) {
+            if (section.table.equals(tableOrRecord) || section.record.equals(tableOrRecord)) {
+                return section;
+            }
+        }
+        return null;
+    }
+
+    // JSON: {"format": ..., "version": ..., "groups": [...], "members": [...], ...}
+    private static void readJson(Reader in, Loader loader) throws IOException {
+        JsonReader json = new JsonReader(in);
+        json.beginObject();
+        if (!json.hasNext() || !"format".equals(json.nextName()) || !FORMAT_NAME.equals(json.nextString())) {
+            throw notABackup();
+        }
+        while (json.hasNext()) {
+            String name = json.nextName();
+            Section section = sectionFor(name);
+            if (name.equals("version")) {
+                checkVersion(json.nextInt());
+            } else if (section != null && section.table.equals(name)) {
+                json.beginArray();
+                while (json.hasNext()) {
+                    readJsonRow(json, section, loader);
+                }
+                json.endArray();
+            } else {
+                json.skipValue();
+            }
+        }
+        json.endObject();
+    }
+
+    private static void readJsonRow(JsonReader json, Section section, Loader loader) throws IOException {
+        Row row = new Row(section);
+        boolean added = false;
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName();
+            if (section.hasShares && name.equals(SHARES)) {
+                // The expense has to exist before its shares can point at it
+                loader.add(row);
+                added = true;
+                json.beginArray();
+                while (json.hasNext()) {
+                    readJsonShare(json, loader);
+                }
+                json.endArray();
+            } else {
+                // Fields this version does not know about are dropped
+                row.set(name, nextValue(json));
+            }
+        }
+        json.endObject();
+        if (!added) {
+            loader.add(row);
+        }
+    }
+
+    private static String nextValue(JsonReader json) throws IOException {
+        switch (json.peek()) {
+            case NULL:
+                json.nextNull();
+                return null;
+            case BOOLEAN:
+                return json.nextBoolean() ? "1" : "0";
+            case STRING:
+            case NUMBER:
+                return json.nextString();
+            default:
+                json.skipValue();
+                return null;
+        }
+    }
+
+    private static void readJsonShare(JsonReader json, Loader loader) throws IOException {
+        String memberId = null;
+        String memberName = null;
+        long shareCents = 0;
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName();
+            if (name.equals(COLUMN_MEMBER_ID)) {
+                memberId = json.nextString();
+            } else if (name.equals(COLUMN_MEMBER_NAME)) {
+                memberName = json.nextString();
+            } else if (name.equals(COLUMN_SHARE_CENTS)) {
+                shareCents = json.nextLong();
+            } else {
+                json.skipValue();
+            }
+        }
+        json.endObject();
+        loader.addShare(memberId, memberName, shareCents);
+    }
+
+    // CSV: a "# expense-tracker-backup <version>" line, then "#<record>,<columns>" headers, then records
+    private static void readCsv(Reader in, Loader loader) throws IOException {
+        CsvReader csv = new CsvReader(in);
+        String[] record = csv.next();
+        String signature = "# " + FORMAT_NAME + " ";
+        if (record == null || record.length != 1 || record[0] == null || !record[0].startsWith(signature)) {
+            throw notABackup();
+        }
+        try {
+            checkVersion(Integer.parseInt(record[0].substring(signature.length()).trim()));
+        } catch (NumberFormatException e) {
+            throw notABackup();
+        }
+
+        // Field order of each record type; the headers in the file take precedence
+        Map<String, String[]> columns = new HashMap<>();
+        for (Section section : SECTIONS) {
+            columns.put(section.record, section.columns);
+        }
+        columns.put(SHARE_RECORD, SHARE_COLUMNS);
+
+        while ((record = csv.next()) != null) {
+            String type = record[0];
+            if (type == null) {
+                throw new IOException("Record without a type on line " + csv.line);
+            }
+            if (type.startsWith("#")) {
+                if (columns.containsKey(type.substring(1))) {
+                    columns.put(type.substring(1), Arrays.copyOfRange(record, 1, record.length));
+                }
+                continue;
+            }
+
+            String[] names = columns.get(type);
+            if (type.equals(SHARE_RECORD)) {
+                String expenseId = field(record, names, COLUMN_EXPENSE_ID);
+                String shareCents = field(record, names, COLUMN_SHARE_CENTS);
+                if (expenseId == null || !expenseId.equals(loader.fileExpenseId) || shareCents == null) {
+                    throw new IOException("Share on line " + csv.line + " does not follow its expense");
+                }
+                loader.addShare(field(record, names, COLUMN_MEMBER_ID), field(record, names, COLUMN_MEMBER_NAME),
+                        parseLong(shareCents, COLUMN_SHARE_CENTS));
+                continue;
+            }
+
+            Section section = sectionFor(type);
+            if (section == null || !section.record.equals(type)) {
+                throw new IOException("Unknown record type " + type + " on line " + csv.line);
+            }
+            Row row = new Row(section);
+            for (int i = 0; i < names.length && i + 1 < record.length; i++) {
+                row.set(names[i], record[i + 1]);
+            }
+            loader.add(row);
+        }
+    }
+
+    private static String field(String[] record, String[] names, String column) {
+        int index = Arrays.asList(names).indexOf(column) + 1;
+        return index > 0 && index < record.length ? record[index] : null;
+    }
+
+    private static long parseLong(String value, String column) throws IOException {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IOException("Bad " + column + " value: " + value);
+        }
+    }
+
+    /** One row of a section, as the strings read from the file. */
+    private static class Row {
+        final Section section;
+        final String[] values;
+
+        Row(Section section) {
+            this.section = section;
+            this.values = new String[section.columns.length];
+        }
+
+        boolean set(String column, String value) {
+            int index = section.column(column);
+            if (index < 0) {
+                return false;
+            }
+            values[index] = value;
+            return true;
+        }
+
+        String get(String column) {
+            return values[section.column(column)];
+        }
+
+        long getLong(String column) throws IOException {
+            String value = get(column);
+            if (value == null) {
+                throw new IOException(section.record + " without " + column);
+            }
+            return parseLong(value, column);
+        }
+
+        double getDouble(String column) throws IOException {
+            String value = get(column);
+            try {
+                return value == null ? 0 : Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                throw new IOException("Bad " + column + " value: " + value);
+            }
+        }
+    }
+
+    /**
+     * Inserts rows as they are read, maps the file's ids to the new ones and commits every
+     * ROWS_PER_TRANSACTION rows.
+     */
+    private class Loader {
+        final SQLiteDatabase db;
+        final ProgressListener listener;
+        final SQLiteStatement groupStatement;
+        final SQLiteStatement memberStatement;
+        final SQLiteStatement expenseStatement;
+        final SQLiteStatement shareStatement;
+        final SQLiteStatement settlementStatement;
+
+        // Ids in the file to ids in the database
+        final Map<Long, Integer> groupIds = new HashMap<>();
+        final Map<Long, Long> memberIds = new HashMap<>();
+        // New group id to its member ids by name, for files without member ids; AMBIGUOUS where two share a name
+        final Map<Integer, Map<String, Long>> memberIdsByName = new HashMap<>();
+        final Set<Integer> committedGroupIds = new LinkedHashSet<>();
+
+        long expenseId = -1;
+        int expenseGroupId;
+        String fileExpenseId;
+        int rows;
+        int rowsInTransaction;
+
+        Loader(SQLiteDatabase db, ProgressListener listener) {
+            this.db = db;
+            this.listener = listener;
+            groupStatement = db.compileStatement(INSERT_GROUP);
+            memberStatement = db.compileStatement(INSERT_MEMBER);
+            expenseStatement = db.compileStatement(INSERT_EXPENSE);
+            shareStatement = db.compileStatement(INSERT_SHARE);
+            settlementStatement = db.compileStatement(INSERT_SETTLEMENT);
+            db.beginTransaction();
+        }
+
+        void add(Row row) throws IOException {
+            switch (row.section.table) {
+                case TABLE_GROUPS:
+                    addGroup(row);
+                    break;
+                case TABLE_MEMBERS:
+                    addMember(row);
+                    break;
+                case TABLE_EXPENSES:
+                    addExpense(row);
+                    break;
+                default:
+                    addSettlement(row);
+                    break;
+            }
+            rows++;
+            if (listener != null && rows % PROGRESS_STEP == 0) {
+                listener.onProgress(rows);
+            }
+            if (++rowsInTransaction == ROWS_PER_TRANSACTION) {
+                db.setTransactionSuccessful();
+                db.endTransaction();
+                committedGroupIds.addAll(groupIds.values());
+                db.beginTransaction();
+                rowsInTransaction = 0;
+            }
+        }
+
+        private void addGroup(Row row) throws IOException {
+            groupStatement.clearBindings();
+            bindStringOrNull(groupStatement, 1, row.get(COLUMN_GROUP_NAME));
+            bindStringOrNull(groupStatement, 2, row.get(COLUMN_GROUP_DESCRIPTION));
+            bindStringOrNull(groupStatement, 3, row.get(COLUMN_CREATED_DATE));
+            int groupId = (int) groupStatement.executeInsert();
+            groupIds.put(row.getLong(COLUMN_GROUP_ID), groupId);
+            memberIdsByName.put(groupId, new HashMap<>());
+        }
+
+        private void addMember(Row row) throws IOException {
+            int groupId = groupIdOf(row);
+            String name = row.get(COLUMN_MEMBER_NAME);
+            memberStatement.clearBindings();
+            memberStatement.bindLong(1, groupId);
+            bindStringOrNull(memberStatement, 2, name);
+            bindStringOrNull(memberStatement, 3, row.get(COLUMN_EMAIL));
+            bindStringOrNull(memberStatement, 4, row.get(COLUMN_PHONE_NUMBER));
+            // Filled in by commit() once the group's shares and settlements are in
+            memberStatement.bindLong(5, 0);
+            memberStatement.bindLong(6, 0);
+            memberStatement.bindLong(7, 0);
+            long memberId = memberStatement.executeInsert();
+            memberIds.put(row.getLong(COLUMN_MEMBER_ID), memberId);
+            Map<String, Long> byName = memberIdsByName.get(groupId);
+            byName.put(name, byName.containsKey(name) ? AMBIGUOUS : memberId);
+        }
+
+        private void addExpense(Row row) throws IOException {
+            int groupId = groupIdOf(row);
+            expenseStatement.clearBindings();
+            expenseStatement.bindLong(1, groupId);
+            bindStringOrNull(expenseStatement, 2, row.get(COLUMN_EXPENSE_NAME));
+            expenseStatement.bindLong(3, row.getLong(COLUMN_AMOUNT_CENTS));
+            bindStringOrNull(expenseStatement, 4, row.get(COLUMN_PAYER));
+            bindStringOrNull(expenseStatement, 5, row.get(COLUMN_PARTICIPANTS));
+            bindStringOrNull(expenseStatement, 6, row.get(COLUMN_DATE));
+            bindStringOrNull(expenseStatement, 7, row.get(COLUMN_DESCRIPTION));
+            bindStringOrNull(expenseStatement, 8, row.get(COLUMN_CATEGORY));
+            bindStringOrNull(expenseStatement, 9, row.get(COLUMN_LOCATION));
+            expenseStatement.bindDouble(10, row.getDouble(COLUMN_LATITUDE));
+            expenseStatement.bindDouble(11, row.getDouble(COLUMN_LONGITUDE));
+            // payer_member_id stays null until commit(), when every member of the group is in
+            expenseId = expenseStatement.executeInsert();
+            expenseGroupId = groupId;
+            fileExpenseId = row.get(COLUMN_EXPENSE_ID);
+        }
+
+        void addShare(String fileMemberId, String memberName, long shareCents) throws IOException {
+            if (expenseId == -1) {
+                throw new IOException("Share before any expense");
+            }
+            Long memberId = fileMemberId == null ? null : memberIds.get(parseLong(fileMemberId, COLUMN_MEMBER_ID));
+            if (memberId == null) {
+                memberId = memberIdByName(expenseGroupId, memberName);
+            }
+            if (memberId == null) {
+                throw new IOException("Share of unknown member " + memberName);
+            }
+            shareStatement.clearBindings();
+            shareStatement.bindLong(1, expenseId);
+            shareStatement.bindLong(2, memberId);
+            shareStatement.bindLong(3, shareCents);
+            shareStatement.executeInsert();
+        }
+
+        private void addSettlement(Row row) throws IOException {
+            int groupId = groupIdOf(row);
+            String fromMember = row.get(COLUMN_FROM_MEMBER);
+            String toMember = row.get(COLUMN_TO_MEMBER);
+            settlementStatement.clearBindings();
+            settlementStatement.bindLong(1, groupId);
+            bindStringOrNull(settlementStatement, 2, fromMember);
+            bindStringOrNull(settlementStatement, 3, toMember);
+            settlementStatement.bindLong(4, memberIdOf(row, COLUMN_FROM_MEMBER_ID, groupId, fromMember));
+            settlementStatement.bindLong(5, memberIdOf(row, COLUMN_TO_MEMBER_ID, groupId, toMember));
+            settlementStatement.bindLong(6, row.getLong(COLUMN_AMOUNT_CENTS));
+            settlementStatement.bindLong(7, row.getLong(COLUMN_IS_SETTLED) != 0 ? 1 : 0);
+            bindStringOrNull(settlementStatement, 8, row.get(COLUMN_SETTLEMENT_DATE));
+            settlementStatement.executeInsert();
+        }
+
+        private int groupIdOf(Row row) throws IOException {
+            Integer groupId = groupIds.get(row.getLong(COLUMN_GROUP_ID));
+            if (groupId == null) {
+                throw new IOException(row.section.record + " of unknown group " + row.get(COLUMN_GROUP_ID));
+            }
+            return groupId;
+        }
+
+        // By id where the member is in the file, otherwise by name within the group
+        private long memberIdOf(Row row, String column, int groupId, String name) throws IOException {
+            String fileId = row.get(column);
+            Long memberId = fileId == null ? null : memberIds.get(parseLong(fileId, column));
+            if (memberId == null) {
+                memberId = memberIdByName(groupId, name);
+            }
+            if (memberId == null) {
+                throw new IOException("Settlement of unknown member " + name);
+            }
+            return memberId;
+        }
+
+        private Long memberIdByName(int groupId, String name) throws IOException {
+            Long memberId = memberIdsByName.get(groupId).get(name);
+            if (memberId != null && memberId == AMBIGUOUS) {
+                throw new IOException("More than one member named " + name + " and no member id to tell them apart");
+            }
+            return memberId;
+        }
+
+        void commit() {
+            for (int groupId : groupIds.values()) {
+                databaseHelper.rebuildBalances(db, groupId);
+            }
+            closeStatements();
+            db.setTransactionSuccessful();
+            db.endTransaction();
+        }
+
+        // Undoes the open transaction and deletes the groups earlier transactions committed
+        void rollBack() {
+            closeStatements();
+            db.endTransaction();
+            for (int groupId : committedGroupIds) {
+                databaseHelper.clearSettlementsForGroup(groupId);
+                databaseHelper.deleteGroup(groupId);
+            }
+        }
+
+        private void closeStatements() {
+            for (SQLiteStatement statement : new SQLiteStatement[] { groupStatement, memberStatement,
+                    expenseStatement, shareStatement, settlementStatement }) {
+                statement.close();
+            }
+        }
+    }
+
+    /** RFC 4180 record reader. Empty unquoted fields come back as null, "" as an empty string. */
+    private static class CsvReader {
+        private final Reader in;
+        private final List<String> fields = new ArrayList<>();
+        private final StringBuilder field = new StringBuilder();
+        private int linesRead;
+        // Line the last record returned started on, for error messages
+        int line;
+
+        CsvReader(Reader in) {
+            this.in = in;
+        }
+
+        /** The fields of the next record, or null at the end of the input. Skips blank lines. */
+        String[] next() throws IOException {
+            int c = read();
+            while (c == '\r' || c == '\n') {
+                c = read();
+            }
+            if (c == -1) {
+                return null;
+            }
+            line = linesRead + 1;
+            fields.clear();
+            while (true) {
+                field.setLength(0);
+                boolean quoted = c == '"';
+                if (quoted) {
+                    while (true) {
+                        c = read();
+                        if (c == -1) {
+                            throw new IOException("Unterminated quoted field on line " + line);
+                        }
+                        if (c == '"') {
+                            c = read();
+                            if (c != '"') {
+                                break;
+                            }
+                        }
+                        field.append((char) c);
+                    }
+                    if (c != ',' && c != '\r' && c != '\n' && c != -1) {
+                        throw new IOException("Unexpected character after quoted field on line " + line);
+                    }
+                } else {
+                    while (c != ',' && c != '\r' && c != '\n' && c != -1) {
+                        field.append((char) c);
+                        c = read();
+                    }
+                }
+                fields.add(quoted || field.length() > 0 ? field.toString() : null);
+                if (c != ',') {
+                    return fields.toArray(new String[0]);
+                }
+                c = read();
+            }
+        }
+
+        private int read() throws IOException {
+            int c = in.read();
+            if (c == '\n') {
+                linesRead++;
+            }
+            return c;
+        }
+    }
+}
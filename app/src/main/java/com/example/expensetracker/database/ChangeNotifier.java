@@ -0,0 +1,148 @@
+package com.example.expensetracker.database;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Per-group version counters for the database, bumped by every DatabaseHelper write.
+ *
+ * A screen remembers the version it last loaded and skips the reload when getVersion() still
+ * returns it. Listeners registered with observe() are told when their group changes, but only
+ * while their owner is resumed; a paused screen catches up through the version check in onResume.
+ */
+public class ChangeNotifier {
+
+    /** Tables a screen can depend on. Expense shares count as part of EXPENSES. */
+    public enum Table {
+        GROUPS, EXPENSES, MEMBERS, SETTLEMENTS
+    }
+
+    /** Pseudo group id that changes whenever any group does, for screens listing every group. */
+    public static final int ALL_GROUPS = -1;
+
+    public interface Listener {
+        void onChanged();
+    }
+
+    private static class Registration {
+        final Lifecycle lifecycle;
+        final int groupId;
+        final Listener listener;
+
+        Registration(Lifecycle lifecycle, int groupId, Listener listener) {
+            this.lifecycle = lifecycle;
+            this.groupId = groupId;
+            this.listener = listener;
+        }
+    }
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Guarded by this; written by database worker threads
+    private final Map<Integer, long[]> versions = new HashMap<>();
+    private final Set<Integer> pendingGroups = new HashSet<>();
+    private long clearCount;
+    private boolean dispatchPosted;
+
+    // Main thread only
+    private final List<Registration> registrations = new ArrayList<>();
+
+    /**
+     * Sum of the given tables' counters for the group. Counters only ever grow, so the sum changes
+     * exactly when one of the tables was written. Never equals -1, which callers can use as
+     * "nothing loaded yet".
+     */
+    public synchronized long getVersion(int groupId, Table... tables) {
+        long version = clearCount;
+        long[] counters = versions.get(groupId);
+        if (counters != null) {
+            for (Table table : tables) {
+                version += counters[table.ordinal()];
+            }
+        }
+        return version;
+    }
+
+    /** Calls the listener on the main thread after each change to the group. Main thread only. */
+    public void observe(LifecycleOwner owner, int groupId, Listener listener) {
+        Lifecycle lifecycle = owner.getLifecycle();
+        if (lifecycle.getCurrentState() == Lifecycle.State.DESTROYED) {
+            return;
+        }
+        Registration registration = new Registration(lifecycle, groupId, listener);
+        registrations.add(registration);
+        lifecycle.addObserver(new LifecycleEventObserver() {
+            @Override
+            public void onStateChanged(LifecycleOwner source, Lifecycle.Event event) {
+                if (event == Lifecycle.Event.ON_DESTROY) {
+                    registrations.remove(registration);
+                    lifecycle.removeObserver(this);
+                }
+            }
+        });
+    }
+
+    // Called by DatabaseHelper once a write has committed
+    synchronized void notifyChanged(int groupId, Table... tables) {
+        bump(groupId, tables);
+        bump(ALL_GROUPS, tables);
+        pendingGroups.add(groupId);
+        scheduleDispatch();
+    }
+
+    // Every table of every group changed, including groups nobody has asked about yet
+    synchronized void notifyAllChanged() {
+        clearCount++;
+        pendingGroups.add(ALL_GROUPS);
+        scheduleDispatch();
+    }
+
+    private void bump(int groupId, Table... tables) {
+        long[] counters = versions.get(groupId);
+        if (counters == null) {
+            counters = new long[Table.values().length];
+            versions.put(groupId, counters);
+        }
+        for (Table table : tables) {
+            counters[table.ordinal()]++;
+        }
+    }
+
+    // A write that touches several tables posts one dispatch, not one per table
+    private void scheduleDispatch() {
+        if (!dispatchPosted) {
+            dispatchPosted = true;
+            mainHandler.post(this::dispatch);
+        }
+    }
+
+    private void dispatch() {
+        Set<Integer> changed;
+        synchronized (this) {
+            changed = new HashSet<>(pendingGroups);
+            pendingGroups.clear();
+            dispatchPosted = false;
+        }
+        boolean everything = changed.contains(ALL_GROUPS);
+        // Listeners may register or unregister while we iterate
+        for (Registration registration : new ArrayList<>(registrations)) {
+            if (!registration.lifecycle.getCurrentState().isAtLeast(Lifecycle.State.RESUMED)) {
+                continue;
+            }
+            if (everything || registration.groupId == ALL_GROUPS || changed.contains(registration.groupId)) {
+                registration.listener.onChanged();
+            }
+        }
+    }
+}
@@ -5,93 +5,129 @@ import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteQueryBuilder;
+import android.database.sqlite.SQLiteStatement;
 import android.util.Log;
 
+import com.example.expensetracker.BuildConfig;
 import com.example.expensetracker.models.Expense;
+import com.example.expensetracker.models.ExpenseShare;
 import com.example.expensetracker.models.Group;
 import com.example.expensetracker.models.Member;
 import com.example.expensetracker.models.Settlement;
-
+import com.example.expensetracker.utils.AppLog;
+import com.example.expensetracker.utils.BalanceCalculator;
+import com.example.expensetracker.utils.LegacyShareParser;
+import com.example.expensetracker.utils.MoneyUtils;
+import com.example.expensetracker.utils.SettlementEngine;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
 
 public class DatabaseHelper extends SQLiteOpenHelper {
     private static final String TAG = "DatabaseHelper";
     private static final String DATABASE_NAME = "expense_tracker.db";
-    private static final int DATABASE_VERSION = 4;
+    private static final int DATABASE_VERSION = 10;
 
-    // Utility method to round values to 2 decimal places
-    private double roundToTwoDecimals(double value) {
-        return Math.round(value * 100.0) / 100.0;
-    }
+    // Table and column names, shared with the backup classes in this package
+    static final String TABLE_GROUPS = "groups";
+    static final String TABLE_EXPENSES = "expenses";
+    static final String TABLE_MEMBERS = "members";
+    static final String TABLE_SETTLEMENTS = "settlements";
+    static final String TABLE_EXPENSE_SHARES = "expense_shares";
+    static final String TABLE_EXPENSES_FTS = "expenses_fts";
 
-    // Table names
-    private static final String TABLE_GROUPS = "groups";
-    private static final String TABLE_EXPENSES = "expenses";
-    private static final String TABLE_MEMBERS = "members";
-    private static final String TABLE_SETTLEMENTS = "settlements";
+    /** Pass as the group id to search every group. */
+    public static final int ALL_GROUPS = -1;
 
     // Groups table columns
-    private static final String COLUMN_GROUP_ID = "group_id";
-    private static final String COLUMN_GROUP_NAME = "group_name";
-    private static final String COLUMN_GROUP_DESCRIPTION = "description";
-    private static final String COLUMN_CREATED_DATE = "created_date";
+    static final String COLUMN_GROUP_ID = "group_id";
+    static final String COLUMN_GROUP_NAME = "group_name";
+    static final String COLUMN_GROUP_DESCRIPTION = "description";
+    static final String COLUMN_CREATED_DATE = "created_date";
+    static final String COLUMN_TOTAL_EXPENSES_CENTS = "total_expenses_cents"; // Kept up to date by triggers
+    static final String COLUMN_EXPENSE_COUNT = "expense_count";
+    static final String COLUMN_MEMBER_COUNT = "member_count";
 
     // Expenses table columns
-    private static final String COLUMN_EXPENSE_ID = "expense_id";
-    private static final String COLUMN_EXPENSE_NAME = "expense_name";
-    private static final String COLUMN_AMOUNT = "amount";
-    private static final String COLUMN_PAYER = "payer";
-    private static final String COLUMN_PARTICIPANTS = "participants";
-    private static final String COLUMN_DATE = "date";
-    private static final String COLUMN_DESCRIPTION = "description";
-    private static final String COLUMN_CATEGORY = "category";
-    private static final String COLUMN_PARTICIPANT_AMOUNTS = "participant_amounts";
-    private static final String COLUMN_LOCATION = "location";
-    private static final String COLUMN_LATITUDE = "latitude";
-    private static final String COLUMN_LONGITUDE = "longitude";
+    static final String COLUMN_EXPENSE_ID = "expense_id";
+    static final String COLUMN_EXPENSE_NAME = "expense_name";
+    static final String COLUMN_AMOUNT = "amount"; // Legacy REAL column, replaced by amount_cents
+    static final String COLUMN_AMOUNT_CENTS = "amount_cents";
+    static final String COLUMN_PAYER = "payer";
+    static final String COLUMN_PAYER_MEMBER_ID = "payer_member_id"; // The member named by payer, or null
+    static final String COLUMN_PARTICIPANTS = "participants";
+    static final String COLUMN_DATE = "date";
+    static final String COLUMN_DESCRIPTION = "description";
+    static final String COLUMN_CATEGORY = "category";
+    static final String COLUMN_PARTICIPANT_AMOUNTS = "participant_amounts"; // Legacy, migrated to expense_shares
+    static final String COLUMN_LOCATION = "location";
+    static final String COLUMN_LATITUDE = "latitude";
+    static final String COLUMN_LONGITUDE = "longitude";
 
     // Members table columns
-    private static final String COLUMN_MEMBER_ID = "member_id";
-    private static final String COLUMN_MEMBER_NAME = "member_name";
-    private static final String COLUMN_EMAIL = "email";
-    private static final String COLUMN_PHONE_NUMBER = "phone_number";
-    private static final String COLUMN_TOTAL_OWED = "total_owed";
-    private static final String COLUMN_TOTAL_OWING = "total_owing";
-    private static final String COLUMN_BALANCE = "balance";
+    static final String COLUMN_MEMBER_ID = "member_id";
+    static final String COLUMN_MEMBER_NAME = "member_name";
+    static final String COLUMN_EMAIL = "email";
+    static final String COLUMN_PHONE_NUMBER = "phone_number";
+    static final String COLUMN_TOTAL_OWED = "total_owed"; // Legacy REAL columns, replaced by the *_cents ones
+    static final String COLUMN_TOTAL_OWING = "total_owing";
+    static final String COLUMN_BALANCE = "balance";
+    static final String COLUMN_TOTAL_OWED_CENTS = "total_owed_cents";
+    static final String COLUMN_TOTAL_OWING_CENTS = "total_owing_cents";
+    static final String COLUMN_BALANCE_CENTS = "balance_cents";
 
     // Settlements table columns
-    private static final String COLUMN_SETTLEMENT_ID = "settlement_id";
-    private static final String COLUMN_FROM_MEMBER = "from_member";
-    private static final String COLUMN_TO_MEMBER = "to_member";
-    private static final String COLUMN_FROM_MEMBER_ID = "from_member_id";
-    private static final String COLUMN_TO_MEMBER_ID = "to_member_id";
-    private static final String COLUMN_SETTLEMENT_AMOUNT = "settlement_amount";
-    private static final String COLUMN_IS_SETTLED = "is_settled";
-    private static final String COLUMN_SETTLEMENT_DATE = "settlement_date";
+    static final String COLUMN_SETTLEMENT_ID = "settlement_id";
+    static final String COLUMN_FROM_MEMBER = "from_member";
+    static final String COLUMN_TO_MEMBER = "to_member";
+    static final String COLUMN_FROM_MEMBER_ID = "from_member_id";
+    static final String COLUMN_TO_MEMBER_ID = "to_member_id";
+    static final String COLUMN_SETTLEMENT_AMOUNT = "settlement_amount"; // Legacy REAL column
+    static final String COLUMN_IS_SETTLED = "is_settled";
+    static final String COLUMN_SETTLEMENT_DATE = "settlement_date";
+
+    // Expense shares table columns
+    static final String COLUMN_SHARE_CENTS = "share_cents";
 
     // Create table statements
     private static final String CREATE_TABLE_GROUPS = "CREATE TABLE " + TABLE_GROUPS + "("
             + COLUMN_GROUP_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
             + COLUMN_GROUP_NAME + " TEXT NOT NULL,"
             + COLUMN_GROUP_DESCRIPTION + " TEXT,"
-            + COLUMN_CREATED_DATE + " TEXT"
+            + COLUMN_CREATED_DATE + " TEXT,"
+            + COLUMN_TOTAL_EXPENSES_CENTS + " INTEGER NOT NULL DEFAULT 0,"
+            + COLUMN_EXPENSE_COUNT + " INTEGER NOT NULL DEFAULT 0,"
+            + COLUMN_MEMBER_COUNT + " INTEGER NOT NULL DEFAULT 0"
             + ")";
 
     private static final String CREATE_TABLE_EXPENSES = "CREATE TABLE " + TABLE_EXPENSES + "("
             + COLUMN_EXPENSE_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
             + COLUMN_GROUP_ID + " INTEGER NOT NULL,"
             + COLUMN_EXPENSE_NAME + " TEXT NOT NULL,"
-            + COLUMN_AMOUNT + " REAL NOT NULL,"
+            + COLUMN_AMOUNT_CENTS + " INTEGER NOT NULL,"
             + COLUMN_PAYER + " TEXT NOT NULL,"
             + COLUMN_PARTICIPANTS + " TEXT NOT NULL,"
-            + COLUMN_PARTICIPANT_AMOUNTS + " TEXT,"
             + COLUMN_DATE + " TEXT NOT NULL,"
             + COLUMN_DESCRIPTION + " TEXT,"
             + COLUMN_CATEGORY + " TEXT,"
             + COLUMN_LOCATION + " TEXT,"
             + COLUMN_LATITUDE + " REAL,"
             + COLUMN_LONGITUDE + " REAL,"
+            + COLUMN_PAYER_MEMBER_ID + " INTEGER,"
             + "FOREIGN KEY(" + COLUMN_GROUP_ID + ") REFERENCES " + TABLE_GROUPS + "(" + COLUMN_GROUP_ID + ")"
             + ")";
 
@@ -101,13 +137,27 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             + COLUMN_MEMBER_NAME + " TEXT NOT NULL,"
             + COLUMN_EMAIL + " TEXT,"
             + COLUMN_PHONE_NUMBER + " TEXT,"
-            + COLUMN_TOTAL_OWED + " REAL DEFAULT 0,"
-            + COLUMN_TOTAL_OWING + " REAL DEFAULT 0,"
-            + COLUMN_BALANCE + " REAL DEFAULT 0,"
+            + COLUMN_TOTAL_OWED_CENTS + " INTEGER DEFAULT 0,"
+            + COLUMN_TOTAL_OWING_CENTS + " INTEGER DEFAULT 0,"
+            + COLUMN_BALANCE_CENTS + " INTEGER DEFAULT 0,"
             + "FOREIGN KEY(" + COLUMN_GROUP_ID + ") REFERENCES " + TABLE_GROUPS + "(" + COLUMN_GROUP_ID + ")"
             + ")";
 
     private static final String CREATE_TABLE_SETTLEMENTS = "CREATE TABLE " + TABLE_SETTLEMENTS + "("
+            + COLUMN_SETTLEMENT_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
+            + COLUMN_GROUP_ID + " INTEGER NOT NULL,"
+            + COLUMN_FROM_MEMBER + " TEXT NOT NULL,"
+            + COLUMN_TO_MEMBER + " TEXT NOT NULL,"
+            + COLUMN_FROM_MEMBER_ID + " INTEGER NOT NULL,"
+            + COLUMN_TO_MEMBER_ID + " INTEGER NOT NULL,"
+            + COLUMN_AMOUNT_CENTS + " INTEGER NOT NULL,"
+            + COLUMN_IS_SETTLED + " INTEGER DEFAULT 0,"
+            + COLUMN_SETTLEMENT_DATE + " TEXT,"
+            + "FOREIGN KEY(" + COLUMN_GROUP_ID + ") REFERENCES " + TABLE_GROUPS + "(" + COLUMN_GROUP_ID + ")"
+            + ")";
+
+    // Settlements table as version 4 created it; later steps of onUpgrade expect this shape
+    private static final String CREATE_TABLE_SETTLEMENTS_V4 = "CREATE TABLE " + TABLE_SETTLEMENTS + "("
             + COLUMN_SETTLEMENT_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
             + COLUMN_GROUP_ID + " INTEGER NOT NULL,"
             + COLUMN_FROM_MEMBER + " TEXT NOT NULL,"
@@ -120,8 +170,247 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             + "FOREIGN KEY(" + COLUMN_GROUP_ID + ") REFERENCES " + TABLE_GROUPS + "(" + COLUMN_GROUP_ID + ")"
             + ")";
 
-    public DatabaseHelper(Context context) {
-        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    private static final String CREATE_TABLE_EXPENSE_SHARES = "CREATE TABLE " + TABLE_EXPENSE_SHARES + "("
+            + COLUMN_EXPENSE_ID + " INTEGER NOT NULL,"
+            + COLUMN_MEMBER_ID + " INTEGER NOT NULL,"
+            + COLUMN_SHARE_CENTS + " INTEGER NOT NULL,"
+            + "PRIMARY KEY(" + COLUMN_EXPENSE_ID + ", " + COLUMN_MEMBER_ID + "),"
+            + "FOREIGN KEY(" + COLUMN_EXPENSE_ID + ") REFERENCES " + TABLE_EXPENSES + "(" + COLUMN_EXPENSE_ID + "),"
+            + "FOREIGN KEY(" + COLUMN_MEMBER_ID + ") REFERENCES " + TABLE_MEMBERS + "(" + COLUMN_MEMBER_ID + ")"
+            + ")";
+
+    // Full-text index over the searchable text of expenses. It is an external content table: the text
+    // is only stored in expenses, and the triggers below keep the index in step with every insert,
+    // edit and delete. FTS5 is not compiled into Android's SQLite, so this is FTS4. The 2 and 3
+    // letter prefix indexes make short prefix searches a lookup instead of a term range scan.
+    private static final String CREATE_TABLE_EXPENSES_FTS = "CREATE VIRTUAL TABLE " + TABLE_EXPENSES_FTS
+            + " USING fts4(content=\"" + TABLE_EXPENSES + "\", " + COLUMN_EXPENSE_NAME + ", " + COLUMN_DESCRIPTION
+            + ", " + COLUMN_CATEGORY + ", " + COLUMN_LOCATION + ", prefix=\"2,3\", tokenize=unicode61)";
+
+    private static final String SEARCH_COLUMNS = COLUMN_EXPENSE_NAME + ", " + COLUMN_DESCRIPTION + ", "
+            + COLUMN_CATEGORY + ", " + COLUMN_LOCATION;
+    private static final String INDEX_NEW_EXPENSE = "INSERT INTO " + TABLE_EXPENSES_FTS + "(docid, " + SEARCH_COLUMNS
+            + ") VALUES (new." + COLUMN_EXPENSE_ID + ", new." + COLUMN_EXPENSE_NAME + ", new." + COLUMN_DESCRIPTION
+            + ", new." + COLUMN_CATEGORY + ", new." + COLUMN_LOCATION + ");";
+    private static final String UNINDEX_OLD_EXPENSE = "DELETE FROM " + TABLE_EXPENSES_FTS + " WHERE docid = old."
+            + COLUMN_EXPENSE_ID + ";";
+
+    // An external content index has to drop the old text before the row changes, while it can still
+    // be read, and add the new text afterwards. Edits that leave the text alone skip both.
+    private static final String[] CREATE_SEARCH_TRIGGERS = {
+            "CREATE TRIGGER expenses_fts_ai AFTER INSERT ON " + TABLE_EXPENSES + " BEGIN " + INDEX_NEW_EXPENSE + " END",
+            "CREATE TRIGGER expenses_fts_bd BEFORE DELETE ON " + TABLE_EXPENSES + " BEGIN " + UNINDEX_OLD_EXPENSE
+                    + " END",
+            "CREATE TRIGGER expenses_fts_bu BEFORE UPDATE OF " + SEARCH_COLUMNS + " ON " + TABLE_EXPENSES + " BEGIN "
+                    + UNINDEX_OLD_EXPENSE + " END",
+            "CREATE TRIGGER expenses_fts_au AFTER UPDATE OF " + SEARCH_COLUMNS + " ON " + TABLE_EXPENSES + " BEGIN "
+                    + INDEX_NEW_EXPENSE + " END"
+    };
+
+    // The expense total and counts on each groups row are kept exact by these triggers, so screens read
+    // them with the group instead of aggregating its expenses and members. Moving an expense or member
+    // to another group, or changing an amount, takes it off the old row and adds it to the new one.
+    private static final String[] CREATE_GROUP_TOTALS_TRIGGERS = {
+            "CREATE TRIGGER expenses_totals_ai AFTER INSERT ON " + TABLE_EXPENSES + " BEGIN "
+                    + addExpenseToGroup("new", "+") + " END",
+            "CREATE TRIGGER expenses_totals_ad AFTER DELETE ON " + TABLE_EXPENSES + " BEGIN "
+                    + addExpenseToGroup("old", "-") + " END",
+            "CREATE TRIGGER expenses_totals_au AFTER UPDATE OF " + COLUMN_GROUP_ID + ", " + COLUMN_AMOUNT_CENTS
+                    + " ON " + TABLE_EXPENSES + " BEGIN " + addExpenseToGroup("old", "-")
+                    + addExpenseToGroup("new", "+") + " END",
+            "CREATE TRIGGER members_count_ai AFTER INSERT ON " + TABLE_MEMBERS + " BEGIN "
+                    + addMemberToGroup("new", "+") + " END",
+            "CREATE TRIGGER members_count_ad AFTER DELETE ON " + TABLE_MEMBERS + " BEGIN "
+                    + addMemberToGroup("old", "-") + " END",
+            "CREATE TRIGGER members_count_au AFTER UPDATE OF " + COLUMN_GROUP_ID + " ON " + TABLE_MEMBERS + " BEGIN "
+                    + addMemberToGroup("old", "-") + addMemberToGroup("new", "+") + " END"
+    };
+
+    // Recounts every group from scratch, for rows written before the triggers existed
+    private static final String REFRESH_GROUP_TOTALS = "UPDATE " + TABLE_GROUPS + " SET "
+            + COLUMN_TOTAL_EXPENSES_CENTS + " = (SELECT COALESCE(SUM(" + COLUMN_AMOUNT_CENTS + "), 0) FROM "
+            + TABLE_EXPENSES + " e WHERE e." + COLUMN_GROUP_ID + " = " + TABLE_GROUPS + "." + COLUMN_GROUP_ID + "), "
+            + COLUMN_EXPENSE_COUNT + " = (SELECT COUNT(*) FROM " + TABLE_EXPENSES + " e WHERE e." + COLUMN_GROUP_ID
+            + " = " + TABLE_GROUPS + "." + COLUMN_GROUP_ID + "), "
+            + COLUMN_MEMBER_COUNT + " = (SELECT COUNT(*) FROM " + TABLE_MEMBERS + " m WHERE m." + COLUMN_GROUP_ID
+            + " = " + TABLE_GROUPS + "." + COLUMN_GROUP_ID + ")";
+
+    // Secondary indexes for the group-scoped and name-keyed lookups
+    private static final String[] CREATE_INDEXES = {
+            "CREATE INDEX IF NOT EXISTS idx_expenses_group_date ON " + TABLE_EXPENSES
+                    + "(" + COLUMN_GROUP_ID + ", " + COLUMN_DATE + ")",
+            "CREATE INDEX IF NOT EXISTS idx_members_group_name ON " + TABLE_MEMBERS
+                    + "(" + COLUMN_GROUP_ID + ", " + COLUMN_MEMBER_NAME + ")",
+            "CREATE INDEX IF NOT EXISTS idx_settlements_group_members ON " + TABLE_SETTLEMENTS
+                    + "(" + COLUMN_GROUP_ID + ", " + COLUMN_FROM_MEMBER + ", " + COLUMN_TO_MEMBER + ")",
+            "CREATE INDEX IF NOT EXISTS idx_expense_shares_member ON " + TABLE_EXPENSE_SHARES
+                    + "(" + COLUMN_MEMBER_ID + ", " + COLUMN_EXPENSE_ID + ")",
+            // Serves samePerson(member_name, ...), which the plain name index cannot
+            "CREATE INDEX IF NOT EXISTS idx_members_group_name_key ON " + TABLE_MEMBERS
+                    + "(" + COLUMN_GROUP_ID + ", TRIM(" + COLUMN_MEMBER_NAME + ") COLLATE NOCASE)"
+    };
+
+    // The member who paid the expenses row being updated: the first one whose name matches its payer,
+    // see samePerson. Found through idx_members_group_name_key.
+    private static final String PAYER_ID_OF_EXPENSE = "(SELECT p." + COLUMN_MEMBER_ID + " FROM " + TABLE_MEMBERS
+            + " p WHERE p." + COLUMN_GROUP_ID + " = " + TABLE_EXPENSES + "." + COLUMN_GROUP_ID + " AND "
+            + samePerson("p." + COLUMN_MEMBER_NAME, TABLE_EXPENSES + "." + COLUMN_PAYER) + " ORDER BY p."
+            + COLUMN_MEMBER_ID + " LIMIT 1)";
+
+    // payer_member_id is set when an expense is written. These fill it in for expenses whose payer had
+    // no member yet, or whose member was deleted, once the members change.
+    static final String RESOLVE_PAYERS = "UPDATE " + TABLE_EXPENSES + " SET " + COLUMN_PAYER_MEMBER_ID
+            + " = " + PAYER_ID_OF_EXPENSE + " WHERE " + COLUMN_PAYER_MEMBER_ID + " IS NULL";
+    static final String RESOLVE_GROUP_PAYERS = RESOLVE_PAYERS + " AND " + COLUMN_GROUP_ID + "=?";
+
+    static final String MEMBER_NAME_QUERY = "SELECT " + COLUMN_GROUP_ID + ", " + COLUMN_MEMBER_NAME + " FROM "
+            + TABLE_MEMBERS + " WHERE " + COLUMN_MEMBER_ID + "=?";
+
+    // Java side of PAYER_ID_OF_EXPENSE, for the payer_member_id of an expense being written
+    static final String PAYER_ID_QUERY = "SELECT " + COLUMN_MEMBER_ID + " FROM " + TABLE_MEMBERS + " WHERE "
+            + COLUMN_GROUP_ID + "=? AND " + samePerson(COLUMN_MEMBER_NAME, "?") + " ORDER BY " + COLUMN_MEMBER_ID
+            + " LIMIT 1";
+
+    // Per-member totals in cents for one group. Every share not held by the payer is owed by its member;
+    // the payer gets back the expense amount minus their own share (zero if they are not a participant).
+    // Same rules as BalanceCalculator, so a full rebuild agrees with the incremental deltas. The payer
+    // comes from payer_member_id, so the cost is one pass over the group's expenses and their shares.
+    static final String BALANCE_TOTALS_QUERY = "SELECT " + COLUMN_MEMBER_ID
+            + ", SUM(owed_cents), SUM(owing_cents) FROM ("
+            + "SELECT s." + COLUMN_MEMBER_ID + " AS " + COLUMN_MEMBER_ID + ", s." + COLUMN_SHARE_CENTS
+            + " AS owed_cents, 0 AS owing_cents"
+            + " FROM " + TABLE_EXPENSE_SHARES + " s"
+            + " JOIN " + TABLE_EXPENSES + " e ON e." + COLUMN_EXPENSE_ID + " = s." + COLUMN_EXPENSE_ID
+            + " WHERE e." + COLUMN_GROUP_ID + "=? AND s." + COLUMN_MEMBER_ID + " IS NOT e." + COLUMN_PAYER_MEMBER_ID
+            + " UNION ALL"
+            + " SELECT e." + COLUMN_PAYER_MEMBER_ID + ", 0, e." + COLUMN_AMOUNT_CENTS + " - COALESCE(s."
+            + COLUMN_SHARE_CENTS + ", 0)"
+            + " FROM " + TABLE_EXPENSES + " e"
+            + " LEFT JOIN " + TABLE_EXPENSE_SHARES + " s ON s." + COLUMN_EXPENSE_ID + " = e." + COLUMN_EXPENSE_ID
+            + " AND s." + COLUMN_MEMBER_ID + " = e." + COLUMN_PAYER_MEMBER_ID
+            + " WHERE e." + COLUMN_GROUP_ID + "=? AND e." + COLUMN_PAYER_MEMBER_ID + " IS NOT NULL"
+            + ") GROUP BY " + COLUMN_MEMBER_ID;
+
+    // Home screen summary: every group with its expense total and member count, read straight off
+    // the groups rows the triggers keep up to date
+    static final String GROUP_SUMMARY_QUERY = "SELECT " + GroupRowMapper.PROJECTION + " FROM " + TABLE_GROUPS
+            + " ORDER BY " + COLUMN_CREATED_DATE + " DESC";
+
+    // Keyset pages of a group's expenses, newest first. expense_id breaks ties between expenses on the
+    // same date. The next page starts after the last (date, expense_id) seen; "date <= ?" gives the
+    // index a range to seek to, so a deep page costs the same as the first one.
+    static final String EXPENSES_FIRST_PAGE_QUERY = "SELECT " + ExpenseRowMapper.PROJECTION + " FROM " + TABLE_EXPENSES
+            + " WHERE " + COLUMN_GROUP_ID + "=?"
+            + " ORDER BY " + COLUMN_DATE + " DESC, " + COLUMN_EXPENSE_ID + " DESC LIMIT ?";
+    static final String EXPENSES_NEXT_PAGE_QUERY = "SELECT " + ExpenseRowMapper.PROJECTION + " FROM " + TABLE_EXPENSES
+            + " WHERE " + COLUMN_GROUP_ID + "=? AND " + COLUMN_DATE + "<=?"
+            + " AND (" + COLUMN_DATE + "<? OR " + COLUMN_EXPENSE_ID + "<?)"
+            + " ORDER BY " + COLUMN_DATE + " DESC, " + COLUMN_EXPENSE_ID + " DESC LIMIT ?";
+
+    // Full-text matches with the matchinfo counters searchExpenses ranks them by. The group-scoped form
+    // uses CROSS JOIN to keep the full-text index as the outer loop; left to itself SQLite walks the
+    // group's expenses and runs the whole full-text query again for each one.
+    static final String SEARCH_QUERY = "SELECT docid, matchinfo(" + TABLE_EXPENSES_FTS + ", 'pcx') FROM "
+            + TABLE_EXPENSES_FTS + " WHERE " + TABLE_EXPENSES_FTS + " MATCH ?";
+    static final String SEARCH_GROUP_QUERY = "SELECT " + TABLE_EXPENSES_FTS + ".docid, matchinfo("
+            + TABLE_EXPENSES_FTS + ", 'pcx') FROM " + TABLE_EXPENSES_FTS + " CROSS JOIN " + TABLE_EXPENSES
+            + " e ON e." + COLUMN_EXPENSE_ID + " = " + TABLE_EXPENSES_FTS + ".docid WHERE " + TABLE_EXPENSES_FTS
+            + " MATCH ? AND e." + COLUMN_GROUP_ID + "=?";
+
+    // Expenses one member holds a share of, newest first. CROSS JOIN makes SQLite start from the member's
+    // share rows (idx_expense_shares_member) instead of walking the whole group by date and probing the
+    // shares of every expense; only the member's own expenses are sorted.
+    static final String MEMBER_EXPENSES_QUERY = "SELECT " + RowMapper.qualified("e", ExpenseRowMapper.COLUMNS)
+            + " FROM " + TABLE_EXPENSE_SHARES + " s CROSS JOIN "
+            + TABLE_EXPENSES + " e ON e." + COLUMN_EXPENSE_ID + " = s." + COLUMN_EXPENSE_ID
+            + " WHERE s." + COLUMN_MEMBER_ID + "=? AND e." + COLUMN_GROUP_ID + "=?"
+            + " ORDER BY e." + COLUMN_DATE + " DESC, e." + COLUMN_EXPENSE_ID + " DESC";
+
+    // Confirmed payments of a group in the order they were recorded, for rebuildBalances
+    static final String SETTLED_SETTLEMENTS_QUERY = "SELECT " + COLUMN_FROM_MEMBER + ", " + COLUMN_TO_MEMBER + ", "
+            + COLUMN_AMOUNT_CENTS + " FROM " + TABLE_SETTLEMENTS + " WHERE " + COLUMN_GROUP_ID + "=? AND "
+            + COLUMN_IS_SETTLED + "=1 ORDER BY " + COLUMN_SETTLEMENT_ID;
+
+    // Row reads, selecting only the columns their RowMapper reads
+    static final String GROUP_BY_ID_QUERY = "SELECT " + GroupRowMapper.PROJECTION + " FROM " + TABLE_GROUPS
+            + " WHERE " + COLUMN_GROUP_ID + "=?";
+    static final String GROUP_EXPENSES_QUERY = "SELECT " + ExpenseRowMapper.PROJECTION + " FROM " + TABLE_EXPENSES
+            + " WHERE " + COLUMN_GROUP_ID + "=? ORDER BY " + COLUMN_DATE + " DESC";
+    static final String EXPENSE_BY_ID_QUERY = "SELECT " + ExpenseRowMapper.PROJECTION + " FROM " + TABLE_EXPENSES
+            + " WHERE " + COLUMN_EXPENSE_ID + "=?";
+    static final String GROUP_MEMBERS_QUERY = "SELECT " + MemberRowMapper.PROJECTION + " FROM " + TABLE_MEMBERS
+            + " WHERE " + COLUMN_GROUP_ID + "=?";
+    static final String GROUP_SETTLEMENTS_QUERY = "SELECT " + SettlementRowMapper.PROJECTION + " FROM "
+            + TABLE_SETTLEMENTS + " WHERE " + COLUMN_GROUP_ID + "=? ORDER BY " + COLUMN_SETTLEMENT_ID + " ASC";
+
+    // How much a hit in each searchable column counts, in the column order of expenses_fts
+    private static final double[] SEARCH_COLUMN_WEIGHTS = { 4.0, 1.0, 2.0, 2.0 };
+
+    // Compiled inserts, reused for every row of a batch
+    static final String INSERT_GROUP = "INSERT INTO " + TABLE_GROUPS + " (" + COLUMN_GROUP_NAME + ", "
+            + COLUMN_GROUP_DESCRIPTION + ", " + COLUMN_CREATED_DATE + ") VALUES (?, ?, ?)";
+
+    static final String INSERT_EXPENSE = "INSERT INTO " + TABLE_EXPENSES + " (" + COLUMN_GROUP_ID + ", "
+            + COLUMN_EXPENSE_NAME + ", " + COLUMN_AMOUNT_CENTS + ", " + COLUMN_PAYER + ", " + COLUMN_PARTICIPANTS + ", "
+            + COLUMN_DATE + ", " + COLUMN_DESCRIPTION + ", " + COLUMN_CATEGORY + ", " + COLUMN_LOCATION + ", "
+            + COLUMN_LATITUDE + ", " + COLUMN_LONGITUDE + ", " + COLUMN_PAYER_MEMBER_ID
+            + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    static final String INSERT_SHARE = "INSERT OR IGNORE INTO " + TABLE_EXPENSE_SHARES + " ("
+            + COLUMN_EXPENSE_ID + ", " + COLUMN_MEMBER_ID + ", " + COLUMN_SHARE_CENTS + ") VALUES (?, ?, ?)";
+
+    static final String INSERT_MEMBER = "INSERT INTO " + TABLE_MEMBERS + " (" + COLUMN_GROUP_ID + ", "
+            + COLUMN_MEMBER_NAME + ", " + COLUMN_EMAIL + ", " + COLUMN_PHONE_NUMBER + ", " + COLUMN_TOTAL_OWED_CENTS
+            + ", " + COLUMN_TOTAL_OWING_CENTS + ", " + COLUMN_BALANCE_CENTS + ") VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    static final String INSERT_SETTLEMENT = "INSERT INTO " + TABLE_SETTLEMENTS + " (" + COLUMN_GROUP_ID
+            + ", " + COLUMN_FROM_MEMBER + ", " + COLUMN_TO_MEMBER + ", " + COLUMN_FROM_MEMBER_ID + ", "
+            + COLUMN_TO_MEMBER_ID + ", " + COLUMN_AMOUNT_CENTS + ", " + COLUMN_IS_SETTLED + ", "
+            + COLUMN_SETTLEMENT_DATE + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String APPLY_BALANCE_DELTA = "UPDATE " + TABLE_MEMBERS + " SET "
+            + COLUMN_TOTAL_OWED_CENTS + " = " + COLUMN_TOTAL_OWED_CENTS + " + ?, "
+            + COLUMN_TOTAL_OWING_CENTS + " = " + COLUMN_TOTAL_OWING_CENTS + " + ?, "
+            + COLUMN_BALANCE_CENTS + " = " + COLUMN_BALANCE_CENTS + " + ?"
+            + " WHERE " + COLUMN_MEMBER_ID + "=?";
+
+    private static final String WRITE_BALANCE_TOTALS = "UPDATE " + TABLE_MEMBERS + " SET "
+            + COLUMN_TOTAL_OWED_CENTS + "=?, " + COLUMN_TOTAL_OWING_CENTS + "=?, " + COLUMN_BALANCE_CENTS + "=? WHERE "
+            + COLUMN_MEMBER_ID + "=?";
+
+    private static DatabaseHelper instance;
+
+    private final ChangeNotifier changeNotifier = new ChangeNotifier();
+
+    // Only debug builds pay for timing; see the Query Stats screen
+    private final QueryProfiler profiler = new QueryProfiler(BuildConfig.DEBUG);
+
+    // One app-scoped helper, so every screen shares the same open connection.
+    // Callers must not close the database; it lives as long as the process.
+    public static synchronized DatabaseHelper getInstance(Context context) {
+        if (instance == null) {
+            instance = new DatabaseHelper(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private DatabaseHelper(Context context) {
+        this(context, DATABASE_NAME);
+    }
+
+    // A helper on its own file, for instrumented tests that must not touch the app's data
+    DatabaseHelper(Context context, String name) {
+        super(context, name, null, DATABASE_VERSION);
+        // WAL lets readers run alongside a writer on the shared connection pool
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    public ChangeNotifier getChangeNotifier() {
+        return changeNotifier;
+    }
+
+    public QueryProfiler getQueryProfiler() {
+        return profiler;
     }
 
     @Override
@@ -130,6 +419,10 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         db.execSQL(CREATE_TABLE_EXPENSES);
         db.execSQL(CREATE_TABLE_MEMBERS);
         db.execSQL(CREATE_TABLE_SETTLEMENTS);
+        db.execSQL(CREATE_TABLE_EXPENSE_SHARES);
+        createIndexes(db);
+        createSearchIndex(db);
+        createGroupTotalsTriggers(db);
         Log.d(TAG, "Database tables created");
     }
 
@@ -148,8 +441,176 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         }
         if (oldVersion < 4) {
             // Create settlements table
-            db.execSQL(CREATE_TABLE_SETTLEMENTS);
+            db.execSQL(CREATE_TABLE_SETTLEMENTS_V4);
+        }
+        if (oldVersion < 5) {
+            // Move comma-joined participant strings into typed share rows
+            db.execSQL(CREATE_TABLE_EXPENSE_SHARES);
+            migrateParticipantStringsToShares(db);
+        }
+        if (oldVersion < 6) {
+            // Index the group-scoped and name-keyed columns
+            createIndexes(db);
+        }
+        if (oldVersion < 7) {
+            // Store money as integer cents; drops the legacy participant_amounts column
+            String expenseColumns = COLUMN_EXPENSE_ID + ", " + COLUMN_GROUP_ID + ", " + COLUMN_EXPENSE_NAME + ", %s, "
+                    + COLUMN_PAYER + ", " + COLUMN_PARTICIPANTS + ", " + COLUMN_DATE + ", " + COLUMN_DESCRIPTION + ", "
+                    + COLUMN_CATEGORY + ", " + COLUMN_LOCATION + ", " + COLUMN_LATITUDE + ", " + COLUMN_LONGITUDE;
+            rebuildTable(db, TABLE_EXPENSES, CREATE_TABLE_EXPENSES,
+                    String.format(expenseColumns, COLUMN_AMOUNT_CENTS),
+                    String.format(expenseColumns, centsOf(COLUMN_AMOUNT)));
+
+            String memberColumns = COLUMN_MEMBER_ID + ", " + COLUMN_GROUP_ID + ", " + COLUMN_MEMBER_NAME + ", "
+                    + COLUMN_EMAIL + ", " + COLUMN_PHONE_NUMBER + ", %s, %s, %s";
+            rebuildTable(db, TABLE_MEMBERS, CREATE_TABLE_MEMBERS,
+                    String.format(memberColumns, COLUMN_TOTAL_OWED_CENTS, COLUMN_TOTAL_OWING_CENTS,
+                            COLUMN_BALANCE_CENTS),
+                    String.format(memberColumns, centsOf(COLUMN_TOTAL_OWED), centsOf(COLUMN_TOTAL_OWING),
+                            centsOf(COLUMN_BALANCE)));
+
+            String settlementColumns = COLUMN_SETTLEMENT_ID + ", " + COLUMN_GROUP_ID + ", " + COLUMN_FROM_MEMBER + ", "
+                    + COLUMN_TO_MEMBER + ", " + COLUMN_FROM_MEMBER_ID + ", " + COLUMN_TO_MEMBER_ID + ", %s, "
+                    + COLUMN_IS_SETTLED + ", " + COLUMN_SETTLEMENT_DATE;
+            rebuildTable(db, TABLE_SETTLEMENTS, CREATE_TABLE_SETTLEMENTS,
+                    String.format(settlementColumns, COLUMN_AMOUNT_CENTS),
+                    String.format(settlementColumns, centsOf(COLUMN_SETTLEMENT_AMOUNT)));
+
+            // Dropping the old tables dropped their indexes too
+            createIndexes(db);
+        }
+        if (oldVersion < 8) {
+            // Full-text search over expenses, filled from the existing rows
+            createSearchIndex(db);
+            db.execSQL("INSERT INTO " + TABLE_EXPENSES_FTS + "(" + TABLE_EXPENSES_FTS + ") VALUES ('rebuild')");
+        }
+        if (oldVersion < 9) {
+            // Trigger-maintained expense total and counts on groups, filled from the existing rows
+            db.execSQL("ALTER TABLE " + TABLE_GROUPS + " ADD COLUMN " + COLUMN_TOTAL_EXPENSES_CENTS
+                    + " INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("ALTER TABLE " + TABLE_GROUPS + " ADD COLUMN " + COLUMN_EXPENSE_COUNT
+                    + " INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("ALTER TABLE " + TABLE_GROUPS + " ADD COLUMN " + COLUMN_MEMBER_COUNT
+                    + " INTEGER NOT NULL DEFAULT 0");
+            db.execSQL(REFRESH_GROUP_TOTALS);
+            createGroupTotalsTriggers(db);
         }
+        if (oldVersion < 10) {
+            // Store each expense's payer as a member id, resolved from the existing names. Coming from
+            // before 7, the rebuild above already created expenses with the column.
+            if (oldVersion >= 7) {
+                db.execSQL("ALTER TABLE " + TABLE_EXPENSES + " ADD COLUMN " + COLUMN_PAYER_MEMBER_ID + " INTEGER");
+            }
+            createIndexes(db);
+            db.execSQL(RESOLVE_PAYERS);
+        }
+    }
+
+    // "UPDATE groups SET total = total + new.amount, count = count + 1 WHERE group_id = new.group_id;"
+    private static String addExpenseToGroup(String row, String sign) {
+        return "UPDATE " + TABLE_GROUPS + " SET " + COLUMN_TOTAL_EXPENSES_CENTS + " = " + COLUMN_TOTAL_EXPENSES_CENTS
+                + " " + sign + " " + row + "." + COLUMN_AMOUNT_CENTS + ", " + COLUMN_EXPENSE_COUNT + " = "
+                + COLUMN_EXPENSE_COUNT + " " + sign + " 1 WHERE " + COLUMN_GROUP_ID + " = " + row + "."
+                + COLUMN_GROUP_ID + ";";
+    }
+
+    private static String addMemberToGroup(String row, String sign) {
+        return "UPDATE " + TABLE_GROUPS + " SET " + COLUMN_MEMBER_COUNT + " = " + COLUMN_MEMBER_COUNT + " " + sign
+                + " 1 WHERE " + COLUMN_GROUP_ID + " = " + row + "." + COLUMN_GROUP_ID + ";";
+    }
+
+    private static String centsOf(String realColumn) {
+        return "CAST(ROUND(COALESCE(" + realColumn + ", 0) * 100) AS INTEGER)";
+    }
+
+    // SQLite before 3.35 cannot drop or retype a column, so copy into a new table and swap it in.
+    // The AUTOINCREMENT counter is carried over so deleted IDs are never handed out again.
+    private void rebuildTable(SQLiteDatabase db, String table, String createSql, String newColumns,
+            String selectColumns) {
+        String newTable = table + "_new";
+        db.execSQL(createSql.replaceFirst("CREATE TABLE " + table + "\\(", "CREATE TABLE " + newTable + "("));
+        db.execSQL("INSERT INTO " + newTable + " (" + newColumns + ") SELECT " + selectColumns + " FROM " + table);
+        // sqlite_sequence has no unique key on name, so replace the copy's row rather than INSERT OR REPLACE it.
+        // The old counter is never below the copied IDs, and an empty copy has no row to update.
+        db.execSQL("DELETE FROM sqlite_sequence WHERE name = '" + newTable + "'");
+        db.execSQL("INSERT INTO sqlite_sequence (name, seq) SELECT '" + newTable + "', seq FROM sqlite_sequence"
+                + " WHERE name = '" + table + "'");
+        db.execSQL("DROP TABLE " + table);
+        db.execSQL("ALTER TABLE " + newTable + " RENAME TO " + table);
+    }
+
+    private void createIndexes(SQLiteDatabase db) {
+        for (String createIndex : CREATE_INDEXES) {
+            db.execSQL(createIndex);
+        }
+    }
+
+    // rebuildTable drops the triggers with the expenses table, so a later rebuild has to call this again
+    private void createSearchIndex(SQLiteDatabase db) {
+        db.execSQL(CREATE_TABLE_EXPENSES_FTS);
+        for (String createTrigger : CREATE_SEARCH_TRIGGERS) {
+            db.execSQL(createTrigger);
+        }
+    }
+
+    // Like the search triggers, these go with the tables if rebuildTable ever rebuilds expenses or members
+    private void createGroupTotalsTriggers(SQLiteDatabase db) {
+        for (String createTrigger : CREATE_GROUP_TOTALS_TRIGGERS) {
+            db.execSQL(createTrigger);
+        }
+    }
+
+    // Converts the legacy participants / participant_amounts strings into expense_shares rows.
+    // Names are matched the same way the old recalculation did: trimmed and case-insensitive.
+    private void migrateParticipantStringsToShares(SQLiteDatabase db) {
+        Map<Integer, Map<String, Integer>> memberIdsByGroup = new HashMap<>();
+        Cursor memberCursor = db.query(TABLE_MEMBERS,
+                new String[] { COLUMN_MEMBER_ID, COLUMN_GROUP_ID, COLUMN_MEMBER_NAME },
+                null, null, null, null, COLUMN_MEMBER_ID + " ASC");
+        while (memberCursor.moveToNext()) {
+            Map<String, Integer> memberIds = memberIdsByGroup.get(memberCursor.getInt(1));
+            if (memberIds == null) {
+                memberIds = new HashMap<>();
+                memberIdsByGroup.put(memberCursor.getInt(1), memberIds);
+            }
+            String key = nameKey(memberCursor.getString(2));
+            if (!memberIds.containsKey(key)) {
+                memberIds.put(key, memberCursor.getInt(0));
+            }
+        }
+        memberCursor.close();
+
+        Cursor expenseCursor = db.query(TABLE_EXPENSES,
+                new String[] { COLUMN_EXPENSE_ID, COLUMN_GROUP_ID, COLUMN_AMOUNT, COLUMN_PARTICIPANTS,
+                        COLUMN_PARTICIPANT_AMOUNTS },
+                null, null, null, null, null);
+        int migrated = 0;
+        while (expenseCursor.moveToNext()) {
+            int expenseId = expenseCursor.getInt(0);
+            Map<String, Integer> memberIds = memberIdsByGroup.get(expenseCursor.getInt(1));
+            String participantsText = expenseCursor.getString(3);
+            if (memberIds == null || participantsText == null || participantsText.trim().isEmpty()) {
+                continue;
+            }
+
+            for (LegacyShareParser.Share share : LegacyShareParser.parse(participantsText,
+                    expenseCursor.getString(4), expenseCursor.getDouble(2))) {
+                Integer memberId = memberIds.get(nameKey(share.name));
+                if (memberId == null) {
+                    Log.w(TAG, "Skipping unknown participant '" + share.name + "' in expense " + expenseId);
+                    continue;
+                }
+
+                ContentValues values = new ContentValues();
+                values.put(COLUMN_EXPENSE_ID, expenseId);
+                values.put(COLUMN_MEMBER_ID, memberId);
+                values.put(COLUMN_SHARE_CENTS, share.cents);
+                db.insertWithOnConflict(TABLE_EXPENSE_SHARES, null, values, SQLiteDatabase.CONFLICT_IGNORE);
+            }
+            migrated++;
+        }
+        expenseCursor.close();
+        Log.d(TAG, "Migrated participant strings of " + migrated + " expenses to " + TABLE_EXPENSE_SHARES);
     }
 
     // Group CRUD operations
@@ -160,56 +621,30 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         values.put(COLUMN_GROUP_DESCRIPTION, group.getDescription());
         values.put(COLUMN_CREATED_DATE, group.getCreatedDate());
 
-        long id = db.insert(TABLE_GROUPS, null, values);
-        db.close();
+        long id = insert(db, TABLE_GROUPS, null, values);
+        if (id != -1) {
+            changeNotifier.notifyChanged((int) id, ChangeNotifier.Table.GROUPS);
+        }
         return id;
     }
 
     public List<Group> getAllGroups() {
-        List<Group> groups = new ArrayList<>();
-        String selectQuery = "SELECT * FROM " + TABLE_GROUPS + " ORDER BY " + COLUMN_CREATED_DATE + " DESC";
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery(selectQuery, null);
-
-        if (cursor.moveToFirst()) {
-            do {
-                Group group = new Group();
-                group.setGroupId(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_GROUP_ID)));
-                group.setGroupName(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_GROUP_NAME)));
-                group.setDescription(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_GROUP_DESCRIPTION)));
-                group.setCreatedDate(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_CREATED_DATE)));
-
-                // Calculate total expenses for this group
-                double totalExpenses = getTotalExpensesForGroup(group.getGroupId());
-                group.setTotalExpenses(totalExpenses);
-
-                // Calculate member count for this group
-                int memberCount = getMemberCountForGroup(group.getGroupId());
-                group.setMemberCount(memberCount);
-
-                groups.add(group);
-            } while (cursor.moveToNext());
-        }
+        Cursor cursor = rawQuery(db, GROUP_SUMMARY_QUERY, null);
+        List<Group> groups = new GroupRowMapper(cursor).mapAll(cursor);
         cursor.close();
-        db.close();
         return groups;
     }
 
     public Group getGroup(int groupId) {
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.query(TABLE_GROUPS, null, COLUMN_GROUP_ID + "=?",
-                new String[] { String.valueOf(groupId) }, null, null, null);
+        Cursor cursor = rawQuery(db, GROUP_BY_ID_QUERY, new String[] { String.valueOf(groupId) });
 
         Group group = null;
         if (cursor.moveToFirst()) {
-            group = new Group();
-            group.setGroupId(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_GROUP_ID)));
-            group.setGroupName(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_GROUP_NAME)));
-            group.setDescription(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_GROUP_DESCRIPTION)));
-            group.setCreatedDate(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_CREATED_DATE)));
+            group = new GroupRowMapper(cursor).map(cursor);
         }
         cursor.close();
-        db.close();
         return group;
     }
 
@@ -219,19 +654,21 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         values.put(COLUMN_GROUP_NAME, group.getGroupName());
         values.put(COLUMN_GROUP_DESCRIPTION, group.getDescription());
 
-        int result = db.update(TABLE_GROUPS, values, COLUMN_GROUP_ID + "=?",
+        int result = update(db, TABLE_GROUPS, values, COLUMN_GROUP_ID + "=?",
                 new String[] { String.valueOf(group.getGroupId()) });
-        db.close();
+        changeNotifier.notifyChanged(group.getGroupId(), ChangeNotifier.Table.GROUPS);
         return result > 0;
     }
 
     public boolean deleteGroup(int groupId) {
         SQLiteDatabase db = this.getWritableDatabase();
-        // Delete related expenses and members first
-        db.delete(TABLE_EXPENSES, COLUMN_GROUP_ID + "=?", new String[] { String.valueOf(groupId) });
-        db.delete(TABLE_MEMBERS, COLUMN_GROUP_ID + "=?", new String[] { String.valueOf(groupId) });
-        int result = db.delete(TABLE_GROUPS, COLUMN_GROUP_ID + "=?", new String[] { String.valueOf(groupId) });
-        db.close();
+        // Delete related shares, expenses and members first
+        delete(db, TABLE_EXPENSE_SHARES, COLUMN_EXPENSE_ID + " IN (SELECT " + COLUMN_EXPENSE_ID + " FROM "
+                + TABLE_EXPENSES + " WHERE " + COLUMN_GROUP_ID + "=?)", new String[] { String.valueOf(groupId) });
+        delete(db, TABLE_EXPENSES, COLUMN_GROUP_ID + "=?", new String[] { String.valueOf(groupId) });
+        delete(db, TABLE_MEMBERS, COLUMN_GROUP_ID + "=?", new String[] { String.valueOf(groupId) });
+        int result = delete(db, TABLE_GROUPS, COLUMN_GROUP_ID + "=?", new String[] { String.valueOf(groupId) });
+        changeNotifier.notifyChanged(groupId, ChangeNotifier.Table.values());
         return result > 0;
     }
 
@@ -242,10 +679,9 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             ContentValues values = new ContentValues();
             values.put(COLUMN_GROUP_ID, expense.getGroupId());
             values.put(COLUMN_EXPENSE_NAME, expense.getExpenseName());
-            values.put(COLUMN_AMOUNT, expense.getAmount());
+            values.put(COLUMN_AMOUNT_CENTS, expense.getAmountCents());
             values.put(COLUMN_PAYER, expense.getPayer());
             values.put(COLUMN_PARTICIPANTS, expense.getParticipants());
-            values.put(COLUMN_PARTICIPANT_AMOUNTS, expense.getParticipantAmounts());
             values.put(COLUMN_DATE, expense.getDate());
             values.put(COLUMN_DESCRIPTION, expense.getDescription());
             values.put(COLUMN_CATEGORY, expense.getCategory());
@@ -253,15 +689,25 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             values.put(COLUMN_LATITUDE, expense.getLatitude());
             values.put(COLUMN_LONGITUDE, expense.getLongitude());
 
-            long id = db.insert(TABLE_EXPENSES, null, values);
-            db.close();
-
-            // Update member balances after adding expense - with error handling
+            long id;
+            db.beginTransaction();
             try {
-                recalculateAllBalancesForGroup(expense.getGroupId());
-            } catch (Exception e) {
-                e.printStackTrace();
-                // Don't fail the expense addition if balance update fails
+                int payerId = findPayerId(db, expense.getGroupId(), expense.getPayer());
+                putPayerId(values, payerId);
+                id = insert(db, TABLE_EXPENSES, null, values);
+                if (id != -1) {
+                    insertShares(db, id, expense.getShares());
+                    // Apply only this expense to the affected members' balances
+                    applyExpenseToBalances(db, expense.getAmountCents(), payerId, expense.getShares(), 1);
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            if (id != -1) {
+                // Balances live on the member rows, so those changed too
+                changeNotifier.notifyChanged(expense.getGroupId(), ChangeNotifier.Table.EXPENSES,
+                        ChangeNotifier.Table.MEMBERS);
             }
             return id;
         } catch (Exception e) {
@@ -270,62 +716,226 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         }
     }
 
+    // Batch insert: all expenses and their shares in one transaction with reused statements.
+    // Each expense's balance delta goes through one compiled statement, with payers looked up once per name.
+    // Returns the number of expenses inserted; each expense gets its new ID set.
+    public int addExpenses(List<Expense> expenses) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        Set<Integer> groupIds = new HashSet<>();
+        Map<String, Integer> payerIds = new HashMap<>();
+        int inserted = 0;
+
+        db.beginTransaction();
+        try {
+            SQLiteStatement expenseStatement = db.compileStatement(INSERT_EXPENSE);
+            SQLiteStatement shareStatement = db.compileStatement(INSERT_SHARE);
+            SQLiteStatement deltaStatement = db.compileStatement(APPLY_BALANCE_DELTA);
+            long start = profiler.begin(INSERT_EXPENSE);
+            for (Expense expense : expenses) {
+                expenseStatement.clearBindings();
+                expenseStatement.bindLong(1, expense.getGroupId());
+                bindStringOrNull(expenseStatement, 2, expense.getExpenseName());
+                expenseStatement.bindLong(3, expense.getAmountCents());
+                bindStringOrNull(expenseStatement, 4, expense.getPayer());
+                bindStringOrNull(expenseStatement, 5, expense.getParticipants());
+                bindStringOrNull(expenseStatement, 6, expense.getDate());
+                bindStringOrNull(expenseStatement, 7, expense.getDescription());
+                bindStringOrNull(expenseStatement, 8, expense.getCategory());
+                bindStringOrNull(expenseStatement, 9, expense.getLocation());
+                expenseStatement.bindDouble(10, expense.getLatitude());
+                expenseStatement.bindDouble(11, expense.getLongitude());
+                String payerKey = expense.getGroupId() + "\u0000" + nameKey(expense.getPayer());
+                Integer payerId = payerIds.get(payerKey);
+                if (payerId == null) {
+                    payerId = findPayerId(db, expense.getGroupId(), expense.getPayer());
+                    payerIds.put(payerKey, payerId);
+                }
+                if (payerId == -1) {
+                    expenseStatement.bindNull(12);
+                } else {
+                    expenseStatement.bindLong(12, payerId);
+                }
+
+                long id = expenseStatement.executeInsert();
+                expense.setExpenseId((int) id);
+                insertShares(shareStatement, id, expense.getShares());
+                BalanceCalculator.applyExpense(expense.getAmountCents(), payerId, expense.getShares(), 1,
+                        (memberId, owedCents, owingCents) -> {
+                            bindBalanceDelta(deltaStatement, memberId, owedCents, owingCents);
+                            deltaStatement.executeUpdateDelete();
+                        });
+                groupIds.add(expense.getGroupId());
+                inserted++;
+            }
+            // Share inserts and balance deltas included
+            profiler.endBatch(INSERT_EXPENSE, inserted, start);
+            expenseStatement.close();
+            shareStatement.close();
+            deltaStatement.close();
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        for (int groupId : groupIds) {
+            changeNotifier.notifyChanged(groupId, ChangeNotifier.Table.EXPENSES, ChangeNotifier.Table.MEMBERS);
+        }
+        return inserted;
+    }
+
     public List<Expense> getExpensesForGroup(int groupId) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = rawQuery(db, GROUP_EXPENSES_QUERY, new String[] { String.valueOf(groupId) });
+        List<Expense> expenses = new ExpenseRowMapper(cursor).mapAll(cursor);
+        cursor.close();
+        return expenses;
+    }
+
+    /**
+     * One page of a group's expenses, newest first. Pass null for beforeDate to get the first page,
+     * then the date and id of the last expense of the previous page to get the next one.
+     */
+    public List<Expense> getExpensesPage(int groupId, String beforeDate, int beforeExpenseId, int limit) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor;
+        if (beforeDate == null) {
+            cursor = rawQuery(db, EXPENSES_FIRST_PAGE_QUERY,
+                    new String[] { String.valueOf(groupId), String.valueOf(limit) });
+        } else {
+            cursor = rawQuery(db, EXPENSES_NEXT_PAGE_QUERY, new String[] { String.valueOf(groupId), beforeDate,
+                    beforeDate, String.valueOf(beforeExpenseId), String.valueOf(limit) });
+        }
+
+        List<Expense> expenses = new ExpenseRowMapper(cursor).mapAll(cursor);
+        cursor.close();
+        return expenses;
+    }
+
+    /**
+     * Expenses whose name, description, category or location contain a word starting with each word
+     * of the query, best match first. A hit in the name counts most, and a word that is rare across
+     * all expenses counts more than a common one. Pass ALL_GROUPS to search every group.
+     */
+    public List<Expense> searchExpenses(int groupId, String query, int limit) {
         List<Expense> expenses = new ArrayList<>();
-        String selectQuery = "SELECT * FROM " + TABLE_EXPENSES + " WHERE " + COLUMN_GROUP_ID + "=? ORDER BY "
-                + COLUMN_DATE + " DESC";
+        String match = toMatchExpression(query);
+        if (match == null || limit <= 0) {
+            return expenses;
+        }
+
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery(selectQuery, new String[] { String.valueOf(groupId) });
+        Cursor cursor;
+        if (groupId == ALL_GROUPS) {
+            cursor = rawQuery(db, SEARCH_QUERY, new String[] { match });
+        } else {
+            cursor = rawQuery(db, SEARCH_GROUP_QUERY, new String[] { match, String.valueOf(groupId) });
+        }
 
-        if (cursor.moveToFirst()) {
-            do {
-                Expense expense = new Expense();
-                expense.setExpenseId(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_EXPENSE_ID)));
-                expense.setGroupId(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_GROUP_ID)));
-                expense.setExpenseName(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_EXPENSE_NAME)));
-                expense.setAmount(cursor.getDouble(cursor.getColumnIndexOrThrow(COLUMN_AMOUNT)));
-                expense.setPayer(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_PAYER)));
-                expense.setParticipants(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_PARTICIPANTS)));
-                expense.setParticipantAmounts(
-                        cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_PARTICIPANT_AMOUNTS)));
-                expense.setDate(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_DATE)));
-                expense.setDescription(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_DESCRIPTION)));
-                expense.setCategory(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_CATEGORY)));
-                expense.setLocation(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_LOCATION)));
-                expense.setLatitude(cursor.getDouble(cursor.getColumnIndexOrThrow(COLUMN_LATITUDE)));
-                expense.setLongitude(cursor.getDouble(cursor.getColumnIndexOrThrow(COLUMN_LONGITUDE)));
-                expenses.add(expense);
-            } while (cursor.moveToNext());
+        // Keep the best 'limit' hits; the head of the queue is the weakest one kept so far.
+        // Equal scores go to the newer expense.
+        Comparator<SearchHit> weakestFirst = (a, b) -> a.score != b.score ? Double.compare(a.score, b.score)
+                : Integer.compare(a.expenseId, b.expenseId);
+        PriorityQueue<SearchHit> best = new PriorityQueue<>(Math.min(limit, 256), weakestFirst);
+        while (cursor.moveToNext()) {
+            SearchHit hit = new SearchHit(cursor.getInt(0), scoreMatch(cursor.getBlob(1)));
+            if (best.size() < limit) {
+                best.add(hit);
+            } else if (weakestFirst.compare(hit, best.peek()) > 0) {
+                best.poll();
+                best.add(hit);
+            }
         }
         cursor.close();
-        // db.close();
+        if (best.isEmpty()) {
+            return expenses;
+        }
+
+        int[] rankedIds = new int[best.size()];
+        StringBuilder idList = new StringBuilder();
+        for (int i = rankedIds.length - 1; i >= 0; i--) {
+            rankedIds[i] = best.poll().expenseId;
+            idList.append(idList.length() == 0 ? "" : ",").append(rankedIds[i]);
+        }
+
+        // Ids are integers from the index, so they can go into the statement without escaping
+        Map<Integer, Expense> byId = new HashMap<>();
+        Cursor rowCursor = rawQuery(db, "SELECT " + ExpenseRowMapper.PROJECTION + " FROM " + TABLE_EXPENSES
+                + " WHERE " + COLUMN_EXPENSE_ID + " IN (" + idList + ")", null);
+        for (Expense expense : new ExpenseRowMapper(rowCursor).mapAll(rowCursor)) {
+            byId.put(expense.getExpenseId(), expense);
+        }
+        rowCursor.close();
+
+        for (int expenseId : rankedIds) {
+            Expense expense = byId.get(expenseId);
+            if (expense != null) {
+                expenses.add(expense);
+            }
+        }
         return expenses;
     }
 
+    private static class SearchHit {
+        final int expenseId;
+        final double score;
+
+        SearchHit(int expenseId, double score) {
+            this.expenseId = expenseId;
+            this.score = score;
+        }
+    }
+
+    // Turns what the user typed into an FTS query where every word has to match as a prefix:
+    // "Hotel Mar" becomes "hotel* mar*". Only letters and digits survive and everything is lower
+    // case, so no input can form an FTS operator (AND, OR, NOT and NEAR are upper case only).
+    // Returns null when nothing searchable is left.
+    static String toMatchExpression(String query) {
+        if (query == null) {
+            return null;
+        }
+        StringBuilder match = new StringBuilder();
+        StringBuilder word = new StringBuilder();
+        String lower = query.toLowerCase(Locale.ROOT);
+        for (int i = 0; i <= lower.length(); i++) {
+            char c = i < lower.length() ? lower.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                word.append(c);
+            } else if (word.length() > 0) {
+                match.append(match.length() == 0 ? "" : " ").append(word).append('*');
+                word.setLength(0);
+            }
+        }
+        return match.length() == 0 ? null : match.toString();
+    }
+
+    // Relevance from matchinfo 'pcx': for every query word and column, the hits in this row divided
+    // by the hits in all rows, times the column weight. Same idea as the rank function in the SQLite
+    // FTS documentation; FTS4 has no built-in ranking.
+    static double scoreMatch(byte[] matchinfo) {
+        IntBuffer values = ByteBuffer.wrap(matchinfo).order(ByteOrder.nativeOrder()).asIntBuffer();
+        int phraseCount = values.get(0);
+        int columnCount = values.get(1);
+        double score = 0;
+        for (int phrase = 0; phrase < phraseCount; phrase++) {
+            for (int column = 0; column < columnCount; column++) {
+                int offset = 2 + 3 * (phrase * columnCount + column);
+                int hitsInRow = values.get(offset);
+                if (hitsInRow > 0) {
+                    score += SEARCH_COLUMN_WEIGHTS[column] * hitsInRow / values.get(offset + 1);
+                }
+            }
+        }
+        return score;
+    }
+
     public Expense getExpenseById(int expenseId) {
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.query(TABLE_EXPENSES, null, COLUMN_EXPENSE_ID + "=?",
-                new String[] { String.valueOf(expenseId) }, null, null, null);
+        Cursor cursor = rawQuery(db, EXPENSE_BY_ID_QUERY, new String[] { String.valueOf(expenseId) });
 
         Expense expense = null;
         if (cursor.moveToFirst()) {
-            expense = new Expense();
-            expense.setExpenseId(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_EXPENSE_ID)));
-            expense.setGroupId(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_GROUP_ID)));
-            expense.setExpenseName(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_EXPENSE_NAME)));
-            expense.setAmount(cursor.getDouble(cursor.getColumnIndexOrThrow(COLUMN_AMOUNT)));
-            expense.setPayer(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_PAYER)));
-            expense.setParticipants(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_PARTICIPANTS)));
-            expense.setParticipantAmounts(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_PARTICIPANT_AMOUNTS)));
-            expense.setDate(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_DATE)));
-            expense.setDescription(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_DESCRIPTION)));
-            expense.setCategory(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_CATEGORY)));
-            expense.setLocation(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_LOCATION)));
-            expense.setLatitude(cursor.getDouble(cursor.getColumnIndexOrThrow(COLUMN_LATITUDE)));
-            expense.setLongitude(cursor.getDouble(cursor.getColumnIndexOrThrow(COLUMN_LONGITUDE)));
+            expense = new ExpenseRowMapper(cursor).map(cursor);
         }
         cursor.close();
-        db.close();
         return expense;
     }
 
@@ -333,10 +943,9 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         SQLiteDatabase db = this.getWritableDatabase();
         ContentValues values = new ContentValues();
         values.put(COLUMN_EXPENSE_NAME, expense.getExpenseName());
-        values.put(COLUMN_AMOUNT, expense.getAmount());
+        values.put(COLUMN_AMOUNT_CENTS, expense.getAmountCents());
         values.put(COLUMN_PAYER, expense.getPayer());
         values.put(COLUMN_PARTICIPANTS, expense.getParticipants());
-        values.put(COLUMN_PARTICIPANT_AMOUNTS, expense.getParticipantAmounts());
         values.put(COLUMN_DATE, expense.getDate());
         values.put(COLUMN_DESCRIPTION, expense.getDescription());
         values.put(COLUMN_CATEGORY, expense.getCategory());
@@ -344,36 +953,181 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         values.put(COLUMN_LATITUDE, expense.getLatitude());
         values.put(COLUMN_LONGITUDE, expense.getLongitude());
 
-        int result = db.update(TABLE_EXPENSES, values, COLUMN_EXPENSE_ID + "=?",
-                new String[] { String.valueOf(expense.getExpenseId()) });
-        db.close();
-
-        // Update member balances after updating expense
-        updateMemberBalances(expense.getGroupId());
+        int result = 0;
+        LedgerEntry oldExpense;
+        db.beginTransaction();
+        try {
+            oldExpense = readLedgerEntry(db, expense.getExpenseId());
+            if (oldExpense != null) {
+                // Reverse the old shares before the row changes
+                applyExpenseToBalances(db, oldExpense.amountCents, oldExpense.payerId, oldExpense.shares, -1);
+
+                int payerId = findPayerId(db, oldExpense.groupId, expense.getPayer());
+                putPayerId(values, payerId);
+                result = update(db, TABLE_EXPENSES, values, COLUMN_EXPENSE_ID + "=?",
+                        new String[] { String.valueOf(expense.getExpenseId()) });
+
+                // Replace the old shares with the edited ones and apply them
+                delete(db, TABLE_EXPENSE_SHARES, COLUMN_EXPENSE_ID + "=?",
+                        new String[] { String.valueOf(expense.getExpenseId()) });
+                insertShares(db, expense.getExpenseId(), expense.getShares());
+                applyExpenseToBalances(db, expense.getAmountCents(), payerId, expense.getShares(), 1);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        if (oldExpense != null) {
+            changeNotifier.notifyChanged(oldExpense.groupId, ChangeNotifier.Table.EXPENSES,
+                    ChangeNotifier.Table.MEMBERS);
+        }
         return result;
     }
 
     public void deleteExpense(int expenseId) {
         SQLiteDatabase db = this.getWritableDatabase();
-        // Get group ID before deleting
-        Cursor cursor = db.query(TABLE_EXPENSES, new String[] { COLUMN_GROUP_ID }, COLUMN_EXPENSE_ID + "=?",
-                new String[] { String.valueOf(expenseId) }, null, null, null);
-        int groupId = -1;
+        LedgerEntry oldExpense;
+        db.beginTransaction();
+        try {
+            // Reverse the expense's shares before deleting it
+            oldExpense = readLedgerEntry(db, expenseId);
+            if (oldExpense != null) {
+                applyExpenseToBalances(db, oldExpense.amountCents, oldExpense.payerId, oldExpense.shares, -1);
+            }
+
+            delete(db, TABLE_EXPENSE_SHARES, COLUMN_EXPENSE_ID + "=?", new String[] { String.valueOf(expenseId) });
+            delete(db, TABLE_EXPENSES, COLUMN_EXPENSE_ID + "=?", new String[] { String.valueOf(expenseId) });
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        if (oldExpense != null) {
+            changeNotifier.notifyChanged(oldExpense.groupId, ChangeNotifier.Table.EXPENSES,
+                    ChangeNotifier.Table.MEMBERS);
+        }
+    }
+
+    // What the balance ledger needs of a stored expense
+    private static class LedgerEntry {
+        final int groupId;
+        final long amountCents;
+        final int payerId;
+        final List<ExpenseShare> shares;
+
+        LedgerEntry(int groupId, long amountCents, int payerId, List<ExpenseShare> shares) {
+            this.groupId = groupId;
+            this.amountCents = amountCents;
+            this.payerId = payerId;
+            this.shares = shares;
+        }
+    }
+
+    private LedgerEntry readLedgerEntry(SQLiteDatabase db, int expenseId) {
+        Cursor cursor = query(db, TABLE_EXPENSES,
+                new String[] { COLUMN_GROUP_ID, COLUMN_AMOUNT_CENTS, COLUMN_PAYER_MEMBER_ID },
+                COLUMN_EXPENSE_ID + "=?", new String[] { String.valueOf(expenseId) }, null, null, null);
+        LedgerEntry entry = null;
         if (cursor.moveToFirst()) {
-            groupId = cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_GROUP_ID));
+            entry = new LedgerEntry(cursor.getInt(0), cursor.getLong(1), cursor.isNull(2) ? -1 : cursor.getInt(2),
+                    readShares(db, expenseId));
         }
         cursor.close();
+        return entry;
+    }
+
+    // Incremental balance ledger: adds (sign = 1) or reverses (sign = -1) one expense's effect on
+    // total_owed, total_owing and balance. Costs O(participants) instead of rescanning the group;
+    // recalculateAllBalancesForGroup stays as the full repair path.
+    private void applyExpenseToBalances(SQLiteDatabase db, long amountCents, int payerId, List<ExpenseShare> shares,
+            int sign) {
+        SQLiteStatement deltaStatement = db.compileStatement(APPLY_BALANCE_DELTA);
+        long start = profiler.begin(APPLY_BALANCE_DELTA);
+        BalanceCalculator.applyExpense(amountCents, payerId, shares, sign, (memberId, owedCents, owingCents) -> {
+            bindBalanceDelta(deltaStatement, memberId, owedCents, owingCents);
+            deltaStatement.executeUpdateDelete();
+        });
+        profiler.endBatch(APPLY_BALANCE_DELTA, shares != null ? shares.size() : 0, start);
+        deltaStatement.close();
+    }
 
-        db.delete(TABLE_EXPENSES, COLUMN_EXPENSE_ID + "=?", new String[] { String.valueOf(expenseId) });
-        db.close();
+    // The member whose name matches payer, or -1 when nobody in the group does
+    private int findPayerId(SQLiteDatabase db, int groupId, String payer) {
+        int payerId = -1;
+        Cursor payerCursor = rawQuery(db, PAYER_ID_QUERY, new String[] { String.valueOf(groupId), payer });
+        if (payerCursor.moveToFirst()) {
+            payerId = payerCursor.getInt(0);
+        }
+        payerCursor.close();
+        return payerId;
+    }
 
-        // Update member balances after deleting expense
-        if (groupId != -1) {
-            updateMemberBalances(groupId);
+    // findPayerId's -1 is stored as null
+    private static void putPayerId(ContentValues values, int payerId) {
+        if (payerId == -1) {
+            values.putNull(COLUMN_PAYER_MEMBER_ID);
+        } else {
+            values.put(COLUMN_PAYER_MEMBER_ID, payerId);
         }
     }
 
+    // Points expenses of the group that have no payer member yet at the member their payer names
+    private void resolvePayers(SQLiteDatabase db, int groupId) {
+        String[] args = new String[] { String.valueOf(groupId) };
+        long start = profiler.begin(RESOLVE_GROUP_PAYERS);
+        try {
+            db.execSQL(RESOLVE_GROUP_PAYERS, args);
+        } finally {
+            profiler.end(RESOLVE_GROUP_PAYERS, args, start);
+        }
+    }
+
+    private void bindBalanceDelta(SQLiteStatement statement, int memberId, long owedCents, long owingCents) {
+        statement.bindLong(1, owedCents);
+        statement.bindLong(2, owingCents);
+        statement.bindLong(3, owedCents - owingCents);
+        statement.bindLong(4, memberId);
+    }
+
     // Member CRUD operations
+    // Batch insert for members, one transaction and one compiled statement.
+    // Returns the number of members inserted; each member gets its new ID set.
+    public int addMembers(List<Member> members) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        Set<Integer> groupIds = new HashSet<>();
+        int inserted = 0;
+
+        db.beginTransaction();
+        try {
+            SQLiteStatement memberStatement = db.compileStatement(INSERT_MEMBER);
+            long start = profiler.begin(INSERT_MEMBER);
+            for (Member member : members) {
+                memberStatement.clearBindings();
+                memberStatement.bindLong(1, member.getGroupId());
+                bindStringOrNull(memberStatement, 2, member.getMemberName());
+                bindStringOrNull(memberStatement, 3, member.getEmail());
+                bindStringOrNull(memberStatement, 4, member.getPhoneNumber());
+                memberStatement.bindLong(5, member.getTotalOwedCents());
+                memberStatement.bindLong(6, member.getTotalOwingCents());
+                memberStatement.bindLong(7, member.getBalanceCents());
+                member.setMemberId((int) memberStatement.executeInsert());
+                groupIds.add(member.getGroupId());
+                inserted++;
+            }
+            profiler.endBatch(INSERT_MEMBER, inserted, start);
+            memberStatement.close();
+            for (int groupId : groupIds) {
+                resolvePayers(db, groupId);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        for (int groupId : groupIds) {
+            changeNotifier.notifyChanged(groupId, ChangeNotifier.Table.MEMBERS);
+        }
+        return inserted;
+    }
+
     public long addMember(Member member) {
         SQLiteDatabase db = this.getWritableDatabase();
         ContentValues values = new ContentValues();
@@ -381,12 +1135,24 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         values.put(COLUMN_MEMBER_NAME, member.getMemberName());
         values.put(COLUMN_EMAIL, member.getEmail());
         values.put(COLUMN_PHONE_NUMBER, member.getPhoneNumber());
-        values.put(COLUMN_TOTAL_OWED, member.getTotalOwed());
-        values.put(COLUMN_TOTAL_OWING, member.getTotalOwing());
-        values.put(COLUMN_BALANCE, member.getBalance());
+        values.put(COLUMN_TOTAL_OWED_CENTS, member.getTotalOwedCents());
+        values.put(COLUMN_TOTAL_OWING_CENTS, member.getTotalOwingCents());
+        values.put(COLUMN_BALANCE_CENTS, member.getBalanceCents());
 
-        long id = db.insert(TABLE_MEMBERS, null, values);
-        db.close();
+        long id;
+        db.beginTransaction();
+        try {
+            id = insert(db, TABLE_MEMBERS, null, values);
+            if (id != -1) {
+                resolvePayers(db, member.getGroupId());
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        if (id != -1) {
+            changeNotifier.notifyChanged(member.getGroupId(), ChangeNotifier.Table.MEMBERS);
+        }
         return id;
     }
 
@@ -396,570 +1162,354 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         values.put(COLUMN_MEMBER_NAME, member.getMemberName());
         values.put(COLUMN_EMAIL, member.getEmail());
         values.put(COLUMN_PHONE_NUMBER, member.getPhoneNumber());
-        values.put(COLUMN_TOTAL_OWED, member.getTotalOwed());
-        values.put(COLUMN_TOTAL_OWING, member.getTotalOwing());
-        values.put(COLUMN_BALANCE, member.getBalance());
+        values.put(COLUMN_TOTAL_OWED_CENTS, member.getTotalOwedCents());
+        values.put(COLUMN_TOTAL_OWING_CENTS, member.getTotalOwingCents());
+        values.put(COLUMN_BALANCE_CENTS, member.getBalanceCents());
 
-        int result = db.update(TABLE_MEMBERS, values, COLUMN_MEMBER_ID + "=?",
-                new String[] { String.valueOf(member.getMemberId()) });
-        db.close();
+        String[] memberArgs = new String[] { String.valueOf(member.getMemberId()) };
+        int groupId = -1;
+        int result;
+        db.beginTransaction();
+        try {
+            String oldName = null;
+            Cursor cursor = rawQuery(db, MEMBER_NAME_QUERY, memberArgs);
+            if (cursor.moveToFirst()) {
+                groupId = cursor.getInt(0);
+                oldName = cursor.getString(1);
+            }
+            cursor.close();
+
+            result = update(db, TABLE_MEMBERS, values, COLUMN_MEMBER_ID + "=?", memberArgs);
+            // Expenses name their payer, so a rename carries over to the expenses this member paid.
+            // The new name may also be the payer of expenses nobody matched so far.
+            if (result > 0 && oldName != null && !nameKey(oldName).equals(nameKey(member.getMemberName()))) {
+                ContentValues payerValues = new ContentValues();
+                payerValues.put(COLUMN_PAYER, member.getMemberName());
+                update(db, TABLE_EXPENSES, payerValues, COLUMN_GROUP_ID + "=? AND " + COLUMN_PAYER_MEMBER_ID + "=?",
+                        new String[] { String.valueOf(groupId), String.valueOf(member.getMemberId()) });
+                resolvePayers(db, groupId);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        if (result > 0) {
+            changeNotifier.notifyChanged(groupId, ChangeNotifier.Table.MEMBERS, ChangeNotifier.Table.EXPENSES);
+        }
         return result > 0;
     }
 
     public boolean deleteMember(int memberId) {
         SQLiteDatabase db = this.getWritableDatabase();
-        int result = db.delete(TABLE_MEMBERS, COLUMN_MEMBER_ID + "=?", new String[] { String.valueOf(memberId) });
-        db.close();
+        String[] memberArgs = new String[] { String.valueOf(memberId) };
+        int groupId;
+        int result;
+        db.beginTransaction();
+        try {
+            // Look the group up first; the row is gone afterwards
+            groupId = findGroupIdOfMember(db, memberId);
+            result = delete(db, TABLE_MEMBERS, COLUMN_MEMBER_ID + "=?", memberArgs);
+            if (result > 0) {
+                // What this member paid goes to another member of the same name, if there is one
+                ContentValues payerValues = new ContentValues();
+                payerValues.putNull(COLUMN_PAYER_MEMBER_ID);
+                update(db, TABLE_EXPENSES, payerValues, COLUMN_GROUP_ID + "=? AND " + COLUMN_PAYER_MEMBER_ID + "=?",
+                        new String[] { String.valueOf(groupId), String.valueOf(memberId) });
+                resolvePayers(db, groupId);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        if (result > 0) {
+            changeNotifier.notifyChanged(groupId, ChangeNotifier.Table.MEMBERS);
+        }
         return result > 0;
     }
 
-    public List<Member> getMembersForGroup(int groupId) {
-        List<Member> members = new ArrayList<>();
-        String selectQuery = "SELECT * FROM " + TABLE_MEMBERS + " WHERE " + COLUMN_GROUP_ID + "=?";
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery(selectQuery, new String[] { String.valueOf(groupId) });
-
+    private int findGroupIdOfMember(SQLiteDatabase db, int memberId) {
+        Cursor cursor = query(db, TABLE_MEMBERS, new String[] { COLUMN_GROUP_ID }, COLUMN_MEMBER_ID + "=?",
+                new String[] { String.valueOf(memberId) }, null, null, null);
+        int groupId = -1;
         if (cursor.moveToFirst()) {
-            do {
-                Member member = new Member();
-                member.setMemberId(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_MEMBER_ID)));
-                member.setGroupId(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_GROUP_ID)));
-                member.setMemberName(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_MEMBER_NAME)));
-                member.setEmail(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_EMAIL)));
-                member.setPhoneNumber(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_PHONE_NUMBER)));
-                member.setTotalOwed(cursor.getDouble(cursor.getColumnIndexOrThrow(COLUMN_TOTAL_OWED)));
-                member.setTotalOwing(cursor.getDouble(cursor.getColumnIndexOrThrow(COLUMN_TOTAL_OWING)));
-                member.setBalance(cursor.getDouble(cursor.getColumnIndexOrThrow(COLUMN_BALANCE)));
-                members.add(member);
-            } while (cursor.moveToNext());
+            groupId = cursor.getInt(0);
         }
         cursor.close();
-        db.close();
-        return members;
+        return groupId;
     }
 
-    // Helper methods
-    private double getTotalExpensesForGroup(int groupId) {
-        String selectQuery = "SELECT SUM(" + COLUMN_AMOUNT + ") FROM " + TABLE_EXPENSES + " WHERE " + COLUMN_GROUP_ID
-                + "=?";
+    public List<Member> getMembersForGroup(int groupId) {
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery(selectQuery, new String[] { String.valueOf(groupId) });
-        double total = 0;
-        if (cursor.moveToFirst()) {
-            total = cursor.getDouble(0);
-        }
+        Cursor cursor = rawQuery(db, GROUP_MEMBERS_QUERY, new String[] { String.valueOf(groupId) });
+        List<Member> members = new MemberRowMapper(cursor).mapAll(cursor);
         cursor.close();
-        db.close();
-        return total;
+        return members;
     }
 
-    private int getMemberCountForGroup(int groupId) {
-        String selectQuery = "SELECT COUNT(*) FROM " + TABLE_MEMBERS + " WHERE " + COLUMN_GROUP_ID + "=?";
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery(selectQuery, new String[] { String.valueOf(groupId) });
-        int count = 0;
-        if (cursor.moveToFirst()) {
-            count = cursor.getInt(0);
-        }
-        cursor.close();
-        db.close();
-        return count;
+    // Expense share operations
+    private void insertShares(SQLiteDatabase db, long expenseId, List<ExpenseShare> shares) {
+        SQLiteStatement shareStatement = db.compileStatement(INSERT_SHARE);
+        long start = profiler.begin(INSERT_SHARE);
+        insertShares(shareStatement, expenseId, shares);
+        profiler.endBatch(INSERT_SHARE, shares != null ? shares.size() : 0, start);
+        shareStatement.close();
     }
 
-    private void updateMemberBalances(int groupId) {
-        try {
-            Log.d(TAG, "Starting balance calculation for group: " + groupId);
-            SQLiteDatabase db = this.getWritableDatabase();
-
-            // Reset all balances to 0
-            ContentValues resetValues = new ContentValues();
-            resetValues.put(COLUMN_TOTAL_OWED, 0);
-            resetValues.put(COLUMN_TOTAL_OWING, 0);
-            resetValues.put(COLUMN_BALANCE, 0);
-            int resetCount = db.update(TABLE_MEMBERS, resetValues, COLUMN_GROUP_ID + "=?",
-                    new String[] { String.valueOf(groupId) });
-            Log.d(TAG, "Reset " + resetCount + " members to 0 balance");
-
-            // Get all expenses for this group
-            List<Expense> expenses = getExpensesForGroup(groupId);
-            Log.d(TAG, "Found " + (expenses != null ? expenses.size() : 0) + " expenses");
-
-            if (expenses == null || expenses.isEmpty()) {
-                db.close();
-                return;
-            }
-
-            // Calculate balances based on expenses
-            for (Expense expense : expenses) {
-                if (expense == null || expense.getParticipants() == null || expense.getParticipants().isEmpty()) {
-                    continue;
-                }
-
-                Log.d(TAG, "Processing expense: " + expense.getExpenseName() + " Amount: " + expense.getAmount());
-                Log.d(TAG, "Participants: " + expense.getParticipants());
-                Log.d(TAG, "Payer: " + expense.getPayer());
-
-                String[] participants = expense.getParticipants().split(", ");
-                String[] participantAmounts = null;
-
-                // Check if custom amounts are available
-                if (expense.getParticipantAmounts() != null && !expense.getParticipantAmounts().isEmpty()) {
-                    participantAmounts = expense.getParticipantAmounts().split(", ");
-                    Log.d(TAG, "Custom amounts: " + expense.getParticipantAmounts());
-                }
-
-                // Calculate amounts for each participant
-                for (int i = 0; i < participants.length; i++) {
-                    String participant = participants[i].trim();
-                    if (participant.isEmpty()) {
-                        continue;
-                    }
-
-                    double amount;
-
-                    if (participantAmounts != null && i < participantAmounts.length) {
-                        // Use custom amount
-                        try {
-                            amount = Double.parseDouble(participantAmounts[i].trim());
-                        } catch (NumberFormatException e) {
-                            // Fallback to equal split if custom amount is invalid
-                            amount = expense.getAmount() / participants.length;
-                        }
-                    } else {
-                        // Equal split
-                        amount = expense.getAmount() / participants.length;
-                    }
-
-                    Log.d(TAG, "Participant: " + participant + " Amount: " + amount);
-
-                    if (participant.equals(expense.getPayer())) {
-                        // Payer gets money back (total amount - their share)
-                        double payerGetsBack = expense.getAmount() - amount;
-                        Log.d(TAG, "Payer " + participant + " gets back: " + payerGetsBack);
-
-                        // Get current total_owing and add to it
-                        Cursor cursor = db.query(TABLE_MEMBERS, new String[] { COLUMN_TOTAL_OWING },
-                                COLUMN_GROUP_ID + "=? AND " + COLUMN_MEMBER_NAME + "=?",
-                                new String[] { String.valueOf(groupId), participant }, null, null, null);
-                        double currentOwing = 0;
-                        if (cursor.moveToFirst()) {
-                            currentOwing = cursor.getDouble(0);
-                        }
-                        cursor.close();
-
-                        ContentValues payerValues = new ContentValues();
-                        double newTotalOwing = roundToTwoDecimals(currentOwing + payerGetsBack);
-                        payerValues.put(COLUMN_TOTAL_OWING, newTotalOwing);
-                        int updateCount = db.update(TABLE_MEMBERS, payerValues,
-                                COLUMN_GROUP_ID + "=? AND " + COLUMN_MEMBER_NAME + "=?",
-                                new String[] { String.valueOf(groupId), participant });
-                        Log.d(TAG, "Updated payer " + participant + " total_owing to: " + newTotalOwing
-                                + " (rows affected: " + updateCount + ")");
-                    } else {
-                        // Other participants owe money
-                        Log.d(TAG, "Participant " + participant + " owes: " + amount);
-
-                        // Get current total_owed and add to it
-                        Cursor cursor = db.query(TABLE_MEMBERS, new String[] { COLUMN_TOTAL_OWED },
-                                COLUMN_GROUP_ID + "=? AND " + COLUMN_MEMBER_NAME + "=?",
-                                new String[] { String.valueOf(groupId), participant }, null, null, null);
-                        double currentOwed = 0;
-                        if (cursor.moveToFirst()) {
-                            currentOwed = cursor.getDouble(0);
-                        }
-                        cursor.close();
-
-                        ContentValues participantValues = new ContentValues();
-                        double newTotalOwed = roundToTwoDecimals(currentOwed + amount);
-                        participantValues.put(COLUMN_TOTAL_OWED, newTotalOwed);
-                        int updateCount = db.update(TABLE_MEMBERS, participantValues,
-                                COLUMN_GROUP_ID + "=? AND " + COLUMN_MEMBER_NAME + "=?",
-                                new String[] { String.valueOf(groupId), participant });
-                        Log.d(TAG, "Updated participant " + participant + " total_owed to: " + newTotalOwed
-                                + " (rows affected: " + updateCount + ")");
-                    }
-                }
-            }
-
-            // Calculate final balances with proper rounding
-            Cursor balanceCursor = db.query(TABLE_MEMBERS,
-                    new String[] { COLUMN_MEMBER_ID, COLUMN_TOTAL_OWED, COLUMN_TOTAL_OWING },
-                    COLUMN_GROUP_ID + "=?", new String[] { String.valueOf(groupId) }, null, null, null);
-
-            while (balanceCursor.moveToNext()) {
-                int memberId = balanceCursor.getInt(0);
-                double totalOwed = balanceCursor.getDouble(1);
-                double totalOwing = balanceCursor.getDouble(2);
-                double balance = roundToTwoDecimals(totalOwed - totalOwing);
-
-                ContentValues balanceValues = new ContentValues();
-                balanceValues.put(COLUMN_BALANCE, balance);
-                db.update(TABLE_MEMBERS, balanceValues, COLUMN_MEMBER_ID + "=?",
-                        new String[] { String.valueOf(memberId) });
-            }
-            balanceCursor.close();
+    private void insertShares(SQLiteStatement shareStatement, long expenseId, List<ExpenseShare> shares) {
+        if (shares == null) {
+            return;
+        }
+        for (ExpenseShare share : shares) {
+            shareStatement.clearBindings();
+            shareStatement.bindLong(1, expenseId);
+            shareStatement.bindLong(2, share.getMemberId());
+            shareStatement.bindLong(3, share.getShareCents());
+            shareStatement.executeInsert();
+        }
+    }
 
-            // Log final balances
-            Cursor finalCursor = db.query(TABLE_MEMBERS,
-                    new String[] { COLUMN_MEMBER_NAME, COLUMN_TOTAL_OWED, COLUMN_TOTAL_OWING, COLUMN_BALANCE },
-                    COLUMN_GROUP_ID + "=?", new String[] { String.valueOf(groupId) }, null, null, null);
-            while (finalCursor.moveToNext()) {
-                String memberName = finalCursor.getString(0);
-                double totalOwed = finalCursor.getDouble(1);
-                double totalOwing = finalCursor.getDouble(2);
-                double balance = finalCursor.getDouble(3);
-                Log.d(TAG, "Final balance for " + memberName + ": owed=" + totalOwed + ", owing=" + totalOwing
-                        + ", balance=" + balance);
-            }
-            finalCursor.close();
+    public List<ExpenseShare> getSharesForExpense(int expenseId) {
+        return readShares(this.getReadableDatabase(), expenseId);
+    }
 
-            db.close();
-            Log.d(TAG, "Balance calculation completed for group: " + groupId);
-        } catch (Exception e) {
-            Log.e(TAG, "Error in balance calculation: " + e.getMessage());
-            e.printStackTrace();
+    private List<ExpenseShare> readShares(SQLiteDatabase db, int expenseId) {
+        List<ExpenseShare> shares = new ArrayList<>();
+        String selectQuery = "SELECT s." + COLUMN_EXPENSE_ID + ", s." + COLUMN_MEMBER_ID + ", m." + COLUMN_MEMBER_NAME
+                + ", s." + COLUMN_SHARE_CENTS
+                + " FROM " + TABLE_EXPENSE_SHARES + " s"
+                + " LEFT JOIN " + TABLE_MEMBERS + " m ON m." + COLUMN_MEMBER_ID + " = s." + COLUMN_MEMBER_ID
+                + " WHERE s." + COLUMN_EXPENSE_ID + "=? ORDER BY s.rowid";
+        Cursor cursor = rawQuery(db, selectQuery, new String[] { String.valueOf(expenseId) });
+
+        while (cursor.moveToNext()) {
+            shares.add(new ExpenseShare(cursor.getInt(0), cursor.getInt(1), cursor.getString(2),
+                    cursor.getLong(3)));
         }
+        cursor.close();
+        return shares;
+    }
+
+    // Expenses the member takes part in, found through their share rows rather than by scanning the group
+    public List<Expense> getExpensesForMember(int groupId, int memberId) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = rawQuery(db, MEMBER_EXPENSES_QUERY,
+                new String[] { String.valueOf(memberId), String.valueOf(groupId) });
+        List<Expense> expenses = new ExpenseRowMapper(cursor).mapAll(cursor);
+        cursor.close();
+        return expenses;
     }
 
-    // FIXED: Simple and correct balance calculation method
     public void clearAllData() {
         SQLiteDatabase db = this.getWritableDatabase();
+        db.beginTransaction();
         try {
             // Delete all data from all tables
-            db.delete(TABLE_EXPENSES, null, null);
-            db.delete(TABLE_MEMBERS, null, null);
-            db.delete(TABLE_GROUPS, null, null);
+            delete(db, TABLE_SETTLEMENTS, null, null);
+            delete(db, TABLE_EXPENSE_SHARES, null, null);
+            delete(db, TABLE_EXPENSES, null, null);
+            delete(db, TABLE_MEMBERS, null, null);
+            delete(db, TABLE_GROUPS, null, null);
+            db.setTransactionSuccessful();
             Log.d(TAG, "All data cleared successfully");
         } catch (Exception e) {
             Log.e(TAG, "Error clearing data: " + e.getMessage());
             e.printStackTrace();
         } finally {
-            db.close();
+            db.endTransaction();
         }
+        changeNotifier.notifyAllChanged();
     }
 
-    public void recalculateAllBalancesForGroup(int groupId) {
-        try {
-            Log.d(TAG, "=== STARTING BALANCE RECALCULATION FOR GROUP " + groupId + " ===");
-            SQLiteDatabase db = this.getWritableDatabase();
-
-            // First, let's check if we have any members in this group
-            Cursor memberCheck = db.query(TABLE_MEMBERS, new String[] { COLUMN_MEMBER_ID, COLUMN_MEMBER_NAME },
-                    COLUMN_GROUP_ID + "=?", new String[] { String.valueOf(groupId) }, null, null, null);
-            Log.d(TAG, "Found " + memberCheck.getCount() + " members in group " + groupId);
-            memberCheck.close();
-
-            // 1. Reset all balances to 0
-            ContentValues resetValues = new ContentValues();
-            resetValues.put(COLUMN_TOTAL_OWED, 0);
-            resetValues.put(COLUMN_TOTAL_OWING, 0);
-            resetValues.put(COLUMN_BALANCE, 0);
-            int resetCount = db.update(TABLE_MEMBERS, resetValues, COLUMN_GROUP_ID + "=?",
-                    new String[] { String.valueOf(groupId) });
-            Log.d(TAG, "Reset " + resetCount + " members to 0 balance");
-
-            // 2. Get all expenses for this group
-            List<Expense> expenses = getExpensesForGroup(groupId);
-            Log.d(TAG, "Found " + (expenses != null ? expenses.size() : 0) + " expenses");
-
-            if (expenses == null || expenses.isEmpty()) {
-                Log.d(TAG, "No expenses found, balances remain at 0");
-                db.close();
-                return;
-            }
-
-            // 3. Process each expense
-            for (Expense expense : expenses) {
-                if (expense == null || expense.getParticipants() == null || expense.getParticipants().isEmpty()) {
-                    continue;
-                }
+    // A private read-only connection with a read transaction open on it, for the exporters: every query on it
+    // sees the same point in time, and writers on the helper's connection keep going meanwhile. Android runs
+    // BEGIN as BEGIN EXCLUSIVE, which needs the write lock, so the transaction is started with a SAVEPOINT,
+    // which outside a transaction begins a deferred one. Pass it to closeReadSnapshot when done.
+    SQLiteDatabase openReadSnapshot() {
+        SQLiteDatabase snapshot = SQLiteDatabase.openDatabase(getReadableDatabase().getPath(), null,
+                SQLiteDatabase.OPEN_READONLY);
+        snapshot.execSQL("SAVEPOINT read_snapshot");
+        return snapshot;
+    }
 
-                Log.d(TAG, "Processing expense: " + expense.getExpenseName() + " Amount: " + expense.getAmount());
-                Log.d(TAG, "Payer: " + expense.getPayer());
-                Log.d(TAG, "Participants: " + expense.getParticipants());
+    static void closeReadSnapshot(SQLiteDatabase snapshot) {
+        try {
+            snapshot.execSQL("RELEASE read_snapshot");
+        } finally {
+            snapshot.close();
+        }
+    }
 
-                String[] participants = expense.getParticipants().split(", ");
-                String[] participantAmounts = null;
+    // Opens a new, empty database file with the current schema, deleting whatever was at path before.
+    // DatabaseSnapshot fills it and then hands it to replaceDatabase.
+    SQLiteDatabase createEmptyDatabase(File path) {
+        SQLiteDatabase.deleteDatabase(path);
+        SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(path, null);
+        onCreate(db);
+        db.setVersion(DATABASE_VERSION);
+        return db;
+    }
 
-                // Check if custom amounts are available
-                if (expense.getParticipantAmounts() != null && !expense.getParticipantAmounts().isEmpty()) {
-                    participantAmounts = expense.getParticipantAmounts().split(", ");
-                    Log.d(TAG, "Custom amounts: " + expense.getParticipantAmounts());
-                }
+    // Moves a complete database file over the live one. The rename is atomic, so after a crash the
+    // app finds either all of the old data or all of the new. The next getWritableDatabase() reopens.
+    // The helper is closed meanwhile, so run it through ExpenseRepository.writeExclusive.
+    synchronized void replaceDatabase(File path) throws IOException {
+        File live = new File(getWritableDatabase().getPath());
+        close();
+        // The old write-ahead log must not be replayed into the new file
+        new File(live.getPath() + "-wal").delete();
+        new File(live.getPath() + "-shm").delete();
+        new File(live.getPath() + "-journal").delete();
+        if (!path.renameTo(live)) {
+            throw new IOException("Could not move " + path + " to " + live);
+        }
+        changeNotifier.notifyAllChanged();
+        Log.d(TAG, "Database replaced from " + path);
+    }
 
-                // Process each participant
-                for (int i = 0; i < participants.length; i++) {
-                    String participant = participants[i].trim();
-                    if (participant.isEmpty()) {
-                        continue;
-                    }
-
-                    // Calculate participant's share
-                    double share;
-                    if (participantAmounts != null && i < participantAmounts.length) {
-                        try {
-                            share = Double.parseDouble(participantAmounts[i].trim());
-                        } catch (NumberFormatException e) {
-                            share = expense.getAmount() / participants.length;
-                        }
-                    } else {
-                        share = expense.getAmount() / participants.length;
-                    }
-
-                    Log.d(TAG, "Participant: " + participant + " Share: " + share);
-
-                    // Find member by name (case-insensitive and trim whitespace)
-                    Cursor memberCursor = db.query(TABLE_MEMBERS,
-                            new String[] { COLUMN_MEMBER_ID, COLUMN_MEMBER_NAME, COLUMN_TOTAL_OWED,
-                                    COLUMN_TOTAL_OWING },
-                            COLUMN_GROUP_ID + "=? AND LOWER(TRIM(" + COLUMN_MEMBER_NAME + ")) = LOWER(TRIM(?))",
-                            new String[] { String.valueOf(groupId), participant }, null, null, null);
-
-                    if (!memberCursor.moveToFirst()) {
-                        Log.e(TAG, "Member not found: " + participant);
-                        memberCursor.close();
-                        continue;
-                    }
-
-                    int memberId = memberCursor.getInt(0);
-                    String memberName = memberCursor.getString(1);
-                    double currentOwed = memberCursor.getDouble(2);
-                    double currentOwing = memberCursor.getDouble(3);
-                    memberCursor.close();
-
-                    Log.d(TAG, "Found member: " + memberName + " (ID: " + memberId + ")");
-
-                    if (participant.equals(expense.getPayer())) {
-                        // Payer gets money back (total amount - their share)
-                        double payerGetsBack = expense.getAmount() - share;
-                        Log.d(TAG, "Payer " + participant + " gets back: " + payerGetsBack);
-
-                        // Update payer's total_owing (money they should get back)
-                        ContentValues payerValues = new ContentValues();
-                        double newTotalOwing = roundToTwoDecimals(currentOwing + payerGetsBack);
-                        payerValues.put(COLUMN_TOTAL_OWING, newTotalOwing);
-                        int updateCount = db.update(TABLE_MEMBERS, payerValues,
-                                COLUMN_MEMBER_ID + "=?",
-                                new String[] { String.valueOf(memberId) });
-                        Log.d(TAG, "Updated payer " + participant + " total_owing to: " + newTotalOwing + " (rows: "
-                                + updateCount + ")");
-                    } else {
-                        // Other participants owe their share
-                        Log.d(TAG, "Participant " + participant + " owes: " + share);
-
-                        // Update participant's total_owed (money they owe)
-                        ContentValues participantValues = new ContentValues();
-                        double newTotalOwed = roundToTwoDecimals(currentOwed + share);
-                        participantValues.put(COLUMN_TOTAL_OWED, newTotalOwed);
-                        int updateCount = db.update(TABLE_MEMBERS, participantValues,
-                                COLUMN_MEMBER_ID + "=?",
-                                new String[] { String.valueOf(memberId) });
-                        Log.d(TAG, "Updated participant " + participant + " total_owed to: " + newTotalOwed + " (rows: "
-                                + updateCount + ")");
-                    }
-                }
+    // Full recompute over every expense in the group. Expense writes update balances incrementally,
+    // so this is the verification / repair path (e.g. the Recalculate button in SettlementActivity).
+    public void recalculateAllBalancesForGroup(int groupId) {
+        try {
+            if (AppLog.DEBUG && AppLog.isLoggable(Log.DEBUG)) {
+                AppLog.d(TAG, "Recalculating balances for group " + groupId);
             }
+            SQLiteDatabase db = this.getWritableDatabase();
 
-            // 4. Calculate final balances (total_owed - total_owing) with proper rounding
-            Cursor balanceCursor = db.query(TABLE_MEMBERS,
-                    new String[] { COLUMN_MEMBER_ID, COLUMN_TOTAL_OWED, COLUMN_TOTAL_OWING },
-                    COLUMN_GROUP_ID + "=?", new String[] { String.valueOf(groupId) }, null, null, null);
-
-            while (balanceCursor.moveToNext()) {
-                int memberId = balanceCursor.getInt(0);
-                double totalOwed = balanceCursor.getDouble(1);
-                double totalOwing = balanceCursor.getDouble(2);
-                double balance = roundToTwoDecimals(totalOwed - totalOwing);
-
-                ContentValues balanceValues = new ContentValues();
-                balanceValues.put(COLUMN_BALANCE, balance);
-                db.update(TABLE_MEMBERS, balanceValues, COLUMN_MEMBER_ID + "=?",
-                        new String[] { String.valueOf(memberId) });
+            db.beginTransaction();
+            try {
+                writeBalanceTotals(db, groupId);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
             }
-            balanceCursor.close();
-
-            // 5. Log final results
-            Cursor finalCursor = db.query(TABLE_MEMBERS,
-                    new String[] { COLUMN_MEMBER_NAME, COLUMN_TOTAL_OWED, COLUMN_TOTAL_OWING, COLUMN_BALANCE },
-                    COLUMN_GROUP_ID + "=?", new String[] { String.valueOf(groupId) }, null, null, null);
-            while (finalCursor.moveToNext()) {
-                String memberName = finalCursor.getString(0);
-                double totalOwed = finalCursor.getDouble(1);
-                double totalOwing = finalCursor.getDouble(2);
-                double balance = finalCursor.getDouble(3);
-                Log.d(TAG, "FINAL: " + memberName + " -> owed=" + totalOwed + ", owing=" + totalOwing + ", balance="
-                        + balance);
+            changeNotifier.notifyChanged(groupId, ChangeNotifier.Table.MEMBERS);
+
+            // Read the new balances back for the log; release builds skip the query along with the logging
+            if (AppLog.DEBUG && AppLog.isLoggable(Log.DEBUG)) {
+                Cursor finalCursor = query(db, TABLE_MEMBERS,
+                        new String[] { COLUMN_MEMBER_NAME, COLUMN_TOTAL_OWED_CENTS, COLUMN_TOTAL_OWING_CENTS,
+                                COLUMN_BALANCE_CENTS },
+                        COLUMN_GROUP_ID + "=?", new String[] { String.valueOf(groupId) }, null, null, null);
+                while (finalCursor.moveToNext()) {
+                    String memberName = finalCursor.getString(0);
+                    double totalOwed = MoneyUtils.fromCents(finalCursor.getLong(1));
+                    double totalOwing = MoneyUtils.fromCents(finalCursor.getLong(2));
+                    double balance = MoneyUtils.fromCents(finalCursor.getLong(3));
+                    AppLog.d(TAG, "FINAL: " + memberName + " -> owed=" + totalOwed + ", owing=" + totalOwing
+                            + ", balance=" + balance);
+                }
+                finalCursor.close();
             }
-            finalCursor.close();
-
-            db.close();
-            Log.d(TAG, "=== BALANCE RECALCULATION COMPLETED ===");
         } catch (Exception e) {
             Log.e(TAG, "Error in balance recalculation: " + e.getMessage());
             e.printStackTrace();
         }
     }
 
-    // New simplified balance calculation method
-    public void recalculateBalances(int groupId) {
-        try {
-            SQLiteDatabase db = this.getWritableDatabase();
-
-            // Reset all balances to 0
-            ContentValues resetValues = new ContentValues();
-            resetValues.put(COLUMN_TOTAL_OWED, 0);
-            resetValues.put(COLUMN_TOTAL_OWING, 0);
-            resetValues.put(COLUMN_BALANCE, 0);
-            db.update(TABLE_MEMBERS, resetValues, COLUMN_GROUP_ID + "=?", new String[] { String.valueOf(groupId) });
-
-            // Get all expenses for this group
-            List<Expense> expenses = getExpensesForGroup(groupId);
-
-            if (expenses == null || expenses.isEmpty()) {
-                db.close();
-                return;
-            }
-
-            // Calculate balances based on expenses
-            for (Expense expense : expenses) {
-                if (expense == null || expense.getParticipants() == null || expense.getParticipants().isEmpty()) {
-                    continue;
-                }
-
-                String[] participants = expense.getParticipants().split(", ");
-                String[] participantAmounts = null;
-
-                // Check if custom amounts are available
-                if (expense.getParticipantAmounts() != null && !expense.getParticipantAmounts().isEmpty()) {
-                    participantAmounts = expense.getParticipantAmounts().split(", ");
-                }
-
-                // Calculate amounts for each participant
-                for (int i = 0; i < participants.length; i++) {
-                    String participant = participants[i].trim();
-                    if (participant.isEmpty()) {
-                        continue;
-                    }
-
-                    double amount;
-
-                    if (participantAmounts != null && i < participantAmounts.length) {
-                        // Use custom amount
-                        try {
-                            amount = Double.parseDouble(participantAmounts[i].trim());
-                        } catch (NumberFormatException e) {
-                            // Fallback to equal split if custom amount is invalid
-                            amount = expense.getAmount() / participants.length;
-                        }
-                    } else {
-                        // Equal split
-                        amount = expense.getAmount() / participants.length;
-                    }
-
-                    if (participant.equals(expense.getPayer())) {
-                        // Payer gets money back (total amount - their share)
-                        // Get current total_owing and add to it
-                        Cursor cursor = db.query(TABLE_MEMBERS, new String[] { COLUMN_TOTAL_OWING },
-                                COLUMN_GROUP_ID + "=? AND " + COLUMN_MEMBER_NAME + "=?",
-                                new String[] { String.valueOf(groupId), participant }, null, null, null);
-                        double currentOwing = 0;
-                        if (cursor.moveToFirst()) {
-                            currentOwing = cursor.getDouble(0);
-                        }
-                        cursor.close();
-
-                        ContentValues payerValues = new ContentValues();
-                        double newTotalOwing = roundToTwoDecimals(currentOwing + (expense.getAmount() - amount));
-                        payerValues.put(COLUMN_TOTAL_OWING, newTotalOwing);
-                        db.update(TABLE_MEMBERS, payerValues, COLUMN_GROUP_ID + "=? AND " + COLUMN_MEMBER_NAME + "=?",
-                                new String[] { String.valueOf(groupId), participant });
-                    } else {
-                        // Other participants owe money
-                        // Get current total_owed and add to it
-                        Cursor cursor = db.query(TABLE_MEMBERS, new String[] { COLUMN_TOTAL_OWED },
-                                COLUMN_GROUP_ID + "=? AND " + COLUMN_MEMBER_NAME + "=?",
-                                new String[] { String.valueOf(groupId), participant }, null, null, null);
-                        double currentOwed = 0;
-                        if (cursor.moveToFirst()) {
-                            currentOwed = cursor.getDouble(0);
-                        }
-                        cursor.close();
-
-                        ContentValues participantValues = new ContentValues();
-                        double newTotalOwed = roundToTwoDecimals(currentOwed + amount);
-                        participantValues.put(COLUMN_TOTAL_OWED, newTotalOwed);
-                        db.update(TABLE_MEMBERS, participantValues,
-                                COLUMN_GROUP_ID + "=? AND " + COLUMN_MEMBER_NAME + "=?",
-                                new String[] { String.valueOf(groupId), participant });
-                    }
-                }
-            }
-
-            // Calculate final balances with proper rounding
-            Cursor balanceCursor = db.query(TABLE_MEMBERS,
-                    new String[] { COLUMN_MEMBER_ID, COLUMN_TOTAL_OWED, COLUMN_TOTAL_OWING },
-                    COLUMN_GROUP_ID + "=?", new String[] { String.valueOf(groupId) }, null, null, null);
-
-            while (balanceCursor.moveToNext()) {
-                int memberId = balanceCursor.getInt(0);
-                double totalOwed = balanceCursor.getDouble(1);
-                double totalOwing = balanceCursor.getDouble(2);
-                double balance = roundToTwoDecimals(totalOwed - totalOwing);
+    // Balances of one group from its share rows, with every confirmed settlement applied again on top.
+    // For imported groups, whose balance columns are not taken from the file and whose expenses are
+    // inserted without payer_member_id. The caller owns the transaction.
+    void rebuildBalances(SQLiteDatabase db, int groupId) {
+        resolvePayers(db, groupId);
+        writeBalanceTotals(db, groupId);
+        Cursor cursor = rawQuery(db, SETTLED_SETTLEMENTS_QUERY, new String[] { String.valueOf(groupId) });
+        while (cursor.moveToNext()) {
+            updateBalancesAfterSettlement(db, groupId, cursor.getString(0), cursor.getString(1), cursor.getLong(2));
+        }
+        cursor.close();
+    }
 
-                ContentValues balanceValues = new ContentValues();
-                balanceValues.put(COLUMN_BALANCE, balance);
-                db.update(TABLE_MEMBERS, balanceValues, COLUMN_MEMBER_ID + "=?",
-                        new String[] { String.valueOf(memberId) });
-            }
-            balanceCursor.close();
+    // Rebuilds every member balance of one group from the share rows; the caller owns the transaction
+    private void writeBalanceTotals(SQLiteDatabase db, int groupId) {
+        String[] groupArgs = new String[] { String.valueOf(groupId) };
+
+        // 1. Reset all balances to 0 (members without any share stay there)
+        ContentValues resetValues = new ContentValues();
+        resetValues.put(COLUMN_TOTAL_OWED_CENTS, 0);
+        resetValues.put(COLUMN_TOTAL_OWING_CENTS, 0);
+        resetValues.put(COLUMN_BALANCE_CENTS, 0);
+        int resetCount = update(db, TABLE_MEMBERS, resetValues, COLUMN_GROUP_ID + "=?", groupArgs);
+        if (AppLog.DEBUG && AppLog.isLoggable(Log.DEBUG)) {
+            AppLog.d(TAG, "Reset " + resetCount + " members to 0 balance");
+        }
 
-            db.close();
-        } catch (Exception e) {
-            e.printStackTrace();
-            // If there's an error, just return without crashing
+        // 2. Compute owed/owing per member in one grouped query
+        Cursor totalsCursor = rawQuery(db, BALANCE_TOTALS_QUERY, new String[] { String.valueOf(groupId),
+                String.valueOf(groupId) });
+
+        // 3. Write totals and final balances (total_owed - total_owing)
+        SQLiteStatement updateStatement = db.compileStatement(WRITE_BALANCE_TOTALS);
+        long start = profiler.begin(WRITE_BALANCE_TOTALS);
+        while (totalsCursor.moveToNext()) {
+            long owedCents = totalsCursor.getLong(1);
+            long owingCents = totalsCursor.getLong(2);
+            updateStatement.bindLong(1, owedCents);
+            updateStatement.bindLong(2, owingCents);
+            updateStatement.bindLong(3, owedCents - owingCents);
+            updateStatement.bindLong(4, totalsCursor.getLong(0));
+            updateStatement.executeUpdateDelete();
         }
+        profiler.endBatch(WRITE_BALANCE_TOTALS, totalsCursor.getCount(), start);
+        updateStatement.close();
+        totalsCursor.close();
     }
 
-    // Test method to debug balance calculation
+    // Simplified entry point kept for existing callers
+    public void recalculateBalances(int groupId) {
+        recalculateAllBalancesForGroup(groupId);
+    }
+
+    // Logs every member, expense and share of the group; does nothing, not even the queries, in release
     public void debugBalanceCalculation(int groupId) {
+        if (!AppLog.DEBUG || !AppLog.isLoggable(Log.DEBUG)) {
+            return;
+        }
         try {
             SQLiteDatabase db = this.getWritableDatabase();
 
             // Check members
-            Cursor memberCursor = db.query(TABLE_MEMBERS,
-                    new String[] { COLUMN_MEMBER_ID, COLUMN_MEMBER_NAME, COLUMN_TOTAL_OWED, COLUMN_TOTAL_OWING,
-                            COLUMN_BALANCE },
+            Cursor memberCursor = query(db, TABLE_MEMBERS,
+                    new String[] { COLUMN_MEMBER_ID, COLUMN_MEMBER_NAME, COLUMN_TOTAL_OWED_CENTS, COLUMN_TOTAL_OWING_CENTS,
+                            COLUMN_BALANCE_CENTS },
                     COLUMN_GROUP_ID + "=?", new String[] { String.valueOf(groupId) }, null, null, null);
-            Log.d(TAG, "=== DEBUG: MEMBERS IN GROUP " + groupId + " ===");
+            AppLog.d(TAG, "=== DEBUG: MEMBERS IN GROUP " + groupId + " ===");
             while (memberCursor.moveToNext()) {
                 int id = memberCursor.getInt(0);
                 String name = memberCursor.getString(1);
-                double owed = memberCursor.getDouble(2);
-                double owing = memberCursor.getDouble(3);
-                double balance = memberCursor.getDouble(4);
-                Log.d(TAG, "Member: " + name + " (ID:" + id + ") owed=" + owed + ", owing=" + owing + ", balance="
+                double owed = MoneyUtils.fromCents(memberCursor.getLong(2));
+                double owing = MoneyUtils.fromCents(memberCursor.getLong(3));
+                double balance = MoneyUtils.fromCents(memberCursor.getLong(4));
+                AppLog.d(TAG, "Member: " + name + " (ID:" + id + ") owed=" + owed + ", owing=" + owing + ", balance="
                         + balance);
             }
             memberCursor.close();
 
             // Check expenses
-            Cursor expenseCursor = db.query(TABLE_EXPENSES,
-                    new String[] { COLUMN_EXPENSE_NAME, COLUMN_AMOUNT, COLUMN_PAYER, COLUMN_PARTICIPANTS,
-                            COLUMN_PARTICIPANT_AMOUNTS },
+            Cursor expenseCursor = query(db, TABLE_EXPENSES,
+                    new String[] { COLUMN_EXPENSE_ID, COLUMN_EXPENSE_NAME, COLUMN_AMOUNT_CENTS, COLUMN_PAYER,
+                            COLUMN_PARTICIPANTS },
                     COLUMN_GROUP_ID + "=?", new String[] { String.valueOf(groupId) }, null, null, null);
-            Log.d(TAG, "=== DEBUG: EXPENSES IN GROUP " + groupId + " ===");
+            AppLog.d(TAG, "=== DEBUG: EXPENSES IN GROUP " + groupId + " ===");
             while (expenseCursor.moveToNext()) {
-                String name = expenseCursor.getString(0);
-                double amount = expenseCursor.getDouble(1);
-                String payer = expenseCursor.getString(2);
-                String participants = expenseCursor.getString(3);
-                String amounts = expenseCursor.getString(4);
-                Log.d(TAG, "Expense: " + name + " Amount:" + amount + " Payer:" + payer + " Participants:"
-                        + participants + " Amounts:" + amounts);
+                int expenseId = expenseCursor.getInt(0);
+                String name = expenseCursor.getString(1);
+                double amount = MoneyUtils.fromCents(expenseCursor.getLong(2));
+                String payer = expenseCursor.getString(3);
+                String participants = expenseCursor.getString(4);
+                AppLog.d(TAG, "Expense: " + name + " Amount:" + amount + " Payer:" + payer + " Participants:"
+                        + participants);
+
+                Cursor shareCursor = query(db, TABLE_EXPENSE_SHARES,
+                        new String[] { COLUMN_MEMBER_ID, COLUMN_SHARE_CENTS },
+                        COLUMN_EXPENSE_ID + "=?", new String[] { String.valueOf(expenseId) }, null, null, null);
+                while (shareCursor.moveToNext()) {
+                    AppLog.d(TAG, "  Share: member " + shareCursor.getInt(0) + " -> "
+                            + MoneyUtils.fromCents(shareCursor.getLong(1)));
+                }
+                shareCursor.close();
             }
             expenseCursor.close();
 
-            db.close();
         } catch (Exception e) {
             Log.e(TAG, "Debug error: " + e.getMessage());
             e.printStackTrace();
@@ -976,43 +1526,205 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         values.put(COLUMN_TO_MEMBER, settlement.getToMember());
         values.put(COLUMN_FROM_MEMBER_ID, settlement.getFromMemberId());
         values.put(COLUMN_TO_MEMBER_ID, settlement.getToMemberId());
-        values.put(COLUMN_SETTLEMENT_AMOUNT, settlement.getAmount());
+        values.put(COLUMN_AMOUNT_CENTS, settlement.getAmountCents());
         values.put(COLUMN_IS_SETTLED, settlement.isSettled() ? 1 : 0);
         values.put(COLUMN_SETTLEMENT_DATE, settlement.getSettlementDate());
 
-        long result = db.insert(TABLE_SETTLEMENTS, null, values);
-        db.close();
+        long result = insert(db, TABLE_SETTLEMENTS, null, values);
+        changeNotifier.notifyChanged(groupId, ChangeNotifier.Table.SETTLEMENTS);
         return result;
     }
 
-    public List<Settlement> getSettlementsForGroup(int groupId) {
-        List<Settlement> settlements = new ArrayList<>();
-        SQLiteDatabase db = this.getReadableDatabase();
+    // Batch insert for settlements, one transaction and one compiled statement.
+    // Returns the number of settlements inserted.
+    public int addSettlements(List<Settlement> settlements, int groupId) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        int inserted;
 
-        Cursor cursor = db.query(TABLE_SETTLEMENTS, null, COLUMN_GROUP_ID + "=?",
-                new String[] { String.valueOf(groupId) }, null, null, COLUMN_SETTLEMENT_ID + " ASC");
+        db.beginTransaction();
+        try {
+            inserted = insertSettlements(db, settlements, groupId);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        changeNotifier.notifyChanged(groupId, ChangeNotifier.Table.SETTLEMENTS);
+        return inserted;
+    }
 
-        if (cursor.moveToFirst()) {
-            do {
-                Settlement settlement = new Settlement();
-                settlement.setFromMember(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_FROM_MEMBER)));
-                settlement.setToMember(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_TO_MEMBER)));
-                settlement.setFromMemberId(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_FROM_MEMBER_ID)));
-                settlement.setToMemberId(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_TO_MEMBER_ID)));
-                settlement.setAmount(cursor.getDouble(cursor.getColumnIndexOrThrow(COLUMN_SETTLEMENT_AMOUNT)));
-                settlement.setSettled(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_IS_SETTLED)) == 1);
-                settlement.setSettlementDate(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_SETTLEMENT_DATE)));
+    /**
+     * The group's settlements. When none of them is still open, suggestions are generated from the
+     * member balances and saved first. The check and the insert share one transaction, so two loads
+     * running at once cannot both add a set of suggestions.
+     */
+    public List<Settlement> getOrCreateSettlements(int groupId) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        List<Settlement> settlements;
+        int inserted = 0;
+
+        db.beginTransaction();
+        try {
+            settlements = getSettlementsForGroup(groupId);
+            boolean hasUnsettled = false;
+            for (Settlement settlement : settlements) {
+                if (!settlement.isSettled()) {
+                    hasUnsettled = true;
+                    break;
+                }
+            }
+            if (!hasUnsettled) {
+                // Fewest possible transfers for normal group sizes, heap-based greedy for very large groups
+                List<Settlement> suggestions = SettlementEngine.settle(getMembersForGroup(groupId),
+                        SettlementEngine.Mode.AUTO);
+                inserted = insertSettlements(db, suggestions, groupId);
+                settlements.addAll(suggestions);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        if (inserted > 0) {
+            changeNotifier.notifyChanged(groupId, ChangeNotifier.Table.SETTLEMENTS);
+        }
+        return settlements;
+    }
+
+    // Caller holds the transaction
+    private int insertSettlements(SQLiteDatabase db, List<Settlement> settlements, int groupId) {
+        int inserted = 0;
+        SQLiteStatement settlementStatement = db.compileStatement(INSERT_SETTLEMENT);
+        long start = profiler.begin(INSERT_SETTLEMENT);
+        for (Settlement settlement : settlements) {
+            settlementStatement.clearBindings();
+            settlementStatement.bindLong(1, groupId);
+            bindStringOrNull(settlementStatement, 2, settlement.getFromMember());
+            bindStringOrNull(settlementStatement, 3, settlement.getToMember());
+            settlementStatement.bindLong(4, settlement.getFromMemberId());
+            settlementStatement.bindLong(5, settlement.getToMemberId());
+            settlementStatement.bindLong(6, settlement.getAmountCents());
+            settlementStatement.bindLong(7, settlement.isSettled() ? 1 : 0);
+            bindStringOrNull(settlementStatement, 8, settlement.getSettlementDate());
+            if (settlementStatement.executeInsert() != -1) {
+                inserted++;
+            }
+        }
+        profiler.endBatch(INSERT_SETTLEMENT, settlements.size(), start);
+        settlementStatement.close();
+        return inserted;
+    }
+
+    // Timed stand-ins for the SQLiteDatabase calls of the same names. The SQL, with its ? placeholders,
+    // is what QueryProfiler groups by, and QueryPlanTest plan-checks every statement it recorded.
+    // Cursors run their query as they are moved, so rawQuery's time is recorded when the cursor is
+    // closed. The exporters pass their own read-only connection to rawQuery.
+    Cursor rawQuery(SQLiteDatabase db, String sql, String[] args) {
+        long start = profiler.begin(sql);
+        Cursor cursor;
+        try {
+            cursor = db.rawQuery(sql, args);
+        } catch (RuntimeException e) {
+            profiler.end(sql, args, start);
+            throw e;
+        }
+        return profiler.endQuery(sql, args, start, cursor);
+    }
+
+    private Cursor query(SQLiteDatabase db, String table, String[] columns, String selection, String[] args,
+            String groupBy, String having, String orderBy) {
+        return query(db, table, columns, selection, args, groupBy, having, orderBy, null);
+    }
+
+    private Cursor query(SQLiteDatabase db, String table, String[] columns, String selection, String[] args,
+            String groupBy, String having, String orderBy, String limit) {
+        // The same SQL that SQLiteDatabase.query would build
+        return rawQuery(db, SQLiteQueryBuilder.buildQueryString(false, table, columns, selection, groupBy, having,
+                orderBy, limit), args);
+    }
 
-                settlements.add(settlement);
-            } while (cursor.moveToNext());
+    private long insert(SQLiteDatabase db, String table, String nullColumnHack, ContentValues values) {
+        String sql = null;
+        Object[] args = null;
+        if (profiler.isEnabled()) {
+            List<String> columns = sortedColumns(values);
+            sql = "INSERT INTO " + table + " " + columns;
+            args = new Object[columns.size()];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = values.get(columns.get(i));
+            }
+        }
+        long start = profiler.begin(sql);
+        try {
+            return db.insert(table, nullColumnHack, values);
+        } finally {
+            profiler.end(sql, args, start);
         }
+    }
 
+    private int update(SQLiteDatabase db, String table, ContentValues values, String where, String[] args) {
+        String sql = profiler.isEnabled()
+                ? "UPDATE " + table + " SET " + String.join("=?, ", sortedColumns(values)) + "=?"
+                        + (where != null ? " WHERE " + where : "")
+                : null;
+        long start = profiler.begin(sql);
+        try {
+            return db.update(table, values, where, args);
+        } finally {
+            profiler.end(sql, args, start);
+        }
+    }
+
+    private int delete(SQLiteDatabase db, String table, String where, String[] args) {
+        String sql = profiler.isEnabled() ? "DELETE FROM " + table + (where != null ? " WHERE " + where : "") : null;
+        long start = profiler.begin(sql);
+        try {
+            return db.delete(table, where, args);
+        } finally {
+            profiler.end(sql, args, start);
+        }
+    }
+
+    // Sorted, since ContentValues iterates in hash order and the SQL key must not change between calls
+    private static List<String> sortedColumns(ContentValues values) {
+        List<String> columns = new ArrayList<>(values.keySet());
+        Collections.sort(columns);
+        return columns;
+    }
+
+    // Expenses name their payer, so a payer is found among the members by name: trimmed and ignoring
+    // ASCII case, the same rule as nameKey. Both sides are SQL expressions.
+    static String samePerson(String memberName, String payer) {
+        return "(TRIM(" + memberName + ") = TRIM(" + payer + ") COLLATE NOCASE)";
+    }
+
+    // Java side of samePerson. SQLite's NOCASE folds ASCII letters only, so this does too.
+    static String nameKey(String name) {
+        char[] chars = name.trim().toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            if (chars[i] >= 'A' && chars[i] <= 'Z') {
+                chars[i] += 'a' - 'A';
+            }
+        }
+        return new String(chars);
+    }
+
+    // SQLiteStatement.bindString rejects null, so nullable columns go through here
+    static void bindStringOrNull(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+
+    public List<Settlement> getSettlementsForGroup(int groupId) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = rawQuery(db, GROUP_SETTLEMENTS_QUERY, new String[] { String.valueOf(groupId) });
+        List<Settlement> settlements = new SettlementRowMapper(cursor).mapAll(cursor);
         cursor.close();
-        db.close();
         return settlements;
     }
 
-    public boolean updateSettlementStatus(int groupId, String fromMember, String toMember, double amount,
+    public boolean updateSettlementStatus(int groupId, String fromMember, String toMember, long amountCents,
             boolean isSettled) {
         SQLiteDatabase db = this.getWritableDatabase();
         ContentValues values = new ContentValues();
@@ -1023,125 +1735,109 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                             .format(new java.util.Date()));
         }
 
-        // Use a range for amount comparison to handle floating point precision
+        // Amounts are integer cents, so the settlement is matched exactly
         String whereClause = COLUMN_GROUP_ID + "=? AND " + COLUMN_FROM_MEMBER + "=? AND " +
-                COLUMN_TO_MEMBER + "=? AND " + COLUMN_SETTLEMENT_AMOUNT + " BETWEEN ? AND ?";
-        String[] whereArgs = { String.valueOf(groupId), fromMember, toMember,
-                String.valueOf(amount - 0.01), String.valueOf(amount + 0.01) };
-
-        Log.d(TAG, "Updating settlement: " + fromMember + " -> " + toMember + " $" + amount + " (settled=" + isSettled
-                + ")");
-        Log.d(TAG, "Where clause: " + whereClause);
-        Log.d(TAG, "Where args: " + java.util.Arrays.toString(whereArgs));
+                COLUMN_TO_MEMBER + "=? AND " + COLUMN_AMOUNT_CENTS + "=?";
+        String[] whereArgs = { String.valueOf(groupId), fromMember, toMember, String.valueOf(amountCents) };
 
-        int result = db.update(TABLE_SETTLEMENTS, values, whereClause, whereArgs);
-        Log.d(TAG, "Update result: " + result + " rows affected");
+        int result = update(db, TABLE_SETTLEMENTS, values, whereClause, whereArgs);
+        if (AppLog.DEBUG && AppLog.isLoggable(Log.DEBUG)) {
+            AppLog.d(TAG, "Updated settlement " + fromMember + " -> " + toMember + " $"
+                    + MoneyUtils.formatPlain(amountCents) + " (settled=" + isSettled + "): " + result + " rows");
+        }
 
         // If settlement is marked as complete, update member balances
         if (isSettled && result > 0) {
-            updateBalancesAfterSettlement(db, groupId, fromMember, toMember, amount);
+            updateBalancesAfterSettlement(db, groupId, fromMember, toMember, amountCents);
         }
+        changeNotifier.notifyChanged(groupId, ChangeNotifier.Table.SETTLEMENTS, ChangeNotifier.Table.MEMBERS);
 
-        db.close();
 
         return result > 0;
     }
 
     private void updateBalancesAfterSettlement(SQLiteDatabase db, int groupId, String fromMember, String toMember,
-            double amount) {
+            long amountCents) {
         try {
-            Log.d(TAG, "=== UPDATING BALANCES AFTER SETTLEMENT ===");
-            Log.d(TAG, "Settlement: " + fromMember + " pays " + toMember + " $" + amount);
-
             // Get current balances for both members
-            Cursor fromMemberCursor = db.query(TABLE_MEMBERS,
-                    new String[] { COLUMN_MEMBER_ID, COLUMN_TOTAL_OWED, COLUMN_TOTAL_OWING, COLUMN_BALANCE },
+            Cursor fromMemberCursor = query(db, TABLE_MEMBERS,
+                    new String[] { COLUMN_MEMBER_ID, COLUMN_TOTAL_OWED_CENTS, COLUMN_TOTAL_OWING_CENTS, COLUMN_BALANCE_CENTS },
                     COLUMN_GROUP_ID + "=? AND " + COLUMN_MEMBER_NAME + "=?",
                     new String[] { String.valueOf(groupId), fromMember }, null, null, null);
 
             int fromMemberId = -1;
-            double fromMemberOwed = 0, fromMemberOwing = 0, fromMemberBalance = 0;
+            long fromMemberOwed = 0, fromMemberOwing = 0, fromMemberBalance = 0;
             if (fromMemberCursor.moveToFirst()) {
                 fromMemberId = fromMemberCursor.getInt(0);
-                fromMemberOwed = fromMemberCursor.getDouble(1);
-                fromMemberOwing = fromMemberCursor.getDouble(2);
-                fromMemberBalance = fromMemberCursor.getDouble(3);
+                fromMemberOwed = fromMemberCursor.getLong(1);
+                fromMemberOwing = fromMemberCursor.getLong(2);
+                fromMemberBalance = fromMemberCursor.getLong(3);
             }
             fromMemberCursor.close();
 
-            Cursor toMemberCursor = db.query(TABLE_MEMBERS,
-                    new String[] { COLUMN_MEMBER_ID, COLUMN_TOTAL_OWED, COLUMN_TOTAL_OWING, COLUMN_BALANCE },
+            Cursor toMemberCursor = query(db, TABLE_MEMBERS,
+                    new String[] { COLUMN_MEMBER_ID, COLUMN_TOTAL_OWED_CENTS, COLUMN_TOTAL_OWING_CENTS, COLUMN_BALANCE_CENTS },
                     COLUMN_GROUP_ID + "=? AND " + COLUMN_MEMBER_NAME + "=?",
                     new String[] { String.valueOf(groupId), toMember }, null, null, null);
 
             int toMemberId = -1;
-            double toMemberOwed = 0, toMemberOwing = 0, toMemberBalance = 0;
+            long toMemberOwed = 0, toMemberOwing = 0, toMemberBalance = 0;
             if (toMemberCursor.moveToFirst()) {
                 toMemberId = toMemberCursor.getInt(0);
-                toMemberOwed = toMemberCursor.getDouble(1);
-                toMemberOwing = toMemberCursor.getDouble(2);
-                toMemberBalance = toMemberCursor.getDouble(3);
+                toMemberOwed = toMemberCursor.getLong(1);
+                toMemberOwing = toMemberCursor.getLong(2);
+                toMemberBalance = toMemberCursor.getLong(3);
             }
             toMemberCursor.close();
 
-            Log.d(TAG, "Before settlement:");
-            Log.d(TAG, "  " + fromMember + " (ID:" + fromMemberId + "): owed=" + fromMemberOwed + ", owing="
-                    + fromMemberOwing + ", balance=" + fromMemberBalance);
-            Log.d(TAG, "  " + toMember + " (ID:" + toMemberId + "): owed=" + toMemberOwed + ", owing=" + toMemberOwing
-                    + ", balance=" + toMemberBalance);
+            if (AppLog.DEBUG && AppLog.isLoggable(Log.DEBUG)) {
+                AppLog.d(TAG, "Settlement: " + fromMember + " pays " + toMember + " $"
+                        + MoneyUtils.formatPlain(amountCents) + ". Before (cents): " + fromMember + " (ID:"
+                        + fromMemberId + ") owed=" + fromMemberOwed + ", owing=" + fromMemberOwing + ", balance="
+                        + fromMemberBalance + "; " + toMember + " (ID:" + toMemberId + ") owed=" + toMemberOwed
+                        + ", owing=" + toMemberOwing + ", balance=" + toMemberBalance);
+            }
 
             // Update balances after settlement
             // fromMember reduces their debt (total_owed decreases by settlement amount)
-            double newFromMemberOwed = roundToTwoDecimals(Math.max(0, fromMemberOwed - amount));
+            long newFromMemberOwed = Math.max(0, fromMemberOwed - amountCents);
             ContentValues fromValues = new ContentValues();
-            fromValues.put(COLUMN_TOTAL_OWED, newFromMemberOwed);
-            double newFromBalance = roundToTwoDecimals(newFromMemberOwed - fromMemberOwing);
-            fromValues.put(COLUMN_BALANCE, newFromBalance);
+            fromValues.put(COLUMN_TOTAL_OWED_CENTS, newFromMemberOwed);
+            long newFromBalance = newFromMemberOwed - fromMemberOwing;
+            fromValues.put(COLUMN_BALANCE_CENTS, newFromBalance);
 
-            int fromUpdateResult = db.update(TABLE_MEMBERS, fromValues, COLUMN_MEMBER_ID + "=?",
+            update(db, TABLE_MEMBERS, fromValues, COLUMN_MEMBER_ID + "=?",
                     new String[] { String.valueOf(fromMemberId) });
-            Log.d(TAG, "Updated " + fromMember + " total_owed: " + fromMemberOwed + " -> " + newFromMemberOwed
-                    + " (rows affected: " + fromUpdateResult + ")");
 
             // toMember reduces their credit (total_owing decreases by settlement amount)
-            double newToMemberOwing = roundToTwoDecimals(Math.max(0, toMemberOwing - amount));
+            long newToMemberOwing = Math.max(0, toMemberOwing - amountCents);
             ContentValues toValues = new ContentValues();
-            toValues.put(COLUMN_TOTAL_OWING, newToMemberOwing);
-            double newToBalance = roundToTwoDecimals(toMemberOwed - newToMemberOwing);
-            toValues.put(COLUMN_BALANCE, newToBalance);
-
-            int toUpdateResult = db.update(TABLE_MEMBERS, toValues, COLUMN_MEMBER_ID + "=?",
-                    new String[] { String.valueOf(toMemberId) });
-            Log.d(TAG, "Updated " + toMember + " total_owing: " + toMemberOwing + " -> " + newToMemberOwing
-                    + " (rows affected: " + toUpdateResult + ")");
-
-            // Verify the updates by reading back the values
-            Cursor verifyFromCursor = db.query(TABLE_MEMBERS,
-                    new String[] { COLUMN_TOTAL_OWED, COLUMN_TOTAL_OWING, COLUMN_BALANCE },
-                    COLUMN_MEMBER_ID + "=?", new String[] { String.valueOf(fromMemberId) }, null, null, null);
-            if (verifyFromCursor.moveToFirst()) {
-                double finalFromOwed = verifyFromCursor.getDouble(0);
-                double finalFromOwing = verifyFromCursor.getDouble(1);
-                double finalFromBalance = verifyFromCursor.getDouble(2);
-                Log.d(TAG, "Final " + fromMember + ": owed=" + finalFromOwed + ", owing=" + finalFromOwing
-                        + ", balance=" + finalFromBalance);
-            }
-            verifyFromCursor.close();
-
-            Cursor verifyToCursor = db.query(TABLE_MEMBERS,
-                    new String[] { COLUMN_TOTAL_OWED, COLUMN_TOTAL_OWING, COLUMN_BALANCE },
-                    COLUMN_MEMBER_ID + "=?", new String[] { String.valueOf(toMemberId) }, null, null, null);
-            if (verifyToCursor.moveToFirst()) {
-                double finalToOwed = verifyToCursor.getDouble(0);
-                double finalToOwing = verifyToCursor.getDouble(1);
-                double finalToBalance = verifyToCursor.getDouble(2);
-                Log.d(TAG, "Final " + toMember + ": owed=" + finalToOwed + ", owing=" + finalToOwing + ", balance="
-                        + finalToBalance);
+            toValues.put(COLUMN_TOTAL_OWING_CENTS, newToMemberOwing);
+            long newToBalance = toMemberOwed - newToMemberOwing;
+            toValues.put(COLUMN_BALANCE_CENTS, newToBalance);
+
+            update(db, TABLE_MEMBERS, toValues, COLUMN_MEMBER_ID + "=?", new String[] { String.valueOf(toMemberId) });
+
+            // Verify the updates by reading back the values, in debug builds only
+            if (AppLog.DEBUG && AppLog.isLoggable(Log.DEBUG)) {
+                Cursor verifyFromCursor = query(db, TABLE_MEMBERS,
+                        new String[] { COLUMN_TOTAL_OWED_CENTS, COLUMN_TOTAL_OWING_CENTS, COLUMN_BALANCE_CENTS },
+                        COLUMN_MEMBER_ID + "=?", new String[] { String.valueOf(fromMemberId) }, null, null, null);
+                if (verifyFromCursor.moveToFirst()) {
+                    AppLog.d(TAG, "Final " + fromMember + " (cents): owed=" + verifyFromCursor.getLong(0) + ", owing="
+                            + verifyFromCursor.getLong(1) + ", balance=" + verifyFromCursor.getLong(2));
+                }
+                verifyFromCursor.close();
+
+                Cursor verifyToCursor = query(db, TABLE_MEMBERS,
+                        new String[] { COLUMN_TOTAL_OWED_CENTS, COLUMN_TOTAL_OWING_CENTS, COLUMN_BALANCE_CENTS },
+                        COLUMN_MEMBER_ID + "=?", new String[] { String.valueOf(toMemberId) }, null, null, null);
+                if (verifyToCursor.moveToFirst()) {
+                    AppLog.d(TAG, "Final " + toMember + " (cents): owed=" + verifyToCursor.getLong(0) + ", owing="
+                            + verifyToCursor.getLong(1) + ", balance=" + verifyToCursor.getLong(2));
+                }
+                verifyToCursor.close();
             }
-            verifyToCursor.close();
-
-            Log.d(TAG, "=== BALANCE UPDATE COMPLETED ===");
-
         } catch (Exception e) {
             Log.e(TAG, "Error updating balances after settlement: " + e.getMessage());
             e.printStackTrace();
@@ -1150,8 +1846,8 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 
     public void clearSettlementsForGroup(int groupId) {
         SQLiteDatabase db = this.getWritableDatabase();
-        db.delete(TABLE_SETTLEMENTS, COLUMN_GROUP_ID + "=?", new String[] { String.valueOf(groupId) });
-        db.close();
+        delete(db, TABLE_SETTLEMENTS, COLUMN_GROUP_ID + "=?", new String[] { String.valueOf(groupId) });
+        changeNotifier.notifyChanged(groupId, ChangeNotifier.Table.SETTLEMENTS);
     }
 
     public void clearUnsettledSettlementsForGroup(int groupId) {
@@ -1159,9 +1855,11 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         String whereClause = COLUMN_GROUP_ID + "=? AND " + COLUMN_IS_SETTLED + "=?";
         String[] whereArgs = { String.valueOf(groupId), "0" }; // 0 means not settled (false)
 
-        int deletedRows = db.delete(TABLE_SETTLEMENTS, whereClause, whereArgs);
-        Log.d(TAG, "Cleared " + deletedRows + " unsettled settlements for group " + groupId);
+        int deletedRows = delete(db, TABLE_SETTLEMENTS, whereClause, whereArgs);
+        if (AppLog.DEBUG && AppLog.isLoggable(Log.DEBUG)) {
+            AppLog.d(TAG, "Cleared " + deletedRows + " unsettled settlements for group " + groupId);
+        }
+        changeNotifier.notifyChanged(groupId, ChangeNotifier.Table.SETTLEMENTS);
 
-        db.close();
     }
 }
@@ -0,0 +1,539 @@
+package com.example.expensetracker.database;
+
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import com.example.expensetracker.database.BackupExporter.Section;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static com.example.expensetracker.database.BackupExporter.CHUNK_SIZE;
+import static com.example.expensetracker.database.BackupExporter.SECTIONS;
+import static com.example.expensetracker.database.DatabaseHelper.*;
+
+/**
+ * Compact binary copy of the whole database, for moving it to another device.
+ *
+ * Layout: the magic "ETSN", a version byte and a flags byte, then the body, DEFLATE-compressed
+ * when FLAG_DEFLATE is set. The body holds groups, members, expenses and settlements in that
+ * order, each table as rows in primary key order followed by a 0. Every row starts with the
+ * varint distance from the previous key; the other columns are written as given by CODECS, and
+ * each expense is followed by its shares as (member id, cents) pairs ending in member id 0.
+ * Member names and categories are dictionary-encoded: code 0 is null, a known string is its
+ * number, and the next unused number introduces a new string, written right after it.
+ *
+ * Restoring keeps every id and balance as it was. It builds a separate database file and only
+ * moves it over the live one once the whole snapshot has been read.
+ */
+public class DatabaseSnapshot {
+
+    public static final String MIME_TYPE = "application/octet-stream";
+    public static final String EXTENSION = "etsnap";
+
+    private static final int MAGIC = 0x4554534E; // "ETSN"
+    private static final int VERSION = 1;
+    private static final int FLAG_DEFLATE = 1;
+    private static final int HEADER_SIZE = 6;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String RESTORE_SUFFIX = "-restore";
+
+    // How each column is stored
+    private static final int KEY = 0;      // Varint distance from the previous row's key
+    private static final int ID = 1;       // Varint
+    private static final int CENTS = 2;    // Zigzag varint, as balances can be negative
+    private static final int TEXT = 3;     // Varint UTF-8 length + 1 (0 for null), then the bytes
+    private static final int NAME = 4;     // Member name dictionary code
+    private static final int CATEGORY = 5; // Category dictionary code
+    private static final int REAL = 6;     // 0 null, 1 zero, 2 followed by the 8 bytes of the double
+
+    // One per column of BackupExporter.SECTIONS, in the same order
+    private static final int[][] CODECS = {
+            { KEY, TEXT, TEXT, TEXT },
+            { KEY, ID, NAME, TEXT, TEXT, CENTS, CENTS, CENTS },
+            { KEY, ID, TEXT, CENTS, NAME, TEXT, TEXT, TEXT, CATEGORY, TEXT, REAL, REAL },
+            { KEY, ID, NAME, NAME, ID, ID, CENTS, ID, TEXT }
+    };
+
+    private static final String SHARES_CHUNK_QUERY = "SELECT " + COLUMN_EXPENSE_ID + ", " + COLUMN_MEMBER_ID + ", "
+            + COLUMN_SHARE_CENTS + " FROM " + TABLE_EXPENSE_SHARES
+            + " WHERE " + COLUMN_EXPENSE_ID + " > ? AND " + COLUMN_EXPENSE_ID + " <= ?"
+            + " ORDER BY " + COLUMN_EXPENSE_ID;
+
+    private final DatabaseHelper databaseHelper;
+
+    public DatabaseSnapshot(DatabaseHelper databaseHelper) {
+        this.databaseHelper = databaseHelper;
+    }
+
+    /**
+     * Writes a snapshot of the whole database to channel and returns the number of rows in it,
+     * not counting shares. Does not close the channel. Blocks, so call it from a worker thread.
+     */
+    public int write(WritableByteChannel channel, boolean compress) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).put((byte) VERSION).put((byte) (compress ? FLAG_DEFLATE : 0));
+        header.flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+
+        Output out = new Output(channel, compress);
+        SQLiteDatabase db = databaseHelper.openReadSnapshot();
+        try {
+            int rows = 0;
+            for (int table = 0; table < SECTIONS.length; table++) {
+                rows += writeTable(db, SECTIONS[table], CODECS[table], out);
+            }
+            out.finish();
+            return rows;
+        } finally {
+            closeReadSnapshot(db);
+            out.release();
+        }
+    }
+
+    // Reads the table in keyset chunks, like BackupExporter, so no cursor window outgrows one chunk
+    private int writeTable(SQLiteDatabase db, Section section, int[] codecs, Output out) throws IOException {
+        int rows = 0;
+        long lastKey = 0;
+        while (true) {
+            try (Cursor chunk = databaseHelper.rawQuery(db, section.chunkQuery,
+                    new String[] { String.valueOf(lastKey) })) {
+                if (!chunk.moveToLast()) {
+                    break;
+                }
+                long chunkEnd = chunk.getLong(0);
+                chunk.moveToPosition(-1);
+                Cursor shares = section.hasShares ? databaseHelper.rawQuery(db, SHARES_CHUNK_QUERY,
+                        new String[] { String.valueOf(lastKey), String.valueOf(chunkEnd) }) : null;
+                try {
+                    boolean hasShare = shares != null && shares.moveToNext();
+                    while (chunk.moveToNext()) {
+                        long key = chunk.getLong(0);
+                        out.putVarint(key - lastKey);
+                        lastKey = key;
+                        for (int i = 1; i < codecs.length; i++) {
+                            writeColumn(chunk, i, codecs[i], out);
+                        }
+                        if (shares != null) {
+                            while (hasShare && shares.getLong(0) <= key) {
+                                if (shares.getLong(0) == key) {
+                                    out.putVarint(shares.getLong(1));
+                                    out.putZigZag(shares.getLong(2));
+                                }
+                                hasShare = shares.moveToNext();
+                            }
+                            out.putVarint(0);
+                        }
+                        rows++;
+                    }
+                } finally {
+                    if (shares != null) {
+                        shares.close();
+                    }
+                }
+                if (chunk.getCount() < CHUNK_SIZE) {
+                    break;
+                }
+            }
+        }
+        out.putVarint(0);
+        return rows;
+    }
+
+    private static void writeColumn(Cursor row, int column, int codec, Output out) throws IOException {
+        switch (codec) {
+            case ID:
+                out.putVarint(row.getLong(column));
+                break;
+            case CENTS:
+                out.putZigZag(row.getLong(column));
+                break;
+            case NAME:
+                out.putDictionaryString(out.names, row.getString(column));
+                break;
+            case CATEGORY:
+                out.putDictionaryString(out.categories, row.getString(column));
+                break;
+            case REAL:
+                if (row.isNull(column)) {
+                    out.putByte(0);
+                } else if (row.getDouble(column) == 0) {
+                    out.putByte(1);
+                } else {
+                    out.putByte(2);
+                    out.putDouble(row.getDouble(column));
+                }
+                break;
+            default:
+                out.putString(row.getString(column));
+                break;
+        }
+    }
+
+    /**
+     * Replaces the whole database with the snapshot read from channel and returns the number of
+     * rows restored, not counting shares. If the snapshot cannot be read the live database is left
+     * untouched. Does not close the channel. Blocks, so call it from a worker thread.
+     */
+    public int restore(ReadableByteChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining()) {
+            if (channel.read(header) == -1) {
+                throw new IOException("Not an expense tracker snapshot");
+            }
+        }
+        header.flip();
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Not an expense tracker snapshot");
+        }
+        int version = header.get();
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version " + version);
+        }
+        boolean compressed = (header.get() & FLAG_DEFLATE) != 0;
+
+        File live = new File(databaseHelper.getReadableDatabase().getPath());
+        File restored = new File(live.getPath() + RESTORE_SUFFIX);
+        SQLiteDatabase db = databaseHelper.createEmptyDatabase(restored);
+        Input in = new Input(channel, compressed);
+        int rows = 0;
+        try {
+            // A failed restore deletes the file, so there is nothing a rollback journal would save
+            DatabaseUtils.stringForQuery(db, "PRAGMA journal_mode=OFF", null);
+            db.beginTransaction();
+            try {
+                for (int table = 0; table < SECTIONS.length; table++) {
+                    rows += readTable(db, SECTIONS[table], CODECS[table], in);
+                }
+                // Not part of the snapshot; derived from the payer names like on upgrade
+                db.execSQL(RESOLVE_PAYERS);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        } catch (IOException | RuntimeException e) {
+            db.close();
+            SQLiteDatabase.deleteDatabase(restored);
+            throw e;
+        } finally {
+            in.release();
+        }
+        db.close();
+        databaseHelper.replaceDatabase(restored);
+        return rows;
+    }
+
+    private static int readTable(SQLiteDatabase db, Section section, int[] codecs, Input in) throws IOException {
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(section.table).append(" (")
+                .append(String.join(", ", section.columns)).append(") VALUES (?");
+        for (int i = 1; i < section.columns.length; i++) {
+            sql.append(", ?");
+        }
+        SQLiteStatement insert = db.compileStatement(sql.append(")").toString());
+        SQLiteStatement insertShare = section.hasShares ? db.compileStatement(INSERT_SHARE) : null;
+        int rows = 0;
+        long key = 0;
+        try {
+            for (long distance = in.getVarint(); distance != 0; distance = in.getVarint()) {
+                key += distance;
+                insert.clearBindings();
+                insert.bindLong(1, key);
+                for (int i = 1; i < codecs.length; i++) {
+                    readColumn(insert, i + 1, codecs[i], in);
+                }
+                insert.executeInsert();
+                if (insertShare != null) {
+                    for (long memberId = in.getVarint(); memberId != 0; memberId = in.getVarint()) {
+                        insertShare.bindLong(1, key);
+                        insertShare.bindLong(2, memberId);
+                        insertShare.bindLong(3, in.getZigZag());
+                        insertShare.executeInsert();
+                    }
+                }
+                rows++;
+            }
+        } finally {
+            insert.close();
+            if (insertShare != null) {
+                insertShare.close();
+            }
+        }
+        return rows;
+    }
+
+    private static void readColumn(SQLiteStatement insert, int index, int codec, Input in) throws IOException {
+        switch (codec) {
+            case ID:
+                insert.bindLong(index, in.getVarint());
+                break;
+            case CENTS:
+                insert.bindLong(index, in.getZigZag());
+                break;
+            case NAME:
+                bindStringOrNull(insert, index, in.getDictionaryString(in.names));
+                break;
+            case CATEGORY:
+                bindStringOrNull(insert, index, in.getDictionaryString(in.categories));
+                break;
+            case REAL:
+                int kind = in.getByte();
+                if (kind == 0) {
+                    insert.bindNull(index);
+                } else {
+                    insert.bindDouble(index, kind == 1 ? 0 : in.getDouble());
+                }
+                break;
+            default:
+                bindStringOrNull(insert, index, in.getString());
+                break;
+        }
+    }
+
+    /** Encodes into one reused buffer and hands it to the channel, through a Deflater if asked, when full. */
+    private static class Output {
+        final Map<String, Integer> names = new HashMap<>();
+        final Map<String, Integer> categories = new HashMap<>();
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private final Deflater deflater;
+        private final ByteBuffer deflated;
+
+        Output(WritableByteChannel channel, boolean compress) {
+            this.channel = channel;
+            this.deflater = compress ? new Deflater(Deflater.BEST_SPEED) : null;
+            this.deflated = compress ? ByteBuffer.allocate(BUFFER_SIZE) : null;
+        }
+
+        void putByte(int value) throws IOException {
+            ensure(1);
+            buffer.put((byte) value);
+        }
+
+        void putVarint(long value) throws IOException {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+
+        void putZigZag(long value) throws IOException {
+            putVarint((value << 1) ^ (value >> 63));
+        }
+
+        void putDouble(double value) throws IOException {
+            ensure(8);
+            buffer.putDouble(value);
+        }
+
+        void putString(String value) throws IOException {
+            if (value == null) {
+                putVarint(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putVarint(bytes.length + 1);
+            for (int offset = 0; offset < bytes.length; ) {
+                ensure(1);
+                int length = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, length);
+                offset += length;
+            }
+        }
+
+        void putDictionaryString(Map<String, Integer> dictionary, String value) throws IOException {
+            if (value == null) {
+                putVarint(0);
+                return;
+            }
+            Integer code = dictionary.get(value);
+            if (code != null) {
+                putVarint(code);
+                return;
+            }
+            code = dictionary.size() + 1;
+            dictionary.put(value, code);
+            putVarint(code);
+            putString(value);
+        }
+
+        void finish() throws IOException {
+            flush(true);
+        }
+
+        void release() {
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush(false);
+            }
+        }
+
+        private void flush(boolean finish) throws IOException {
+            buffer.flip();
+            if (deflater == null) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            } else {
+                deflater.setInput(buffer.array(), buffer.position(), buffer.remaining());
+                if (finish) {
+                    deflater.finish();
+                }
+                // The deflater reads straight from the buffer, so drain it before the buffer is reused
+                while (!deflater.needsInput() || (finish && !deflater.finished())) {
+                    int length = deflater.deflate(deflated.array(), 0, deflated.capacity());
+                    deflated.clear();
+                    deflated.limit(length);
+                    while (deflated.hasRemaining()) {
+                        channel.write(deflated);
+                    }
+                }
+            }
+            buffer.clear();
+        }
+    }
+
+    /** Decodes from one reused buffer, refilled from the channel, through an Inflater if compressed. */
+    private static class Input {
+        final List<String> names = new ArrayList<>();
+        final List<String> categories = new ArrayList<>();
+        private final ReadableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private final Inflater inflater;
+        private final ByteBuffer compressed;
+
+        Input(ReadableByteChannel channel, boolean compressed) {
+            this.channel = channel;
+            this.inflater = compressed ? new Inflater() : null;
+            this.compressed = compressed ? ByteBuffer.allocate(BUFFER_SIZE) : null;
+            buffer.limit(0);
+        }
+
+        int getByte() throws IOException {
+            fill(1);
+            return buffer.get() & 0xFF;
+        }
+
+        long getVarint() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = getByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint in snapshot");
+        }
+
+        long getZigZag() throws IOException {
+            long value = getVarint();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        double getDouble() throws IOException {
+            fill(8);
+            return buffer.getDouble();
+        }
+
+        String getString() throws IOException {
+            long length = getVarint() - 1;
+            if (length < 0) {
+                return null;
+            }
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("String too long in snapshot");
+            }
+            byte[] bytes = new byte[(int) length];
+            for (int offset = 0; offset < bytes.length; ) {
+                fill(1);
+                int chunk = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.get(bytes, offset, chunk);
+                offset += chunk;
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        String getDictionaryString(List<String> dictionary) throws IOException {
+            long code = getVarint();
+            if (code == 0) {
+                return null;
+            }
+            if (code <= dictionary.size()) {
+                return dictionary.get((int) code - 1);
+            }
+            if (code != dictionary.size() + 1) {
+                throw new IOException("Bad dictionary code in snapshot");
+            }
+            String value = getString();
+            dictionary.add(value);
+            return value;
+        }
+
+        void release() {
+            if (inflater != null) {
+                inflater.end();
+            }
+        }
+
+        // Makes at least the given number of bytes available in the buffer
+        private void fill(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return;
+            }
+            buffer.compact();
+            while (buffer.position() < bytes) {
+                if (read() == -1) {
+                    throw new EOFException("Snapshot ends early");
+                }
+            }
+            buffer.flip();
+        }
+
+        private int read() throws IOException {
+            if (inflater == null) {
+                return channel.read(buffer);
+            }
+            if (inflater.finished()) {
+                return -1;
+            }
+            if (inflater.needsInput()) {
+                compressed.clear();
+                int length = channel.read(compressed);
+                if (length == -1) {
+                    return -1;
+                }
+                inflater.setInput(compressed.array(), 0, length);
+            }
+            try {
+                int length = inflater.inflate(buffer.array(), buffer.position(), buffer.remaining());
+                buffer.position(buffer.position() + length);
+                return length;
+            } catch (DataFormatException e) {
+                throw new IOException("Corrupt snapshot", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.expensetracker.database;
+
+import android.util.Log;
+
+import androidx.lifecycle.LifecycleOwner;
+
+import com.example.expensetracker.models.Expense;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Loads a group's expenses one keyset page at a time, newest first, as the list is scrolled.
+ * Only the pages the user has actually reached are held in memory.
+ */
+public class ExpensePager {
+    private static final String TAG = "ExpensePager";
+    public static final int PAGE_SIZE = 50;
+    // Start loading the next page when this many rows are left below the last visible one
+    public static final int PREFETCH_DISTANCE = 15;
+
+    public interface Listener {
+        void onExpensesLoaded(List<Expense> expenses);
+    }
+
+    private final ExpenseRepository repository;
+    private final LifecycleOwner owner;
+    private final int groupId;
+    private final Listener listener;
+    private final List<Expense> loaded = new ArrayList<>();
+    private ExpenseRepository.Task task;
+    private boolean endReached;
+
+    public ExpensePager(ExpenseRepository repository, LifecycleOwner owner, int groupId, Listener listener) {
+        this.repository = repository;
+        this.owner = owner;
+        this.groupId = groupId;
+        this.listener = listener;
+    }
+
+    /**
+     * Reloads from the top, keeping as many rows as are already loaded so the list does not
+     * jump back to the first page after an edit.
+     */
+    public void refresh() {
+        if (task != null) {
+            task.cancel();
+        }
+        int count = Math.max(PAGE_SIZE, loaded.size());
+        load(db -> db.getExpensesPage(groupId, null, 0, count), count, false);
+    }
+
+    /** Loads the page after the last loaded expense, unless one is loading or none are left. */
+    public void loadMore() {
+        if (task != null || endReached || loaded.isEmpty()) {
+            return;
+        }
+        Expense last = loaded.get(loaded.size() - 1);
+        load(db -> db.getExpensesPage(groupId, last.getDate(), last.getExpenseId(), PAGE_SIZE), PAGE_SIZE, true);
+    }
+
+    public void onScrolledTo(int lastVisiblePosition) {
+        if (lastVisiblePosition >= loaded.size() - PREFETCH_DISTANCE) {
+            loadMore();
+        }
+    }
+
+    public List<Expense> getLoaded() {
+        return Collections.unmodifiableList(loaded);
+    }
+
+    private void load(ExpenseRepository.Query<List<Expense>> query, int requested, boolean append) {
+        task = repository.query(owner, query, new ExpenseRepository.Callback<List<Expense>>() {
+            @Override
+            public void onResult(List<Expense> page) {
+                task = null;
+                if (!append) {
+                    loaded.clear();
+                }
+                loaded.addAll(page);
+                endReached = page.size() < requested;
+                listener.onExpensesLoaded(getLoaded());
+            }
+
+            @Override
+            public void onError(Exception e) {
+                task = null;
+                Log.e(TAG, "Error loading expenses for group " + groupId, e);
+            }
+        });
+    }
+}
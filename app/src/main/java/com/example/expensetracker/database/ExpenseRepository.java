@@ -0,0 +1,188 @@
+package com.example.expensetracker.database;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Runs DatabaseHelper calls off the main thread and posts the results back to it.
+ *
+ * Every call is tied to a LifecycleOwner (an activity, or a fragment's view lifecycle owner).
+ * When the owner is destroyed the task is cancelled and its callback is never invoked, so
+ * callbacks can touch views without checking whether they still exist. A cancelled query is
+ * dropped if it has not started yet; a write always runs to completion.
+ *
+ * Once QUEUE_CAPACITY tasks are waiting, further queries are refused with a
+ * RejectedExecutionException passed to onError. Writes are always queued.
+ */
+public class ExpenseRepository {
+    private static final String TAG = "ExpenseRepository";
+
+    // WAL lets one writer run alongside readers; more threads would only queue on SQLite's locks
+    static final int THREAD_COUNT = 2;
+    static final int QUEUE_CAPACITY = 64;
+
+    private static ExpenseRepository instance;
+
+    private final DatabaseHelper databaseHelper;
+    private final ThreadPoolExecutor executor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Tasks share the read side; an exclusive write takes the write side and so runs alone
+    private final ReadWriteLock taskLock = new ReentrantReadWriteLock();
+
+    public interface Query<T> {
+        T run(DatabaseHelper db) throws Exception;
+    }
+
+    public interface Callback<T> {
+        void onResult(T result);
+
+        default void onError(Exception e) {
+            Log.e(TAG, "Database task failed", e);
+        }
+    }
+
+    /** Handle for a submitted call. Only cancel it from the main thread. */
+    public static class Task {
+        private final boolean interruptible;
+        private Future<?> future;
+        private Runnable detach;
+        private volatile boolean cancelled;
+
+        private Task(boolean interruptible) {
+            this.interruptible = interruptible;
+        }
+
+        public void cancel() {
+            cancelled = true;
+            // A query that never started will not deliver, so stop observing its owner here
+            if (interruptible && future != null && future.cancel(false) && detach != null) {
+                detach.run();
+            }
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    public static synchronized ExpenseRepository getInstance(Context context) {
+        if (instance == null) {
+            instance = new ExpenseRepository(DatabaseHelper.getInstance(context));
+        }
+        return instance;
+    }
+
+    ExpenseRepository(DatabaseHelper databaseHelper) {
+        this.databaseHelper = databaseHelper;
+        ThreadFactory threadFactory = new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger(1);
+
+            @Override
+            public Thread newThread(@NonNull Runnable runnable) {
+                return new Thread(() -> {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }, "db-worker-" + count.getAndIncrement());
+            }
+        };
+        // Unbounded so a write is never turned away; submit() applies the limit to queries only
+        this.executor = new ThreadPoolExecutor(THREAD_COUNT, THREAD_COUNT, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), threadFactory);
+    }
+
+    public ChangeNotifier getChangeNotifier() {
+        return databaseHelper.getChangeNotifier();
+    }
+
+    /**
+     * Runs a read on a worker thread and delivers the result on the main thread, unless the
+     * owner has been destroyed or the task was cancelled in the meantime. Main thread only.
+     */
+    public <T> Task query(LifecycleOwner owner, Query<T> query, Callback<T> callback) {
+        return submit(owner, query, callback, true, false);
+    }
+
+    /** Like query(), but the work itself is never skipped; only the callback is. */
+    public <T> Task write(LifecycleOwner owner, Query<T> write, Callback<T> callback) {
+        return submit(owner, write, callback, false, false);
+    }
+
+    /**
+     * Like write(), but waits for the task running on the other worker and holds back any task
+     * submitted meanwhile until it is done. For writes that close or replace the database file.
+     */
+    public <T> Task writeExclusive(LifecycleOwner owner, Query<T> write, Callback<T> callback) {
+        return submit(owner, write, callback, false, true);
+    }
+
+    private <T> Task submit(LifecycleOwner owner, Query<T> query, Callback<T> callback, boolean interruptible,
+            boolean exclusive) {
+        Task task = new Task(interruptible);
+        if (interruptible && executor.getQueue().size() >= QUEUE_CAPACITY) {
+            Log.w(TAG, "Database queue full, dropping query");
+            callback.onError(new RejectedExecutionException("Database queue full"));
+            return task;
+        }
+        Lifecycle lifecycle = owner.getLifecycle();
+        if (lifecycle.getCurrentState() == Lifecycle.State.DESTROYED) {
+            task.cancelled = true;
+            if (interruptible) {
+                return task;
+            }
+        }
+
+        LifecycleEventObserver observer = (source, event) -> {
+            if (event == Lifecycle.Event.ON_DESTROY) {
+                task.cancel();
+            }
+        };
+        lifecycle.addObserver(observer);
+        task.detach = () -> lifecycle.removeObserver(observer);
+
+        task.future = executor.submit(() -> {
+            if (interruptible && task.cancelled) {
+                mainHandler.post(task.detach);
+                return;
+            }
+            Lock lock = exclusive ? taskLock.writeLock() : taskLock.readLock();
+            lock.lock();
+            try {
+                T result = query.run(databaseHelper);
+                deliver(task, () -> callback.onResult(result));
+            } catch (Exception e) {
+                deliver(task, () -> callback.onError(e));
+            } finally {
+                lock.unlock();
+            }
+        });
+        return task;
+    }
+
+    private void deliver(Task task, Runnable delivery) {
+        mainHandler.post(() -> {
+            task.detach.run();
+            if (!task.cancelled) {
+                delivery.run();
+            }
+        });
+    }
+}
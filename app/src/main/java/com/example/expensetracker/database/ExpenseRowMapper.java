@@ -0,0 +1,61 @@
+package com.example.expensetracker.database;
+
+import android.database.Cursor;
+
+import com.example.expensetracker.models.Expense;
+
+import static com.example.expensetracker.database.DatabaseHelper.*;
+
+/** Maps expenses rows, without their shares. */
+class ExpenseRowMapper extends RowMapper<Expense> {
+    static final String[] COLUMNS = { COLUMN_EXPENSE_ID, COLUMN_GROUP_ID, COLUMN_EXPENSE_NAME, COLUMN_AMOUNT_CENTS,
+            COLUMN_PAYER, COLUMN_PARTICIPANTS, COLUMN_DATE, COLUMN_DESCRIPTION, COLUMN_CATEGORY, COLUMN_LOCATION,
+            COLUMN_LATITUDE, COLUMN_LONGITUDE };
+    static final String PROJECTION = String.join(", ", COLUMNS);
+
+    private final int expenseId;
+    private final int groupId;
+    private final int expenseName;
+    private final int amountCents;
+    private final int payer;
+    private final int participants;
+    private final int date;
+    private final int description;
+    private final int category;
+    private final int location;
+    private final int latitude;
+    private final int longitude;
+
+    ExpenseRowMapper(Cursor cursor) {
+        expenseId = cursor.getColumnIndexOrThrow(COLUMN_EXPENSE_ID);
+        groupId = cursor.getColumnIndexOrThrow(COLUMN_GROUP_ID);
+        expenseName = cursor.getColumnIndexOrThrow(COLUMN_EXPENSE_NAME);
+        amountCents = cursor.getColumnIndexOrThrow(COLUMN_AMOUNT_CENTS);
+        payer = cursor.getColumnIndexOrThrow(COLUMN_PAYER);
+        participants = cursor.getColumnIndexOrThrow(COLUMN_PARTICIPANTS);
+        date = cursor.getColumnIndexOrThrow(COLUMN_DATE);
+        description = cursor.getColumnIndexOrThrow(COLUMN_DESCRIPTION);
+        category = cursor.getColumnIndexOrThrow(COLUMN_CATEGORY);
+        location = cursor.getColumnIndexOrThrow(COLUMN_LOCATION);
+        latitude = cursor.getColumnIndexOrThrow(COLUMN_LATITUDE);
+        longitude = cursor.getColumnIndexOrThrow(COLUMN_LONGITUDE);
+    }
+
+    @Override
+    Expense map(Cursor cursor) {
+        Expense expense = new Expense();
+        expense.setExpenseId(cursor.getInt(expenseId));
+        expense.setGroupId(cursor.getInt(groupId));
+        expense.setExpenseName(cursor.getString(expenseName));
+        expense.setAmountCents(cursor.getLong(amountCents));
+        expense.setPayer(cursor.getString(payer));
+        expense.setParticipants(cursor.getString(participants));
+        expense.setDate(cursor.getString(date));
+        expense.setDescription(cursor.getString(description));
+        expense.setCategory(cursor.getString(category));
+        expense.setLocation(cursor.getString(location));
+        expense.setLatitude(cursor.getDouble(latitude));
+        expense.setLongitude(cursor.getDouble(longitude));
+        return expense;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.expensetracker.database;
+
+import android.database.Cursor;
+
+import com.example.expensetracker.models.Group;
+
+import static com.example.expensetracker.database.DatabaseHelper.*;
+
+/** Maps groups rows, including the expense total and counts the triggers maintain. */
+class GroupRowMapper extends RowMapper<Group> {
+    static final String[] COLUMNS = { COLUMN_GROUP_ID, COLUMN_GROUP_NAME, COLUMN_GROUP_DESCRIPTION,
+            COLUMN_CREATED_DATE, COLUMN_TOTAL_EXPENSES_CENTS, COLUMN_EXPENSE_COUNT, COLUMN_MEMBER_COUNT };
+    static final String PROJECTION = String.join(", ", COLUMNS);
+
+    private final int groupId;
+    private final int groupName;
+    private final int description;
+    private final int createdDate;
+    private final int totalExpensesCents;
+    private final int expenseCount;
+    private final int memberCount;
+
+    GroupRowMapper(Cursor cursor) {
+        groupId = cursor.getColumnIndexOrThrow(COLUMN_GROUP_ID);
+        groupName = cursor.getColumnIndexOrThrow(COLUMN_GROUP_NAME);
+        description = cursor.getColumnIndexOrThrow(COLUMN_GROUP_DESCRIPTION);
+        createdDate = cursor.getColumnIndexOrThrow(COLUMN_CREATED_DATE);
+        totalExpensesCents = cursor.getColumnIndexOrThrow(COLUMN_TOTAL_EXPENSES_CENTS);
+        expenseCount = cursor.getColumnIndexOrThrow(COLUMN_EXPENSE_COUNT);
+        memberCount = cursor.getColumnIndexOrThrow(COLUMN_MEMBER_COUNT);
+    }
+
+    @Override
+    Group map(Cursor cursor) {
+        Group group = new Group();
+        group.setGroupId(cursor.getInt(groupId));
+        group.setGroupName(cursor.getString(groupName));
+        group.setDescription(cursor.getString(description));
+        group.setCreatedDate(cursor.getString(createdDate));
+        group.setTotalExpensesCents(cursor.getLong(totalExpensesCents));
+        group.setExpenseCount(cursor.getInt(expenseCount));
+        group.setMemberCount(cursor.getInt(memberCount));
+        return group;
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.expensetracker.database;
+
+import android.database.Cursor;
+
+import com.example.expensetracker.models.Member;
+
+import static com.example.expensetracker.database.DatabaseHelper.*;
+
+class MemberRowMapper extends RowMapper<Member> {
+    static final String[] COLUMNS = { COLUMN_MEMBER_ID, COLUMN_GROUP_ID, COLUMN_MEMBER_NAME, COLUMN_EMAIL,
+            COLUMN_PHONE_NUMBER, COLUMN_TOTAL_OWED_CENTS, COLUMN_TOTAL_OWING_CENTS, COLUMN_BALANCE_CENTS };
+    static final String PROJECTION = String.join(", ", COLUMNS);
+
+    private final int memberId;
+    private final int groupId;
+    private final int memberName;
+    private final int email;
+    private final int phoneNumber;
+    private final int totalOwedCents;
+    private final int totalOwingCents;
+    private final int balanceCents;
+
+    MemberRowMapper(Cursor cursor) {
+        memberId = cursor.getColumnIndexOrThrow(COLUMN_MEMBER_ID);
+        groupId = cursor.getColumnIndexOrThrow(COLUMN_GROUP_ID);
+        memberName = cursor.getColumnIndexOrThrow(COLUMN_MEMBER_NAME);
+        email = cursor.getColumnIndexOrThrow(COLUMN_EMAIL);
+        phoneNumber = cursor.getColumnIndexOrThrow(COLUMN_PHONE_NUMBER);
+        totalOwedCents = cursor.getColumnIndexOrThrow(COLUMN_TOTAL_OWED_CENTS);
+        totalOwingCents = cursor.getColumnIndexOrThrow(COLUMN_TOTAL_OWING_CENTS);
+        balanceCents = cursor.getColumnIndexOrThrow(COLUMN_BALANCE_CENTS);
+    }
+
+    @Override
+    Member map(Cursor cursor) {
+        Member member = new Member();
+        member.setMemberId(cursor.getInt(memberId));
+        member.setGroupId(cursor.getInt(groupId));
+        member.setMemberName(cursor.getString(memberName));
+        member.setEmail(cursor.getString(email));
+        member.setPhoneNumber(cursor.getString(phoneNumber));
+        member.setTotalOwedCents(cursor.getLong(totalOwedCents));
+        member.setTotalOwingCents(cursor.getLong(totalOwingCents));
+        member.setBalanceCents(cursor.getLong(balanceCents));
+        return member;
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.expensetracker.database;
+
+import android.database.Cursor;
+import android.database.CursorWrapper;
+
+/**
+ * What DatabaseHelper.rawQuery returns while QueryProfiler is on. A SQLiteCursor runs its query a
+ * window at a time as it is moved, so the time spent inside getCount and the moves is added to the
+ * time it took to prepare the statement and recorded when the cursor is closed. Whatever the caller
+ * does between moves is not counted, and nothing is read ahead of what the caller asks for.
+ */
+class ProfiledCursor extends CursorWrapper {
+    private final QueryProfiler profiler;
+    private final String sql;
+    private final Object[] args;
+    private long nanos;
+    private boolean recorded;
+
+    ProfiledCursor(Cursor cursor, QueryProfiler profiler, String sql, Object[] args, long prepareNanos) {
+        super(cursor);
+        this.profiler = profiler;
+        this.sql = sql;
+        this.args = args;
+        this.nanos = prepareNanos;
+    }
+
+    @Override
+    public int getCount() {
+        long start = System.nanoTime();
+        int count = super.getCount();
+        nanos += System.nanoTime() - start;
+        return count;
+    }
+
+    @Override
+    public boolean move(int offset) {
+        long start = System.nanoTime();
+        boolean moved = super.move(offset);
+        nanos += System.nanoTime() - start;
+        return moved;
+    }
+
+    @Override
+    public boolean moveToPosition(int position) {
+        long start = System.nanoTime();
+        boolean moved = super.moveToPosition(position);
+        nanos += System.nanoTime() - start;
+        return moved;
+    }
+
+    @Override
+    public boolean moveToFirst() {
+        long start = System.nanoTime();
+        boolean moved = super.moveToFirst();
+        nanos += System.nanoTime() - start;
+        return moved;
+    }
+
+    @Override
+    public boolean moveToLast() {
+        long start = System.nanoTime();
+        boolean moved = super.moveToLast();
+        nanos += System.nanoTime() - start;
+        return moved;
+    }
+
+    @Override
+    public boolean moveToNext() {
+        long start = System.nanoTime();
+        boolean moved = super.moveToNext();
+        nanos += System.nanoTime() - start;
+        return moved;
+    }
+
+    @Override
+    public boolean moveToPrevious() {
+        long start = System.nanoTime();
+        boolean moved = super.moveToPrevious();
+        nanos += System.nanoTime() - start;
+        return moved;
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        if (!recorded) {
+            recorded = true;
+            profiler.endCursor(sql, args, nanos);
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.example.expensetracker.database;
+
+import android.database.Cursor;
+import android.os.Trace;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Times the SQL that DatabaseHelper runs. Every statement is wrapped in an android.os.Trace section
+ * and its duration goes into a latency histogram for its SQL, so each call site with its ?
+ * placeholders gets its own row. A query's section covers preparing it; the rows it reads are timed
+ * by its ProfiledCursor. Calls over SLOW_QUERY_NANOS are also kept in a ring buffer with
+ * the shape of their bind arguments; the values themselves are never stored.
+ *
+ * A disabled profiler (release builds) returns right away from begin and end.
+ */
+public class QueryProfiler {
+    // One frame at 60 fps
+    public static final long SLOW_QUERY_NANOS = 16_000_000L;
+    static final int SLOW_LOG_SIZE = 50;
+
+    // Log-linear buckets: 8 per power of two, so a percentile is off by at most 1/8 of its value
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = 64 << SUB_BUCKET_BITS;
+
+    // Trace section names are limited to 127 characters
+    private static final int MAX_SECTION_LENGTH = 127;
+
+    public static class Stats {
+        public final String sql;
+        public final long count;
+        public final long totalNanos;
+        public final long maxNanos;
+        public final long p50Nanos;
+        public final long p95Nanos;
+        public final long p99Nanos;
+
+        Stats(String sql, Histogram histogram) {
+            this.sql = sql;
+            count = histogram.count;
+            totalNanos = histogram.totalNanos;
+            maxNanos = histogram.maxNanos;
+            p50Nanos = histogram.percentile(0.50);
+            p95Nanos = histogram.percentile(0.95);
+            p99Nanos = histogram.percentile(0.99);
+        }
+    }
+
+    public static class SlowQuery {
+        public final String sql;
+        public final String argShape;
+        public final long nanos;
+        public final long timeMillis;
+        public final String threadName;
+
+        SlowQuery(String sql, String argShape, long nanos) {
+            this.sql = sql;
+            this.argShape = argShape;
+            this.nanos = nanos;
+            timeMillis = System.currentTimeMillis();
+            threadName = Thread.currentThread().getName();
+        }
+    }
+
+    private static class Histogram {
+        final long[] buckets = new long[BUCKET_COUNT];
+        long count;
+        long totalNanos;
+        long maxNanos;
+
+        void record(long nanos) {
+            buckets[bucketOf(nanos)]++;
+            count++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+        }
+
+        // Upper bound of the bucket holding the given fraction of calls, capped at the slowest call
+        long percentile(double fraction) {
+            long rank = (long) Math.ceil(fraction * count);
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += buckets[i];
+                if (seen >= rank && seen > 0) {
+                    return Math.min(upperBoundOf(i), maxNanos);
+                }
+            }
+            return maxNanos;
+        }
+    }
+
+    private final boolean enabled;
+    private final Map<String, Histogram> histograms = new HashMap<>();
+    private final SlowQuery[] slowLog = new SlowQuery[SLOW_LOG_SIZE];
+    private int slowLogNext;
+
+    QueryProfiler(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Returns the start time to pass to end, or 0 when the profiler is off
+    long begin(String sql) {
+        if (!enabled) {
+            return 0;
+        }
+        Trace.beginSection(sql.length() > MAX_SECTION_LENGTH ? sql.substring(0, MAX_SECTION_LENGTH) : sql);
+        return System.nanoTime();
+    }
+
+    void end(String sql, Object[] args, long startNanos) {
+        if (enabled) {
+            record(sql, startNanos, args);
+        }
+    }
+
+    // For a batch run through one compiled statement, timed as a whole
+    void endBatch(String sql, int rows, long startNanos) {
+        if (enabled) {
+            record(sql, startNanos, rows);
+        }
+    }
+
+    // For a query: the trace section covers preparing the statement, and the returned cursor records
+    // the call once it is closed, see ProfiledCursor. Returns cursor itself when the profiler is off.
+    Cursor endQuery(String sql, Object[] args, long startNanos, Cursor cursor) {
+        if (!enabled) {
+            return cursor;
+        }
+        long prepareNanos = System.nanoTime() - startNanos;
+        Trace.endSection();
+        return new ProfiledCursor(cursor, this, sql, args, prepareNanos);
+    }
+
+    void endCursor(String sql, Object[] args, long nanos) {
+        add(sql, nanos, args);
+    }
+
+    private void record(String sql, long startNanos, Object argsOrRows) {
+        long nanos = System.nanoTime() - startNanos;
+        Trace.endSection();
+        add(sql, nanos, argsOrRows);
+    }
+
+    private synchronized void add(String sql, long nanos, Object argsOrRows) {
+        Histogram histogram = histograms.get(sql);
+        if (histogram == null) {
+            histogram = new Histogram();
+            histograms.put(sql, histogram);
+        }
+        histogram.record(nanos);
+
+        if (nanos >= SLOW_QUERY_NANOS) {
+            String shape = argsOrRows instanceof Integer
+                    ? "[" + argsOrRows + " rows]"
+                    : argShape((Object[]) argsOrRows);
+            slowLog[slowLogNext] = new SlowQuery(sql, shape, nanos);
+            slowLogNext = (slowLogNext + 1) % SLOW_LOG_SIZE;
+        }
+    }
+
+    /** Every statement seen so far, the one with the most total time first. */
+    public synchronized List<Stats> snapshot() {
+        List<Stats> stats = new ArrayList<>(histograms.size());
+        for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+            stats.add(new Stats(entry.getKey(), entry.getValue()));
+        }
+        Collections.sort(stats, (a, b) -> Long.compare(b.totalNanos, a.totalNanos));
+        return stats;
+    }
+
+    /** The slow log, newest first. */
+    public synchronized List<SlowQuery> slowQueries() {
+        List<SlowQuery> queries = new ArrayList<>(SLOW_LOG_SIZE);
+        for (int i = 1; i <= SLOW_LOG_SIZE; i++) {
+            SlowQuery query = slowLog[(slowLogNext - i + SLOW_LOG_SIZE) % SLOW_LOG_SIZE];
+            if (query == null) {
+                break;
+            }
+            queries.add(query);
+        }
+        return queries;
+    }
+
+    public synchronized void reset() {
+        histograms.clear();
+        Arrays.fill(slowLog, null);
+        slowLogNext = 0;
+    }
+
+    // "(int, text[10], null)": the type of each bind argument, and the length of text ones
+    static String argShape(Object[] args) {
+        if (args == null || args.length == 0) {
+            return "()";
+        }
+        StringBuilder shape = new StringBuilder("(");
+        for (int i = 0; i < args.length; i++) {
+            shape.append(i == 0 ? "" : ", ");
+            Object arg = args[i];
+            if (arg == null) {
+                shape.append("null");
+            } else if (arg instanceof Number || isInteger(arg.toString())) {
+                shape.append(arg instanceof Double || arg instanceof Float ? "real" : "int");
+            } else {
+                shape.append("text[").append(arg.toString().length()).append(']');
+            }
+        }
+        return shape.append(')').toString();
+    }
+
+    // Bind arguments arrive as strings, so numeric IDs are told apart by their digits
+    private static boolean isInteger(String text) {
+        if (text.isEmpty() || text.length() > 19) {
+            return false;
+        }
+        for (int i = text.charAt(0) == '-' && text.length() > 1 ? 1 : 0; i < text.length(); i++) {
+            if (!Character.isDigit(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static int bucketOf(long nanos) {
+        long value = Math.max(nanos, 0);
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int highBit = 63 - Long.numberOfLeadingZeros(value);
+        int shift = highBit - SUB_BUCKET_BITS;
+        return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket >> SUB_BUCKET_BITS) - 1;
+        long lower = (long) (SUB_BUCKETS + (bucket & (SUB_BUCKETS - 1))) << shift;
+        return lower + (1L << shift) - 1;
+    }
+}
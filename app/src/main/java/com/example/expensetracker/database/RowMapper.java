@@ -0,0 +1,34 @@
+package com.example.expensetracker.database;
+
+import android.database.Cursor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Turns the rows of one cursor into models. A mapper is created for a specific cursor and looks its
+ * column indices up once, in the constructor, so mapping a row is only the getters. Each subclass
+ * lists the columns it reads in COLUMNS, and queries select those rather than *.
+ */
+abstract class RowMapper<T> {
+
+    abstract T map(Cursor cursor);
+
+    /** Maps every row from the cursor's current position to the end. */
+    List<T> mapAll(Cursor cursor) {
+        List<T> rows = new ArrayList<>(cursor.getCount());
+        while (cursor.moveToNext()) {
+            rows.add(map(cursor));
+        }
+        return rows;
+    }
+
+    // "e.expense_id, e.group_id, ..." for a query that reads the table under an alias
+    static String qualified(String alias, String[] columns) {
+        StringBuilder projection = new StringBuilder();
+        for (String column : columns) {
+            projection.append(projection.length() == 0 ? "" : ", ").append(alias).append('.').append(column);
+        }
+        return projection.toString();
+    }
+}
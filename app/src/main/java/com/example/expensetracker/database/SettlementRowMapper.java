@@ -0,0 +1,44 @@
+package com.example.expensetracker.database;
+
+import android.database.Cursor;
+
+import com.example.expensetracker.models.Settlement;
+
+import static com.example.expensetracker.database.DatabaseHelper.*;
+
+class SettlementRowMapper extends RowMapper<Settlement> {
+    static final String[] COLUMNS = { COLUMN_FROM_MEMBER, COLUMN_TO_MEMBER, COLUMN_FROM_MEMBER_ID,
+            COLUMN_TO_MEMBER_ID, COLUMN_AMOUNT_CENTS, COLUMN_IS_SETTLED, COLUMN_SETTLEMENT_DATE };
+    static final String PROJECTION = String.join(", ", COLUMNS);
+
+    private final int fromMember;
+    private final int toMember;
+    private final int fromMemberId;
+    private final int toMemberId;
+    private final int amountCents;
+    private final int isSettled;
+    private final int settlementDate;
+
+    SettlementRowMapper(Cursor cursor) {
+        fromMember = cursor.getColumnIndexOrThrow(COLUMN_FROM_MEMBER);
+        toMember = cursor.getColumnIndexOrThrow(COLUMN_TO_MEMBER);
+        fromMemberId = cursor.getColumnIndexOrThrow(COLUMN_FROM_MEMBER_ID);
+        toMemberId = cursor.getColumnIndexOrThrow(COLUMN_TO_MEMBER_ID);
+        amountCents = cursor.getColumnIndexOrThrow(COLUMN_AMOUNT_CENTS);
+        isSettled = cursor.getColumnIndexOrThrow(COLUMN_IS_SETTLED);
+        settlementDate = cursor.getColumnIndexOrThrow(COLUMN_SETTLEMENT_DATE);
+    }
+
+    @Override
+    Settlement map(Cursor cursor) {
+        Settlement settlement = new Settlement();
+        settlement.setFromMember(cursor.getString(fromMember));
+        settlement.setToMember(cursor.getString(toMember));
+        settlement.setFromMemberId(cursor.getInt(fromMemberId));
+        settlement.setToMemberId(cursor.getInt(toMemberId));
+        settlement.setAmountCents(cursor.getLong(amountCents));
+        settlement.setSettled(cursor.getInt(isSettled) == 1);
+        settlement.setSettlementDate(cursor.getString(settlementDate));
+        return settlement;
+    }
+}
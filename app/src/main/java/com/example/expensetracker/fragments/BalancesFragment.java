@@ -14,7 +14,8 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.expensetracker.R;
 import com.example.expensetracker.adapters.BalanceAdapter;
-import com.example.expensetracker.database.DatabaseHelper;
+import com.example.expensetracker.database.ChangeNotifier;
+import com.example.expensetracker.database.ExpenseRepository;
 import com.example.expensetracker.models.Member;
 import com.example.expensetracker.utils.SMSHelper;
 
@@ -27,7 +28,10 @@ public class BalancesFragment extends Fragment implements BalanceAdapter.OnMembe
     private RecyclerView recyclerViewBalances;
     private LinearLayout emptyStateLayout;
     private BalanceAdapter balanceAdapter;
-    private DatabaseHelper databaseHelper;
+    private ExpenseRepository repository;
+    private ChangeNotifier changeNotifier;
+    private ExpenseRepository.Task loadTask;
+    private long loadedVersion = -1;
     private List<Member> members;
     private int groupId;
     private SMSHelper smsHelper;
@@ -56,11 +60,16 @@ public class BalancesFragment extends Fragment implements BalanceAdapter.OnMembe
         initializeViews(view);
         initializeDatabase();
         setupRecyclerView();
-        loadBalances();
         
         return view;
     }
 
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+        changeNotifier.observe(getViewLifecycleOwner(), groupId, this::loadBalances);
+    }
+
     @Override
     public void onResume() {
         super.onResume();
@@ -74,12 +83,14 @@ public class BalancesFragment extends Fragment implements BalanceAdapter.OnMembe
     }
 
     private void initializeDatabase() {
-        databaseHelper = new DatabaseHelper(getContext());
+        repository = ExpenseRepository.getInstance(requireContext());
+        changeNotifier = repository.getChangeNotifier();
         smsHelper = new SMSHelper(getContext());
     }
 
     private void setupRecyclerView() {
         members = new ArrayList<>();
+        loadedVersion = -1;
         balanceAdapter = new BalanceAdapter(getContext(), members);
         balanceAdapter.setOnMemberClickListener(this);
         recyclerViewBalances.setLayoutManager(new LinearLayoutManager(getContext()));
@@ -89,36 +100,51 @@ public class BalancesFragment extends Fragment implements BalanceAdapter.OnMembe
     // In BalancesFragment.java
 
     private void loadBalances() {
-        try {
-            // Debug: Show current state before recalculation
-            // databaseHelper.debugBalanceCalculation(groupId);
-            
-            // // This is the only call you need now to recalculate everything
-            // databaseHelper.recalculateAllBalancesForGroup(groupId);
-            
-            // // Debug: Show state after recalculation
-            // databaseHelper.debugBalanceCalculation(groupId);
-
-            members.clear();
-            List<Member> groupMembers = databaseHelper.getMembersForGroup(groupId);
-            if (groupMembers != null) {
-                members.addAll(groupMembers);
-            }
-            balanceAdapter.updateMembers(members);
-
-            // Update UI based on data
-            if (members.isEmpty()) {
-                recyclerViewBalances.setVisibility(View.GONE);
-                emptyStateLayout.setVisibility(View.VISIBLE);
-            } else {
-                recyclerViewBalances.setVisibility(View.VISIBLE);
-                emptyStateLayout.setVisibility(View.GONE);
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-            // Show empty state if there's an error
+        if (getView() == null) {
+            return;
+        }
+        // Balances are stored on the member rows, and every expense write updates them
+        long version = changeNotifier.getVersion(groupId, ChangeNotifier.Table.MEMBERS);
+        if (version == loadedVersion) {
+            return;
+        }
+        loadedVersion = version;
+        // A newer load replaces any that is still running
+        if (loadTask != null) {
+            loadTask.cancel();
+        }
+        loadTask = repository.query(getViewLifecycleOwner(), db -> db.getMembersForGroup(groupId),
+                new ExpenseRepository.Callback<List<Member>>() {
+                    @Override
+                    public void onResult(List<Member> groupMembers) {
+                        showBalances(groupMembers);
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        e.printStackTrace();
+                        loadedVersion = -1; // Try again on the next resume
+                        // Show empty state if there's an error
+                        recyclerViewBalances.setVisibility(View.GONE);
+                        emptyStateLayout.setVisibility(View.VISIBLE);
+                    }
+                });
+    }
+
+    private void showBalances(List<Member> groupMembers) {
+        members.clear();
+        if (groupMembers != null) {
+            members.addAll(groupMembers);
+        }
+        balanceAdapter.updateMembers(members);
+
+        // Update UI based on data
+        if (members.isEmpty()) {
             recyclerViewBalances.setVisibility(View.GONE);
             emptyStateLayout.setVisibility(View.VISIBLE);
+        } else {
+            recyclerViewBalances.setVisibility(View.VISIBLE);
+            emptyStateLayout.setVisibility(View.GONE);
         }
     }
 
@@ -162,36 +188,25 @@ public class BalancesFragment extends Fragment implements BalanceAdapter.OnMembe
     }
 
     private void setupMemberExpenses(androidx.recyclerview.widget.RecyclerView recyclerView, Member member) {
-        try {
-            // Get expenses for this member
-            java.util.List<com.example.expensetracker.models.Expense> memberExpenses = 
-                databaseHelper.getExpensesForGroup(groupId);
-            
-            // Filter expenses where this member is involved
-            java.util.List<com.example.expensetracker.models.Expense> filteredExpenses = new java.util.ArrayList<>();
-            if (memberExpenses != null) {
-                for (com.example.expensetracker.models.Expense expense : memberExpenses) {
-                    if (expense != null && expense.getParticipants() != null && 
-                        expense.getParticipants().contains(member.getMemberName())) {
-                        filteredExpenses.add(expense);
-                    }
-                }
+        // Expenses where this member holds a share
+        repository.query(getViewLifecycleOwner(), db -> db.getExpensesForMember(groupId, member.getMemberId()),
+                new ExpenseRepository.Callback<java.util.List<com.example.expensetracker.models.Expense>>() {
+            @Override
+            public void onResult(java.util.List<com.example.expensetracker.models.Expense> memberExpenses) {
+                // Setup adapter
+                com.example.expensetracker.adapters.ExpenseAdapter adapter = 
+                    new com.example.expensetracker.adapters.ExpenseAdapter(getContext(), memberExpenses);
+                recyclerView.setLayoutManager(new androidx.recyclerview.widget.LinearLayoutManager(getContext()));
+                recyclerView.setAdapter(adapter);
             }
-            
-            // Setup adapter
-            com.example.expensetracker.adapters.ExpenseAdapter adapter = 
-                new com.example.expensetracker.adapters.ExpenseAdapter(getContext(), filteredExpenses);
-            recyclerView.setLayoutManager(new androidx.recyclerview.widget.LinearLayoutManager(getContext()));
-            recyclerView.setAdapter(adapter);
-        } catch (Exception e) {
-            e.printStackTrace();
-            // If there's an error, just show empty list
-            java.util.List<com.example.expensetracker.models.Expense> emptyList = new java.util.ArrayList<>();
-            com.example.expensetracker.adapters.ExpenseAdapter adapter = 
-                new com.example.expensetracker.adapters.ExpenseAdapter(getContext(), emptyList);
-            recyclerView.setLayoutManager(new androidx.recyclerview.widget.LinearLayoutManager(getContext()));
-            recyclerView.setAdapter(adapter);
-        }
+
+            @Override
+            public void onError(Exception e) {
+                e.printStackTrace();
+                // If there's an error, just show empty list
+                onResult(new java.util.ArrayList<>());
+            }
+        });
     }
     
     private void sendReminderToMember(Member member) {
@@ -15,8 +15,12 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.expensetracker.R;
 import com.example.expensetracker.adapters.ExpenseAdapter;
-import com.example.expensetracker.database.DatabaseHelper;
+import com.example.expensetracker.database.ChangeNotifier;
+import com.example.expensetracker.database.ExpensePager;
+import com.example.expensetracker.database.ExpenseRepository;
 import com.example.expensetracker.models.Expense;
+import com.example.expensetracker.models.ExpenseShare;
+import com.example.expensetracker.utils.ExpenseBreakdown;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -27,7 +31,10 @@ public class ExpensesFragment extends Fragment implements ExpenseAdapter.OnExpen
     private RecyclerView recyclerViewExpenses;
     private LinearLayout emptyStateLayout;
     private ExpenseAdapter expenseAdapter;
-    private DatabaseHelper databaseHelper;
+    private ExpenseRepository repository;
+    private ChangeNotifier changeNotifier;
+    private ExpensePager pager;
+    private long loadedVersion = -1;
     private List<Expense> expenses;
     private int groupId;
 
@@ -56,11 +63,16 @@ public class ExpensesFragment extends Fragment implements ExpenseAdapter.OnExpen
         initializeViews(view);
         initializeDatabase();
         setupRecyclerView();
-        loadExpenses();
 
         return view;
     }
 
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+        changeNotifier.observe(getViewLifecycleOwner(), groupId, this::loadExpenses);
+    }
+
     @Override
     public void onResume() {
         super.onResume();
@@ -74,20 +86,51 @@ public class ExpensesFragment extends Fragment implements ExpenseAdapter.OnExpen
     }
 
     private void initializeDatabase() {
-        databaseHelper = new DatabaseHelper(getContext());
+        repository = ExpenseRepository.getInstance(requireContext());
+        changeNotifier = repository.getChangeNotifier();
     }
 
     private void setupRecyclerView() {
         expenses = new ArrayList<>();
+        // A new view starts empty, with a new pager bound to its own lifecycle
+        pager = null;
+        loadedVersion = -1;
         expenseAdapter = new ExpenseAdapter(getContext(), expenses);
         expenseAdapter.setOnExpenseClickListener(this);
-        recyclerViewExpenses.setLayoutManager(new LinearLayoutManager(getContext()));
+        LinearLayoutManager layoutManager = new LinearLayoutManager(getContext());
+        recyclerViewExpenses.setLayoutManager(layoutManager);
         recyclerViewExpenses.setAdapter(expenseAdapter);
+
+        // Fetch the next page before the user reaches the end of what is loaded
+        recyclerViewExpenses.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy > 0 && pager != null) {
+                    pager.onScrolledTo(layoutManager.findLastVisibleItemPosition());
+                }
+            }
+        });
     }
 
     private void loadExpenses() {
+        if (getView() == null) {
+            return;
+        }
+        // Switching tabs resumes this fragment; only reload if an expense was written since
+        long version = changeNotifier.getVersion(groupId, ChangeNotifier.Table.EXPENSES);
+        if (version == loadedVersion) {
+            return;
+        }
+        loadedVersion = version;
+        if (pager == null) {
+            pager = new ExpensePager(repository, getViewLifecycleOwner(), groupId, this::showExpenses);
+        }
+        pager.refresh();
+    }
+
+    private void showExpenses(List<Expense> groupExpenses) {
         expenses.clear();
-        expenses.addAll(databaseHelper.getExpensesForGroup(groupId));
+        expenses.addAll(groupExpenses);
         expenseAdapter.updateExpenses(expenses);
 
         // Update UI based on data
@@ -102,10 +145,11 @@ public class ExpensesFragment extends Fragment implements ExpenseAdapter.OnExpen
 
     @Override
     public void onExpenseClick(Expense expense) {
-        showExpenseDetailDialog(expense);
+        repository.query(getViewLifecycleOwner(), db -> db.getSharesForExpense(expense.getExpenseId()),
+                shares -> showExpenseDetailDialog(expense, shares));
     }
 
-    private void showExpenseDetailDialog(Expense expense) {
+    private void showExpenseDetailDialog(Expense expense, List<ExpenseShare> shares) {
         android.app.AlertDialog.Builder builder = new android.app.AlertDialog.Builder(getContext());
         View dialogView = getLayoutInflater().inflate(R.layout.dialog_expense_detail, null);
         builder.setView(dialogView);
@@ -134,12 +178,12 @@ public class ExpensesFragment extends Fragment implements ExpenseAdapter.OnExpen
         tvLocation.setText(expense.getLocation() != null ? expense.getLocation() : "Not specified");
 
         // Determine split type
-        boolean isCustomSplit = expense.getParticipantAmounts() != null && !expense.getParticipantAmounts().isEmpty();
+        boolean isCustomSplit = !ExpenseShare.isEqualSplit(shares);
         tvSplitType.setText("Split Type: " + (isCustomSplit ? "Custom" : "Equal"));
         tvParticipants.setText("Participants: " + expense.getParticipants());
 
         // Setup participant breakdown
-        setupParticipantBreakdown(recyclerViewParticipants, expense);
+        setupParticipantBreakdown(recyclerViewParticipants, expense, shares);
 
         android.app.AlertDialog dialog = builder.create();
 
@@ -158,42 +202,10 @@ public class ExpensesFragment extends Fragment implements ExpenseAdapter.OnExpen
         dialog.show();
     }
 
-    private void setupParticipantBreakdown(androidx.recyclerview.widget.RecyclerView recyclerView, Expense expense) {
-        // Create participant breakdown data
-        java.util.List<com.example.expensetracker.models.ParticipantBreakdown> participantBreakdowns = new java.util.ArrayList<>();
-
-        // Handle both ", " and "," formats
-        String[] participants = expense.getParticipants().contains(", ")
-                ? expense.getParticipants().split(", ")
-                : expense.getParticipants().split(",");
-        String[] participantAmounts = null;
-
-        if (expense.getParticipantAmounts() != null && !expense.getParticipantAmounts().isEmpty()) {
-            participantAmounts = expense.getParticipantAmounts().contains(", ")
-                    ? expense.getParticipantAmounts().split(", ")
-                    : expense.getParticipantAmounts().split(",");
-        }
-
-        for (int i = 0; i < participants.length; i++) {
-            String participant = participants[i].trim();
-            double amount;
-
-            if (participantAmounts != null && i < participantAmounts.length) {
-                try {
-                    amount = Double.parseDouble(participantAmounts[i].trim());
-                } catch (NumberFormatException e) {
-                    amount = expense.getAmount() / participants.length;
-                }
-            } else {
-                amount = expense.getAmount() / participants.length;
-            }
-
-            double amountPaid = participant.equals(expense.getPayer()) ? expense.getAmount() : 0;
-            double netBalance = amount - amountPaid;
-
-            participantBreakdowns.add(new com.example.expensetracker.models.ParticipantBreakdown(
-                    participant, amountPaid, amount, netBalance));
-        }
+    private void setupParticipantBreakdown(androidx.recyclerview.widget.RecyclerView recyclerView, Expense expense,
+            List<ExpenseShare> shares) {
+        java.util.List<com.example.expensetracker.models.ParticipantBreakdown> participantBreakdowns =
+                ExpenseBreakdown.of(expense, shares);
 
         // Setup adapter
         com.example.expensetracker.adapters.ParticipantBreakdownAdapter adapter = new com.example.expensetracker.adapters.ParticipantBreakdownAdapter(
@@ -223,16 +235,23 @@ public class ExpensesFragment extends Fragment implements ExpenseAdapter.OnExpen
     }
 
     private void deleteExpense(Expense expense) {
-        try {
-            databaseHelper.deleteExpense(expense.getExpenseId());
-            android.widget.Toast
-                    .makeText(getContext(), "Expense deleted successfully", android.widget.Toast.LENGTH_SHORT).show();
-            loadExpenses(); // Refresh the list
-        } catch (Exception e) {
-            e.printStackTrace();
-            android.widget.Toast.makeText(getContext(), "Error deleting expense: " + e.getMessage(),
-                    android.widget.Toast.LENGTH_LONG).show();
-        }
+        repository.write(getViewLifecycleOwner(), db -> {
+            db.deleteExpense(expense.getExpenseId());
+            return null;
+        }, new ExpenseRepository.Callback<Void>() {
+            @Override
+            public void onResult(Void result) {
+                android.widget.Toast
+                        .makeText(getContext(), "Expense deleted successfully", android.widget.Toast.LENGTH_SHORT).show();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                e.printStackTrace();
+                android.widget.Toast.makeText(getContext(), "Error deleting expense: " + e.getMessage(),
+                        android.widget.Toast.LENGTH_LONG).show();
+            }
+        });
     }
 
     @Override
@@ -6,10 +6,10 @@ public class Expense {
     private int expenseId;
     private int groupId;
     private String expenseName;
-    private double amount;
+    private long amountCents; // Amount in cents
     private String payer;
-    private String participants; // JSON string of participant names
-    private String participantAmounts; // JSON string of participant amounts
+    private String participants; // Display label of participant names, e.g. "Alice, Bob"
+    private List<ExpenseShare> shares; // Per-member shares, stored in the expense_shares table
     private String date;
     private String description;
     private String category;
@@ -20,20 +20,20 @@ public class Expense {
     // Constructors
     public Expense() {}
 
-    public Expense(int groupId, String expenseName, double amount, String payer, String participants, String date) {
+    public Expense(int groupId, String expenseName, long amountCents, String payer, String participants, String date) {
         this.groupId = groupId;
         this.expenseName = expenseName;
-        this.amount = amount;
+        this.amountCents = amountCents;
         this.payer = payer;
         this.participants = participants;
         this.date = date;
     }
 
-    public Expense(int expenseId, int groupId, String expenseName, double amount, String payer, String participants, String date, String description, String category) {
+    public Expense(int expenseId, int groupId, String expenseName, long amountCents, String payer, String participants, String date, String description, String category) {
         this.expenseId = expenseId;
         this.groupId = groupId;
         this.expenseName = expenseName;
-        this.amount = amount;
+        this.amountCents = amountCents;
         this.payer = payer;
         this.participants = participants;
         this.date = date;
@@ -66,12 +66,17 @@ public class Expense {
         this.expenseName = expenseName;
     }
 
-    public double getAmount() {
-        return amount;
+    public long getAmountCents() {
+        return amountCents;
+    }
+
+    public void setAmountCents(long amountCents) {
+        this.amountCents = amountCents;
     }
 
-    public void setAmount(double amount) {
-        this.amount = amount;
+    // Amount in currency units, for display only
+    public double getAmount() {
+        return amountCents / 100.0;
     }
 
     public String getPayer() {
@@ -114,12 +119,12 @@ public class Expense {
         this.category = category;
     }
 
-    public String getParticipantAmounts() {
-        return participantAmounts;
+    public List<ExpenseShare> getShares() {
+        return shares;
     }
 
-    public void setParticipantAmounts(String participantAmounts) {
-        this.participantAmounts = participantAmounts;
+    public void setShares(List<ExpenseShare> shares) {
+        this.shares = shares;
     }
 
     public String getLocation() {
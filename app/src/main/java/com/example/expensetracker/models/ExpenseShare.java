@@ -0,0 +1,77 @@
+package com.example.expensetracker.models;
+
+import java.util.List;
+
+public class ExpenseShare {
+    private int expenseId;
+    private int memberId;
+    private String memberName; // Joined from members table for display
+    private long shareCents;
+
+    // Constructors
+    public ExpenseShare() {}
+
+    public ExpenseShare(int memberId, String memberName, long shareCents) {
+        this.memberId = memberId;
+        this.memberName = memberName;
+        this.shareCents = shareCents;
+    }
+
+    public ExpenseShare(int expenseId, int memberId, String memberName, long shareCents) {
+        this.expenseId = expenseId;
+        this.memberId = memberId;
+        this.memberName = memberName;
+        this.shareCents = shareCents;
+    }
+
+    // Getters and Setters
+    public int getExpenseId() {
+        return expenseId;
+    }
+
+    public void setExpenseId(int expenseId) {
+        this.expenseId = expenseId;
+    }
+
+    public int getMemberId() {
+        return memberId;
+    }
+
+    public void setMemberId(int memberId) {
+        this.memberId = memberId;
+    }
+
+    public String getMemberName() {
+        return memberName;
+    }
+
+    public void setMemberName(String memberName) {
+        this.memberName = memberName;
+    }
+
+    public long getShareCents() {
+        return shareCents;
+    }
+
+    public void setShareCents(long shareCents) {
+        this.shareCents = shareCents;
+    }
+
+    public double getShareAmount() {
+        return shareCents / 100.0;
+    }
+
+    // Helper method to tell an equal split from a custom one (shares may differ by a rounding cent)
+    public static boolean isEqualSplit(List<ExpenseShare> shares) {
+        if (shares == null || shares.size() < 2) {
+            return true;
+        }
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (ExpenseShare share : shares) {
+            min = Math.min(min, share.getShareCents());
+            max = Math.max(max, share.getShareCents());
+        }
+        return max - min <= 1;
+    }
+}
@@ -5,7 +5,8 @@ public class Group {
     private String groupName;
     private String description;
     private String createdDate;
-    private double totalExpenses;
+    private long totalExpensesCents;
+    private int expenseCount;
     private int memberCount;
 
     // Constructors
@@ -56,12 +57,25 @@ public class Group {
         this.createdDate = createdDate;
     }
 
+    public long getTotalExpensesCents() {
+        return totalExpensesCents;
+    }
+
+    public void setTotalExpensesCents(long totalExpensesCents) {
+        this.totalExpensesCents = totalExpensesCents;
+    }
+
+    // Total in currency units, for display only
     public double getTotalExpenses() {
-        return totalExpenses;
+        return totalExpensesCents / 100.0;
+    }
+
+    public int getExpenseCount() {
+        return expenseCount;
     }
 
-    public void setTotalExpenses(double totalExpenses) {
-        this.totalExpenses = totalExpenses;
+    public void setExpenseCount(int expenseCount) {
+        this.expenseCount = expenseCount;
     }
 
     public int getMemberCount() {
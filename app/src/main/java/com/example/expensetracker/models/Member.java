@@ -6,9 +6,9 @@ public class Member {
     private String memberName;
     private String email;
     private String phoneNumber;
-    private double totalOwed;
-    private double totalOwing;
-    private double balance; // positive = owes money, negative = gets money back
+    private long totalOwedCents;
+    private long totalOwingCents;
+    private long balanceCents; // positive = owes money, negative = gets money back
 
     // Constructors
     public Member() {}
@@ -19,14 +19,14 @@ public class Member {
         this.email = email;
     }
 
-    public Member(int memberId, int groupId, String memberName, String email, double totalOwed, double totalOwing, double balance) {
+    public Member(int memberId, int groupId, String memberName, String email, long totalOwedCents, long totalOwingCents, long balanceCents) {
         this.memberId = memberId;
         this.groupId = groupId;
         this.memberName = memberName;
         this.email = email;
-        this.totalOwed = totalOwed;
-        this.totalOwing = totalOwing;
-        this.balance = balance;
+        this.totalOwedCents = totalOwedCents;
+        this.totalOwingCents = totalOwingCents;
+        this.balanceCents = balanceCents;
     }
 
     // Getters and Setters
@@ -70,36 +70,49 @@ public class Member {
         this.phoneNumber = phoneNumber;
     }
 
-    public double getTotalOwed() {
-        return totalOwed;
+    public long getTotalOwedCents() {
+        return totalOwedCents;
     }
 
-    public void setTotalOwed(double totalOwed) {
-        this.totalOwed = totalOwed;
+    public void setTotalOwedCents(long totalOwedCents) {
+        this.totalOwedCents = totalOwedCents;
     }
 
-    public double getTotalOwing() {
-        return totalOwing;
+    public long getTotalOwingCents() {
+        return totalOwingCents;
     }
 
-    public void setTotalOwing(double totalOwing) {
-        this.totalOwing = totalOwing;
+    public void setTotalOwingCents(long totalOwingCents) {
+        this.totalOwingCents = totalOwingCents;
     }
 
-    public double getBalance() {
-        return balance;
+    public long getBalanceCents() {
+        return balanceCents;
+    }
+
+    public void setBalanceCents(long balanceCents) {
+        this.balanceCents = balanceCents;
+    }
+
+    // Amounts in currency units, for display only
+    public double getTotalOwed() {
+        return totalOwedCents / 100.0;
+    }
+
+    public double getTotalOwing() {
+        return totalOwingCents / 100.0;
     }
 
-    public void setBalance(double balance) {
-        this.balance = balance;
+    public double getBalance() {
+        return balanceCents / 100.0;
     }
 
     // Helper method to get formatted balance string
     public String getFormattedBalance() {
-        if (balance > 0) {
-            return String.format("Owes $%.2f", balance);
-        } else if (balance < 0) {
-            return String.format("Gets back $%.2f", Math.abs(balance));
+        if (balanceCents > 0) {
+            return String.format("Owes $%.2f", getBalance());
+        } else if (balanceCents < 0) {
+            return String.format("Gets back $%.2f", Math.abs(getBalance()));
         } else {
             return "Settled up";
         }
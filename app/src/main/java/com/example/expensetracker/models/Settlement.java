@@ -3,7 +3,7 @@ package com.example.expensetracker.models;
 public class Settlement {
     private String fromMember;
     private String toMember;
-    private double amount;
+    private long amountCents; // Amount in cents
     private int fromMemberId;
     private int toMemberId;
     private boolean isSettled;
@@ -13,10 +13,10 @@ public class Settlement {
         this.isSettled = false;
     }
 
-    public Settlement(String fromMember, String toMember, double amount) {
+    public Settlement(String fromMember, String toMember, long amountCents) {
         this.fromMember = fromMember;
         this.toMember = toMember;
-        this.amount = amount;
+        this.amountCents = amountCents;
         this.isSettled = false;
     }
 
@@ -37,12 +37,17 @@ public class Settlement {
         this.toMember = toMember;
     }
 
-    public double getAmount() {
-        return amount;
+    public long getAmountCents() {
+        return amountCents;
+    }
+
+    public void setAmountCents(long amountCents) {
+        this.amountCents = amountCents;
     }
 
-    public void setAmount(double amount) {
-        this.amount = amount;
+    // Amount in currency units, for display only
+    public double getAmount() {
+        return amountCents / 100.0;
     }
 
     public int getFromMemberId() {
@@ -78,7 +83,7 @@ public class Settlement {
     }
 
     public String getFormattedAmount() {
-        return String.format("$%.2f", amount);
+        return String.format("$%.2f", getAmount());
     }
 
     public String getSettlementDescription() {
@@ -0,0 +1,62 @@
+package com.example.expensetracker.utils;
+
+import android.util.Log;
+
+import com.example.expensetracker.BuildConfig;
+
+/**
+ * Logging with level guards. Debug and info messages exist only in debug builds: DEBUG is a
+ * compile-time constant, so in a release build javac removes every block guarded by it, together
+ * with the string building and any readback queries inside. Warnings and errors are always logged.
+ *
+ * The d and i methods check the level themselves, but their message is built before the call. Hot
+ * paths guard the whole block instead:
+ *
+ *     if (AppLog.DEBUG && AppLog.isLoggable(Log.DEBUG)) {
+ *         AppLog.d(TAG, "Balance of " + name + ": " + balance);
+ *     }
+ */
+public final class AppLog {
+
+    public static final boolean DEBUG = BuildConfig.DEBUG_LOGGING;
+
+    // Lowest priority logged, as in android.util.Log; debug builds can raise it at runtime
+    private static volatile int level = DEBUG ? Log.DEBUG : Log.WARN;
+
+    private AppLog() {
+    }
+
+    public static boolean isLoggable(int priority) {
+        return priority >= level;
+    }
+
+    public static void setLevel(int priority) {
+        level = priority;
+    }
+
+    public static void d(String tag, String message) {
+        if (DEBUG && isLoggable(Log.DEBUG)) {
+            Log.d(tag, message);
+        }
+    }
+
+    public static void i(String tag, String message) {
+        if (DEBUG && isLoggable(Log.INFO)) {
+            Log.i(tag, message);
+        }
+    }
+
+    public static void w(String tag, String message) {
+        if (isLoggable(Log.WARN)) {
+            Log.w(tag, message);
+        }
+    }
+
+    public static void e(String tag, String message) {
+        Log.e(tag, message);
+    }
+
+    public static void e(String tag, String message, Throwable error) {
+        Log.e(tag, message, error);
+    }
+}
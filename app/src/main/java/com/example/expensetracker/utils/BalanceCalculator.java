@@ -0,0 +1,37 @@
+package com.example.expensetracker.utils;
+
+import com.example.expensetracker.models.ExpenseShare;
+
+import java.util.List;
+
+/**
+ * The balance rules for one expense, in cents: every participant other than the payer owes their
+ * share, and the payer gets back the amount minus their own share (all of it if they did not take
+ * part). BALANCE_TOTALS_QUERY in DatabaseHelper applies the same rules in SQL for a whole group.
+ */
+public class BalanceCalculator {
+
+    /** Receives the change to one member's totals. */
+    public interface Sink {
+        void add(int memberId, long owedCents, long owingCents);
+    }
+
+    // sign is 1 to add the expense and -1 to reverse it. payerId is -1 when the payer is not a
+    // member of the group, in which case only the participants' shares are applied.
+    public static void applyExpense(long amountCents, int payerId, List<ExpenseShare> shares, int sign, Sink sink) {
+        long payerShareCents = 0;
+        if (shares != null) {
+            for (ExpenseShare share : shares) {
+                if (share.getMemberId() == payerId) {
+                    payerShareCents = share.getShareCents();
+                    continue;
+                }
+                sink.add(share.getMemberId(), sign * share.getShareCents(), 0);
+            }
+        }
+
+        if (payerId != -1) {
+            sink.add(payerId, 0, sign * (amountCents - payerShareCents));
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.expensetracker.utils;
+
+import com.example.expensetracker.database.DatabaseHelper;
+import com.example.expensetracker.models.Expense;
+import com.example.expensetracker.models.Group;
+import com.example.expensetracker.models.Member;
+
+import java.util.List;
+
+/**
+ * WorkloadGenerator.Sink that sends generated rows through DatabaseHelper's batch inserts. Kept out
+ * of WorkloadGenerator itself, which the JVM benchmark module compiles without Android.
+ */
+public class DatabaseSink implements WorkloadGenerator.Sink {
+    private final DatabaseHelper databaseHelper;
+
+    public DatabaseSink(DatabaseHelper databaseHelper) {
+        this.databaseHelper = databaseHelper;
+    }
+
+    @Override
+    public long addGroup(Group group) {
+        return databaseHelper.addGroup(group);
+    }
+
+    @Override
+    public int addMembers(List<Member> members) {
+        return databaseHelper.addMembers(members);
+    }
+
+    @Override
+    public int addExpenses(List<Expense> expenses) {
+        return databaseHelper.addExpenses(expenses);
+    }
+}
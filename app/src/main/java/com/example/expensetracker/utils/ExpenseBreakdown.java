@@ -0,0 +1,29 @@
+package com.example.expensetracker.utils;
+
+import com.example.expensetracker.models.Expense;
+import com.example.expensetracker.models.ExpenseShare;
+import com.example.expensetracker.models.ParticipantBreakdown;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Per-participant rows of the expense details dialog: what each one paid, owes and nets. */
+public class ExpenseBreakdown {
+
+    public static List<ParticipantBreakdown> of(Expense expense, List<ExpenseShare> shares) {
+        List<ParticipantBreakdown> breakdowns = new ArrayList<>(shares.size());
+        for (ExpenseShare share : shares) {
+            String participant = share.getMemberName() != null ? share.getMemberName() : "Unknown member";
+            double amount = share.getShareAmount();
+
+            // Only the payer paid anything; a positive net means the participant still owes
+            String payer = expense.getPayer();
+            double amountPaid = payer != null && participant.trim().equalsIgnoreCase(payer.trim())
+                    ? expense.getAmount() : 0;
+            double netBalance = amount - amountPaid;
+
+            breakdowns.add(new ParticipantBreakdown(participant, amountPaid, amount, netBalance));
+        }
+        return breakdowns;
+    }
+}
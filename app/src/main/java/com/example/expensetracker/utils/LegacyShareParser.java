@@ -0,0 +1,67 @@
+package com.example.expensetracker.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the comma-joined participants and participant_amounts strings that expenses stored before
+ * database version 5 into one share per participant. The version 5 migration writes these as
+ * expense_shares rows.
+ */
+public class LegacyShareParser {
+
+    public static class Share {
+        public final String name;
+        public final long cents;
+
+        Share(String name, long cents) {
+            this.name = name;
+            this.cents = cents;
+        }
+    }
+
+    // Names are trimmed and empty ones skipped. A participant without a parsable amount gets an even
+    // split of the total over everyone listed, with the leftover cents going to the first ones, so an
+    // expense without amounts still adds up to its total.
+    public static List<Share> parse(String participantsText, String amountsText, double amount) {
+        List<Share> shares = new ArrayList<>();
+        if (participantsText == null || participantsText.trim().isEmpty()) {
+            return shares;
+        }
+
+        String[] participants = participantsText.split(",");
+        String[] participantAmounts = null;
+        if (amountsText != null && !amountsText.isEmpty()) {
+            participantAmounts = amountsText.split(",");
+        }
+
+        int named = 0;
+        for (String participant : participants) {
+            if (!participant.trim().isEmpty()) {
+                named++;
+            }
+        }
+        if (named == 0) {
+            return shares;
+        }
+        long[] evenCents = MoneyUtils.splitEvenly(MoneyUtils.toCents(amount), named);
+
+        for (int i = 0, k = 0; i < participants.length; i++) {
+            String participant = participants[i].trim();
+            if (participant.isEmpty()) {
+                continue;
+            }
+
+            long cents = evenCents[k++];
+            if (participantAmounts != null && i < participantAmounts.length) {
+                try {
+                    cents = MoneyUtils.toCents(Double.parseDouble(participantAmounts[i].trim()));
+                } catch (NumberFormatException e) {
+                    // Keep the even split
+                }
+            }
+            shares.add(new Share(participant, cents));
+        }
+        return shares;
+    }
+}
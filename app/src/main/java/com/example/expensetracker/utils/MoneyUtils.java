@@ -0,0 +1,39 @@
+package com.example.expensetracker.utils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Locale;
+
+public class MoneyUtils {
+
+    public static long toCents(double amount) {
+        return Math.round(amount * 100.0);
+    }
+
+    public static double fromCents(long cents) {
+        return cents / 100.0;
+    }
+
+    // Parses user input such as "12.5" into cents without going through a double.
+    // Throws NumberFormatException for text that is not a number.
+    public static long parseCents(String amount) {
+        return new BigDecimal(amount.trim()).setScale(2, RoundingMode.HALF_UP).movePointRight(2).longValueExact();
+    }
+
+    // Splits a total into n shares that add up exactly. The remainder cents go one each
+    // to the first (total % n) participants, so the same input always gives the same split.
+    public static long[] splitEvenly(long totalCents, int count) {
+        long[] shares = new long[count];
+        long base = totalCents / count;
+        long remainder = totalCents % count;
+        for (int i = 0; i < count; i++) {
+            shares[i] = base + (i < remainder ? 1 : 0);
+        }
+        return shares;
+    }
+
+    // Plain "12.50" form used to pre-fill editable amount fields
+    public static String formatPlain(long cents) {
+        return String.format(Locale.US, "%.2f", fromCents(cents));
+    }
+}
@@ -9,6 +9,7 @@ import android.util.Log;
 import androidx.core.app.ActivityCompat;
 
 import com.example.expensetracker.models.Expense;
+import com.example.expensetracker.models.ExpenseShare;
 import com.example.expensetracker.models.Member;
 
 import java.text.DecimalFormat;
@@ -29,49 +30,29 @@ public class SMSHelper {
     public boolean hasSMSPermission() {
         boolean hasPermission = ActivityCompat.checkSelfPermission(context, Manifest.permission.SEND_SMS) 
                 == PackageManager.PERMISSION_GRANTED;
-        Log.d(TAG, "SMS Permission granted: " + hasPermission);
+        AppLog.d(TAG, "SMS Permission granted: " + hasPermission);
         return hasPermission;
     }
 
-    public void sendInvoiceSMS(Expense expense, List<Member> members) {
+    public void sendInvoiceSMS(Expense expense, List<ExpenseShare> shares, List<Member> members) {
         if (!hasSMSPermission()) {
-            Log.e(TAG, "SMS permission not granted");
+            AppLog.e(TAG, "SMS permission not granted");
             return;
         }
 
-        String[] participants = expense.getParticipants().split(",");
-        String[] participantAmounts = null;
-        
-        if (expense.getParticipantAmounts() != null && !expense.getParticipantAmounts().isEmpty()) {
-            participantAmounts = expense.getParticipantAmounts().split(",");
-        }
-
-        for (int i = 0; i < participants.length; i++) {
-            String participant = participants[i].trim();
-            double amount;
-            
-            if (participantAmounts != null && i < participantAmounts.length) {
-                try {
-                    amount = Double.parseDouble(participantAmounts[i].trim());
-                } catch (NumberFormatException e) {
-                    amount = expense.getAmount() / participants.length;
-                }
-            } else {
-                amount = expense.getAmount() / participants.length;
-            }
-
+        for (ExpenseShare share : shares) {
             // Find member with phone number
-            Member member = findMemberByName(members, participant);
+            Member member = findMemberById(members, share.getMemberId());
             if (member != null && member.getPhoneNumber() != null && !member.getPhoneNumber().isEmpty()) {
-                String message = createInvoiceMessage(expense, participant, amount);
+                String message = createInvoiceMessage(expense, member.getMemberName(), share.getShareAmount());
                 sendSMS(member.getPhoneNumber(), message);
             }
         }
     }
 
-    private Member findMemberByName(List<Member> members, String name) {
+    private Member findMemberById(List<Member> members, int memberId) {
         for (Member member : members) {
-            if (member.getMemberName().equals(name)) {
+            if (member.getMemberId() == memberId) {
                 return member;
             }
         }
@@ -101,107 +82,92 @@ public class SMSHelper {
 
     private void sendSMS(String phoneNumber, String message) {
         try {
-            Log.d(TAG, "=== ATTEMPTING TO SEND SMS ===");
-            Log.d(TAG, "Original phone number: " + phoneNumber);
-            Log.d(TAG, "Message length: " + message.length());
-            Log.d(TAG, "Message preview: " + message.substring(0, Math.min(50, message.length())) + "...");
-            
             // Clean and validate phone number
             String cleanPhoneNumber = cleanPhoneNumber(phoneNumber);
             if (cleanPhoneNumber == null || cleanPhoneNumber.isEmpty()) {
-                Log.e(TAG, "Invalid phone number after cleaning: " + phoneNumber);
+                AppLog.e(TAG, "Invalid phone number after cleaning: " + phoneNumber);
                 return;
             }
             
             // Validate message
             if (message == null || message.trim().isEmpty()) {
-                Log.e(TAG, "Message is null or empty");
+                AppLog.e(TAG, "Message is null or empty");
                 return;
             }
             
             // Check if message is too long (SMS limit is usually 160 characters)
             if (message.length() > 160) {
-                Log.w(TAG, "Message is longer than 160 characters, might be split into multiple SMS");
+                AppLog.w(TAG, "Message is longer than 160 characters, might be split into multiple SMS");
             }
             
-            Log.d(TAG, "Sending SMS to: " + cleanPhoneNumber);
-            Log.d(TAG, "Full message: " + message);
+            if (AppLog.DEBUG && AppLog.isLoggable(Log.DEBUG)) {
+                AppLog.d(TAG, "Sending SMS to " + cleanPhoneNumber + " (" + message.length() + " chars): " + message);
+            }
             
             // Try different SMS sending approaches
             try {
                 // Method 1: Standard SMS sending
                 smsManager.sendTextMessage(cleanPhoneNumber, null, message, null, null);
-                Log.d(TAG, "SMS sent successfully to " + cleanPhoneNumber);
+                AppLog.d(TAG, "SMS sent");
                 
                 // Add a small delay to prevent rapid SMS sending
                 Thread.sleep(100);
                 
             } catch (Exception e) {
-                Log.e(TAG, "Standard SMS failed, trying alternative method: " + e.getMessage());
+                AppLog.e(TAG, "Standard SMS failed, trying alternative method: " + e.getMessage());
                 
                 // Method 2: Try with delivery report
                 try {
                     smsManager.sendTextMessage(cleanPhoneNumber, null, message, null, null);
-                    Log.d(TAG, "SMS sent with alternative method to " + cleanPhoneNumber);
+                    AppLog.d(TAG, "SMS sent with alternative method");
                 } catch (Exception e2) {
-                    Log.e(TAG, "Alternative SMS method also failed: " + e2.getMessage());
+                    AppLog.e(TAG, "Alternative SMS method also failed: " + e2.getMessage());
                     throw e2;
                 }
             }
             
         } catch (SecurityException e) {
-            Log.e(TAG, "Security exception - SMS permission not granted: " + e.getMessage());
+            AppLog.e(TAG, "Security exception - SMS permission not granted: " + e.getMessage());
         } catch (Exception e) {
-            Log.e(TAG, "Failed to send SMS to " + phoneNumber + ": " + e.getMessage(), e);
+            AppLog.e(TAG, "Failed to send SMS to " + phoneNumber + ": " + e.getMessage(), e);
         }
     }
     
     private String cleanPhoneNumber(String phoneNumber) {
         if (phoneNumber == null || phoneNumber.trim().isEmpty()) {
-            Log.e(TAG, "Phone number is null or empty");
+            AppLog.e(TAG, "Phone number is null or empty");
             return null;
         }
         
         // Just trim whitespace and return as entered by user
         String cleaned = phoneNumber.trim();
-        Log.d(TAG, "Original phone number: " + phoneNumber);
-        Log.d(TAG, "Cleaned phone number: " + cleaned);
         
         // Basic validation - should have some digits
         String digitsOnly = cleaned.replaceAll("[^\\d]", "");
         if (digitsOnly.length() < 5) {
-            Log.e(TAG, "Phone number too short: " + phoneNumber + " -> " + cleaned + " (digits: " + digitsOnly.length() + ")");
+            AppLog.e(TAG, "Phone number too short: " + phoneNumber + " -> " + cleaned + " (digits: " + digitsOnly.length() + ")");
             return null;
         }
         
-        Log.d(TAG, "Final phone number (as entered by user): " + cleaned);
         return cleaned;
     }
 
     public void sendBalanceReminder(List<Member> members) {
         if (!hasSMSPermission()) {
-            Log.e(TAG, "SMS permission not granted");
+            AppLog.e(TAG, "SMS permission not granted");
             return;
         }
 
-        Log.d(TAG, "=== SENDING BALANCE REMINDERS ===");
-        Log.d(TAG, "Number of members: " + members.size());
+        AppLog.d(TAG, "Sending balance reminders to " + members.size() + " members");
 
         for (Member member : members) {
-            Log.d(TAG, "Processing member: " + member.getMemberName());
-            Log.d(TAG, "Phone number: " + member.getPhoneNumber());
-            Log.d(TAG, "Balance: " + member.getBalance());
-            
             if (member.getPhoneNumber() != null && !member.getPhoneNumber().trim().isEmpty()) {
                 String message = createBalanceReminderMessage(member);
-                Log.d(TAG, "Created message for " + member.getMemberName() + ": " + message);
                 sendSMS(member.getPhoneNumber(), message);
-            } else {
-                Log.w(TAG, "No phone number for member: " + member.getMemberName());
+            } else if (AppLog.DEBUG && AppLog.isLoggable(Log.DEBUG)) {
+                AppLog.d(TAG, "No phone number for member: " + member.getMemberName());
             }
         }
-        
-        Log.d(TAG, "=== BALANCE REMINDERS COMPLETED ===");
     }
 
     private String createBalanceReminderMessage(Member member) {
@@ -209,47 +175,43 @@ public class SMSHelper {
         message.append("Balance Reminder\n\n");
         message.append("Hello ").append(member.getMemberName()).append(",\n\n");
         
-        Log.d(TAG, "Creating message for member: " + member.getMemberName() + " with balance: " + member.getBalance());
-        
-        if (Math.abs(member.getBalance()) < 0.01) {
-            // Balance is essentially zero (settled up)
+        if (member.getBalanceCents() == 0) {
+            // Balance is zero (settled up)
             message.append("Your balance is settled up!\n");
             message.append("No payment needed at this time.");
-        } else if (member.getBalance() > 0.01) {
+        } else if (member.getBalanceCents() > 0) {
             // Member owes money
             message.append("You owe: $").append(String.format("%.2f", member.getBalance())).append("\n");
             message.append("Please settle your balance soon.");
-        } else if (member.getBalance() < -0.01) {
+        } else {
             // Member is owed money
             message.append("You are owed: $").append(String.format("%.2f", Math.abs(member.getBalance()))).append("\n");
             message.append("You should receive payment soon.");
         }
         
-        String finalMessage = message.toString();
-        Log.d(TAG, "Final message for " + member.getMemberName() + ": " + finalMessage);
-        return finalMessage;
+        return message.toString();
     }
     
     // Test method to send a simple SMS for debugging
     public void sendTestSMS(String phoneNumber) {
         if (!hasSMSPermission()) {
-            Log.e(TAG, "SMS permission not granted for test SMS");
+            AppLog.e(TAG, "SMS permission not granted for test SMS");
             return;
         }
         
         String testMessage = "Test SMS from Expense Tracker app. If you receive this, SMS is working!";
-        Log.d(TAG, "Sending test SMS to: " + phoneNumber);
+        AppLog.d(TAG, "Sending test SMS to: " + phoneNumber);
         sendSMS(phoneNumber, testMessage);
     }
     
     // Method to send a very simple SMS (no emojis, minimal text)
     public void sendSimpleSMS(String phoneNumber, String simpleMessage) {
         if (!hasSMSPermission()) {
-            Log.e(TAG, "SMS permission not granted for simple SMS");
+            AppLog.e(TAG, "SMS permission not granted for simple SMS");
             return;
         }
         
-        Log.d(TAG, "Sending simple SMS to: " + phoneNumber + " Message: " + simpleMessage);
+        AppLog.d(TAG, "Sending simple SMS to: " + phoneNumber);
         sendSMS(phoneNumber, simpleMessage);
     }
     
@@ -260,7 +222,7 @@ public class SMSHelper {
             SmsManager smsManager = SmsManager.getDefault();
             return smsManager != null;
         } catch (Exception e) {
-            Log.e(TAG, "SMS service not available: " + e.getMessage());
+            AppLog.e(TAG, "SMS service not available: " + e.getMessage());
             return false;
         }
     }
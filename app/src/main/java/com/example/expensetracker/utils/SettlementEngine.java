@@ -0,0 +1,280 @@
+package com.example.expensetracker.utils;
+
+import com.example.expensetracker.models.Member;
+import com.example.expensetracker.models.Settlement;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Turns member balances (positive = owes, negative = gets back, in cents) into a list of transfers
+ * that brings every balance to zero.
+ *
+ * GREEDY repeatedly pairs the largest debtor with the largest creditor using two heaps, O(n log n),
+ * and needs at most n - 1 transfers. EXACT finds the minimum number of transfers by splitting the
+ * members into as many zero-sum subsets as possible (bitmask DP, O(2^n * n)), so it is only used for
+ * up to EXACT_MAX_MEMBERS members with a non-zero balance. AUTO picks EXACT when that fits.
+ *
+ * The work is done on parallel primitive arrays, member IDs and balances, with int heaps ordered by
+ * the balances, so even a 10,000 member group only allocates a few arrays. The result is a
+ * TransferList; it becomes Settlement objects only when the screen needs them.
+ */
+public class SettlementEngine {
+
+    public enum Mode { GREEDY, EXACT, AUTO }
+
+    // 2^20 masks keep the DP tables around 12 MB and the run well under a second
+    public static final int EXACT_MAX_MEMBERS = 20;
+
+    /**
+     * Transfers as parallel arrays. Members are referred to by their position in the arrays passed
+     * to settle, so the result can be mapped back to the Member list they came from.
+     */
+    public static class TransferList {
+        private final int[] memberIds;
+        private int[] from;
+        private int[] to;
+        private long[] amountCents;
+        private int size;
+
+        TransferList(int[] memberIds, int capacity) {
+            this.memberIds = memberIds;
+            from = new int[capacity];
+            to = new int[capacity];
+            amountCents = new long[capacity];
+        }
+
+        void add(int fromPosition, int toPosition, long cents) {
+            if (size == from.length) {
+                int capacity = Math.max(4, size * 2);
+                from = Arrays.copyOf(from, capacity);
+                to = Arrays.copyOf(to, capacity);
+                amountCents = Arrays.copyOf(amountCents, capacity);
+            }
+            from[size] = fromPosition;
+            to[size] = toPosition;
+            amountCents[size] = cents;
+            size++;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public int fromMemberId(int index) {
+            return memberIds[from[index]];
+        }
+
+        public int toMemberId(int index) {
+            return memberIds[to[index]];
+        }
+
+        public long amountCents(int index) {
+            return amountCents[index];
+        }
+
+        // members must be in the same order as the arrays the transfers were computed from
+        public List<Settlement> toSettlements(List<Member> members) {
+            List<Settlement> settlements = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                Member fromMember = members.get(from[i]);
+                Member toMember = members.get(to[i]);
+                Settlement settlement = new Settlement(fromMember.getMemberName(), toMember.getMemberName(),
+                        amountCents[i]);
+                settlement.setFromMemberId(fromMember.getMemberId());
+                settlement.setToMemberId(toMember.getMemberId());
+                settlements.add(settlement);
+            }
+            return settlements;
+        }
+    }
+
+    public static List<Settlement> settle(List<Member> members, Mode mode) {
+        int[] memberIds = new int[members.size()];
+        long[] balanceCents = new long[members.size()];
+        for (int i = 0; i < memberIds.length; i++) {
+            memberIds[i] = members.get(i).getMemberId();
+            balanceCents[i] = members.get(i).getBalanceCents();
+        }
+        return settle(memberIds, balanceCents, mode).toSettlements(members);
+    }
+
+    public static TransferList settle(int[] memberIds, long[] balanceCents, Mode mode) {
+        // Only members that still owe or are owed take part
+        int openCount = 0;
+        for (long balance : balanceCents) {
+            if (balance != 0) {
+                openCount++;
+            }
+        }
+        int[] open = new int[openCount];
+        for (int i = 0, next = 0; i < balanceCents.length; i++) {
+            if (balanceCents[i] != 0) {
+                open[next++] = i;
+            }
+        }
+
+        // Every greedy step clears at least one member, the last one of a zero-sum set two
+        TransferList transfers = new TransferList(memberIds, Math.max(openCount - 1, 0));
+        if (openCount == 0) {
+            return transfers;
+        }
+
+        long[] remaining = balanceCents.clone();
+        int[] debtors = new int[openCount];
+        int[] creditors = new int[openCount];
+
+        boolean exact = mode == Mode.EXACT || (mode == Mode.AUTO && openCount <= EXACT_MAX_MEMBERS);
+        if (exact) {
+            if (openCount > EXACT_MAX_MEMBERS) {
+                throw new IllegalArgumentException("Exact settlement supports at most " + EXACT_MAX_MEMBERS
+                        + " members with a balance, got " + openCount);
+            }
+            long[] openBalances = new long[openCount];
+            for (int i = 0; i < openCount; i++) {
+                openBalances[i] = balanceCents[open[i]];
+            }
+            // The subsets are disjoint, so they can share remaining and the heap arrays
+            for (int[] subset : zeroSumSubsets(openBalances)) {
+                for (int i = 0; i < subset.length; i++) {
+                    subset[i] = open[subset[i]];
+                }
+                settleGreedy(remaining, subset, debtors, creditors, transfers);
+            }
+        } else {
+            settleGreedy(remaining, open, debtors, creditors, transfers);
+        }
+        return transfers;
+    }
+
+    // Largest debtor pays largest creditor until one side is cleared; ties go to the earlier member.
+    // Debtors are ordered by remaining, creditors by -remaining, both as max-heaps of positions.
+    private static void settleGreedy(long[] remaining, int[] positions, int[] debtors, int[] creditors,
+            TransferList transfers) {
+        int debtorCount = 0;
+        int creditorCount = 0;
+        for (int position : positions) {
+            if (remaining[position] > 0) {
+                debtors[debtorCount] = position;
+                siftUp(debtors, debtorCount++, remaining, 1);
+            } else if (remaining[position] < 0) {
+                creditors[creditorCount] = position;
+                siftUp(creditors, creditorCount++, remaining, -1);
+            }
+        }
+
+        while (debtorCount > 0 && creditorCount > 0) {
+            int debtor = debtors[0];
+            int creditor = creditors[0];
+            long amount = Math.min(remaining[debtor], -remaining[creditor]);
+            transfers.add(debtor, creditor, amount);
+
+            remaining[debtor] -= amount;
+            remaining[creditor] += amount;
+            // The tops only ever shrink, so they sink back down or leave the heap
+            if (remaining[debtor] == 0) {
+                debtors[0] = debtors[--debtorCount];
+            }
+            siftDown(debtors, debtorCount, remaining, 1);
+            if (remaining[creditor] == 0) {
+                creditors[0] = creditors[--creditorCount];
+            }
+            siftDown(creditors, creditorCount, remaining, -1);
+        }
+    }
+
+    // Whether position a comes out of the heap before b: the larger sign * remaining, then the earlier one
+    private static boolean before(int a, int b, long[] remaining, int sign) {
+        int byAmount = sign > 0 ? Long.compare(remaining[a], remaining[b]) : Long.compare(remaining[b], remaining[a]);
+        return byAmount != 0 ? byAmount > 0 : a < b;
+    }
+
+    private static void siftUp(int[] heap, int index, long[] remaining, int sign) {
+        int position = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!before(position, heap[parent], remaining, sign)) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = position;
+    }
+
+    private static void siftDown(int[] heap, int size, long[] remaining, int sign) {
+        if (size == 0) {
+            return;
+        }
+        int position = heap[0];
+        int index = 0;
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && before(heap[child + 1], heap[child], remaining, sign)) {
+                child++;
+            }
+            if (!before(heap[child], position, remaining, sign)) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = position;
+    }
+
+    // Splits the members into the largest possible number of zero-sum subsets. A subset of k members
+    // settles in k - 1 transfers, so this minimises the total. dp[mask] is the most zero-sum groups
+    // that the members in mask can be cut into when taken one at a time.
+    private static List<int[]> zeroSumSubsets(long[] balances) {
+        int n = balances.length;
+        int full = (1 << n) - 1;
+        long[] sum = new long[full + 1];
+        int[] dp = new int[full + 1];
+        for (int mask = 1; mask <= full; mask++) {
+            int lowest = Integer.numberOfTrailingZeros(mask);
+            sum[mask] = sum[mask & (mask - 1)] + balances[lowest];
+
+            int best = 0;
+            for (int rest = mask; rest != 0; rest &= rest - 1) {
+                int bit = rest & -rest;
+                best = Math.max(best, dp[mask ^ bit]);
+            }
+            dp[mask] = best + (sum[mask] == 0 ? 1 : 0);
+        }
+
+        // Walk back from the full set; every zero-sum mask on the path closes one subset
+        List<int[]> subsets = new ArrayList<>();
+        int mask = full;
+        int groupStart = full;
+        while (mask != 0) {
+            int target = dp[mask] - (sum[mask] == 0 ? 1 : 0);
+            int next = -1;
+            for (int rest = mask; rest != 0; rest &= rest - 1) {
+                int bit = rest & -rest;
+                if (dp[mask ^ bit] == target) {
+                    next = mask ^ bit;
+                    break;
+                }
+            }
+            mask = next;
+            if (sum[mask] == 0) {
+                subsets.add(membersOf(groupStart & ~mask));
+                groupStart = mask;
+            }
+        }
+        return subsets;
+    }
+
+    private static int[] membersOf(int mask) {
+        int[] indices = new int[Integer.bitCount(mask)];
+        int i = 0;
+        for (int rest = mask; rest != 0; rest &= rest - 1) {
+            indices[i++] = Integer.numberOfTrailingZeros(rest);
+        }
+        return indices;
+    }
+}
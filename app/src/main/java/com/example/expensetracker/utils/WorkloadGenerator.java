@@ -0,0 +1,308 @@
+package com.example.expensetracker.utils;
+
+import com.example.expensetracker.models.Expense;
+import com.example.expensetracker.models.ExpenseShare;
+import com.example.expensetracker.models.Group;
+import com.example.expensetracker.models.Member;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * Fills a Sink with synthetic groups for load testing: groups x members x expenses per group, all
+ * drawn from one seeded Random, so the same settings and seed always give the same data.
+ *
+ * Each expense picks a split type, a category and a date from weighted distributions, and a share
+ * of them (customAmountRatio) get uneven amounts instead of an even split. Members are written
+ * before the expenses of their group, which go in batches of EXPENSE_BATCH_SIZE. DatabaseSink
+ * writes straight through DatabaseHelper's batch inserts; InMemorySink is for unit tests and
+ * benchmarks that need the data without a database:
+ *
+ *     new WorkloadGenerator(42).groups(5).members(20).expenses(10_000).generate(sink);
+ */
+public class WorkloadGenerator {
+
+    /** Where generated rows go. The add methods match DatabaseHelper's. */
+    public interface Sink {
+        long addGroup(Group group);
+
+        // Each member gets its new ID set
+        int addMembers(List<Member> members);
+
+        int addExpenses(List<Expense> expenses);
+    }
+
+    /** Keeps everything in lists, numbering IDs from 1 the way the database would. */
+    public static class InMemorySink implements Sink {
+        public final List<Group> groups = new ArrayList<>();
+        public final List<Member> members = new ArrayList<>();
+        public final List<Expense> expenses = new ArrayList<>();
+
+        @Override
+        public long addGroup(Group group) {
+            groups.add(group);
+            group.setGroupId(groups.size());
+            return groups.size();
+        }
+
+        @Override
+        public int addMembers(List<Member> newMembers) {
+            for (Member member : newMembers) {
+                members.add(member);
+                member.setMemberId(members.size());
+            }
+            return newMembers.size();
+        }
+
+        @Override
+        public int addExpenses(List<Expense> newExpenses) {
+            for (Expense expense : newExpenses) {
+                expenses.add(expense);
+                expense.setExpenseId(expenses.size());
+            }
+            return newExpenses.size();
+        }
+    }
+
+    public enum Split {
+        EVERYONE, // The whole group
+        SUBSET,   // 2 to MAX_SUBSET_SIZE members
+        PAIR      // Two members
+    }
+
+    public enum DateSkew {
+        UNIFORM,
+        RECENT // Most expenses fall near the end of the date range
+    }
+
+    public static final int EXPENSE_BATCH_SIZE = 5_000;
+    static final int MAX_SUBSET_SIZE = 6;
+
+    private static final String[] NAMES = { "Dinner", "Lunch", "Breakfast", "Taxi", "Train", "Groceries", "Coffee",
+            "Museum", "Drinks", "Fuel", "Parking", "Cinema", "Hotel", "Tickets", "Snacks" };
+
+    // Used while split() or category() have not been called; never added to the builder's own lists
+    private static final List<Split> DEFAULT_SPLITS = Arrays.asList(Split.EVERYONE, Split.SUBSET, Split.PAIR);
+    private static final List<Integer> DEFAULT_SPLIT_WEIGHTS = Arrays.asList(2, 6, 2);
+    private static final List<String> DEFAULT_CATEGORIES = Arrays.asList("Food", "Transport", "Accommodation",
+            "Entertainment", "Shopping", "Utilities", "Other");
+    private static final List<Integer> DEFAULT_CATEGORY_WEIGHTS = Arrays.asList(35, 20, 10, 10, 10, 5, 10);
+
+    private final long seed;
+    private int groupCount = 1;
+    private int memberCount = 5;
+    private int expenseCount = 100;
+    private final List<Split> splits = new ArrayList<>();
+    private final List<Integer> splitWeights = new ArrayList<>();
+    private final List<String> categories = new ArrayList<>();
+    private final List<Integer> categoryWeights = new ArrayList<>();
+    private String firstDate = "2024-01-01";
+    private int dayCount = 365;
+    private DateSkew dateSkew = DateSkew.UNIFORM;
+    private double customAmountRatio = 0.25;
+    private long maxAmountCents = 20_000;
+
+    public WorkloadGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    public WorkloadGenerator groups(int count) {
+        groupCount = count;
+        return this;
+    }
+
+    // Per group, at least one
+    public WorkloadGenerator members(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("A group needs at least one member, got " + count);
+        }
+        memberCount = count;
+        return this;
+    }
+
+    // Per group
+    public WorkloadGenerator expenses(int count) {
+        expenseCount = count;
+        return this;
+    }
+
+    // Adds a split type with a relative weight. Without any, all three are used, mostly SUBSET.
+    public WorkloadGenerator split(Split split, int weight) {
+        splits.add(split);
+        splitWeights.add(weight);
+        return this;
+    }
+
+    // Adds a category with a relative weight. Without any, a fixed everyday mix is used.
+    public WorkloadGenerator category(String category, int weight) {
+        categories.add(category);
+        categoryWeights.add(weight);
+        return this;
+    }
+
+    // Dates run from firstDate ("yyyy-MM-dd") for dayCount days
+    public WorkloadGenerator dates(String firstDate, int dayCount, DateSkew skew) {
+        this.firstDate = firstDate;
+        this.dayCount = dayCount;
+        this.dateSkew = skew;
+        return this;
+    }
+
+    // Share of expenses, 0 to 1, split in uneven amounts rather than evenly
+    public WorkloadGenerator customAmountRatio(double ratio) {
+        customAmountRatio = ratio;
+        return this;
+    }
+
+    // Amounts are drawn from 1.00 up to this
+    public WorkloadGenerator maxAmountCents(long cents) {
+        maxAmountCents = cents;
+        return this;
+    }
+
+    // Returns the IDs of the groups created
+    public int[] generate(Sink sink) {
+        Random random = new Random(seed);
+        String[] dates = dateRange();
+        int[] groupIds = new int[groupCount];
+        for (int g = 0; g < groupCount; g++) {
+            Group group = new Group("Workload group " + (g + 1), memberCount + " members, " + expenseCount
+                    + " expenses");
+            group.setCreatedDate(dates[0]);
+            int groupId = (int) sink.addGroup(group);
+            groupIds[g] = groupId;
+
+            List<Member> members = new ArrayList<>(memberCount);
+            for (int m = 0; m < memberCount; m++) {
+                String name = "Member " + (m + 1);
+                members.add(new Member(groupId, name, "member" + (m + 1) + "@example.com"));
+            }
+            sink.addMembers(members);
+
+            List<Expense> batch = new ArrayList<>(Math.min(expenseCount, EXPENSE_BATCH_SIZE));
+            for (int e = 0; e < expenseCount; e++) {
+                batch.add(expense(random, groupId, members, dates, e));
+                if (batch.size() == EXPENSE_BATCH_SIZE) {
+                    sink.addExpenses(batch);
+                    batch = new ArrayList<>(EXPENSE_BATCH_SIZE);
+                }
+            }
+            if (!batch.isEmpty()) {
+                sink.addExpenses(batch);
+            }
+        }
+        return groupIds;
+    }
+
+    private Expense expense(Random random, int groupId, List<Member> members, String[] dates, int index) {
+        boolean defaultSplits = splits.isEmpty();
+        int participantCount;
+        switch (pick(random, defaultSplits ? DEFAULT_SPLITS : splits,
+                defaultSplits ? DEFAULT_SPLIT_WEIGHTS : splitWeights)) {
+            case EVERYONE:
+                participantCount = members.size();
+                break;
+            case PAIR:
+                participantCount = Math.min(2, members.size());
+                break;
+            default:
+                participantCount = Math.min(2 + random.nextInt(MAX_SUBSET_SIZE - 1), members.size());
+                break;
+        }
+
+        long amountCents = 100 + (long) (random.nextDouble() * (maxAmountCents - 100));
+        long[] shareCents = random.nextDouble() < customAmountRatio
+                ? unevenSplit(random, amountCents, participantCount)
+                : MoneyUtils.splitEvenly(amountCents, participantCount);
+
+        // A run of consecutive members from a random start, so participants never repeat
+        int first = random.nextInt(members.size());
+        List<ExpenseShare> shares = new ArrayList<>(participantCount);
+        StringBuilder participants = new StringBuilder();
+        for (int p = 0; p < participantCount; p++) {
+            Member member = members.get((first + p) % members.size());
+            shares.add(new ExpenseShare(member.getMemberId(), member.getMemberName(), shareCents[p]));
+            participants.append(p == 0 ? "" : ", ").append(member.getMemberName());
+        }
+        // Usually one of the participants pays, now and then someone who is not splitting it
+        Member payer = random.nextInt(10) == 0
+                ? members.get(random.nextInt(members.size()))
+                : members.get((first + random.nextInt(participantCount)) % members.size());
+
+        Expense expense = new Expense(groupId, NAMES[random.nextInt(NAMES.length)] + " " + (index + 1),
+                amountCents, payer.getMemberName(), participants.toString(), date(random, dates));
+        boolean defaultCategories = categories.isEmpty();
+        expense.setCategory(pick(random, defaultCategories ? DEFAULT_CATEGORIES : categories,
+                defaultCategories ? DEFAULT_CATEGORY_WEIGHTS : categoryWeights));
+        expense.setShares(shares);
+        return expense;
+    }
+
+    private String date(Random random, String[] dates) {
+        double position = random.nextDouble();
+        if (dateSkew == DateSkew.RECENT) {
+            // Squaring bunches the draws near 0, which is flipped to the end of the range
+            position = 1 - position * position;
+        }
+        return dates[Math.min((int) (position * dates.length), dates.length - 1)];
+    }
+
+    // Every date of the range, formatted once up front
+    private String[] dateRange() {
+        SimpleDateFormat format = new SimpleDateFormat(DateUtils.DATABASE_FORMAT, Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"), Locale.US);
+        try {
+            calendar.setTime(format.parse(firstDate));
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("First date must be yyyy-MM-dd, got " + firstDate, e);
+        }
+
+        String[] dates = new String[Math.max(dayCount, 1)];
+        for (int day = 0; day < dates.length; day++) {
+            dates[day] = format.format(calendar.getTime());
+            calendar.add(Calendar.DAY_OF_MONTH, 1);
+        }
+        return dates;
+    }
+
+    // Random weights, scaled so the shares still add up to the amount exactly
+    private static long[] unevenSplit(Random random, long amountCents, int count) {
+        long[] weights = new long[count];
+        long totalWeight = 0;
+        for (int i = 0; i < count; i++) {
+            weights[i] = 1 + random.nextInt(10);
+            totalWeight += weights[i];
+        }
+        long[] shares = new long[count];
+        long assigned = 0;
+        for (int i = 0; i < count; i++) {
+            shares[i] = amountCents * weights[i] / totalWeight;
+            assigned += shares[i];
+        }
+        shares[0] += amountCents - assigned;
+        return shares;
+    }
+
+    private static <T> T pick(Random random, List<T> values, List<Integer> weights) {
+        int total = 0;
+        for (int weight : weights) {
+            total += weight;
+        }
+        int draw = random.nextInt(total);
+        for (int i = 0; i < values.size(); i++) {
+            draw -= weights.get(i);
+            if (draw < 0) {
+                return values.get(i);
+            }
+        }
+        return values.get(values.size() - 1);
+    }
+}
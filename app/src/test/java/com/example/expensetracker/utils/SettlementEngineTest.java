@@ -0,0 +1,125 @@
+package com.example.expensetracker.utils;
+
+import com.example.expensetracker.models.Member;
+import com.example.expensetracker.models.Settlement;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SettlementEngineTest {
+
+    @Test
+    public void settlesEveryBalanceToZero() {
+        List<Member> members = members(500, -500, 300, -300, 200, -100, -100);
+        for (SettlementEngine.Mode mode : SettlementEngine.Mode.values()) {
+            assertSettled(members, SettlementEngine.settle(members, mode));
+        }
+    }
+
+    @Test
+    public void exactBeatsGreedyWhenBalancesPairUp() {
+        // Greedy starts with 5.00 -> 4.00 and needs 4 transfers; 4.00 -> 4.00 plus 5.00 split two ways needs 3
+        List<Member> members = members(400, -200, -300, 500, -400);
+        List<Settlement> greedy = SettlementEngine.settle(members, SettlementEngine.Mode.GREEDY);
+        List<Settlement> exact = SettlementEngine.settle(members, SettlementEngine.Mode.EXACT);
+        assertSettled(members, exact);
+        assertEquals(4, greedy.size());
+        assertEquals(3, exact.size());
+    }
+
+    @Test
+    public void exactNeverNeedsMoreTransfersThanGreedy() {
+        Random random = new Random(42);
+        for (int run = 0; run < 200; run++) {
+            List<Member> members = randomMembers(random, 2 + random.nextInt(12), 300);
+            List<Settlement> greedy = SettlementEngine.settle(members, SettlementEngine.Mode.GREEDY);
+            List<Settlement> exact = SettlementEngine.settle(members, SettlementEngine.Mode.EXACT);
+            assertSettled(members, greedy);
+            assertSettled(members, exact);
+            assertTrue(exact.size() <= greedy.size());
+        }
+    }
+
+    @Test
+    public void settledGroupNeedsNoTransfers() {
+        assertTrue(SettlementEngine.settle(members(0, 0, 0), SettlementEngine.Mode.AUTO).isEmpty());
+    }
+
+    @Test
+    public void transferListSettlesLargeGroups() {
+        List<Member> members = randomMembers(new Random(7), 10_000, 25);
+        int[] memberIds = new int[members.size()];
+        long[] balanceCents = new long[members.size()];
+        for (int i = 0; i < memberIds.length; i++) {
+            memberIds[i] = members.get(i).getMemberId();
+            balanceCents[i] = members.get(i).getBalanceCents();
+        }
+
+        SettlementEngine.TransferList transfers = SettlementEngine.settle(memberIds, balanceCents,
+                SettlementEngine.Mode.AUTO);
+        assertTrue(transfers.size() < members.size());
+        List<Settlement> settlements = transfers.toSettlements(members);
+        assertSettled(members, settlements);
+        for (int i = 0; i < transfers.size(); i++) {
+            assertEquals(transfers.fromMemberId(i), settlements.get(i).getFromMemberId());
+            assertEquals(transfers.toMemberId(i), settlements.get(i).getToMemberId());
+            assertEquals(transfers.amountCents(i), settlements.get(i).getAmountCents());
+        }
+        // The input is left as it was
+        assertEquals(members.get(0).getBalanceCents(), balanceCents[0]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void exactRejectsLargeGroups() {
+        List<Member> members = randomMembers(new Random(1), SettlementEngine.EXACT_MAX_MEMBERS + 5, 10000);
+        SettlementEngine.settle(members, SettlementEngine.Mode.EXACT);
+    }
+
+    static List<Member> members(long... balancesCents) {
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < balancesCents.length; i++) {
+            Member member = new Member();
+            member.setMemberId(i + 1);
+            member.setMemberName("Member " + (i + 1));
+            member.setBalanceCents(balancesCents[i]);
+            members.add(member);
+        }
+        return members;
+    }
+
+    // Random balances in whole units of 'step' cents that add up to zero
+    static List<Member> randomMembers(Random random, int count, int step) {
+        long[] balances = new long[count];
+        long total = 0;
+        for (int i = 0; i < count - 1; i++) {
+            balances[i] = (random.nextInt(21) - 10) * (long) step;
+            total += balances[i];
+        }
+        balances[count - 1] = -total;
+        return members(balances);
+    }
+
+    private static void assertSettled(List<Member> members, List<Settlement> settlements) {
+        Map<Integer, Long> remaining = new HashMap<>();
+        for (Member member : members) {
+            remaining.put(member.getMemberId(), member.getBalanceCents());
+        }
+        for (Settlement settlement : settlements) {
+            assertTrue(settlement.getAmountCents() > 0);
+            remaining.put(settlement.getFromMemberId(),
+                    remaining.get(settlement.getFromMemberId()) - settlement.getAmountCents());
+            remaining.put(settlement.getToMemberId(),
+                    remaining.get(settlement.getToMemberId()) + settlement.getAmountCents());
+        }
+        for (long balance : remaining.values()) {
+            assertEquals(0, balance);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.expensetracker.utils;
+
+import com.example.expensetracker.models.Expense;
+import com.example.expensetracker.models.ExpenseShare;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class WorkloadGeneratorTest {
+
+    @Test
+    public void sameSeedGivesSameData() {
+        List<Expense> first = generate(new WorkloadGenerator(7).groups(2).members(8).expenses(300)).expenses;
+        List<Expense> second = generate(new WorkloadGenerator(7).groups(2).members(8).expenses(300)).expenses;
+        List<Expense> other = generate(new WorkloadGenerator(8).groups(2).members(8).expenses(300)).expenses;
+
+        assertEquals(600, first.size());
+        boolean differs = false;
+        for (int i = 0; i < first.size(); i++) {
+            assertEquals(describe(first.get(i)), describe(second.get(i)));
+            differs |= !describe(first.get(i)).equals(describe(other.get(i)));
+        }
+        assertTrue(differs);
+    }
+
+    @Test
+    public void sharesAddUpToEachAmount() {
+        WorkloadGenerator.InMemorySink sink = generate(new WorkloadGenerator(1).groups(3).members(12).expenses(2_000)
+                .customAmountRatio(0.5));
+        assertEquals(3, sink.groups.size());
+        assertEquals(36, sink.members.size());
+
+        for (Expense expense : sink.expenses) {
+            long total = 0;
+            Set<Integer> memberIds = new HashSet<>();
+            for (ExpenseShare share : expense.getShares()) {
+                total += share.getShareCents();
+                assertTrue(memberIds.add(share.getMemberId()));
+                // Every participant belongs to the expense's own group
+                assertEquals(expense.getGroupId(), sink.members.get(share.getMemberId() - 1).getGroupId());
+            }
+            assertEquals(expense.getAmountCents(), total);
+        }
+    }
+
+    @Test
+    public void followsConfiguredSplitsCategoriesAndDates() {
+        WorkloadGenerator.InMemorySink sink = generate(new WorkloadGenerator(3).members(10).expenses(1_000)
+                .split(WorkloadGenerator.Split.PAIR, 1)
+                .category("Fuel", 1)
+                .dates("2024-02-27", 3, WorkloadGenerator.DateSkew.RECENT)
+                .customAmountRatio(0));
+
+        for (Expense expense : sink.expenses) {
+            assertEquals(2, expense.getShares().size());
+            assertEquals("Fuel", expense.getCategory());
+            assertTrue(expense.getDate(), expense.getDate().equals("2024-02-27")
+                    || expense.getDate().equals("2024-02-28") || expense.getDate().equals("2024-02-29"));
+            // No custom amounts, so the two shares are an even split
+            long difference = expense.getShares().get(0).getShareCents() - expense.getShares().get(1).getShareCents();
+            assertTrue(difference == 0 || difference == 1);
+        }
+    }
+
+    @Test
+    public void defaultsDoNotStickToTheBuilder() {
+        WorkloadGenerator generator = new WorkloadGenerator(4).members(6).expenses(500);
+        generate(generator);
+        WorkloadGenerator.InMemorySink sink = generate(generator.split(WorkloadGenerator.Split.PAIR, 1));
+        for (Expense expense : sink.expenses) {
+            assertEquals(2, expense.getShares().size());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsGroupsWithoutMembers() {
+        new WorkloadGenerator(1).members(0);
+    }
+
+    @Test
+    public void writesExpensesInBatches() {
+        int[] batches = new int[1];
+        WorkloadGenerator.InMemorySink sink = new WorkloadGenerator.InMemorySink() {
+            @Override
+            public int addExpenses(List<Expense> newExpenses) {
+                assertTrue(newExpenses.size() <= WorkloadGenerator.EXPENSE_BATCH_SIZE);
+                batches[0]++;
+                return super.addExpenses(newExpenses);
+            }
+        };
+        new WorkloadGenerator(5).members(3).expenses(WorkloadGenerator.EXPENSE_BATCH_SIZE * 2 + 1).generate(sink);
+        assertEquals(3, batches[0]);
+        assertEquals(WorkloadGenerator.EXPENSE_BATCH_SIZE * 2 + 1, sink.expenses.size());
+    }
+
+    private static WorkloadGenerator.InMemorySink generate(WorkloadGenerator generator) {
+        WorkloadGenerator.InMemorySink sink = new WorkloadGenerator.InMemorySink();
+        generator.generate(sink);
+        return sink;
+    }
+
+    private static String describe(Expense expense) {
+        StringBuilder text = new StringBuilder(expense.getExpenseName() + "|" + expense.getAmountCents() + "|"
+                + expense.getPayer() + "|" + expense.getDate() + "|" + expense.getCategory());
+        for (ExpenseShare share : expense.getShares()) {
+            text.append('|').append(share.getMemberId()).append(':').append(share.getShareCents());
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,37 @@
+plugins {
+    java
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+// The app classes under test have no Android dependencies, so they are compiled straight from the
+// app's sources and the benchmarks run on a plain JVM. Run with: ./gradlew :benchmark:jmh
+sourceSets {
+    main {
+        java {
+            srcDir("../app/src/main/java")
+            include("com/example/expensetracker/models/**")
+            include("com/example/expensetracker/utils/BalanceCalculator.java")
+            include("com/example/expensetracker/utils/DateUtils.java")
+            include("com/example/expensetracker/utils/ExpenseBreakdown.java")
+            include("com/example/expensetracker/utils/LegacyShareParser.java")
+            include("com/example/expensetracker/utils/MoneyUtils.java")
+            include("com/example/expensetracker/utils/SettlementEngine.java")
+            include("com/example/expensetracker/utils/WorkloadGenerator.java")
+        }
+    }
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    // The largest synthetic groups hold a million expenses with their shares
+    jvmArgs.set(listOf("-Xmx4g"))
+    resultFormat.set("JSON")
+}
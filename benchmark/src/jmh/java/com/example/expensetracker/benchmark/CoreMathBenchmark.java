@@ -0,0 +1,41 @@
+package com.example.expensetracker.benchmark;
+
+import com.example.expensetracker.utils.ExpenseBreakdown;
+import com.example.expensetracker.utils.LegacyShareParser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to run the per-expense math over every expense of a synthetic group: parsing the legacy
+ * participant strings, adding up member balances, and building the details dialog breakdown.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CoreMathBenchmark {
+
+    @Benchmark
+    public void parseLegacyShares(SyntheticGroup group, Blackhole blackhole) {
+        for (int i = 0; i < group.expenseCount; i++) {
+            blackhole.consume(LegacyShareParser.parse(group.participantsTexts[i], group.amountsTexts[i],
+                    group.expenses[i].getAmount()));
+        }
+    }
+
+    @Benchmark
+    public long[] groupBalances(SyntheticGroup group) {
+        return group.balances();
+    }
+
+    @Benchmark
+    public void participantBreakdowns(SyntheticGroup group, Blackhole blackhole) {
+        for (int i = 0; i < group.expenseCount; i++) {
+            blackhole.consume(ExpenseBreakdown.of(group.expenses[i], group.expenses[i].getShares()));
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.expensetracker.benchmark;
+
+import com.example.expensetracker.models.Member;
+import com.example.expensetracker.models.Settlement;
+import com.example.expensetracker.utils.SettlementEngine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time for SettlementEngine to settle the balances a synthetic group ends up with, in the AUTO mode
+ * SettlementActivity uses and in GREEDY mode. AUTO is the exact search for up to
+ * EXACT_MAX_MEMBERS members with a balance, so it only differs from GREEDY in the 10 member groups.
+ * settleGreedyTransfers stops at the TransferList, before any Settlement is built; run with
+ * -prof gc to compare the bytes allocated per call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SettlementBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Balances {
+        List<Member> members;
+        int[] memberIds;
+        long[] balanceCents;
+
+        @Setup(Level.Trial)
+        public void load(SyntheticGroup group) {
+            long[] balances = group.balances();
+            members = new ArrayList<>(group.memberCount);
+            memberIds = new int[group.memberCount];
+            balanceCents = new long[group.memberCount];
+            for (Member member : group.members) {
+                memberIds[members.size()] = member.getMemberId();
+                balanceCents[members.size()] = balances[member.getMemberId()];
+                members.add(new Member(member.getMemberId(), member.getGroupId(), member.getMemberName(), null, 0, 0,
+                        balances[member.getMemberId()]));
+            }
+        }
+    }
+
+    @Benchmark
+    public List<Settlement> settleAuto(Balances balances) {
+        return SettlementEngine.settle(balances.members, SettlementEngine.Mode.AUTO);
+    }
+
+    @Benchmark
+    public List<Settlement> settleGreedy(Balances balances) {
+        return SettlementEngine.settle(balances.members, SettlementEngine.Mode.GREEDY);
+    }
+
+    @Benchmark
+    public SettlementEngine.TransferList settleGreedyTransfers(Balances balances) {
+        return SettlementEngine.settle(balances.memberIds, balances.balanceCents, SettlementEngine.Mode.GREEDY);
+    }
+}
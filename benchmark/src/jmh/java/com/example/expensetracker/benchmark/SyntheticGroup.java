@@ -0,0 +1,82 @@
+package com.example.expensetracker.benchmark;
+
+import com.example.expensetracker.models.Expense;
+import com.example.expensetracker.models.ExpenseShare;
+import com.example.expensetracker.models.Member;
+import com.example.expensetracker.utils.BalanceCalculator;
+import com.example.expensetracker.utils.MoneyUtils;
+import com.example.expensetracker.utils.WorkloadGenerator;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One WorkloadGenerator group of memberCount members and expenseCount expenses, the same for every
+ * run with the same parameters. Expenses are split between 2 to 6 members, never the whole group,
+ * so the largest groups still fit in memory. They are kept both as Expense objects with their shares
+ * and in the legacy participants / amounts strings.
+ */
+@State(Scope.Benchmark)
+public class SyntheticGroup {
+
+    @Param({ "10", "100", "1000" })
+    public int memberCount;
+
+    @Param({ "100", "10000", "1000000" })
+    public int expenseCount;
+
+    // Members have IDs 1 to memberCount, so arrays indexed by member ID have memberCount + 1 slots
+    List<Member> members;
+    Expense[] expenses;
+    int[] payerIds;
+    String[] participantsTexts;
+    String[] amountsTexts;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        WorkloadGenerator.InMemorySink sink = new WorkloadGenerator.InMemorySink();
+        new WorkloadGenerator(31L * memberCount + expenseCount)
+                .members(memberCount)
+                .expenses(expenseCount)
+                .split(WorkloadGenerator.Split.SUBSET, 3)
+                .split(WorkloadGenerator.Split.PAIR, 1)
+                .generate(sink);
+
+        members = sink.members;
+        Map<String, Integer> memberIds = new HashMap<>();
+        for (Member member : members) {
+            memberIds.put(member.getMemberName(), member.getMemberId());
+        }
+
+        expenses = sink.expenses.toArray(new Expense[0]);
+        payerIds = new int[expenseCount];
+        participantsTexts = new String[expenseCount];
+        amountsTexts = new String[expenseCount];
+        for (int i = 0; i < expenseCount; i++) {
+            StringBuilder amounts = new StringBuilder();
+            for (ExpenseShare share : expenses[i].getShares()) {
+                amounts.append(amounts.length() == 0 ? "" : ",").append(MoneyUtils.formatPlain(share.getShareCents()));
+            }
+            payerIds[i] = memberIds.get(expenses[i].getPayer());
+            participantsTexts[i] = expenses[i].getParticipants();
+            amountsTexts[i] = amounts.toString();
+        }
+    }
+
+    // Running balances of every member after all expenses, in cents, indexed by member ID
+    long[] balances() {
+        long[] balances = new long[memberCount + 1];
+        BalanceCalculator.Sink sink = (memberId, owedCents, owingCents) -> balances[memberId] += owedCents - owingCents;
+        for (int i = 0; i < expenseCount; i++) {
+            BalanceCalculator.applyExpense(expenses[i].getAmountCents(), payerIds[i], expenses[i].getShares(), 1, sink);
+        }
+        return balances;
+    }
+}
@@ -21,4 +21,5 @@ dependencyResolutionManagement {
 
 rootProject.name = "Expense Tracker"
 include(":app")
+include(":benchmark")
  
\ No newline at end of file